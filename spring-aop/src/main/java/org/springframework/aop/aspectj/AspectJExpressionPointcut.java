@@ -24,11 +24,17 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.aopalliance.intercept.MethodInvocation;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.aspectj.weaver.internal.tools.PointcutExpressionImpl;
+import org.aspectj.weaver.patterns.AndPointcut;
 import org.aspectj.weaver.patterns.NamePattern;
+import org.aspectj.weaver.patterns.NotPointcut;
+import org.aspectj.weaver.patterns.OrPointcut;
+import org.aspectj.weaver.patterns.Pointcut;
 import org.aspectj.weaver.reflect.ReflectionWorld.ReflectionWorldException;
 import org.aspectj.weaver.reflect.ShadowMatchImpl;
 import org.aspectj.weaver.tools.ContextBasedMatcher;
@@ -56,6 +62,7 @@ import org.springframework.beans.factory.BeanFactoryUtils;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
@@ -97,6 +104,13 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 	}
 
 
+	/**
+	 * Shadow match caches shared between pointcuts with equal expressions,
+	 * e.g. between several advice methods referring to the same named pointcut.
+	 */
+	private static final ConcurrentMap<ShadowMatchCacheKey, Map<Method, ShadowMatch>> sharedShadowMatchCaches =
+			new ConcurrentReferenceHashMap<ShadowMatchCacheKey, Map<Method, ShadowMatch>>(64);
+
 	private static final Log logger = LogFactory.getLog(AspectJExpressionPointcut.class);
 
 	private Class<?> pointcutDeclarationScope;
@@ -109,9 +123,9 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 
 	private transient ClassLoader pointcutClassLoader;
 
-	private transient PointcutExpression pointcutExpression;
+	private transient volatile PointcutExpression pointcutExpression;
 
-	private transient Map<Method, ShadowMatch> shadowMatchCache = new ConcurrentHashMap<Method, ShadowMatch>(32);
+	private transient Map<Method, ShadowMatch> shadowMatchCache;
 
 
 	/**
@@ -186,11 +200,64 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 			throw new IllegalStateException("Must set property 'expression' before attempting to match");
 		}
 		if (this.pointcutExpression == null) {
-			this.pointcutClassLoader = (this.beanFactory instanceof ConfigurableBeanFactory ?
+			ClassLoader classLoader = (this.beanFactory instanceof ConfigurableBeanFactory ?
 					((ConfigurableBeanFactory) this.beanFactory).getBeanClassLoader() :
 					ClassUtils.getDefaultClassLoader());
-			this.pointcutExpression = buildPointcutExpression(this.pointcutClassLoader);
+			PointcutExpression expression = buildPointcutExpression(classLoader);
+			this.pointcutClassLoader = classLoader;
+			this.shadowMatchCache = obtainShadowMatchCache(expression, classLoader);
+			// Publish the expression last: readers rely on the volatile write
+			// for seeing the class loader and the shadow match cache as well.
+			this.pointcutExpression = expression;
+		}
+	}
+
+	/**
+	 * Obtain the shadow match cache for this pointcut: shared with any other
+	 * pointcut for the same expression, declaration scope, parameters and
+	 * ClassLoader, since those are going to produce the same shadow matches.
+	 * <p>Expressions using the {@code bean()} designator, directly or through
+	 * a named pointcut reference, get a local cache since their matching depends
+	 * on the {@link BeanFactory} in use. The same applies to expressions whose
+	 * resolved form cannot be introspected.
+	 */
+	private Map<Method, ShadowMatch> obtainShadowMatchCache(PointcutExpression expression, ClassLoader classLoader) {
+		if (!(expression instanceof PointcutExpressionImpl) ||
+				mayContainBeanDesignator(((PointcutExpressionImpl) expression).getUnderlyingPointcut())) {
+			return new ConcurrentHashMap<Method, ShadowMatch>(32);
+		}
+		ShadowMatchCacheKey cacheKey = new ShadowMatchCacheKey(getExpression(), this.pointcutDeclarationScope,
+				this.pointcutParameterNames, this.pointcutParameterTypes, classLoader);
+		Map<Method, ShadowMatch> cache = sharedShadowMatchCaches.get(cacheKey);
+		if (cache == null) {
+			Map<Method, ShadowMatch> newCache = new ConcurrentHashMap<Method, ShadowMatch>(32);
+			cache = sharedShadowMatchCaches.putIfAbsent(cacheKey, newCache);
+			if (cache == null) {
+				cache = newCache;
+			}
 		}
+		return cache;
+	}
+
+	/**
+	 * Determine whether the given resolved pointcut may contain a {@code bean()}
+	 * designator or any other user extension, with named pointcut references
+	 * already being replaced by the pointcuts they refer to.
+	 */
+	private static boolean mayContainBeanDesignator(Pointcut pointcut) {
+		if (pointcut instanceof AndPointcut) {
+			return (mayContainBeanDesignator(((AndPointcut) pointcut).getLeft()) ||
+					mayContainBeanDesignator(((AndPointcut) pointcut).getRight()));
+		}
+		if (pointcut instanceof OrPointcut) {
+			return (mayContainBeanDesignator(((OrPointcut) pointcut).getLeft()) ||
+					mayContainBeanDesignator(((OrPointcut) pointcut).getRight()));
+		}
+		if (pointcut instanceof NotPointcut) {
+			return mayContainBeanDesignator(((NotPointcut) pointcut).getNegatedPointcut());
+		}
+		byte kind = pointcut.getPointcutKind();
+		return (kind == Pointcut.USER_EXTENSION || kind == Pointcut.REFERENCE);
 	}
 
 	/**
@@ -632,8 +699,59 @@ public class AspectJExpressionPointcut extends AbstractExpressionPointcut
 		ois.defaultReadObject();
 
 		// Initialize transient fields.
-		// pointcutExpression will be initialized lazily by checkReadyToMatch()
-		this.shadowMatchCache = new ConcurrentHashMap<Method, ShadowMatch>(32);
+		// pointcutExpression and shadowMatchCache will be initialized lazily by checkReadyToMatch()
+	}
+
+
+	/**
+	 * Cache key for shared shadow match caches.
+	 */
+	private static class ShadowMatchCacheKey {
+
+		private final String expression;
+
+		private final Class<?> declarationScope;
+
+		private final String[] parameterNames;
+
+		private final Class<?>[] parameterTypes;
+
+		private final ClassLoader classLoader;
+
+		public ShadowMatchCacheKey(String expression, Class<?> declarationScope,
+				String[] parameterNames, Class<?>[] parameterTypes, ClassLoader classLoader) {
+
+			this.expression = expression;
+			this.declarationScope = declarationScope;
+			this.parameterNames = parameterNames;
+			this.parameterTypes = parameterTypes;
+			this.classLoader = classLoader;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof ShadowMatchCacheKey)) {
+				return false;
+			}
+			ShadowMatchCacheKey otherKey = (ShadowMatchCacheKey) other;
+			return (this.expression.equals(otherKey.expression) &&
+					ObjectUtils.nullSafeEquals(this.declarationScope, otherKey.declarationScope) &&
+					ObjectUtils.nullSafeEquals(this.parameterNames, otherKey.parameterNames) &&
+					ObjectUtils.nullSafeEquals(this.parameterTypes, otherKey.parameterTypes) &&
+					ObjectUtils.nullSafeEquals(this.classLoader, otherKey.classLoader));
+		}
+
+		@Override
+		public int hashCode() {
+			int hashCode = this.expression.hashCode();
+			hashCode = 31 * hashCode + ObjectUtils.nullSafeHashCode(this.declarationScope);
+			hashCode = 31 * hashCode + ObjectUtils.nullSafeHashCode(this.parameterNames);
+			hashCode = 31 * hashCode + ObjectUtils.nullSafeHashCode(this.parameterTypes);
+			return hashCode;
+		}
 	}
 
 
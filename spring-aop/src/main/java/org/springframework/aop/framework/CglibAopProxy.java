@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,8 @@ import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +38,7 @@ import org.springframework.aop.PointcutAdvisor;
 import org.springframework.aop.RawTargetAccess;
 import org.springframework.aop.TargetSource;
 import org.springframework.aop.support.AopUtils;
+import org.springframework.cglib.core.ClassGenerationStatistics;
 import org.springframework.cglib.core.ClassGenerator;
 import org.springframework.cglib.core.CodeGenerationException;
 import org.springframework.cglib.core.SpringNamingPolicy;
@@ -52,6 +55,7 @@ import org.springframework.core.SmartClassLoader;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ObjectUtils;
+import org.springframework.util.ReflectionUtils;
 
 /**
  * CGLIB-based {@link AopProxy} implementation for the Spring AOP framework.
@@ -316,10 +320,11 @@ class CglibAopProxy implements AopProxy, Serializable {
 
 		Callback[] callbacks;
 
-		// If the target is a static one and the advice chain is frozen,
-		// then we can make some optimisations by sending the AOP calls
-		// direct to the target using the fixed chain for that method.
-		if (isStatic && isFrozen) {
+		// If the advice chain is frozen, then we can make some optimisations by
+		// sending the AOP calls through the fixed chain for that method, without
+		// looking up the chain for each invocation. For a static target without
+		// an exposed proxy, the calls go right to the target.
+		if (isFrozen) {
 			Method[] methods = rootClass.getMethods();
 			Callback[] fixedCallbacks = new Callback[methods.length];
 			this.fixedInterceptorMap = new HashMap<String, Integer>(methods.length);
@@ -327,8 +332,13 @@ class CglibAopProxy implements AopProxy, Serializable {
 			// TODO: small memory optimisation here (can skip creation for methods with no advice)
 			for (int x = 0; x < methods.length; x++) {
 				List<Object> chain = this.advised.getInterceptorsAndDynamicInterceptionAdvice(methods[x], rootClass);
-				fixedCallbacks[x] = new FixedChainStaticTargetInterceptor(
-						chain, this.advised.getTargetSource().getTarget(), this.advised.getTargetClass());
+				if (isStatic && !exposeProxy) {
+					fixedCallbacks[x] = new FixedChainStaticTargetInterceptor(
+							chain, this.advised.getTargetSource().getTarget(), this.advised.getTargetClass());
+				}
+				else {
+					fixedCallbacks[x] = new FixedChainDynamicTargetInterceptor(chain, this.advised);
+				}
 				this.fixedInterceptorMap.put(methods[x].toString(), x);
 			}
 
@@ -609,8 +619,58 @@ class CglibAopProxy implements AopProxy, Serializable {
 
 
 	/**
-	 * General purpose AOP callback. Used when the target is dynamic or when the
-	 * proxy is not frozen.
+	 * Interceptor used for advised methods on a frozen proxy with a dynamic
+	 * target or with the proxy to be exposed. Obtains the target for each
+	 * invocation but does not need to look up the advice chain.
+	 */
+	private static class FixedChainDynamicTargetInterceptor implements MethodInterceptor, Serializable {
+
+		private final List<Object> adviceChain;
+
+		private final AdvisedSupport advised;
+
+		public FixedChainDynamicTargetInterceptor(List<Object> adviceChain, AdvisedSupport advised) {
+			this.adviceChain = adviceChain;
+			this.advised = advised;
+		}
+
+		@Override
+		public Object intercept(Object proxy, Method method, Object[] args, MethodProxy methodProxy) throws Throwable {
+			Object oldProxy = null;
+			boolean setProxyContext = false;
+			TargetSource targetSource = this.advised.getTargetSource();
+			Class<?> targetClass = null;
+			Object target = null;
+			try {
+				if (this.advised.exposeProxy) {
+					// Make invocation available if necessary.
+					oldProxy = AopContext.setCurrentProxy(proxy);
+					setProxyContext = true;
+				}
+				target = targetSource.getTarget();
+				if (target != null) {
+					targetClass = target.getClass();
+				}
+				Object retVal = new CglibMethodInvocation(
+						proxy, target, method, args, targetClass, this.adviceChain, methodProxy).proceed();
+				retVal = processReturnType(proxy, target, method, retVal);
+				return retVal;
+			}
+			finally {
+				if (target != null && !targetSource.isStatic()) {
+					targetSource.releaseTarget(target);
+				}
+				if (setProxyContext) {
+					// Restore old proxy.
+					AopContext.setCurrentProxy(oldProxy);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * General purpose AOP callback. Used when the proxy is not frozen.
 	 */
 	private static class DynamicAdvisedInterceptor implements MethodInterceptor, Serializable {
 
@@ -737,6 +797,8 @@ class CglibAopProxy implements AopProxy, Serializable {
 
 		private final int fixedInterceptorOffset;
 
+		private volatile int[] dispatchSignature;
+
 		public ProxyCallbackFilter(AdvisedSupport advised, Map<String, Integer> fixedInterceptorMap, int fixedInterceptorOffset) {
 			this.advised = advised;
 			this.fixedInterceptorMap = fixedInterceptorMap;
@@ -748,13 +810,14 @@ class CglibAopProxy implements AopProxy, Serializable {
 		 * callback we need.
 		 * <p>The callbacks for each proxy are built up of a set of fixed callbacks
 		 * for general use and then a set of callbacks that are specific to a method
-		 * for use on static targets with a fixed advice chain.
+		 * for use with a fixed advice chain.
 		 * <p>The callback used is determined thus:
 		 * <dl>
 		 * <dt>For exposed proxies</dt>
 		 * <dd>Exposing the proxy requires code to execute before and after the
 		 * method/chain invocation. This means we must use
-		 * DynamicAdvisedInterceptor, since all other interceptors can avoid the
+		 * DynamicAdvisedInterceptor, or FixedChainDynamicTargetInterceptor if the
+		 * advice chain is frozen, since all other interceptors can avoid the
 		 * need for a try/catch block</dd>
 		 * <dt>For Object.finalize():</dt>
 		 * <dd>No override for this method is used.</dd>
@@ -765,10 +828,11 @@ class CglibAopProxy implements AopProxy, Serializable {
 		 * <dd>the AdvisedDispatcher is used to dispatch the call directly to
 		 * the target</dd>
 		 * <dt>For advised methods:</dt>
-		 * <dd>If the target is static and the advice chain is frozen then a
-		 * FixedChainStaticTargetInterceptor specific to the method is used to
-		 * invoke the advice chain. Otherwise a DyanmicAdvisedInterceptor is
-		 * used.</dd>
+		 * <dd>If the advice chain is frozen then an interceptor specific to the
+		 * method is used to invoke the advice chain: a FixedChainStaticTargetInterceptor
+		 * if the target is static and the proxy is not exposed, a
+		 * FixedChainDynamicTargetInterceptor otherwise. If the advice chain is not
+		 * frozen, a DynamicAdvisedInterceptor is used.</dd>
 		 * <dt>For non-advised methods:</dt>
 		 * <dd>Where it can be determined that the method will not return {@code this}
 		 * or when {@code ProxyFactory.getExposeProxy()} returns {@code false},
@@ -810,24 +874,25 @@ class CglibAopProxy implements AopProxy, Serializable {
 			boolean isStatic = this.advised.getTargetSource().isStatic();
 			boolean isFrozen = this.advised.isFrozen();
 			if (haveAdvice || !isFrozen) {
-				// If exposing the proxy, then AOP_PROXY must be used.
-				if (exposeProxy) {
-					if (logger.isDebugEnabled()) {
-						logger.debug("Must expose proxy on advised method: " + method);
-					}
-					return AOP_PROXY;
-				}
 				String key = method.toString();
 				// Check to see if we have fixed interceptor to serve this method.
 				// Else use the AOP_PROXY.
-				if (isStatic && isFrozen && this.fixedInterceptorMap.containsKey(key)) {
+				if (isFrozen && this.fixedInterceptorMap.containsKey(key)) {
 					if (logger.isDebugEnabled()) {
 						logger.debug("Method has advice and optimisations are enabled: " + method);
 					}
-					// We know that we are optimising so we can use the FixedStaticChainInterceptors.
+					// We know that we are optimising so we can use the fixed chain interceptors,
+					// which also take care of exposing the proxy if necessary.
 					int index = this.fixedInterceptorMap.get(key);
 					return (index + this.fixedInterceptorOffset);
 				}
+				else if (exposeProxy) {
+					// If exposing the proxy, then AOP_PROXY must be used.
+					if (logger.isDebugEnabled()) {
+						logger.debug("Must expose proxy on advised method: " + method);
+					}
+					return AOP_PROXY;
+				}
 				else {
 					if (logger.isDebugEnabled()) {
 						logger.debug("Unable to apply any optimisations to advised method: " + method);
@@ -890,6 +955,12 @@ class CglibAopProxy implements AopProxy, Serializable {
 			if (this.advised.isExposeProxy() != otherAdvised.isExposeProxy()) {
 				return false;
 			}
+			if (this.advised.isOptimize() != otherAdvised.isOptimize()) {
+				return false;
+			}
+			if (this.advised.isOpaque() != otherAdvised.isOpaque()) {
+				return false;
+			}
 			if (this.advised.getTargetSource().isStatic() != otherAdvised.getTargetSource().isStatic()) {
 				return false;
 			}
@@ -903,17 +974,54 @@ class CglibAopProxy implements AopProxy, Serializable {
 			if (thisAdvisors.length != thatAdvisors.length) {
 				return false;
 			}
+			boolean equalPointcuts = true;
 			for (int i = 0; i < thisAdvisors.length; i++) {
 				Advisor thisAdvisor = thisAdvisors[i];
 				Advisor thatAdvisor = thatAdvisors[i];
 				if (!equalsAdviceClasses(thisAdvisor, thatAdvisor)) {
 					return false;
 				}
-				if (!equalsPointcuts(thisAdvisor, thatAdvisor)) {
-					return false;
+				if (equalPointcuts && !equalsPointcuts(thisAdvisor, thatAdvisor)) {
+					equalPointcuts = false;
+				}
+			}
+			if (equalPointcuts) {
+				return true;
+			}
+			// Pointcuts without equals implementation, e.g. created per application context:
+			// The generated class can still be reused if every method gets dispatched the same way.
+			return (this.advised.getTargetClass() == otherAdvised.getTargetClass() &&
+					this.fixedInterceptorOffset == otherCallbackFilter.fixedInterceptorOffset &&
+					Arrays.equals(getDispatchSignature(), otherCallbackFilter.getDispatchSignature()));
+		}
+
+		/**
+		 * Determine the callback index for each method that the generated class
+		 * may override, in a deterministic order for the given target class.
+		 */
+		private int[] getDispatchSignature() {
+			int[] signature = this.dispatchSignature;
+			if (signature == null) {
+				List<Method> methods = new ArrayList<Method>();
+				Class<?> targetClass = this.advised.getTargetClass();
+				if (targetClass != null) {
+					for (Method method : ReflectionUtils.getAllDeclaredMethods(targetClass)) {
+						int mod = method.getModifiers();
+						if (!Modifier.isStatic(mod) && !Modifier.isPrivate(mod)) {
+							methods.add(method);
+						}
+					}
 				}
+				for (Class<?> ifc : this.advised.getProxiedInterfaces()) {
+					methods.addAll(Arrays.asList(ifc.getMethods()));
+				}
+				signature = new int[methods.size()];
+				for (int i = 0; i < signature.length; i++) {
+					signature[i] = accept(methods.get(i));
+				}
+				this.dispatchSignature = signature;
 			}
-			return true;
+			return signature;
 		}
 
 		private boolean equalsAdviceClasses(Advisor a, Advisor b) {
@@ -956,6 +1064,7 @@ class CglibAopProxy implements AopProxy, Serializable {
 	 * CGLIB GeneratorStrategy variant which exposes the application ClassLoader
 	 * as thread context ClassLoader for the time of class generation
 	 * (in order for ASM to pick it up when doing common superclass resolution).
+	 * Each generated class is recorded in {@link ClassGenerationStatistics}.
 	 */
 	private static class ClassLoaderAwareUndeclaredThrowableStrategy extends UndeclaredThrowableStrategy {
 
@@ -968,6 +1077,13 @@ class CglibAopProxy implements AopProxy, Serializable {
 
 		@Override
 		public byte[] generate(ClassGenerator cg) throws Exception {
+			long startTime = System.nanoTime();
+			byte[] result = generateWithClassLoader(cg);
+			ClassGenerationStatistics.recordGeneration(startTime);
+			return result;
+		}
+
+		private byte[] generateWithClassLoader(ClassGenerator cg) throws Exception {
 			if (this.classLoader == null) {
 				return super.generate(cg);
 			}
@@ -0,0 +1,508 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.interceptor;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.util.Assert;
+import org.springframework.util.LatencyHistogram;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Interceptor that limits concurrent access per method, or per group of methods,
+ * rejecting invocations which cannot enter within a bounded waiting time.
+ *
+ * <p>In contrast to {@link ConcurrencyThrottleInterceptor}, which blocks callers
+ * indefinitely on a single global limit, this interceptor isolates individual
+ * downstream calls from each other ("bulkheads"): an overloaded downstream
+ * service exhausts its own permits only, and excess callers are rejected with a
+ * {@link RejectedExecutionException} after {@link #setMaxWait "maxWait"} instead of
+ * tying up request threads. Permits are managed by a {@link Semaphore}, optionally
+ * {@link #setFair fair} for first-come-first-served entry.
+ *
+ * <p>Each method gets its own bulkhead by default, named after its declaring class
+ * and method name. Override {@link #determineBulkheadName} to group methods into
+ * shared bulkheads, e.g. per downstream system. Specific limits can be
+ * configured per bulkhead name via {@link #setConcurrencyLimits}.
+ *
+ * <p>If a {@link #setLatencyThreshold latency threshold} is specified, the limit
+ * adapts to the observed latency in an AIMD fashion: it is raised by one after a
+ * full limit's worth of invocations below the threshold, up to the configured
+ * limit, and cut by the {@link #setBackoffRatio backoff ratio} whenever an
+ * invocation exceeds the threshold, down to the {@link #setMinConcurrencyLimit
+ * minimum limit}. A saturated downstream service thereby sheds load before
+ * latencies escalate.
+ *
+ * <p>Current limits, active counts, accepted and rejected invocations as well
+ * as waiting times are exposed through public accessors, e.g. for registration
+ * with an {@link org.springframework.jmx.export.MBeanExporter}.
+ *
+ * @author agent
+ * @since 4.2.10
+ * @see #setConcurrencyLimit
+ * @see #setMaxWait
+ * @see #setLatencyThreshold
+ * @see ConcurrencyThrottleInterceptor
+ */
+@SuppressWarnings("serial")
+public class BulkheadInterceptor implements MethodInterceptor, Serializable {
+
+	/** The default concurrency limit per bulkhead: 10 */
+	public static final int DEFAULT_CONCURRENCY_LIMIT = 10;
+
+	/** The default backoff ratio for adaptive limits: 0.9 */
+	public static final double DEFAULT_BACKOFF_RATIO = 0.9;
+
+
+	/** Transient to optimize serialization */
+	protected transient Log logger = LogFactory.getLog(getClass());
+
+	private int concurrencyLimit = DEFAULT_CONCURRENCY_LIMIT;
+
+	private Map<String, Integer> concurrencyLimits = new HashMap<String, Integer>();
+
+	private boolean fair = false;
+
+	private long maxWait = 0;
+
+	private long latencyThreshold = -1;
+
+	private int minConcurrencyLimit = 1;
+
+	private double backoffRatio = DEFAULT_BACKOFF_RATIO;
+
+	private transient ConcurrentMap<MethodCacheKey, Bulkhead> bulkheadsByMethod =
+			new ConcurrentHashMap<MethodCacheKey, Bulkhead>(64);
+
+	private transient ConcurrentMap<String, Bulkhead> bulkheadsByName =
+			new ConcurrentHashMap<String, Bulkhead>(64);
+
+
+	/**
+	 * Set the maximum number of concurrent invocations per bulkhead,
+	 * unless specified otherwise through {@link #setConcurrencyLimits}.
+	 * <p>Default is {@link #DEFAULT_CONCURRENCY_LIMIT}. With an adaptive limit,
+	 * this is the upper bound as well as the initial limit.
+	 */
+	public void setConcurrencyLimit(int concurrencyLimit) {
+		Assert.isTrue(concurrencyLimit > 0, "'concurrencyLimit' must be greater than 0");
+		this.concurrencyLimit = concurrencyLimit;
+	}
+
+	/**
+	 * Return the maximum number of concurrent invocations per bulkhead.
+	 */
+	public int getConcurrencyLimit() {
+		return this.concurrencyLimit;
+	}
+
+	/**
+	 * Specify concurrency limits for specific bulkheads, keyed by bulkhead name:
+	 * by default, the fully qualified declaring class name followed by a dot and
+	 * the method name, e.g. "com.mycompany.InventoryClient.getStockLevel".
+	 * @see #determineBulkheadName
+	 */
+	public void setConcurrencyLimits(Map<String, Integer> concurrencyLimits) {
+		this.concurrencyLimits = new HashMap<String, Integer>(concurrencyLimits);
+	}
+
+	/**
+	 * Set whether waiting callers enter in first-come-first-served order.
+	 * <p>Default is "false", favoring throughput over fairness.
+	 * @see Semaphore#Semaphore(int, boolean)
+	 */
+	public void setFair(boolean fair) {
+		this.fair = fair;
+	}
+
+	/**
+	 * Set the maximum time in milliseconds to wait for entry into a bulkhead
+	 * which has reached its limit, with -1 indicating no timeout.
+	 * <p>Default is 0, rejecting excess invocations right away.
+	 */
+	public void setMaxWait(long maxWait) {
+		this.maxWait = maxWait;
+	}
+
+	/**
+	 * Return the maximum time in milliseconds to wait for entry into a bulkhead.
+	 */
+	public long getMaxWait() {
+		return this.maxWait;
+	}
+
+	/**
+	 * Set a latency threshold in milliseconds which turns on adaptive limits:
+	 * invocations taking longer indicate downstream saturation and reduce the
+	 * limit of their bulkhead, whereas faster invocations gradually raise it
+	 * back up to the configured limit.
+	 * <p>Default is -1, applying fixed limits.
+	 * @see #setMinConcurrencyLimit
+	 * @see #setBackoffRatio
+	 */
+	public void setLatencyThreshold(long latencyThreshold) {
+		this.latencyThreshold = latencyThreshold;
+	}
+
+	/**
+	 * Return the latency threshold in milliseconds for adaptive limits.
+	 */
+	public long getLatencyThreshold() {
+		return this.latencyThreshold;
+	}
+
+	/**
+	 * Set the lower bound for adaptive limits. Default is 1.
+	 */
+	public void setMinConcurrencyLimit(int minConcurrencyLimit) {
+		Assert.isTrue(minConcurrencyLimit > 0, "'minConcurrencyLimit' must be greater than 0");
+		this.minConcurrencyLimit = minConcurrencyLimit;
+	}
+
+	/**
+	 * Set the factor by which an adaptive limit is multiplied when an invocation
+	 * exceeds the latency threshold, between 0 and 1 (exclusive).
+	 * <p>Default is {@link #DEFAULT_BACKOFF_RATIO}. The limit is reduced at most
+	 * once per latency threshold period.
+	 */
+	public void setBackoffRatio(double backoffRatio) {
+		Assert.isTrue(backoffRatio > 0 && backoffRatio < 1, "'backoffRatio' must be between 0 and 1");
+		this.backoffRatio = backoffRatio;
+	}
+
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		Bulkhead bulkhead = getBulkhead(invocation);
+		bulkhead.enter();
+		long startTime = System.nanoTime();
+		try {
+			return invocation.proceed();
+		}
+		finally {
+			bulkhead.exit(System.nanoTime() - startTime);
+		}
+	}
+
+	/**
+	 * Determine the name of the bulkhead for the given method. Methods with the
+	 * same bulkhead name share their concurrency limit.
+	 * <p>Called once per method and target class. The default implementation
+	 * returns the fully qualified declaring class name followed by a dot and
+	 * the method name, i.e. overloaded methods share a bulkhead.
+	 * @param method the invoked method
+	 * @param targetClass the target class (may be {@code null})
+	 * @return the bulkhead name (never {@code null})
+	 */
+	protected String determineBulkheadName(Method method, Class<?> targetClass) {
+		return method.getDeclaringClass().getName() + "." + method.getName();
+	}
+
+	private Bulkhead getBulkhead(MethodInvocation invocation) {
+		Method method = invocation.getMethod();
+		Object target = invocation.getThis();
+		Class<?> targetClass = (target != null ? target.getClass() : null);
+		MethodCacheKey cacheKey = new MethodCacheKey(method, targetClass);
+		Bulkhead bulkhead = this.bulkheadsByMethod.get(cacheKey);
+		if (bulkhead == null) {
+			String name = determineBulkheadName(method, targetClass);
+			bulkhead = this.bulkheadsByName.get(name);
+			if (bulkhead == null) {
+				Integer limit = this.concurrencyLimits.get(name);
+				Bulkhead newBulkhead = new Bulkhead(name, (limit != null ? limit : this.concurrencyLimit));
+				bulkhead = this.bulkheadsByName.putIfAbsent(name, newBulkhead);
+				if (bulkhead == null) {
+					bulkhead = newBulkhead;
+				}
+			}
+			this.bulkheadsByMethod.put(cacheKey, bulkhead);
+		}
+		return bulkhead;
+	}
+
+
+	/**
+	 * Return the names of all bulkheads in use so far, in alphabetical order.
+	 */
+	public String[] getBulkheadNames() {
+		String[] names = this.bulkheadsByName.keySet().toArray(new String[this.bulkheadsByName.size()]);
+		Arrays.sort(names);
+		return names;
+	}
+
+	/**
+	 * Return a summary line for each bulkhead in use so far, in alphabetical order,
+	 * including current limit, active invocations, accepted and rejected invocations
+	 * as well as the times spent waiting for entry.
+	 */
+	public String[] getStatisticsSummary() {
+		String[] names = getBulkheadNames();
+		String[] summary = new String[names.length];
+		for (int i = 0; i < names.length; i++) {
+			Bulkhead bulkhead = this.bulkheadsByName.get(names[i]);
+			summary[i] = names[i] + ": limit=" + bulkhead.limit.get() + ", active=" + bulkhead.activeCount.get() +
+					", accepted=" + bulkhead.acceptedCount.get() + ", rejected=" + bulkhead.rejectedCount.get() +
+					", wait " + bulkhead.waitTimeHistogram;
+		}
+		return summary;
+	}
+
+	/**
+	 * Return the current concurrency limit of the given bulkhead.
+	 * @param bulkheadName the name of the bulkhead
+	 * @return the current limit, or -1 if no such bulkhead is in use
+	 * @see #getBulkheadNames()
+	 */
+	public int getCurrentLimit(String bulkheadName) {
+		Bulkhead bulkhead = this.bulkheadsByName.get(bulkheadName);
+		return (bulkhead != null ? bulkhead.limit.get() : -1);
+	}
+
+	/**
+	 * Return the number of invocations currently active within the given bulkhead.
+	 * @param bulkheadName the name of the bulkhead
+	 * @return the active count, or 0 if no such bulkhead is in use
+	 * @see #getBulkheadNames()
+	 */
+	public int getActiveCount(String bulkheadName) {
+		Bulkhead bulkhead = this.bulkheadsByName.get(bulkheadName);
+		return (bulkhead != null ? bulkhead.activeCount.get() : 0);
+	}
+
+	/**
+	 * Return the number of invocations accepted by the given bulkhead so far.
+	 * @param bulkheadName the name of the bulkhead
+	 * @return the accepted count, or 0 if no such bulkhead is in use
+	 * @see #getBulkheadNames()
+	 */
+	public long getAcceptedCount(String bulkheadName) {
+		Bulkhead bulkhead = this.bulkheadsByName.get(bulkheadName);
+		return (bulkhead != null ? bulkhead.acceptedCount.get() : 0);
+	}
+
+	/**
+	 * Return the number of invocations rejected by the given bulkhead so far.
+	 * @param bulkheadName the name of the bulkhead
+	 * @return the rejected count, or 0 if no such bulkhead is in use
+	 * @see #getBulkheadNames()
+	 */
+	public long getRejectedCount(String bulkheadName) {
+		Bulkhead bulkhead = this.bulkheadsByName.get(bulkheadName);
+		return (bulkhead != null ? bulkhead.rejectedCount.get() : 0);
+	}
+
+	/**
+	 * Return the histogram of times spent waiting for entry into the given bulkhead.
+	 * @param bulkheadName the name of the bulkhead
+	 * @return the histogram, or {@code null} if no such bulkhead is in use
+	 * @see #getBulkheadNames()
+	 */
+	public LatencyHistogram getWaitTimeHistogram(String bulkheadName) {
+		Bulkhead bulkhead = this.bulkheadsByName.get(bulkheadName);
+		return (bulkhead != null ? bulkhead.waitTimeHistogram : null);
+	}
+
+
+	//---------------------------------------------------------------------
+	// Serialization support
+	//---------------------------------------------------------------------
+
+	private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+		// Rely on default serialization, just initialize state after deserialization.
+		ois.defaultReadObject();
+
+		// Initialize transient fields.
+		this.logger = LogFactory.getLog(getClass());
+		this.bulkheadsByMethod = new ConcurrentHashMap<MethodCacheKey, Bulkhead>(64);
+		this.bulkheadsByName = new ConcurrentHashMap<String, Bulkhead>(64);
+	}
+
+
+	/**
+	 * Cache key for a method and the class of the target it is invoked on.
+	 */
+	private static class MethodCacheKey {
+
+		private final Method method;
+
+		private final Class<?> targetClass;
+
+		public MethodCacheKey(Method method, Class<?> targetClass) {
+			this.method = method;
+			this.targetClass = targetClass;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof MethodCacheKey)) {
+				return false;
+			}
+			MethodCacheKey otherKey = (MethodCacheKey) other;
+			return (this.method.equals(otherKey.method) &&
+					ObjectUtils.nullSafeEquals(this.targetClass, otherKey.targetClass));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.method.hashCode() + (this.targetClass != null ? this.targetClass.hashCode() * 29 : 0);
+		}
+	}
+
+
+	/**
+	 * Semaphore variant which allows for reducing the number of permits.
+	 */
+	private static class ResizableSemaphore extends Semaphore {
+
+		public ResizableSemaphore(int permits, boolean fair) {
+			super(permits, fair);
+		}
+
+		@Override
+		public void reducePermits(int reduction) {
+			super.reducePermits(reduction);
+		}
+	}
+
+
+	/**
+	 * A single bulkhead: a semaphore with an adjustable limit plus statistics.
+	 */
+	private class Bulkhead {
+
+		private final String name;
+
+		private final int maxLimit;
+
+		private final ResizableSemaphore semaphore;
+
+		final AtomicInteger limit;
+
+		final AtomicInteger activeCount = new AtomicInteger();
+
+		final AtomicLong acceptedCount = new AtomicLong();
+
+		final AtomicLong rejectedCount = new AtomicLong();
+
+		final LatencyHistogram waitTimeHistogram = new LatencyHistogram();
+
+		private final AtomicInteger fastInvocations = new AtomicInteger();
+
+		private final AtomicLong lastDecreaseTime;
+
+		public Bulkhead(String name, int limit) {
+			this.name = name;
+			this.maxLimit = limit;
+			this.semaphore = new ResizableSemaphore(limit, fair);
+			this.limit = new AtomicInteger(limit);
+			this.lastDecreaseTime = new AtomicLong(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(latencyThreshold));
+		}
+
+		public void enter() {
+			long startTime = System.nanoTime();
+			boolean acquired;
+			try {
+				if (maxWait < 0) {
+					this.semaphore.acquire();
+					acquired = true;
+				}
+				else {
+					acquired = this.semaphore.tryAcquire(maxWait, TimeUnit.MILLISECONDS);
+				}
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				this.rejectedCount.incrementAndGet();
+				throw new RejectedExecutionException(
+						"Interrupted while waiting for entry into bulkhead '" + this.name + "'");
+			}
+			this.waitTimeHistogram.recordSince(startTime);
+			if (!acquired) {
+				this.rejectedCount.incrementAndGet();
+				if (logger.isDebugEnabled()) {
+					logger.debug("Rejecting invocation: bulkhead '" + this.name + "' has reached its limit of " +
+							this.limit.get() + " concurrent invocations");
+				}
+				throw new RejectedExecutionException("Bulkhead '" + this.name + "' has reached its limit of " +
+						this.limit.get() + " concurrent invocations");
+			}
+			this.activeCount.incrementAndGet();
+			this.acceptedCount.incrementAndGet();
+		}
+
+		public void exit(long latency) {
+			this.activeCount.decrementAndGet();
+			this.semaphore.release();
+			if (latencyThreshold >= 0) {
+				adaptLimit(latency);
+			}
+		}
+
+		private void adaptLimit(long latency) {
+			long threshold = TimeUnit.MILLISECONDS.toNanos(latencyThreshold);
+			if (latency > threshold) {
+				// Multiplicative decrease, at most once per threshold period
+				long now = System.nanoTime();
+				long lastDecrease = this.lastDecreaseTime.get();
+				if (now - lastDecrease >= threshold && this.lastDecreaseTime.compareAndSet(lastDecrease, now)) {
+					this.fastInvocations.set(0);
+					int current = this.limit.get();
+					int newLimit = Math.max(minConcurrencyLimit, (int) (current * backoffRatio));
+					if (newLimit < current && this.limit.compareAndSet(current, newLimit)) {
+						this.semaphore.reducePermits(current - newLimit);
+						if (logger.isDebugEnabled()) {
+							logger.debug("Reduced limit of bulkhead '" + this.name + "' to " + newLimit +
+									" after invocation took " + TimeUnit.NANOSECONDS.toMillis(latency) + " ms");
+						}
+					}
+				}
+			}
+			else {
+				// Additive increase, by one per full limit's worth of fast invocations
+				int current = this.limit.get();
+				if (current < this.maxLimit && this.fastInvocations.incrementAndGet() >= current) {
+					this.fastInvocations.set(0);
+					if (this.limit.compareAndSet(current, current + 1)) {
+						this.semaphore.release();
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -35,9 +35,13 @@ import org.springframework.util.ConcurrencyThrottleSupport;
  * <p>The default concurrency limit of this interceptor is 1.
  * Specify the "concurrencyLimit" bean property to change this value.
  *
+ * <p>For per-method limits with bounded waiting and rejection of excess
+ * invocations, consider {@link BulkheadInterceptor} instead.
+ *
  * @author Juergen Hoeller
  * @since 11.02.2004
  * @see #setConcurrencyLimit
+ * @see BulkheadInterceptor
  */
 @SuppressWarnings("serial")
 public class ConcurrencyThrottleInterceptor extends ConcurrencyThrottleSupport
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.interceptor;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.commons.logging.Log;
+
+import org.springframework.util.Assert;
+import org.springframework.util.LatencyHistogram;
+
+/**
+ * AOP Alliance {@code MethodInterceptor} for performance monitoring in production,
+ * recording the latency of each intercepted method into a {@link LatencyHistogram}
+ * instead of logging every single invocation like {@link PerformanceMonitorInterceptor}.
+ * This interceptor has no effect on the intercepted method call.
+ *
+ * <p>Statistics are collected regardless of log levels. Recording an invocation
+ * does not allocate and merely costs a few atomic increments; for very hot methods,
+ * a {@link #setSamplingInterval sampling interval} restricts the timing to every
+ * n-th invocation while still counting all invocations and errors.
+ *
+ * <p>Statistics are kept per {@link #createInvocationTraceName invocation trace name},
+ * i.e. per method, with the configured prefix and suffix applied. They are exposed
+ * through public accessors, e.g. for registration with an
+ * {@link org.springframework.jmx.export.MBeanExporter}, which turns
+ * {@link #getStatisticsSummary()} into an attribute and the per-method accessors
+ * into operations.
+ *
+ * @author agent
+ * @since 4.2.10
+ * @see #setSamplingInterval
+ * @see #getStatisticsSummary()
+ * @see #getPercentile(String, double)
+ * @see PerformanceMonitorInterceptor
+ * @see JamonPerformanceMonitorInterceptor
+ */
+@SuppressWarnings("serial")
+public class HistogramPerformanceMonitorInterceptor extends AbstractMonitoringInterceptor {
+
+	private int samplingInterval = 1;
+
+	/** Fast lookup of statistics by target class and method, without allocation */
+	private transient ConcurrentMap<Class<?>, ConcurrentMap<Method, MethodStatistics>> statisticsByTarget =
+			new ConcurrentHashMap<Class<?>, ConcurrentMap<Method, MethodStatistics>>(64);
+
+	/** Statistics by trace name, possibly shared by several target classes */
+	private transient ConcurrentMap<String, MethodStatistics> statisticsByName =
+			new ConcurrentHashMap<String, MethodStatistics>(256);
+
+
+	/**
+	 * Set the interval at which invocations are timed: 1 for every invocation,
+	 * 10 for every tenth invocation of each method, etc.
+	 * <p>Default is 1. Invocation and error counts are exact in any case.
+	 */
+	public void setSamplingInterval(int samplingInterval) {
+		Assert.isTrue(samplingInterval > 0, "'samplingInterval' must be greater than 0");
+		this.samplingInterval = samplingInterval;
+	}
+
+	/**
+	 * Return the interval at which invocations are timed.
+	 */
+	public int getSamplingInterval() {
+		return this.samplingInterval;
+	}
+
+
+	/**
+	 * Monitors every invocation, without determining a {@code Log} instance.
+	 */
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		return monitor(invocation);
+	}
+
+	@Override
+	protected Object invokeUnderTrace(MethodInvocation invocation, Log logger) throws Throwable {
+		return monitor(invocation);
+	}
+
+	private Object monitor(MethodInvocation invocation) throws Throwable {
+		MethodStatistics statistics = getMethodStatistics(invocation);
+		boolean sampled = (statistics.invocationCount.incrementAndGet() % this.samplingInterval == 0);
+		long startTime = (sampled ? System.nanoTime() : 0);
+		try {
+			return invocation.proceed();
+		}
+		catch (Throwable ex) {
+			statistics.errorCount.incrementAndGet();
+			throw ex;
+		}
+		finally {
+			if (sampled) {
+				statistics.histogram.recordSince(startTime);
+			}
+		}
+	}
+
+	private MethodStatistics getMethodStatistics(MethodInvocation invocation) {
+		Method method = invocation.getMethod();
+		Object target = invocation.getThis();
+		Class<?> targetClass = (target != null ? target.getClass() : method.getDeclaringClass());
+		ConcurrentMap<Method, MethodStatistics> methodMap = this.statisticsByTarget.get(targetClass);
+		if (methodMap == null) {
+			methodMap = new ConcurrentHashMap<Method, MethodStatistics>(16);
+			ConcurrentMap<Method, MethodStatistics> existing = this.statisticsByTarget.putIfAbsent(targetClass, methodMap);
+			if (existing != null) {
+				methodMap = existing;
+			}
+		}
+		MethodStatistics statistics = methodMap.get(method);
+		if (statistics == null) {
+			String name = createInvocationTraceName(invocation);
+			statistics = new MethodStatistics();
+			MethodStatistics existing = this.statisticsByName.putIfAbsent(name, statistics);
+			if (existing != null) {
+				statistics = existing;
+			}
+			methodMap.put(method, statistics);
+		}
+		return statistics;
+	}
+
+
+	/**
+	 * Return the names of all methods monitored so far, in alphabetical order.
+	 */
+	public String[] getMonitoredMethodNames() {
+		String[] names = this.statisticsByName.keySet().toArray(new String[this.statisticsByName.size()]);
+		Arrays.sort(names);
+		return names;
+	}
+
+	/**
+	 * Return a summary line for each method monitored so far, in alphabetical order,
+	 * including invocation and error counts as well as latency percentiles.
+	 */
+	public String[] getStatisticsSummary() {
+		String[] names = getMonitoredMethodNames();
+		String[] summary = new String[names.length];
+		for (int i = 0; i < names.length; i++) {
+			MethodStatistics statistics = this.statisticsByName.get(names[i]);
+			summary[i] = names[i] + ": invocations=" + statistics.invocationCount.get() +
+					", errors=" + statistics.errorCount.get() + ", sampled " + statistics.histogram;
+		}
+		return summary;
+	}
+
+	/**
+	 * Return the number of invocations of the given method so far.
+	 * @param methodName the name of the monitored method
+	 * @return the invocation count, or 0 if the method has not been invoked
+	 * @see #getMonitoredMethodNames()
+	 */
+	public long getInvocationCount(String methodName) {
+		MethodStatistics statistics = this.statisticsByName.get(methodName);
+		return (statistics != null ? statistics.invocationCount.get() : 0);
+	}
+
+	/**
+	 * Return the number of invocations of the given method which threw an exception.
+	 * @param methodName the name of the monitored method
+	 * @return the error count, or 0 if the method has not been invoked
+	 * @see #getMonitoredMethodNames()
+	 */
+	public long getErrorCount(String methodName) {
+		MethodStatistics statistics = this.statisticsByName.get(methodName);
+		return (statistics != null ? statistics.errorCount.get() : 0);
+	}
+
+	/**
+	 * Return the latency of the given method, in milliseconds, at or below which
+	 * the given percentage of the sampled invocations fall.
+	 * @param methodName the name of the monitored method
+	 * @param percentile the percentile, between 0 and 100
+	 * @return the latency in milliseconds, or 0 if the method has not been invoked
+	 * @see #getMonitoredMethodNames()
+	 */
+	public double getPercentile(String methodName, double percentile) {
+		MethodStatistics statistics = this.statisticsByName.get(methodName);
+		return (statistics != null ? statistics.histogram.getPercentile(percentile, TimeUnit.MILLISECONDS) : 0);
+	}
+
+	/**
+	 * Return the latency histogram for the given method.
+	 * @param methodName the name of the monitored method
+	 * @return the histogram, or {@code null} if the method has not been invoked
+	 * @see #getMonitoredMethodNames()
+	 */
+	public LatencyHistogram getLatencyHistogram(String methodName) {
+		MethodStatistics statistics = this.statisticsByName.get(methodName);
+		return (statistics != null ? statistics.histogram : null);
+	}
+
+	/**
+	 * Reset all statistics.
+	 * <p>Invocations recorded concurrently may be partially lost.
+	 */
+	public void resetStatistics() {
+		for (MethodStatistics statistics : this.statisticsByName.values()) {
+			statistics.invocationCount.set(0);
+			statistics.errorCount.set(0);
+			statistics.histogram.reset();
+		}
+	}
+
+
+	//---------------------------------------------------------------------
+	// Serialization support
+	//---------------------------------------------------------------------
+
+	private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+		// Rely on default serialization, just initialize state after deserialization.
+		ois.defaultReadObject();
+
+		// Initialize transient fields: statistics do not survive serialization.
+		this.statisticsByTarget = new ConcurrentHashMap<Class<?>, ConcurrentMap<Method, MethodStatistics>>(64);
+		this.statisticsByName = new ConcurrentHashMap<String, MethodStatistics>(256);
+	}
+
+
+	/**
+	 * Statistics for a single monitored method.
+	 */
+	private static class MethodStatistics {
+
+		final AtomicLong invocationCount = new AtomicLong();
+
+		final AtomicLong errorCount = new AtomicLong();
+
+		final LatencyHistogram histogram = new LatencyHistogram();
+	}
+
+}
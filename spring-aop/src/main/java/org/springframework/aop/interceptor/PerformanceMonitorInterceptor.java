@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,12 +25,15 @@ import org.springframework.util.StopWatch;
  * Simple AOP Alliance {@code MethodInterceptor} for performance monitoring.
  * This interceptor has no effect on the intercepted method call.
  *
- * <p>Uses a {@code StopWatch} for the actual performance measuring.
+ * <p>Uses a {@code StopWatch} for the actual performance measuring, logging
+ * each invocation at trace level. For continuous monitoring in production,
+ * consider {@link HistogramPerformanceMonitorInterceptor} instead.
  *
  * @author Rod Johnson
  * @author Dmitriy Kopylenko
  * @author Rob Harrop
  * @see org.springframework.util.StopWatch
+ * @see HistogramPerformanceMonitorInterceptor
  * @see JamonPerformanceMonitorInterceptor
  */
 @SuppressWarnings("serial")
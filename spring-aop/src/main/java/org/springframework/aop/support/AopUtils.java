@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,8 @@ package org.springframework.aop.support;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -190,27 +192,32 @@ public abstract class AopUtils {
 	 * @return whether the pointcut can apply on any method
 	 */
 	public static boolean canApply(Pointcut pc, Class<?> targetClass, boolean hasIntroductions) {
+		return canApply(pc, new CandidateMethods(targetClass), hasIntroductions);
+	}
+
+	private static boolean canApply(Pointcut pc, CandidateMethods candidateMethods, boolean hasIntroductions) {
 		Assert.notNull(pc, "Pointcut must not be null");
+		Class<?> targetClass = candidateMethods.getTargetClass();
 		if (!pc.getClassFilter().matches(targetClass)) {
 			return false;
 		}
 
 		MethodMatcher methodMatcher = pc.getMethodMatcher();
+		if (methodMatcher == MethodMatcher.TRUE) {
+			// No need to iterate the methods if we're matching any method anyway...
+			return true;
+		}
+
 		IntroductionAwareMethodMatcher introductionAwareMethodMatcher = null;
 		if (methodMatcher instanceof IntroductionAwareMethodMatcher) {
 			introductionAwareMethodMatcher = (IntroductionAwareMethodMatcher) methodMatcher;
 		}
 
-		Set<Class<?>> classes = new LinkedHashSet<Class<?>>(ClassUtils.getAllInterfacesForClassAsSet(targetClass));
-		classes.add(targetClass);
-		for (Class<?> clazz : classes) {
-			Method[] methods = clazz.getMethods();
-			for (Method method : methods) {
-				if ((introductionAwareMethodMatcher != null &&
-						introductionAwareMethodMatcher.matches(method, targetClass, hasIntroductions)) ||
-						methodMatcher.matches(method, targetClass)) {
-					return true;
-				}
+		for (Method method : candidateMethods.getMethods()) {
+			if ((introductionAwareMethodMatcher != null &&
+					introductionAwareMethodMatcher.matches(method, targetClass, hasIntroductions)) ||
+					methodMatcher.matches(method, targetClass)) {
+				return true;
 			}
 		}
 
@@ -240,12 +247,16 @@ public abstract class AopUtils {
 	 * @return whether the pointcut can apply on any method
 	 */
 	public static boolean canApply(Advisor advisor, Class<?> targetClass, boolean hasIntroductions) {
+		return canApply(advisor, new CandidateMethods(targetClass), hasIntroductions);
+	}
+
+	private static boolean canApply(Advisor advisor, CandidateMethods candidateMethods, boolean hasIntroductions) {
 		if (advisor instanceof IntroductionAdvisor) {
-			return ((IntroductionAdvisor) advisor).getClassFilter().matches(targetClass);
+			return ((IntroductionAdvisor) advisor).getClassFilter().matches(candidateMethods.getTargetClass());
 		}
 		else if (advisor instanceof PointcutAdvisor) {
 			PointcutAdvisor pca = (PointcutAdvisor) advisor;
-			return canApply(pca.getPointcut(), targetClass, hasIntroductions);
+			return canApply(pca.getPointcut(), candidateMethods, hasIntroductions);
 		}
 		else {
 			// It doesn't have a pointcut so we assume it applies.
@@ -265,9 +276,11 @@ public abstract class AopUtils {
 		if (candidateAdvisors.isEmpty()) {
 			return candidateAdvisors;
 		}
+		// Introspect the target class once for all candidates rather than once per candidate.
+		CandidateMethods candidateMethods = new CandidateMethods(clazz);
 		List<Advisor> eligibleAdvisors = new LinkedList<Advisor>();
 		for (Advisor candidate : candidateAdvisors) {
-			if (candidate instanceof IntroductionAdvisor && canApply(candidate, clazz)) {
+			if (candidate instanceof IntroductionAdvisor && canApply(candidate, candidateMethods, false)) {
 				eligibleAdvisors.add(candidate);
 			}
 		}
@@ -277,7 +290,7 @@ public abstract class AopUtils {
 				// already processed
 				continue;
 			}
-			if (canApply(candidate, clazz, hasIntroductions)) {
+			if (canApply(candidate, candidateMethods, hasIntroductions)) {
 				eligibleAdvisors.add(candidate);
 			}
 		}
@@ -315,4 +328,38 @@ public abstract class AopUtils {
 		}
 	}
 
+
+	/**
+	 * Lazily introspected public methods of a target class and its interfaces,
+	 * as candidates for pointcut method matching.
+	 */
+	private static class CandidateMethods {
+
+		private final Class<?> targetClass;
+
+		private List<Method> methods;
+
+		public CandidateMethods(Class<?> targetClass) {
+			this.targetClass = targetClass;
+		}
+
+		public Class<?> getTargetClass() {
+			return this.targetClass;
+		}
+
+		public List<Method> getMethods() {
+			if (this.methods == null) {
+				Set<Class<?>> classes =
+						new LinkedHashSet<Class<?>>(ClassUtils.getAllInterfacesForClassAsSet(this.targetClass));
+				classes.add(this.targetClass);
+				List<Method> methods = new ArrayList<Method>();
+				for (Class<?> clazz : classes) {
+					methods.addAll(Arrays.asList(clazz.getMethods()));
+				}
+				this.methods = methods;
+			}
+			return this.methods;
+		}
+	}
+
 }
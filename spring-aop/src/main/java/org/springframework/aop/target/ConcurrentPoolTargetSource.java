@@ -0,0 +1,493 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.target;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.util.LatencyHistogram;
+
+/**
+ * {@link org.springframework.aop.TargetSource} implementation that holds
+ * objects in a native, lock-free pool, without any third-party dependencies.
+ *
+ * <p>Idle objects are kept on a non-blocking stack: the most recently released
+ * object is handed out first, so that under moderate load a small set of warm
+ * objects is reused while surplus objects stay idle and become subject to
+ * eviction after {@link #setMinEvictableIdleTimeMillis "minEvictableIdleTimeMillis"}.
+ * The pool thereby grows on demand up to {@link #setMaxSize "maxSize"} and
+ * shrinks back to {@link #setMinIdle "minIdle"} when the load goes down.
+ * Eviction does not require a background thread: it is performed by a
+ * returning caller once {@link #setTimeBetweenEvictionRunsMillis
+ * "timeBetweenEvictionRunsMillis"} has elapsed, or explicitly via {@link #evict()}.
+ *
+ * <p>Callers exceeding the maximum number of concurrently active objects wait
+ * for an object to be returned, for at most {@link #setMaxWait "maxWait"}
+ * milliseconds. Borrow wait times are tracked in a {@link LatencyHistogram};
+ * together with the {@link #getUtilization() utilization} and the various
+ * counters, they are exposed as bean properties, e.g. for registration with an
+ * {@link org.springframework.jmx.export.MBeanExporter}, next to the
+ * {@link PoolingConfig} statistics available through {@link #getPoolingConfigMixin()}.
+ *
+ * <p>This is a good fit for expensive objects which are not thread-safe, such
+ * as parsers or cipher instances, at high concurrency, in particular with large
+ * numbers of threads where {@link ThreadLocalTargetSource} would hold on to one
+ * object per thread.
+ *
+ * @author agent
+ * @since 4.2.10
+ * @see #setMaxSize
+ * @see #setMinIdle
+ * @see #setMaxWait
+ * @see #setTimeBetweenEvictionRunsMillis
+ * @see #setMinEvictableIdleTimeMillis
+ */
+@SuppressWarnings("serial")
+public class ConcurrentPoolTargetSource extends AbstractPoolingTargetSource {
+
+	/** The default maximum size of the pool: 8 */
+	public static final int DEFAULT_MAX_SIZE = 8;
+
+	/** The default minimum idle time before eviction: 30 minutes */
+	public static final long DEFAULT_MIN_EVICTABLE_IDLE_TIME_MILLIS = 1000L * 60L * 30L;
+
+
+	private int minIdle = 0;
+
+	private long maxWait = -1;
+
+	private long timeBetweenEvictionRunsMillis = -1;
+
+	private long minEvictableIdleTimeMillis = DEFAULT_MIN_EVICTABLE_IDLE_TIME_MILLIS;
+
+	/** Permits for active objects, or {@code null} if the pool is unbounded */
+	private Semaphore permits;
+
+	/** Top of the stack of idle objects */
+	private final AtomicReference<IdleEntry> idleTop = new AtomicReference<IdleEntry>();
+
+	private final AtomicInteger idleCount = new AtomicInteger();
+
+	private final AtomicInteger activeCount = new AtomicInteger();
+
+	private final AtomicLong lastEvictionTime = new AtomicLong();
+
+	private volatile boolean closed;
+
+	private final AtomicLong borrowCount = new AtomicLong();
+
+	private final AtomicLong borrowTimeoutCount = new AtomicLong();
+
+	private final AtomicLong createdCount = new AtomicLong();
+
+	private final AtomicLong destroyedCount = new AtomicLong();
+
+	private final LatencyHistogram borrowWaitTimeHistogram = new LatencyHistogram();
+
+
+	/**
+	 * Create a ConcurrentPoolTargetSource with default settings.
+	 * Default maximum size of the pool is 8.
+	 * @see #setMaxSize
+	 */
+	public ConcurrentPoolTargetSource() {
+		setMaxSize(DEFAULT_MAX_SIZE);
+	}
+
+
+	/**
+	 * Set the minimum number of idle objects in the pool, created on
+	 * initialization and retained on eviction.
+	 * Default is 0.
+	 */
+	public void setMinIdle(int minIdle) {
+		this.minIdle = minIdle;
+	}
+
+	/**
+	 * Return the minimum number of idle objects in the pool.
+	 */
+	public int getMinIdle() {
+		return this.minIdle;
+	}
+
+	/**
+	 * Set the maximum waiting time for fetching an object from the pool
+	 * when the maximum number of objects is active already.
+	 * Default is -1, waiting forever.
+	 * <p>A {@link NoSuchElementException} is thrown on timeout, as with
+	 * {@link CommonsPool2TargetSource}.
+	 */
+	public void setMaxWait(long maxWait) {
+		this.maxWait = maxWait;
+	}
+
+	/**
+	 * Return the maximum waiting time for fetching an object from the pool.
+	 */
+	public long getMaxWait() {
+		return this.maxWait;
+	}
+
+	/**
+	 * Set the time between eviction runs that check idle objects whether
+	 * they have been idle for too long.
+	 * Default is -1, not performing any eviction other than explicit
+	 * {@link #evict()} calls.
+	 */
+	public void setTimeBetweenEvictionRunsMillis(long timeBetweenEvictionRunsMillis) {
+		this.timeBetweenEvictionRunsMillis = timeBetweenEvictionRunsMillis;
+	}
+
+	/**
+	 * Return the time between eviction runs that check idle objects.
+	 */
+	public long getTimeBetweenEvictionRunsMillis() {
+		return this.timeBetweenEvictionRunsMillis;
+	}
+
+	/**
+	 * Set the minimum time that an idle object can sit in the pool before
+	 * it becomes subject to eviction. Default is 1800000 (30 minutes).
+	 * <p>Note that eviction runs need to be performed to take this
+	 * setting into effect.
+	 * @see #setTimeBetweenEvictionRunsMillis
+	 * @see #evict()
+	 */
+	public void setMinEvictableIdleTimeMillis(long minEvictableIdleTimeMillis) {
+		this.minEvictableIdleTimeMillis = minEvictableIdleTimeMillis;
+	}
+
+	/**
+	 * Return the minimum time that an idle object can sit in the pool.
+	 */
+	public long getMinEvictableIdleTimeMillis() {
+		return this.minEvictableIdleTimeMillis;
+	}
+
+
+	/**
+	 * Sets up the pool and creates the {@link #setMinIdle minimum number}
+	 * of idle objects.
+	 */
+	@Override
+	protected final void createPool() {
+		logger.debug("Creating concurrent object pool");
+		this.permits = (getMaxSize() > 0 ? new Semaphore(getMaxSize()) : null);
+		this.lastEvictionTime.set(System.currentTimeMillis());
+		ensureMinIdle();
+	}
+
+	/**
+	 * Borrows an object from the pool, creating a new object if no idle
+	 * object is available, and waiting if the maximum number of objects
+	 * is active already.
+	 * @throws NoSuchElementException if no object became available
+	 * within the {@link #setMaxWait "maxWait"} time
+	 */
+	@Override
+	public Object getTarget() throws Exception {
+		if (this.closed) {
+			throw new IllegalStateException("Pool has been closed");
+		}
+		long startTime = System.nanoTime();
+		if (this.permits != null) {
+			if (this.maxWait < 0) {
+				this.permits.acquire();
+			}
+			else if (!this.permits.tryAcquire(this.maxWait, TimeUnit.MILLISECONDS)) {
+				this.borrowTimeoutCount.incrementAndGet();
+				throw new NoSuchElementException("Timeout waiting for idle object in pool for bean '" +
+						getTargetBeanName() + "' after " + this.maxWait + " ms");
+			}
+		}
+		boolean borrowed = false;
+		try {
+			Object target = popIdle();
+			if (target == null) {
+				target = createInstance();
+			}
+			this.activeCount.incrementAndGet();
+			this.borrowCount.incrementAndGet();
+			this.borrowWaitTimeHistogram.recordSince(startTime);
+			borrowed = true;
+			return target;
+		}
+		finally {
+			if (!borrowed && this.permits != null) {
+				this.permits.release();
+			}
+		}
+	}
+
+	/**
+	 * Returns the given object to the pool, or destroys it if the pool
+	 * has been closed or holds the maximum number of idle objects already.
+	 */
+	@Override
+	public void releaseTarget(Object target) throws Exception {
+		this.activeCount.decrementAndGet();
+		try {
+			if (this.closed || (getMaxSize() > 0 && this.idleCount.get() >= getMaxSize())) {
+				destroyInstance(target);
+			}
+			else {
+				pushIdle(target, System.currentTimeMillis());
+			}
+		}
+		finally {
+			if (this.permits != null) {
+				this.permits.release();
+			}
+		}
+		if (this.timeBetweenEvictionRunsMillis >= 0) {
+			long lastRun = this.lastEvictionTime.get();
+			long now = System.currentTimeMillis();
+			if (now - lastRun >= this.timeBetweenEvictionRunsMillis &&
+					this.lastEvictionTime.compareAndSet(lastRun, now)) {
+				evict();
+			}
+		}
+	}
+
+	/**
+	 * Destroy all objects which have been idle for longer than the
+	 * {@link #setMinEvictableIdleTimeMillis "minEvictableIdleTimeMillis"},
+	 * retaining the {@link #setMinIdle minimum number} of idle objects.
+	 * <p>Called automatically according to the {@link #setTimeBetweenEvictionRunsMillis
+	 * "timeBetweenEvictionRunsMillis"}; may also be called explicitly, e.g. from a
+	 * scheduled task.
+	 * @return the number of objects evicted
+	 */
+	public int evict() {
+		// Detach the entire stack, most recently released objects first...
+		IdleEntry entry = this.idleTop.getAndSet(null);
+		if (entry == null) {
+			return 0;
+		}
+		long now = System.currentTimeMillis();
+		List<IdleEntry> retained = new ArrayList<IdleEntry>();
+		List<Object> evicted = new ArrayList<Object>();
+		while (entry != null) {
+			if (retained.size() < this.minIdle || now - entry.idleSince < this.minEvictableIdleTimeMillis) {
+				retained.add(entry);
+			}
+			else {
+				evicted.add(entry.target);
+			}
+			entry = entry.next;
+		}
+		// Re-attach the retained objects, keeping the most recently released on top.
+		for (int i = retained.size() - 1; i >= 0; i--) {
+			IdleEntry retainedEntry = retained.get(i);
+			pushEntry(retainedEntry.target, retainedEntry.idleSince);
+		}
+		this.idleCount.addAndGet(-evicted.size());
+		for (Object target : evicted) {
+			destroyInstance(target);
+		}
+		if (this.closed) {
+			// Closed in the meantime: destroy the re-attached objects as well.
+			destroyIdle();
+			return evicted.size();
+		}
+		if (!evicted.isEmpty() && logger.isDebugEnabled()) {
+			logger.debug("Evicted " + evicted.size() + " idle objects from pool for bean '" +
+					getTargetBeanName() + "'");
+		}
+		ensureMinIdle();
+		return evicted.size();
+	}
+
+	@Override
+	public int getActiveCount() {
+		return this.activeCount.get();
+	}
+
+	@Override
+	public int getIdleCount() {
+		return this.idleCount.get();
+	}
+
+
+	/**
+	 * Return the number of successful {@code getTarget} calls so far.
+	 */
+	public long getBorrowCount() {
+		return this.borrowCount.get();
+	}
+
+	/**
+	 * Return the number of {@code getTarget} calls which timed out
+	 * waiting for an object.
+	 */
+	public long getBorrowTimeoutCount() {
+		return this.borrowTimeoutCount.get();
+	}
+
+	/**
+	 * Return the number of objects created by this pool so far.
+	 */
+	public long getCreatedCount() {
+		return this.createdCount.get();
+	}
+
+	/**
+	 * Return the number of objects destroyed by this pool so far,
+	 * through eviction or on shutdown.
+	 */
+	public long getDestroyedCount() {
+		return this.destroyedCount.get();
+	}
+
+	/**
+	 * Return the fraction of the maximum pool size currently active, between 0 and 1.
+	 * For an unbounded pool, the fraction of all pooled objects currently active.
+	 */
+	public double getUtilization() {
+		int active = this.activeCount.get();
+		int capacity = (getMaxSize() > 0 ? getMaxSize() : active + this.idleCount.get());
+		return (capacity > 0 ? (double) active / capacity : 0);
+	}
+
+	/**
+	 * Return the mean time spent waiting for an object, in milliseconds.
+	 */
+	public double getMeanBorrowWaitTime() {
+		return this.borrowWaitTimeHistogram.getMean(TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Return the longest time spent waiting for an object, in milliseconds.
+	 */
+	public long getMaxBorrowWaitTime() {
+		return this.borrowWaitTimeHistogram.getMax(TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Return the histogram of times spent waiting for an object,
+	 * including the creation of new objects.
+	 */
+	public LatencyHistogram getBorrowWaitTimeHistogram() {
+		return this.borrowWaitTimeHistogram;
+	}
+
+	/**
+	 * Reset all statistics.
+	 */
+	public void resetStatistics() {
+		this.borrowCount.set(0);
+		this.borrowTimeoutCount.set(0);
+		this.createdCount.set(0);
+		this.destroyedCount.set(0);
+		this.borrowWaitTimeHistogram.reset();
+	}
+
+
+	/**
+	 * Closes the pool, destroying all idle objects right away
+	 * and all active objects once they are returned.
+	 */
+	@Override
+	public void destroy() {
+		logger.debug("Closing concurrent object pool");
+		this.closed = true;
+		destroyIdle();
+	}
+
+
+	private void destroyIdle() {
+		IdleEntry entry = this.idleTop.getAndSet(null);
+		while (entry != null) {
+			this.idleCount.decrementAndGet();
+			destroyInstance(entry.target);
+			entry = entry.next;
+		}
+	}
+
+	private void ensureMinIdle() {
+		while (!this.closed && this.idleCount.get() < this.minIdle) {
+			pushIdle(createInstance(), System.currentTimeMillis());
+		}
+	}
+
+	private Object createInstance() {
+		Object target = newPrototypeInstance();
+		this.createdCount.incrementAndGet();
+		return target;
+	}
+
+	private void destroyInstance(Object target) {
+		this.destroyedCount.incrementAndGet();
+		destroyPrototypeInstance(target);
+	}
+
+	private Object popIdle() {
+		while (true) {
+			IdleEntry top = this.idleTop.get();
+			if (top == null) {
+				return null;
+			}
+			if (this.idleTop.compareAndSet(top, top.next)) {
+				this.idleCount.decrementAndGet();
+				return top.target;
+			}
+		}
+	}
+
+	private void pushIdle(Object target, long idleSince) {
+		this.idleCount.incrementAndGet();
+		pushEntry(target, idleSince);
+	}
+
+	private void pushEntry(Object target, long idleSince) {
+		// Always a new entry, avoiding the ABA problem on concurrent pop and push
+		IdleEntry entry = new IdleEntry(target, idleSince);
+		while (true) {
+			IdleEntry top = this.idleTop.get();
+			entry.next = top;
+			if (this.idleTop.compareAndSet(top, entry)) {
+				return;
+			}
+		}
+	}
+
+
+	/**
+	 * Node in the stack of idle objects.
+	 */
+	private static class IdleEntry {
+
+		final Object target;
+
+		final long idleSince;
+
+		IdleEntry next;
+
+		IdleEntry(Object target, long idleSince) {
+			this.target = target;
+			this.idleSince = idleSince;
+		}
+	}
+
+}
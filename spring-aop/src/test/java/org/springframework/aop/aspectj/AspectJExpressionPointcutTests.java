@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -30,11 +30,16 @@ import org.springframework.aop.ClassFilter;
 import org.springframework.aop.MethodMatcher;
 import org.springframework.aop.Pointcut;
 import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.framework.autoproxy.ProxyCreationContext;
 import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.tests.sample.beans.IOther;
 import org.springframework.tests.sample.beans.ITestBean;
 import org.springframework.tests.sample.beans.TestBean;
 import org.springframework.tests.sample.beans.subpkg.DeepBean;
+import org.springframework.util.ReflectionUtils;
 
 import static org.junit.Assert.*;
 
@@ -318,6 +323,74 @@ public final class AspectJExpressionPointcutTests {
 		assertEquals("execution(* *(..)) && args(String) && this(Object)",expr.getPointcutExpression());
 	}
 
+	@Test
+	public void testShadowMatchCacheSharedBetweenEqualExpressions() {
+		AspectJExpressionPointcut pc1 = (AspectJExpressionPointcut) getPointcut("execution(* *..TestBean.*Age(..))");
+		AspectJExpressionPointcut pc2 = (AspectJExpressionPointcut) getPointcut("execution(* *..TestBean.*Age(..))");
+		AspectJExpressionPointcut pc3 = (AspectJExpressionPointcut) getPointcut("execution(* *..TestBean.get*(..))");
+		assertMatchesGetAge(pc1.getMethodMatcher());
+		assertMatchesGetAge(pc2.getMethodMatcher());
+		assertMatchesGetAge(pc3.getMethodMatcher());
+		assertFalse(pc3.matches(setAge, TestBean.class));
+
+		Object cache1 = new DirectFieldAccessor(pc1).getPropertyValue("shadowMatchCache");
+		assertSame(cache1, new DirectFieldAccessor(pc2).getPropertyValue("shadowMatchCache"));
+		assertNotSame(cache1, new DirectFieldAccessor(pc3).getPropertyValue("shadowMatchCache"));
+	}
+
+	@Test
+	public void testShadowMatchCacheNotSharedForBeanNameExpressions() {
+		AspectJExpressionPointcut pc1 = (AspectJExpressionPointcut) getPointcut("bean(myBean) && execution(* *(..))");
+		AspectJExpressionPointcut pc2 = (AspectJExpressionPointcut) getPointcut("bean(myBean) && execution(* *(..))");
+		pc1.getMethodMatcher();
+		pc2.getMethodMatcher();
+		assertNotSame(new DirectFieldAccessor(pc1).getPropertyValue("shadowMatchCache"),
+				new DirectFieldAccessor(pc2).getPropertyValue("shadowMatchCache"));
+	}
+
+	@Test
+	public void testShadowMatchCacheNotSharedForBeanNameExpressionsWithWhitespace() {
+		AspectJExpressionPointcut pc1 = (AspectJExpressionPointcut) getPointcut("execution(* *(..)) && bean (myBean)");
+		AspectJExpressionPointcut pc2 = (AspectJExpressionPointcut) getPointcut("execution(* *(..)) && bean (myBean)");
+		pc1.getMethodMatcher();
+		pc2.getMethodMatcher();
+		assertNotSame(new DirectFieldAccessor(pc1).getPropertyValue("shadowMatchCache"),
+				new DirectFieldAccessor(pc2).getPropertyValue("shadowMatchCache"));
+	}
+
+	@Test
+	public void testShadowMatchCacheNotSharedForNamedBeanNamePointcuts() {
+		DefaultListableBeanFactory bf1 = new DefaultListableBeanFactory();
+		bf1.registerAlias("service", "myBean");
+		AspectJExpressionPointcut pc1 = getNamedBeanNamePointcut(bf1);
+		AspectJExpressionPointcut pc2 = getNamedBeanNamePointcut(new DefaultListableBeanFactory());
+
+		setCurrentProxiedBeanName("service");
+		try {
+			assertTrue(pc1.matches(getAge, TestBean.class));
+			assertFalse(pc2.matches(getAge, TestBean.class));
+		}
+		finally {
+			setCurrentProxiedBeanName(null);
+		}
+		assertNotSame(new DirectFieldAccessor(pc1).getPropertyValue("shadowMatchCache"),
+				new DirectFieldAccessor(pc2).getPropertyValue("shadowMatchCache"));
+	}
+
+	private AspectJExpressionPointcut getNamedBeanNamePointcut(BeanFactory beanFactory) {
+		AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+		pointcut.setPointcutDeclarationScope(NamedPointcuts.class);
+		pointcut.setExpression("myBean() && execution(* *(..))");
+		pointcut.setBeanFactory(beanFactory);
+		return pointcut;
+	}
+
+	private static void setCurrentProxiedBeanName(String beanName) {
+		Method method = ReflectionUtils.findMethod(ProxyCreationContext.class, "setCurrentProxiedBeanName", String.class);
+		ReflectionUtils.makeAccessible(method);
+		ReflectionUtils.invokeMethod(method, null, beanName);
+	}
+
 	private Pointcut getPointcut(String expression) {
 		AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
 		pointcut.setExpression(expression);
@@ -325,6 +398,14 @@ public final class AspectJExpressionPointcutTests {
 	}
 
 
+	public static class NamedPointcuts {
+
+		@org.aspectj.lang.annotation.Pointcut("bean(myBean)")
+		public void myBean() {
+		}
+	}
+
+
 	public static class OtherIOther implements IOther {
 
 		@Override
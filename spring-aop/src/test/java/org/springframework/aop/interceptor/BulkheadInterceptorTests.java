@@ -0,0 +1,318 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.interceptor;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.util.SerializationTestUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ */
+public class BulkheadInterceptorTests {
+
+	private static final String BLOCK = Service.class.getName() + ".block";
+
+	private static final String SLEEP = Service.class.getName() + ".sleep";
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+
+	@After
+	public void releaseBlockedThreads() {
+		this.release.countDown();
+	}
+
+
+	@Test
+	public void rejectsBeyondLimit() throws Exception {
+		BulkheadInterceptor interceptor = new BulkheadInterceptor();
+		interceptor.setConcurrencyLimit(2);
+		Service proxy = createProxy(interceptor);
+		Thread[] threads = startBlocked(proxy, 2);
+
+		try {
+			proxy.block(new CountDownLatch(1), this.release);
+			fail("Should have thrown RejectedExecutionException");
+		}
+		catch (RejectedExecutionException ex) {
+			assertTrue(ex.getMessage().contains(BLOCK));
+		}
+		assertEquals(2, interceptor.getActiveCount(BLOCK));
+		assertEquals(2, interceptor.getAcceptedCount(BLOCK));
+		assertEquals(1, interceptor.getRejectedCount(BLOCK));
+
+		this.release.countDown();
+		join(threads);
+		assertEquals(0, interceptor.getActiveCount(BLOCK));
+		proxy.sleep(0);
+	}
+
+	@Test
+	public void waitsUpToMaxWait() throws Exception {
+		BulkheadInterceptor interceptor = new BulkheadInterceptor();
+		interceptor.setConcurrencyLimit(1);
+		interceptor.setMaxWait(5000);
+		interceptor.setFair(true);
+		Service proxy = createProxy(interceptor);
+		Thread[] threads = startBlocked(proxy, 1);
+
+		new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+				}
+				catch (InterruptedException ex) {
+					// ignore
+				}
+				release.countDown();
+			}
+		}.start();
+		proxy.block(new CountDownLatch(1), this.release);
+		join(threads);
+		assertEquals(2, interceptor.getAcceptedCount(BLOCK));
+		assertEquals(0, interceptor.getRejectedCount(BLOCK));
+		assertTrue(interceptor.getWaitTimeHistogram(BLOCK).getMax(TimeUnit.MILLISECONDS) >= 40);
+	}
+
+	@Test
+	public void isolatesMethods() throws Exception {
+		BulkheadInterceptor interceptor = new BulkheadInterceptor();
+		interceptor.setConcurrencyLimit(1);
+		Service proxy = createProxy(interceptor);
+		startBlocked(proxy, 1);
+
+		proxy.sleep(0);
+		assertArrayEquals(new String[] {BLOCK, SLEEP}, interceptor.getBulkheadNames());
+		assertEquals(1, interceptor.getAcceptedCount(SLEEP));
+		assertEquals(0, interceptor.getRejectedCount(SLEEP));
+	}
+
+	@Test
+	public void specificLimits() throws Exception {
+		BulkheadInterceptor interceptor = new BulkheadInterceptor();
+		interceptor.setConcurrencyLimits(Collections.singletonMap(BLOCK, 3));
+		Service proxy = createProxy(interceptor);
+		proxy.sleep(0);
+		startBlocked(proxy, 3);
+		assertEquals(3, interceptor.getCurrentLimit(BLOCK));
+		assertEquals(BulkheadInterceptor.DEFAULT_CONCURRENCY_LIMIT, interceptor.getCurrentLimit(SLEEP));
+		assertEquals(-1, interceptor.getCurrentLimit("unknown"));
+		try {
+			proxy.block(new CountDownLatch(1), this.release);
+			fail("Should have thrown RejectedExecutionException");
+		}
+		catch (RejectedExecutionException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void sharedBulkhead() throws Exception {
+		BulkheadInterceptor interceptor = new BulkheadInterceptor() {
+			@Override
+			protected String determineBulkheadName(Method method, Class<?> targetClass) {
+				return "service";
+			}
+		};
+		interceptor.setConcurrencyLimit(1);
+		Service proxy = createProxy(interceptor);
+		startBlocked(proxy, 1);
+		try {
+			proxy.sleep(0);
+			fail("Should have thrown RejectedExecutionException");
+		}
+		catch (RejectedExecutionException ex) {
+			// expected
+		}
+		assertArrayEquals(new String[] {"service"}, interceptor.getBulkheadNames());
+		assertEquals(1, interceptor.getRejectedCount("service"));
+	}
+
+	@Test
+	public void bulkheadPerTargetClass() throws Exception {
+		BulkheadInterceptor interceptor = new BulkheadInterceptor() {
+			@Override
+			protected String determineBulkheadName(Method method, Class<?> targetClass) {
+				return targetClass.getName();
+			}
+		};
+		Service proxy = createProxy(interceptor);
+		Service otherTarget = new DefaultService() {};
+		ProxyFactory pf = new ProxyFactory(otherTarget);
+		pf.addAdvice(interceptor);
+		Service otherProxy = (Service) pf.getProxy();
+		proxy.sleep(0);
+		otherProxy.sleep(0);
+		otherProxy.sleep(0);
+		assertEquals(1, interceptor.getAcceptedCount(DefaultService.class.getName()));
+		assertEquals(2, interceptor.getAcceptedCount(otherTarget.getClass().getName()));
+	}
+
+	@Test
+	public void adaptiveLimit() throws Exception {
+		BulkheadInterceptor interceptor = new BulkheadInterceptor();
+		interceptor.setConcurrencyLimit(4);
+		interceptor.setLatencyThreshold(20);
+		interceptor.setBackoffRatio(0.5);
+		Service proxy = createProxy(interceptor);
+
+		proxy.sleep(40);
+		assertEquals(2, interceptor.getCurrentLimit(SLEEP));
+		Thread.sleep(30);
+		proxy.sleep(40);
+		assertEquals(1, interceptor.getCurrentLimit(SLEEP));
+		Thread.sleep(30);
+		proxy.sleep(40);
+		assertEquals(1, interceptor.getCurrentLimit(SLEEP));
+
+		proxy.sleep(0);
+		assertEquals(2, interceptor.getCurrentLimit(SLEEP));
+		proxy.sleep(0);
+		proxy.sleep(0);
+		assertEquals(3, interceptor.getCurrentLimit(SLEEP));
+		for (int i = 0; i < 10; i++) {
+			proxy.sleep(0);
+		}
+		assertEquals(4, interceptor.getCurrentLimit(SLEEP));
+
+		// Effective limit matches the adapted limit
+		startBlocked(proxy, 4);
+		try {
+			proxy.block(new CountDownLatch(1), this.release);
+			fail("Should have thrown RejectedExecutionException");
+		}
+		catch (RejectedExecutionException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void adaptiveLimitReducesEffectivePermits() throws Exception {
+		BulkheadInterceptor interceptor = new BulkheadInterceptor() {
+			@Override
+			protected String determineBulkheadName(Method method, Class<?> targetClass) {
+				return "service";
+			}
+		};
+		interceptor.setConcurrencyLimit(4);
+		interceptor.setLatencyThreshold(20);
+		interceptor.setBackoffRatio(0.5);
+		Service proxy = createProxy(interceptor);
+
+		proxy.sleep(40);
+		assertEquals(2, interceptor.getCurrentLimit("service"));
+		startBlocked(proxy, 2);
+		try {
+			proxy.block(new CountDownLatch(1), this.release);
+			fail("Should have thrown RejectedExecutionException");
+		}
+		catch (RejectedExecutionException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void serializable() throws Exception {
+		BulkheadInterceptor interceptor = new BulkheadInterceptor();
+		interceptor.setConcurrencyLimit(3);
+		interceptor.setMaxWait(100);
+		createProxy(interceptor).sleep(0);
+		BulkheadInterceptor copy = (BulkheadInterceptor) SerializationTestUtils.serializeAndDeserialize(interceptor);
+		assertEquals(3, copy.getConcurrencyLimit());
+		assertEquals(100, copy.getMaxWait());
+		assertEquals(0, copy.getBulkheadNames().length);
+		createProxy(copy).sleep(0);
+		assertEquals(1, copy.getAcceptedCount(SLEEP));
+	}
+
+
+	private Service createProxy(BulkheadInterceptor interceptor) {
+		ProxyFactory pf = new ProxyFactory(new DefaultService());
+		pf.addAdvice(interceptor);
+		return (Service) pf.getProxy();
+	}
+
+	private Thread[] startBlocked(final Service proxy, int count) throws InterruptedException {
+		Thread[] threads = new Thread[count];
+		final CountDownLatch entered = new CountDownLatch(count);
+		for (int i = 0; i < count; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					proxy.block(entered, release);
+				}
+			};
+			threads[i].start();
+		}
+		assertTrue(entered.await(5, TimeUnit.SECONDS));
+		return threads;
+	}
+
+	private void join(Thread[] threads) throws InterruptedException {
+		for (Thread thread : threads) {
+			thread.join(5000);
+		}
+	}
+
+
+	public interface Service {
+
+		void block(CountDownLatch entered, CountDownLatch release);
+
+		void sleep(long millis);
+	}
+
+
+	public static class DefaultService implements Service {
+
+		@Override
+		public void block(CountDownLatch entered, CountDownLatch release) {
+			entered.countDown();
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public void sleep(long millis) {
+			if (millis > 0) {
+				try {
+					Thread.sleep(millis);
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.interceptor;
+
+import org.junit.Test;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.tests.sample.beans.ITestBean;
+import org.springframework.tests.sample.beans.TestBean;
+import org.springframework.util.SerializationTestUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ */
+public class HistogramPerformanceMonitorInterceptorTests {
+
+	private static final String GET_AGE = ITestBean.class.getName() + ".getAge";
+
+	private static final String EXCEPTIONAL = ITestBean.class.getName() + ".exceptional";
+
+	private final HistogramPerformanceMonitorInterceptor interceptor = new HistogramPerformanceMonitorInterceptor();
+
+
+	@Test
+	public void recordsEveryInvocationPerMethod() throws Throwable {
+		ITestBean proxy = createProxy(new TestBean());
+		for (int i = 0; i < 10; i++) {
+			proxy.getAge();
+		}
+		proxy.setAge(5);
+
+		assertArrayEquals(new String[] {GET_AGE, ITestBean.class.getName() + ".setAge"},
+				this.interceptor.getMonitoredMethodNames());
+		assertEquals(10, this.interceptor.getInvocationCount(GET_AGE));
+		assertEquals(10, this.interceptor.getLatencyHistogram(GET_AGE).getCount());
+		assertEquals(0, this.interceptor.getErrorCount(GET_AGE));
+		assertTrue(this.interceptor.getPercentile(GET_AGE, 99) >= 0);
+		assertEquals(0, this.interceptor.getInvocationCount("unknown"));
+		assertNull(this.interceptor.getLatencyHistogram("unknown"));
+	}
+
+	@Test
+	public void countsErrors() throws Throwable {
+		ITestBean proxy = createProxy(new TestBean());
+		try {
+			proxy.exceptional(new IllegalStateException());
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+		proxy.exceptional(null);
+		assertEquals(2, this.interceptor.getInvocationCount(EXCEPTIONAL));
+		assertEquals(1, this.interceptor.getErrorCount(EXCEPTIONAL));
+		String[] summary = this.interceptor.getStatisticsSummary();
+		assertEquals(1, summary.length);
+		assertTrue(summary[0], summary[0].startsWith(EXCEPTIONAL + ": invocations=2, errors=1, sampled count=2"));
+	}
+
+	@Test
+	public void samplingInterval() throws Throwable {
+		this.interceptor.setSamplingInterval(4);
+		ITestBean proxy = createProxy(new TestBean());
+		for (int i = 0; i < 10; i++) {
+			proxy.getAge();
+		}
+		assertEquals(10, this.interceptor.getInvocationCount(GET_AGE));
+		assertEquals(2, this.interceptor.getLatencyHistogram(GET_AGE).getCount());
+	}
+
+	@Test
+	public void sharedAcrossTargetsWithSameName() throws Throwable {
+		createProxy(new TestBean()).getAge();
+		createProxy(new TestBean()).getAge();
+		assertEquals(1, this.interceptor.getMonitoredMethodNames().length);
+		assertEquals(2, this.interceptor.getInvocationCount(GET_AGE));
+	}
+
+	@Test
+	public void prefixAndSuffix() throws Throwable {
+		this.interceptor.setPrefix("service:");
+		this.interceptor.setSuffix("()");
+		createProxy(new TestBean()).getAge();
+		assertEquals(1, this.interceptor.getInvocationCount("service:" + GET_AGE + "()"));
+	}
+
+	@Test
+	public void resetStatistics() throws Throwable {
+		ITestBean proxy = createProxy(new TestBean());
+		proxy.getAge();
+		this.interceptor.resetStatistics();
+		assertEquals(0, this.interceptor.getInvocationCount(GET_AGE));
+		assertEquals(0, this.interceptor.getLatencyHistogram(GET_AGE).getCount());
+		proxy.getAge();
+		assertEquals(1, this.interceptor.getInvocationCount(GET_AGE));
+	}
+
+	@Test
+	public void serializable() throws Throwable {
+		this.interceptor.setSamplingInterval(2);
+		createProxy(new TestBean()).getAge();
+		HistogramPerformanceMonitorInterceptor copy =
+				(HistogramPerformanceMonitorInterceptor) SerializationTestUtils.serializeAndDeserialize(this.interceptor);
+		assertEquals(2, copy.getSamplingInterval());
+		assertEquals(0, copy.getMonitoredMethodNames().length);
+
+		ProxyFactory pf = new ProxyFactory(new TestBean());
+		pf.addAdvice(copy);
+		((ITestBean) pf.getProxy()).getAge();
+		assertEquals(1, copy.getInvocationCount(GET_AGE));
+	}
+
+
+	private ITestBean createProxy(TestBean target) {
+		ProxyFactory pf = new ProxyFactory(target);
+		pf.addAdvice(this.interceptor);
+		return (ITestBean) pf.getProxy();
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,15 +17,19 @@
 package org.springframework.aop.support;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Test;
 
+import org.springframework.aop.Advisor;
 import org.springframework.aop.ClassFilter;
 import org.springframework.aop.MethodMatcher;
 import org.springframework.aop.Pointcut;
 import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
 import org.springframework.aop.target.EmptyTargetSource;
 import org.springframework.tests.aop.interceptor.NopInterceptor;
+import org.springframework.tests.aop.interceptor.TimestampIntroductionInterceptor;
 import org.springframework.tests.sample.beans.TestBean;
 import org.springframework.util.SerializationTestUtils;
 
@@ -71,6 +75,49 @@ public final class AopUtilsTests {
 		assertTrue(AopUtils.canApply(pc, Object.class));
 	}
 
+	@Test
+	public void testFindAdvisorsThatCanApply() {
+		class NamePointcut extends StaticMethodMatcherPointcut {
+			private final String methodName;
+			private int checkedMethods;
+			public NamePointcut(String methodName) {
+				this.methodName = methodName;
+			}
+			@Override
+			public boolean matches(Method method, Class<?> clazz) {
+				this.checkedMethods++;
+				return method.getName().equals(this.methodName);
+			}
+		}
+
+		NamePointcut getAge = new NamePointcut("getAge");
+		NamePointcut absent = new NamePointcut("absent");
+		NamePointcut rejected = new NamePointcut("getAge");
+		rejected.setClassFilter(new RootClassFilter(String.class));
+
+		Advisor getAgeAdvisor = new DefaultPointcutAdvisor(getAge, new NopInterceptor());
+		Advisor absentAdvisor = new DefaultPointcutAdvisor(absent, new NopInterceptor());
+		Advisor rejectedAdvisor = new DefaultPointcutAdvisor(rejected, new NopInterceptor());
+		Advisor anyAdvisor = new DefaultPointcutAdvisor(new NopInterceptor());
+		Advisor introductionAdvisor = new DefaultIntroductionAdvisor(new TimestampIntroductionInterceptor());
+
+		List<Advisor> candidates = new ArrayList<Advisor>();
+		candidates.add(getAgeAdvisor);
+		candidates.add(absentAdvisor);
+		candidates.add(rejectedAdvisor);
+		candidates.add(anyAdvisor);
+		candidates.add(introductionAdvisor);
+
+		List<Advisor> eligible = AopUtils.findAdvisorsThatCanApply(candidates, TestBean.class);
+		assertEquals(3, eligible.size());
+		assertSame(introductionAdvisor, eligible.get(0));
+		assertSame(getAgeAdvisor, eligible.get(1));
+		assertSame(anyAdvisor, eligible.get(2));
+		assertTrue(getAge.checkedMethods > 0);
+		assertTrue(absent.checkedMethods > getAge.checkedMethods);
+		assertEquals(0, rejected.checkedMethods);
+	}
+
 	/**
 	 * Test that when we serialize and deserialize various canonical instances
 	 * of AOP classes, they return the same instance, not a new instance
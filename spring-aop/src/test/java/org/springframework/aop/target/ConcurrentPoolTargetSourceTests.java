@@ -0,0 +1,265 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.target;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ */
+public class ConcurrentPoolTargetSourceTests {
+
+	private final DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+
+	private final ConcurrentPoolTargetSource targetSource = new ConcurrentPoolTargetSource();
+
+
+	@Before
+	public void setUp() {
+		RootBeanDefinition bd = new RootBeanDefinition(Worker.class);
+		bd.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+		this.beanFactory.registerBeanDefinition("worker", bd);
+		this.targetSource.setTargetBeanName("worker");
+	}
+
+	@After
+	public void tearDown() {
+		this.targetSource.destroy();
+	}
+
+
+	@Test
+	public void reusesMostRecentlyReleasedObject() throws Exception {
+		this.targetSource.setBeanFactory(this.beanFactory);
+		Object first = this.targetSource.getTarget();
+		Object second = this.targetSource.getTarget();
+		assertNotSame(first, second);
+		assertEquals(2, this.targetSource.getActiveCount());
+		assertEquals(0.25, this.targetSource.getUtilization(), 0.0);
+
+		this.targetSource.releaseTarget(first);
+		this.targetSource.releaseTarget(second);
+		assertEquals(0, this.targetSource.getActiveCount());
+		assertEquals(2, this.targetSource.getIdleCount());
+		assertSame(second, this.targetSource.getTarget());
+		assertSame(first, this.targetSource.getTarget());
+		assertEquals(2, this.targetSource.getCreatedCount());
+		assertEquals(4, this.targetSource.getBorrowCount());
+		assertEquals(4, this.targetSource.getBorrowWaitTimeHistogram().getCount());
+	}
+
+	@Test
+	public void minIdleCreatedOnInitialization() throws Exception {
+		this.targetSource.setMinIdle(3);
+		this.targetSource.setBeanFactory(this.beanFactory);
+		assertEquals(3, this.targetSource.getIdleCount());
+		assertEquals(3, this.targetSource.getCreatedCount());
+		this.targetSource.getTarget();
+		assertEquals(3, this.targetSource.getCreatedCount());
+	}
+
+	@Test
+	public void borrowTimesOutWhenExhausted() throws Exception {
+		this.targetSource.setMaxSize(2);
+		this.targetSource.setMaxWait(10);
+		this.targetSource.setBeanFactory(this.beanFactory);
+		this.targetSource.getTarget();
+		this.targetSource.getTarget();
+		assertEquals(1.0, this.targetSource.getUtilization(), 0.0);
+		try {
+			this.targetSource.getTarget();
+			fail("Should have thrown NoSuchElementException");
+		}
+		catch (NoSuchElementException ex) {
+			// expected
+		}
+		assertEquals(1, this.targetSource.getBorrowTimeoutCount());
+		assertEquals(2, this.targetSource.getActiveCount());
+	}
+
+	@Test
+	public void waitingCallerObtainsReleasedObject() throws Exception {
+		this.targetSource.setMaxSize(1);
+		this.targetSource.setBeanFactory(this.beanFactory);
+		final Object target = this.targetSource.getTarget();
+		final AtomicReference<Object> borrowed = new AtomicReference<Object>();
+		final CountDownLatch started = new CountDownLatch(1);
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				started.countDown();
+				try {
+					borrowed.set(targetSource.getTarget());
+				}
+				catch (Exception ex) {
+					borrowed.set(ex);
+				}
+			}
+		};
+		thread.start();
+		started.await();
+		Thread.sleep(50);
+		assertNull(borrowed.get());
+		this.targetSource.releaseTarget(target);
+		thread.join(5000);
+		assertSame(target, borrowed.get());
+		assertTrue(this.targetSource.getMaxBorrowWaitTime() >= 40);
+	}
+
+	@Test
+	public void evictsIdleObjectsBeyondMinIdle() throws Exception {
+		this.targetSource.setMinIdle(1);
+		this.targetSource.setMinEvictableIdleTimeMillis(0);
+		this.targetSource.setBeanFactory(this.beanFactory);
+		Worker first = (Worker) this.targetSource.getTarget();
+		Worker second = (Worker) this.targetSource.getTarget();
+		Worker third = (Worker) this.targetSource.getTarget();
+		this.targetSource.releaseTarget(first);
+		this.targetSource.releaseTarget(second);
+		this.targetSource.releaseTarget(third);
+		assertEquals(3, this.targetSource.getIdleCount());
+
+		assertEquals(2, this.targetSource.evict());
+		assertEquals(1, this.targetSource.getIdleCount());
+		assertEquals(2, this.targetSource.getDestroyedCount());
+		assertFalse(third.destroyed);
+		assertTrue(second.destroyed);
+		assertTrue(first.destroyed);
+		assertSame(third, this.targetSource.getTarget());
+	}
+
+	@Test
+	public void evictionRunOnRelease() throws Exception {
+		this.targetSource.setMinEvictableIdleTimeMillis(0);
+		this.targetSource.setTimeBetweenEvictionRunsMillis(0);
+		this.targetSource.setBeanFactory(this.beanFactory);
+		Worker first = (Worker) this.targetSource.getTarget();
+		Worker second = (Worker) this.targetSource.getTarget();
+		this.targetSource.releaseTarget(first);
+		assertTrue(first.destroyed);
+		this.targetSource.releaseTarget(second);
+		assertTrue(second.destroyed);
+		assertEquals(0, this.targetSource.getIdleCount());
+	}
+
+	@Test
+	public void destroyClosesPool() throws Exception {
+		this.targetSource.setBeanFactory(this.beanFactory);
+		Worker idle = (Worker) this.targetSource.getTarget();
+		Worker active = (Worker) this.targetSource.getTarget();
+		this.targetSource.releaseTarget(idle);
+
+		this.targetSource.destroy();
+		assertTrue(idle.destroyed);
+		assertFalse(active.destroyed);
+		this.targetSource.releaseTarget(active);
+		assertTrue(active.destroyed);
+		try {
+			this.targetSource.getTarget();
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void concurrentAccess() throws Exception {
+		this.targetSource.setMaxSize(4);
+		this.targetSource.setBeanFactory(this.beanFactory);
+		final AtomicInteger failures = new AtomicInteger();
+		Thread[] threads = new Thread[16];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 1000; j++) {
+						try {
+							Worker worker = (Worker) targetSource.getTarget();
+							if (!worker.inUse.compareAndSet(false, true)) {
+								failures.incrementAndGet();
+							}
+							worker.inUse.set(false);
+							targetSource.releaseTarget(worker);
+						}
+						catch (Exception ex) {
+							failures.incrementAndGet();
+						}
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join(TimeUnit.SECONDS.toMillis(30));
+		}
+		assertEquals(0, failures.get());
+		assertEquals(16000, this.targetSource.getBorrowCount());
+		assertTrue(this.targetSource.getCreatedCount() <= 4);
+		assertEquals(0, this.targetSource.getActiveCount());
+		assertEquals(this.targetSource.getCreatedCount(), this.targetSource.getIdleCount());
+	}
+
+	@Test
+	public void poolingConfigMixin() throws Exception {
+		this.targetSource.setBeanFactory(this.beanFactory);
+		ProxyFactory pf = new ProxyFactory();
+		pf.setTargetSource(this.targetSource);
+		pf.setProxyTargetClass(true);
+		pf.addAdvisor(this.targetSource.getPoolingConfigMixin());
+		Object proxy = pf.getProxy();
+		((Worker) proxy).work();
+		PoolingConfig config = (PoolingConfig) proxy;
+		assertEquals(8, config.getMaxSize());
+		assertEquals(1, config.getActiveCount());
+		assertEquals(1, this.targetSource.getIdleCount());
+	}
+
+
+	public static class Worker implements DisposableBean {
+
+		final AtomicBoolean inUse = new AtomicBoolean();
+
+		volatile boolean destroyed;
+
+		public void work() {
+		}
+
+		@Override
+		public void destroy() {
+			this.destroyed = true;
+		}
+	}
+
+}
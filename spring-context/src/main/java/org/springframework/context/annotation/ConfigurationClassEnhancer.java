@@ -32,6 +32,7 @@ import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.support.SimpleInstantiationStrategy;
+import org.springframework.cglib.core.ClassGenerationStatistics;
 import org.springframework.cglib.core.ClassGenerator;
 import org.springframework.cglib.core.Constants;
 import org.springframework.cglib.core.DefaultGeneratorStrategy;
@@ -204,6 +205,7 @@ class ConfigurationClassEnhancer {
 	 * Custom extension of CGLIB's DefaultGeneratorStrategy, introducing a {@link BeanFactory} field.
 	 * Also exposes the application ClassLoader as thread context ClassLoader for the time of
 	 * class generation (in order for ASM to pick it up when doing common superclass resolution).
+	 * Each generated class is recorded in {@link ClassGenerationStatistics}.
 	 */
 	private static class BeanFactoryAwareGeneratorStrategy extends DefaultGeneratorStrategy {
 
@@ -227,6 +229,13 @@ class ConfigurationClassEnhancer {
 
 		@Override
 		public byte[] generate(ClassGenerator cg) throws Exception {
+			long startTime = System.nanoTime();
+			byte[] result = generateWithClassLoader(cg);
+			ClassGenerationStatistics.recordGeneration(startTime);
+			return result;
+		}
+
+		private byte[] generateWithClassLoader(ClassGenerator cg) throws Exception {
 			if (this.classLoader == null) {
 				return super.generate(cg);
 			}
@@ -51,7 +51,9 @@ import org.springframework.util.StringUtils;
  * a chance to deviate from the default. Unwraps the content of a
  * {@link PayloadApplicationEvent} if necessary to allow method declaration
  * to define any arbitrary event type. If a condition is defined, it is
- * evaluated prior to invoking the underlying method.
+ * evaluated prior to invoking the underlying method. If an
+ * {@link EventListenerExecution} queue has been assigned, the method
+ * is invoked asynchronously through that queue.
  *
  * @author Stephane Nicoll
  * @author Sam Brannen
@@ -69,6 +71,8 @@ public class ApplicationListenerMethodAdapter implements GenericApplicationListe
 
 	private final Method bridgedMethod;
 
+	private final boolean batchParameter;
+
 	private final List<ResolvableType> declaredEventTypes;
 
 	private final AnnotatedElementKey methodKey;
@@ -81,12 +85,33 @@ public class ApplicationListenerMethodAdapter implements GenericApplicationListe
 
 	private String condition;
 
+	private EventListenerExecutionQueue executionQueue;
+
 
 	public ApplicationListenerMethodAdapter(String beanName, Class<?> targetClass, Method method) {
+		this(beanName, targetClass, method, false);
+	}
+
+	/**
+	 * Create a new adapter for the given listener method.
+	 * @param beanName the name of the bean declaring the method
+	 * @param targetClass the target class of the bean
+	 * @param method the listener method
+	 * @param batchParameter whether the method receives a {@link List} of events
+	 * instead of a single event, with the element type of its parameter defining
+	 * the event type (unless classes have been specified on the annotation);
+	 * the actual collecting of events is left up to subclasses
+	 * @since 4.2.10
+	 * @see #processEventBatch
+	 */
+	protected ApplicationListenerMethodAdapter(String beanName, Class<?> targetClass, Method method,
+			boolean batchParameter) {
+
 		this.beanName = beanName;
 		this.method = method;
 		this.targetClass = targetClass;
 		this.bridgedMethod = BridgeMethodResolver.findBridgedMethod(method);
+		this.batchParameter = batchParameter;
 		this.declaredEventTypes = resolveDeclaredEventTypes();
 		this.methodKey = new AnnotatedElementKey(method, targetClass);
 	}
@@ -100,6 +125,15 @@ public class ApplicationListenerMethodAdapter implements GenericApplicationListe
 		this.evaluator = evaluator;
 	}
 
+	/**
+	 * Hand the invocations of the listener method to the given queue
+	 * instead of invoking the method in the publisher thread.
+	 * @see EventListenerExecution
+	 */
+	void setExecutionQueue(EventListenerExecutionQueue executionQueue) {
+		this.executionQueue = executionQueue;
+	}
+
 
 	@Override
 	public void onApplicationEvent(ApplicationEvent event) {
@@ -141,14 +175,58 @@ public class ApplicationListenerMethodAdapter implements GenericApplicationListe
 	public void processEvent(ApplicationEvent event) {
 		Object[] args = resolveArguments(event);
 		if (shouldHandle(event, args)) {
-			Object result = doInvoke(args);
-			if (result != null) {
-				handleResult(result);
-			}
-			else {
-				logger.trace("No result object given - no result to handle");
+			dispatchInvocation(args);
+		}
+	}
+
+	/**
+	 * Process the specified {@link ApplicationEvent ApplicationEvents} with a single
+	 * invocation of a batch listener method, passing all events that match the
+	 * condition (if any) as a {@link List}. The method is not invoked at all if
+	 * none of the events match.
+	 * @param events the collected events, in publication order
+	 * @since 4.2.10
+	 */
+	public void processEventBatch(List<? extends ApplicationEvent> events) {
+		Assert.state(this.batchParameter, "Not a batch event listener method");
+		List<Object> batch = new ArrayList<Object>(events.size());
+		for (ApplicationEvent event : events) {
+			Object[] args = resolveArguments(event);
+			if (shouldHandle(event, args)) {
+				batch.add(args.length > 0 ? args[0] : event);
 			}
 		}
+		if (!batch.isEmpty()) {
+			dispatchInvocation(this.method.getParameterTypes().length > 0 ? new Object[] {batch} : new Object[0]);
+		}
+	}
+
+	/**
+	 * Invoke the listener method with the given arguments, either right away
+	 * or through the assigned {@link EventListenerExecutionQueue}, if any.
+	 */
+	private void dispatchInvocation(final Object[] args) {
+		if (this.executionQueue != null) {
+			this.executionQueue.execute(new Runnable() {
+				@Override
+				public void run() {
+					invokeAndHandleResult(args);
+				}
+			});
+		}
+		else {
+			invokeAndHandleResult(args);
+		}
+	}
+
+	private void invokeAndHandleResult(Object[] args) {
+		Object result = doInvoke(args);
+		if (result != null) {
+			handleResult(result);
+		}
+		else {
+			logger.trace("No result object given - no result to handle");
+		}
 	}
 
 	/**
@@ -353,6 +431,10 @@ public class ApplicationListenerMethodAdapter implements GenericApplicationListe
 			throw new IllegalStateException(
 					"Maximum one parameter is allowed for event listener method: " + this.method);
 		}
+		if (this.batchParameter && count > 0 && !this.method.getParameterTypes()[0].isAssignableFrom(List.class)) {
+			throw new IllegalStateException(
+					"Batch event listener method must declare a List parameter: " + this.method);
+		}
 		EventListener ann = getEventListener();
 		if (ann != null && ann.classes().length > 0) {
 			List<ResolvableType> types = new ArrayList<ResolvableType>();
@@ -366,7 +448,16 @@ public class ApplicationListenerMethodAdapter implements GenericApplicationListe
 				throw new IllegalStateException(
 						"Event parameter is mandatory for event listener method: " + this.method);
 			}
-			return Collections.singletonList(ResolvableType.forMethodParameter(this.method, 0));
+			ResolvableType parameterType = ResolvableType.forMethodParameter(this.method, 0);
+			if (this.batchParameter) {
+				ResolvableType elementType = parameterType.getGeneric(0);
+				if (elementType.resolve() == null) {
+					throw new IllegalStateException("Batch event listener method must declare the " +
+							"element type of its List parameter or specify event classes: " + this.method);
+				}
+				return Collections.singletonList(elementType);
+			}
+			return Collections.singletonList(parameterType);
 		}
 	}
 
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.event;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Companion annotation for {@link EventListener} methods, isolating the
+ * listener from the publisher and from other listeners: events are handed
+ * to a dedicated bounded queue which is drained on a given executor.
+ *
+ * <p>With the default {@link #concurrency} of 1, the events are delivered
+ * to the listener method in publication order, for every overflow policy.
+ * A higher concurrency lets several executor threads drain the queue,
+ * without ordering guarantees.
+ *
+ * <p>The condition of the {@link EventListener} is evaluated in the publisher
+ * thread, so that events not relevant to the listener never take up room
+ * in the queue. Exceptions thrown by the listener method are logged since
+ * there is no caller to propagate them to.
+ *
+ * <p>The runtime state of each queue is exposed through
+ * {@link EventListenerMethodProcessor#getExecutionQueues()}, with the
+ * queue sizes and processing times available as bean properties of
+ * {@link EventListenerExecutionQueue}. On shutdown of the application context,
+ * the queues stop accepting events and get drained before the singleton beans,
+ * including the executors, are destroyed.
+ *
+ * @author agent
+ * @since 4.2.10
+ * @see EventListenerExecutionQueue
+ * @see EventListenerMethodProcessor
+ */
+@Target({ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface EventListenerExecution {
+
+	/**
+	 * The name of the {@link java.util.concurrent.Executor} bean to drain
+	 * the queue of this listener with.
+	 * <p>Default is a {@link org.springframework.core.task.SimpleAsyncTaskExecutor}
+	 * shared by all listener methods, starting a thread per active queue.
+	 */
+	String executor() default "";
+
+	/**
+	 * The maximum number of events processed concurrently for this listener.
+	 * <p>Default is 1, which preserves the publication order.
+	 */
+	int concurrency() default 1;
+
+	/**
+	 * The maximum number of events waiting for processing.
+	 * <p>Default is {@link Integer#MAX_VALUE}, i.e. an unbounded queue.
+	 */
+	int queueCapacity() default Integer.MAX_VALUE;
+
+	/**
+	 * The policy to apply when an event arrives at a full queue.
+	 * <p>Default is {@link OverflowPolicy#ABORT}.
+	 */
+	OverflowPolicy overflowPolicy() default OverflowPolicy.ABORT;
+
+
+	/**
+	 * Enumeration of the policies applicable to a full listener queue.
+	 */
+	enum OverflowPolicy {
+
+		/**
+		 * Reject the new event with a
+		 * {@link org.springframework.core.task.TaskRejectedException},
+		 * propagating to the publisher.
+		 */
+		ABORT,
+
+		/**
+		 * Silently drop the new event.
+		 */
+		DISCARD,
+
+		/**
+		 * Drop the oldest waiting event in favor of the new one.
+		 */
+		DISCARD_OLDEST,
+
+		/**
+		 * Block the publisher until the queue has room for the new event,
+		 * throttling the publisher to the rate of the listener while
+		 * preserving the publication order. Rejects the event if published
+		 * by the listener itself, or once the queue has been shut down.
+		 */
+		BLOCK
+	}
+
+}
@@ -0,0 +1,462 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.util.Assert;
+
+/**
+ * Bounded queue of pending invocations for a single event listener,
+ * drained by up to a configurable number of workers on a given executor.
+ *
+ * <p>The queue never owns any threads: each worker is submitted to the
+ * executor as a regular task and keeps going until the queue is empty,
+ * so an idle listener does not occupy the executor at all.
+ *
+ * <p>A {@link #shutdown()} stops accepting new invocations while the workers
+ * keep draining the queue; {@link #awaitTermination} waits for them to finish
+ * and {@link #shutdownNow()} discards whatever is still pending.
+ *
+ * <p>All statistics are exposed as bean properties, which makes an instance
+ * suitable for registration with an {@link org.springframework.jmx.export.MBeanExporter}.
+ *
+ * @author agent
+ * @since 4.2.10
+ * @see EventListenerExecution
+ */
+public class EventListenerExecutionQueue {
+
+	/** Interval for re-checking the shutdown state while blocking for capacity */
+	private static final long BLOCK_CHECK_INTERVAL = 100;
+
+	private static final Log logger = LogFactory.getLog(EventListenerExecutionQueue.class);
+
+	private final String name;
+
+	private final Executor executor;
+
+	private final int concurrency;
+
+	private final int queueCapacity;
+
+	private final EventListenerExecution.OverflowPolicy overflowPolicy;
+
+	private final BlockingQueue<QueuedInvocation> queue;
+
+	private final AtomicInteger workerCount = new AtomicInteger();
+
+	private final Set<Thread> workerThreads =
+			Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>(4));
+
+	private final Object terminationMonitor = new Object();
+
+	private volatile boolean shutdown;
+
+	private final AtomicInteger largestQueueSize = new AtomicInteger();
+
+	private final AtomicLong processedCount = new AtomicLong();
+
+	private final AtomicLong failedCount = new AtomicLong();
+
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	private final AtomicLong totalWaitTime = new AtomicLong();
+
+	private final AtomicLong totalProcessingTime = new AtomicLong();
+
+	private final AtomicLong maxProcessingTime = new AtomicLong();
+
+
+	/**
+	 * Create a new {@code EventListenerExecutionQueue}.
+	 * @param name the name of the listener, for logging purposes
+	 * @param executor the executor to run the workers on
+	 * @param concurrency the maximum number of concurrent workers
+	 * @param queueCapacity the maximum number of pending invocations
+	 * @param overflowPolicy the policy to apply when the queue is full
+	 */
+	public EventListenerExecutionQueue(String name, Executor executor, int concurrency, int queueCapacity,
+			EventListenerExecution.OverflowPolicy overflowPolicy) {
+
+		Assert.notNull(executor, "Executor must not be null");
+		Assert.isTrue(concurrency > 0, "Concurrency must be greater than 0");
+		Assert.isTrue(queueCapacity > 0, "Queue capacity must be greater than 0");
+		Assert.notNull(overflowPolicy, "OverflowPolicy must not be null");
+		this.name = name;
+		this.executor = executor;
+		this.concurrency = concurrency;
+		this.queueCapacity = queueCapacity;
+		this.overflowPolicy = overflowPolicy;
+		this.queue = new LinkedBlockingQueue<QueuedInvocation>(queueCapacity);
+	}
+
+
+	/**
+	 * Queue the given listener invocation, applying the overflow policy
+	 * if the queue is full.
+	 * @param invocation the listener invocation
+	 * @throws TaskRejectedException if the invocation has been rejected
+	 * according to {@link EventListenerExecution.OverflowPolicy#ABORT},
+	 * or because this queue has been shut down
+	 */
+	public void execute(Runnable invocation) {
+		if (this.shutdown) {
+			this.rejectedCount.incrementAndGet();
+			throw new TaskRejectedException("Queue for event listener [" + this.name + "] has been shut down");
+		}
+		QueuedInvocation queued = new QueuedInvocation(invocation);
+		if (!this.queue.offer(queued)) {
+			switch (this.overflowPolicy) {
+				case DISCARD_OLDEST:
+					while (!this.queue.offer(queued)) {
+						if (this.queue.poll() != null) {
+							this.rejectedCount.incrementAndGet();
+						}
+					}
+					break;
+				case BLOCK:
+					this.rejectedCount.incrementAndGet();
+					put(queued);
+					break;
+				case DISCARD:
+					this.rejectedCount.incrementAndGet();
+					if (logger.isDebugEnabled()) {
+						logger.debug("Discarding event for listener [" + this.name + "]: queue capacity of " +
+								this.queueCapacity + " reached");
+					}
+					return;
+				default:
+					this.rejectedCount.incrementAndGet();
+					throw new TaskRejectedException("Queue capacity of " + this.queueCapacity +
+							" reached for event listener [" + this.name + "]");
+			}
+		}
+		if (this.shutdown && this.queue.remove(queued)) {
+			// Shut down concurrently: the workers may have finished draining already.
+			this.rejectedCount.incrementAndGet();
+			throw new TaskRejectedException("Queue for event listener [" + this.name + "] has been shut down");
+		}
+		updateLargestQueueSize();
+		startWorkerIfNecessary();
+	}
+
+	private void put(QueuedInvocation queued) {
+		if (this.workerThreads.contains(Thread.currentThread())) {
+			// The listener published an event to itself: waiting for our own worker would never return.
+			throw new TaskRejectedException("Queue capacity of " + this.queueCapacity +
+					" reached for event listener [" + this.name + "] within its own worker thread");
+		}
+		try {
+			while (!this.queue.offer(queued, BLOCK_CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+				if (this.shutdown) {
+					throw new TaskRejectedException("Queue for event listener [" + this.name + "] has been shut down");
+				}
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new TaskRejectedException("Interrupted while waiting for queue capacity of event listener [" +
+					this.name + "]", ex);
+		}
+	}
+
+	private void updateLargestQueueSize() {
+		int size = this.queue.size();
+		int largest = this.largestQueueSize.get();
+		while (size > largest && !this.largestQueueSize.compareAndSet(largest, size)) {
+			largest = this.largestQueueSize.get();
+		}
+	}
+
+	private void startWorkerIfNecessary() {
+		while (true) {
+			int workers = this.workerCount.get();
+			if (workers >= this.concurrency || this.queue.isEmpty()) {
+				return;
+			}
+			if (this.workerCount.compareAndSet(workers, workers + 1)) {
+				try {
+					this.executor.execute(new Worker());
+				}
+				catch (RejectedExecutionException ex) {
+					this.workerCount.decrementAndGet();
+					throw new TaskRejectedException("Executor [" + this.executor +
+							"] did not accept worker for event listener [" + this.name + "]", ex);
+				}
+				return;
+			}
+		}
+	}
+
+	private void process(QueuedInvocation queued) {
+		long startTime = System.nanoTime();
+		this.totalWaitTime.addAndGet(startTime - queued.enqueueTime);
+		try {
+			queued.invocation.run();
+		}
+		catch (Throwable ex) {
+			this.failedCount.incrementAndGet();
+			logger.error("Unexpected exception thrown by event listener [" + this.name + "]", ex);
+		}
+		finally {
+			long duration = System.nanoTime() - startTime;
+			this.totalProcessingTime.addAndGet(duration);
+			long max = this.maxProcessingTime.get();
+			while (duration > max && !this.maxProcessingTime.compareAndSet(max, duration)) {
+				max = this.maxProcessingTime.get();
+			}
+			this.processedCount.incrementAndGet();
+		}
+	}
+
+
+	/**
+	 * Stop accepting new invocations, letting the workers drain the queue.
+	 * @see #awaitTermination
+	 * @see #shutdownNow()
+	 */
+	public void shutdown() {
+		this.shutdown = true;
+	}
+
+	/**
+	 * Stop accepting new invocations and discard all pending ones.
+	 * Invocations in progress are not affected.
+	 * @return the number of discarded invocations
+	 */
+	public int shutdownNow() {
+		this.shutdown = true;
+		List<QueuedInvocation> pending = new ArrayList<QueuedInvocation>();
+		this.queue.drainTo(pending);
+		this.rejectedCount.addAndGet(pending.size());
+		return pending.size();
+	}
+
+	/**
+	 * Accept new invocations again after a {@link #shutdown()}.
+	 */
+	public void start() {
+		this.shutdown = false;
+	}
+
+	/**
+	 * Return whether this queue has been shut down.
+	 */
+	public boolean isShutdown() {
+		return this.shutdown;
+	}
+
+	/**
+	 * Wait for the queue to be drained and all workers to retire.
+	 * @param timeout the maximum time to wait
+	 * @param unit the time unit of the timeout argument
+	 * @return {@code true} if the queue has been drained,
+	 * {@code false} if the timeout elapsed before
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (this.terminationMonitor) {
+			while (!this.queue.isEmpty() || this.workerCount.get() > 0) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return false;
+				}
+				TimeUnit.NANOSECONDS.timedWait(this.terminationMonitor, remaining);
+			}
+			return true;
+		}
+	}
+
+
+	/**
+	 * Return the name of the listener this queue is associated with.
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Return the maximum number of concurrent workers.
+	 */
+	public int getConcurrency() {
+		return this.concurrency;
+	}
+
+	/**
+	 * Return the maximum number of pending invocations.
+	 */
+	public int getQueueCapacity() {
+		return this.queueCapacity;
+	}
+
+	/**
+	 * Return the current number of pending invocations.
+	 */
+	public int getQueueSize() {
+		return this.queue.size();
+	}
+
+	/**
+	 * Return the largest number of pending invocations observed so far.
+	 */
+	public int getLargestQueueSize() {
+		return this.largestQueueSize.get();
+	}
+
+	/**
+	 * Return the current number of active workers.
+	 */
+	public int getActiveWorkerCount() {
+		return this.workerCount.get();
+	}
+
+	/**
+	 * Return the number of invocations processed so far, including failed ones.
+	 */
+	public long getProcessedCount() {
+		return this.processedCount.get();
+	}
+
+	/**
+	 * Return the number of invocations that threw an exception.
+	 */
+	public long getFailedCount() {
+		return this.failedCount.get();
+	}
+
+	/**
+	 * Return the number of invocations that hit a full queue and have been
+	 * handled according to the overflow policy.
+	 */
+	public long getRejectedCount() {
+		return this.rejectedCount.get();
+	}
+
+	/**
+	 * Return the average time (in milliseconds) an invocation waited in the queue.
+	 */
+	public double getAverageQueueWaitTime() {
+		return average(this.totalWaitTime.get());
+	}
+
+	/**
+	 * Return the average time (in milliseconds) spent in the listener method.
+	 */
+	public double getAverageProcessingTime() {
+		return average(this.totalProcessingTime.get());
+	}
+
+	/**
+	 * Return the maximum time (in milliseconds) spent in the listener method.
+	 */
+	public long getMaxProcessingTime() {
+		return TimeUnit.NANOSECONDS.toMillis(this.maxProcessingTime.get());
+	}
+
+	private double average(long totalNanos) {
+		long count = this.processedCount.get();
+		return (count > 0 ? (double) totalNanos / count / 1000000 : 0);
+	}
+
+
+	@Override
+	public String toString() {
+		return "EventListenerExecutionQueue for [" + this.name + "]: size=" + getQueueSize() +
+				", capacity=" + this.queueCapacity + ", workers=" + getActiveWorkerCount() +
+				", processed=" + getProcessedCount() + ", rejected=" + getRejectedCount();
+	}
+
+
+	private static class QueuedInvocation {
+
+		private final Runnable invocation;
+
+		private final long enqueueTime = System.nanoTime();
+
+		public QueuedInvocation(Runnable invocation) {
+			this.invocation = invocation;
+		}
+	}
+
+
+	/**
+	 * Drains the queue until it is empty, then retires unless new
+	 * invocations arrived in the meantime.
+	 */
+	private class Worker implements Runnable {
+
+		@Override
+		public void run() {
+			Thread thread = Thread.currentThread();
+			workerThreads.add(thread);
+			try {
+				drain();
+			}
+			finally {
+				workerThreads.remove(thread);
+			}
+		}
+
+		private void drain() {
+			while (true) {
+				QueuedInvocation queued = queue.poll();
+				if (queued != null) {
+					process(queued);
+					continue;
+				}
+				workerCount.decrementAndGet();
+				// Re-check: an invocation may have been queued right before we retired
+				if (queue.isEmpty() || !reacquire()) {
+					synchronized (terminationMonitor) {
+						terminationMonitor.notifyAll();
+					}
+					return;
+				}
+			}
+		}
+
+		private boolean reacquire() {
+			while (true) {
+				int workers = workerCount.get();
+				if (workers >= concurrency) {
+					return false;
+				}
+				if (workerCount.compareAndSet(workers, workers + 1)) {
+					return true;
+				}
+			}
+		}
+	}
+
+}
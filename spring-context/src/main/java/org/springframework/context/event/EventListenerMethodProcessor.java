@@ -18,11 +18,15 @@ package org.springframework.context.event;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -32,26 +36,38 @@ import org.springframework.aop.scope.ScopedObject;
 import org.springframework.aop.scope.ScopedProxyUtils;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanInitializationException;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
 
 /**
  * Register {@link EventListener} annotated method as individual {@link ApplicationListener}
  * instances.
  *
+ * <p>Methods additionally annotated with {@link EventListenerExecution} get a dedicated
+ * {@link EventListenerExecutionQueue}, available through {@link #getExecutionQueues()}.
+ * The queues are drained when this processor gets stopped with its application context,
+ * for up to the configured {@link #setShutdownTimeout shutdown timeout}.
+ *
  * @author Stephane Nicoll
  * @author Juergen Hoeller
  * @since 4.2
  */
-public class EventListenerMethodProcessor implements SmartInitializingSingleton, ApplicationContextAware {
+public class EventListenerMethodProcessor
+		implements SmartInitializingSingleton, ApplicationContextAware, SmartLifecycle, DisposableBean {
 
 	protected final Log logger = LogFactory.getLog(getClass());
 
@@ -62,6 +78,25 @@ public class EventListenerMethodProcessor implements SmartInitializingSingleton,
 	private final Set<Class<?>> nonAnnotatedClasses =
 			Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>(64));
 
+	private final Map<String, EventListenerExecutionQueue> executionQueues =
+			new LinkedHashMap<String, EventListenerExecutionQueue>();
+
+	private Executor defaultExecutor;
+
+	private long shutdownTimeout = 10000;
+
+	private volatile boolean running;
+
+
+	/**
+	 * Set the maximum time (in milliseconds) to wait on shutdown for the
+	 * {@link EventListenerExecutionQueue queues} to be drained, in total.
+	 * Events still pending after that time will be discarded.
+	 * <p>Default is 10 seconds.
+	 */
+	public void setShutdownTimeout(long shutdownTimeout) {
+		this.shutdownTimeout = shutdownTimeout;
+	}
 
 	@Override
 	public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
@@ -157,8 +192,14 @@ public class EventListenerMethodProcessor implements SmartInitializingSingleton,
 							ApplicationListener<?> applicationListener =
 									factory.createApplicationListener(beanName, targetType, methodToUse);
 							if (applicationListener instanceof ApplicationListenerMethodAdapter) {
-								((ApplicationListenerMethodAdapter) applicationListener)
-										.init(this.applicationContext, this.evaluator);
+								ApplicationListenerMethodAdapter adapter =
+										(ApplicationListenerMethodAdapter) applicationListener;
+								adapter.init(this.applicationContext, this.evaluator);
+								EventListenerExecution execution =
+										AnnotatedElementUtils.findMergedAnnotation(method, EventListenerExecution.class);
+								if (execution != null) {
+									adapter.setExecutionQueue(registerExecutionQueue(beanName, method, execution));
+								}
 							}
 							this.applicationContext.addApplicationListener(applicationListener);
 							break;
@@ -173,4 +214,145 @@ public class EventListenerMethodProcessor implements SmartInitializingSingleton,
 		}
 	}
 
+	/**
+	 * Create and register the {@link EventListenerExecutionQueue} for the given
+	 * listener method, as specified by its {@link EventListenerExecution} annotation.
+	 * @param beanName the name of the bean declaring the listener method
+	 * @param method the listener method
+	 * @param execution the execution settings for the listener method
+	 * @return the queue to hand the listener invocations to
+	 */
+	protected EventListenerExecutionQueue registerExecutionQueue(
+			String beanName, Method method, EventListenerExecution execution) {
+
+		StringBuilder sb = new StringBuilder(beanName).append(".").append(method.getName()).append("(");
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		for (int i = 0; i < parameterTypes.length; i++) {
+			sb.append(i > 0 ? "," : "").append(ClassUtils.getShortName(parameterTypes[i]));
+		}
+		String name = sb.append(")").toString();
+		Executor executor;
+		if (StringUtils.hasText(execution.executor())) {
+			executor = this.applicationContext.getBean(execution.executor(), Executor.class);
+		}
+		else {
+			executor = getDefaultExecutor();
+		}
+		EventListenerExecutionQueue queue = new EventListenerExecutionQueue(name, executor,
+				execution.concurrency(), execution.queueCapacity(), execution.overflowPolicy());
+		synchronized (this.executionQueues) {
+			this.executionQueues.put(name, queue);
+		}
+		return queue;
+	}
+
+	/**
+	 * Return the executor for listener methods which do not specify one,
+	 * shared across all of them.
+	 */
+	protected Executor getDefaultExecutor() {
+		synchronized (this.executionQueues) {
+			if (this.defaultExecutor == null) {
+				this.defaultExecutor = new SimpleAsyncTaskExecutor("eventListener-");
+			}
+			return this.defaultExecutor;
+		}
+	}
+
+	/**
+	 * Return the {@link EventListenerExecutionQueue} instances registered so far,
+	 * keyed by listener name ({@code beanName.methodName(parameterTypes)}).
+	 * <p>The queues expose their sizes and processing times as bean properties
+	 * and may be registered with an {@link org.springframework.jmx.export.MBeanExporter}.
+	 */
+	public Map<String, EventListenerExecutionQueue> getExecutionQueues() {
+		synchronized (this.executionQueues) {
+			return Collections.unmodifiableMap(
+					new LinkedHashMap<String, EventListenerExecutionQueue>(this.executionQueues));
+		}
+	}
+
+
+	//---------------------------------------------------------------------
+	// Lifecycle of the execution queues
+	//---------------------------------------------------------------------
+
+	@Override
+	public void start() {
+		for (EventListenerExecutionQueue queue : getExecutionQueues().values()) {
+			queue.start();
+		}
+		this.running = true;
+	}
+
+	/**
+	 * Stop accepting events in all execution queues and wait for them to be drained,
+	 * discarding the events still pending once the shutdown timeout has elapsed.
+	 */
+	@Override
+	public void stop() {
+		this.running = false;
+		Collection<EventListenerExecutionQueue> queues = getExecutionQueues().values();
+		for (EventListenerExecutionQueue queue : queues) {
+			queue.shutdown();
+		}
+		long deadline = System.currentTimeMillis() + this.shutdownTimeout;
+		for (EventListenerExecutionQueue queue : queues) {
+			try {
+				if (!queue.awaitTermination(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS)) {
+					discardPendingEvents(queue);
+				}
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				discardPendingEvents(queue);
+			}
+		}
+	}
+
+	@Override
+	public void stop(Runnable callback) {
+		stop();
+		callback.run();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	@Override
+	public boolean isAutoStartup() {
+		return true;
+	}
+
+	/**
+	 * Return the phase of this processor: after message listener containers
+	 * in the default phase {@code Integer.MAX_VALUE}, but before any regular
+	 * lifecycle beans that the event listeners might still depend on.
+	 */
+	@Override
+	public int getPhase() {
+		return Integer.MAX_VALUE / 2;
+	}
+
+	/**
+	 * Discard the events still pending in case of a failed startup,
+	 * without the application context having been stopped.
+	 */
+	@Override
+	public void destroy() {
+		this.running = false;
+		for (EventListenerExecutionQueue queue : getExecutionQueues().values()) {
+			discardPendingEvents(queue);
+		}
+	}
+
+	private void discardPendingEvents(EventListenerExecutionQueue queue) {
+		int discarded = queue.shutdownNow();
+		if (discarded > 0 && logger.isWarnEnabled()) {
+			logger.warn("Discarded " + discarded + " pending events for listener [" + queue.getName() + "] on shutdown");
+		}
+	}
+
 }
@@ -0,0 +1,536 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.util.Assert;
+
+/**
+ * {@link ScheduledExecutorService} implementation based on a hashed timing wheel,
+ * as described by George Varghese and Tony Lauck. Scheduling and cancelling a task
+ * are O(1) operations, in contrast to the O(log n) heap operations of a
+ * {@link java.util.concurrent.ScheduledThreadPoolExecutor}, and contending callers
+ * only meet on lock-free queues.
+ *
+ * <p>The price is precision: the wheel advances in fixed ticks, so a delayed task
+ * fires up to one tick duration late. This makes it a good fit for massive numbers
+ * of timeouts and heartbeats, most of which get cancelled before they expire.
+ *
+ * <p>A single wheel thread advances the wheel and hands expired tasks to a fixed
+ * pool of worker threads, so the wheel itself is never blocked by task execution.
+ * On shutdown, delayed tasks that have not expired yet are discarded, whereas
+ * tasks already handed to the workers are completed.
+ *
+ * @author agent
+ * @since 4.2.10
+ * @see HashedWheelTaskScheduler
+ */
+public class HashedWheelScheduledExecutor extends AbstractExecutorService implements ScheduledExecutorService {
+
+	private static final int STATE_CREATED = 0;
+
+	private static final int STATE_STARTED = 1;
+
+	private static final int STATE_SHUTDOWN = 2;
+
+
+	private final long tickDuration;
+
+	private final Bucket[] wheel;
+
+	private final int mask;
+
+	private final ThreadPoolExecutor workerExecutor;
+
+	private final Thread wheelThread;
+
+	private final Queue<WheelTask<?>> pendingTasks = new ConcurrentLinkedQueue<WheelTask<?>>();
+
+	private final Queue<WheelTask<?>> cancelledTasks = new ConcurrentLinkedQueue<WheelTask<?>>();
+
+	private final AtomicInteger state = new AtomicInteger(STATE_CREATED);
+
+	private final AtomicInteger scheduledTaskCount = new AtomicInteger();
+
+	private final long startTime = System.nanoTime();
+
+	private volatile List<Runnable> unprocessedTasks;
+
+
+	/**
+	 * Create a new {@code HashedWheelScheduledExecutor} with a tick duration of
+	 * 100 milliseconds, 512 wheel slots and a single worker thread.
+	 */
+	public HashedWheelScheduledExecutor() {
+		this(100, TimeUnit.MILLISECONDS, 512, 1, Executors.defaultThreadFactory(),
+				new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	/**
+	 * Create a new {@code HashedWheelScheduledExecutor}.
+	 * @param tickDuration the duration of a single tick of the wheel
+	 * @param unit the time unit of the tick duration
+	 * @param ticksPerWheel the number of slots in the wheel
+	 * (rounded up to the next power of two)
+	 * @param poolSize the number of worker threads executing expired tasks
+	 * @param threadFactory the ThreadFactory for the wheel thread and the worker threads
+	 * @param rejectedExecutionHandler the handler for tasks rejected by the worker pool
+	 */
+	public HashedWheelScheduledExecutor(long tickDuration, TimeUnit unit, int ticksPerWheel, int poolSize,
+			ThreadFactory threadFactory, RejectedExecutionHandler rejectedExecutionHandler) {
+
+		Assert.isTrue(tickDuration > 0, "Tick duration must be greater than 0");
+		Assert.isTrue(ticksPerWheel > 0 && ticksPerWheel <= (1 << 30),
+				"Ticks per wheel must be between 1 and 2^30");
+		Assert.notNull(unit, "TimeUnit must not be null");
+		Assert.notNull(threadFactory, "ThreadFactory must not be null");
+		this.tickDuration = unit.toNanos(tickDuration);
+		int wheelSize = 1;
+		while (wheelSize < ticksPerWheel) {
+			wheelSize <<= 1;
+		}
+		this.wheel = new Bucket[wheelSize];
+		for (int i = 0; i < wheelSize; i++) {
+			this.wheel[i] = new Bucket();
+		}
+		this.mask = wheelSize - 1;
+		this.workerExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), threadFactory, rejectedExecutionHandler);
+		this.wheelThread = threadFactory.newThread(new WheelWorker());
+		Assert.state(this.wheelThread != null, "ThreadFactory did not create a wheel thread");
+	}
+
+
+	/**
+	 * Return the number of delayed tasks currently waiting on the wheel.
+	 */
+	public int getScheduledTaskCount() {
+		return this.scheduledTaskCount.get();
+	}
+
+	/**
+	 * Set the number of worker threads executing expired tasks.
+	 * <p><b>This setting can be modified at runtime, for example through JMX.</b>
+	 */
+	public void setPoolSize(int poolSize) {
+		Assert.isTrue(poolSize > 0, "'poolSize' must be 1 or higher");
+		synchronized (this.workerExecutor) {
+			// Keep core size <= maximum size at any point
+			if (poolSize > this.workerExecutor.getMaximumPoolSize()) {
+				this.workerExecutor.setMaximumPoolSize(poolSize);
+				this.workerExecutor.setCorePoolSize(poolSize);
+			}
+			else {
+				this.workerExecutor.setCorePoolSize(poolSize);
+				this.workerExecutor.setMaximumPoolSize(poolSize);
+			}
+		}
+	}
+
+	/**
+	 * Return the underlying pool of worker threads that expired tasks get handed to.
+	 */
+	public ThreadPoolExecutor getWorkerExecutor() {
+		return this.workerExecutor;
+	}
+
+
+	@Override
+	public void execute(Runnable command) {
+		if (this.state.get() == STATE_SHUTDOWN) {
+			throw new RejectedExecutionException("Executor has been shut down");
+		}
+		this.workerExecutor.execute(command);
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+		Assert.notNull(command, "Runnable must not be null");
+		return schedule(new WheelTask<Object>(command, null, deadline(delay, unit), 0));
+	}
+
+	@Override
+	public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+		Assert.notNull(callable, "Callable must not be null");
+		return schedule(new WheelTask<V>(callable, deadline(delay, unit)));
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+		Assert.notNull(command, "Runnable must not be null");
+		Assert.isTrue(period > 0, "Period must be greater than 0");
+		return schedule(new WheelTask<Object>(command, null, deadline(initialDelay, unit), unit.toNanos(period)));
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+		Assert.notNull(command, "Runnable must not be null");
+		Assert.isTrue(delay > 0, "Delay must be greater than 0");
+		return schedule(new WheelTask<Object>(command, null, deadline(initialDelay, unit), -unit.toNanos(delay)));
+	}
+
+	private long deadline(long delay, TimeUnit unit) {
+		return now() + Math.max(unit.toNanos(delay), 0);
+	}
+
+	private long now() {
+		return System.nanoTime() - this.startTime;
+	}
+
+	private <V> WheelTask<V> schedule(WheelTask<V> task) {
+		start();
+		if (this.state.get() == STATE_SHUTDOWN) {
+			throw new RejectedExecutionException("Executor has been shut down");
+		}
+		if (task.deadline <= now()) {
+			// Already due: no need to wait for the next tick
+			this.workerExecutor.execute(task);
+		}
+		else {
+			this.scheduledTaskCount.incrementAndGet();
+			this.pendingTasks.add(task);
+			if (!retainAfterShutdown(task)) {
+				throw new RejectedExecutionException("Executor has been shut down");
+			}
+		}
+		return task;
+	}
+
+	/**
+	 * Re-check the state after adding the given task to the pending tasks:
+	 * in case of a concurrent shutdown, the wheel thread may have drained
+	 * the pending tasks already, so the task would never run nor get cancelled.
+	 * @return {@code true} if the task stays scheduled, {@code false} if it
+	 * has been taken back since the executor has been shut down
+	 */
+	private boolean retainAfterShutdown(WheelTask<?> task) {
+		if (isShutdown() && this.pendingTasks.remove(task)) {
+			this.scheduledTaskCount.decrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	private void start() {
+		if (this.state.get() == STATE_CREATED && this.state.compareAndSet(STATE_CREATED, STATE_STARTED)) {
+			this.wheelThread.start();
+		}
+	}
+
+
+	@Override
+	public void shutdown() {
+		if (this.state.getAndSet(STATE_SHUTDOWN) == STATE_STARTED) {
+			this.wheelThread.interrupt();
+		}
+		this.workerExecutor.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		boolean started = (this.state.getAndSet(STATE_SHUTDOWN) == STATE_STARTED);
+		List<Runnable> tasks = new ArrayList<Runnable>(this.workerExecutor.shutdownNow());
+		if (started) {
+			this.wheelThread.interrupt();
+			try {
+				this.wheelThread.join();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			if (this.unprocessedTasks != null) {
+				tasks.addAll(this.unprocessedTasks);
+			}
+		}
+		return tasks;
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return (this.state.get() == STATE_SHUTDOWN);
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return (isShutdown() && !this.wheelThread.isAlive() && this.workerExecutor.isTerminated());
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		if (this.wheelThread.isAlive()) {
+			this.wheelThread.join(Math.max(unit.toMillis(timeout), 1));
+		}
+		long remaining = deadline - System.nanoTime();
+		return (this.workerExecutor.awaitTermination(Math.max(remaining, 0), TimeUnit.NANOSECONDS) &&
+				!this.wheelThread.isAlive());
+	}
+
+
+	/**
+	 * Slot of the wheel: a doubly-linked list of tasks, only ever
+	 * accessed by the wheel thread.
+	 */
+	private static class Bucket {
+
+		private WheelTask<?> head;
+
+		private WheelTask<?> tail;
+
+		public void add(WheelTask<?> task) {
+			task.bucket = this;
+			if (this.head == null) {
+				this.head = this.tail = task;
+			}
+			else {
+				this.tail.next = task;
+				task.prev = this.tail;
+				this.tail = task;
+			}
+		}
+
+		public WheelTask<?> remove(WheelTask<?> task) {
+			WheelTask<?> next = task.next;
+			if (task.prev != null) {
+				task.prev.next = next;
+			}
+			if (task.next != null) {
+				task.next.prev = task.prev;
+			}
+			if (task == this.head) {
+				this.head = next;
+			}
+			if (task == this.tail) {
+				this.tail = task.prev;
+			}
+			task.prev = null;
+			task.next = null;
+			task.bucket = null;
+			return next;
+		}
+
+		public void drainTo(List<Runnable> tasks) {
+			WheelTask<?> task = this.head;
+			while (task != null) {
+				WheelTask<?> next = remove(task);
+				if (!task.isCancelled()) {
+					tasks.add(task);
+				}
+				task = next;
+			}
+		}
+	}
+
+
+	/**
+	 * A task on the wheel, also serving as its own {@link ScheduledFuture}.
+	 */
+	private class WheelTask<V> extends FutureTask<V> implements ScheduledFuture<V> {
+
+		/** Nanoseconds since the start of the executor */
+		private volatile long deadline;
+
+		/** Positive for fixed rate, negative for fixed delay, 0 for one-shot tasks */
+		private final long period;
+
+		private long remainingRounds;
+
+		private Bucket bucket;
+
+		private WheelTask<?> prev;
+
+		private WheelTask<?> next;
+
+		public WheelTask(Runnable runnable, V result, long deadline, long period) {
+			super(runnable, result);
+			this.deadline = deadline;
+			this.period = period;
+		}
+
+		public WheelTask(Callable<V> callable, long deadline) {
+			super(callable);
+			this.deadline = deadline;
+			this.period = 0;
+		}
+
+		@Override
+		public void run() {
+			if (this.period == 0) {
+				super.run();
+			}
+			else if (runAndReset() && !isShutdown()) {
+				this.deadline = (this.period > 0 ? this.deadline + this.period : now() - this.period);
+				scheduledTaskCount.incrementAndGet();
+				pendingTasks.add(this);
+				if (!retainAfterShutdown(this)) {
+					cancel(false);
+				}
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled) {
+				cancelledTasks.add(this);
+			}
+			return cancelled;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(this.deadline - now(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			if (this == other) {
+				return 0;
+			}
+			long diff = getDelay(TimeUnit.NANOSECONDS) - other.getDelay(TimeUnit.NANOSECONDS);
+			return (diff == 0 ? 0 : ((diff < 0) ? -1 : 1));
+		}
+	}
+
+
+	/**
+	 * The loop of the wheel thread: sleeps until the next tick, then places
+	 * newly scheduled tasks into their slots and expires the current slot.
+	 */
+	private class WheelWorker implements Runnable {
+
+		private long tick;
+
+		@Override
+		public void run() {
+			while (!isShutdown()) {
+				if (!waitForNextTick()) {
+					break;
+				}
+				Bucket bucket = wheel[(int) (this.tick & mask)];
+				processCancelledTasks();
+				transferPendingTasks();
+				expire(bucket);
+				this.tick++;
+			}
+			List<Runnable> unprocessed = new ArrayList<Runnable>();
+			for (Bucket bucket : wheel) {
+				bucket.drainTo(unprocessed);
+			}
+			WheelTask<?> task;
+			while ((task = pendingTasks.poll()) != null) {
+				if (!task.isCancelled()) {
+					unprocessed.add(task);
+				}
+			}
+			for (Runnable runnable : unprocessed) {
+				((WheelTask<?>) runnable).cancel(false);
+			}
+			cancelledTasks.clear();
+			scheduledTaskCount.set(0);
+			unprocessedTasks = unprocessed;
+		}
+
+		private boolean waitForNextTick() {
+			long deadline = tickDuration * (this.tick + 1);
+			while (true) {
+				long sleepTime = deadline - now();
+				if (sleepTime <= 0) {
+					return true;
+				}
+				try {
+					TimeUnit.NANOSECONDS.sleep(sleepTime);
+				}
+				catch (InterruptedException ex) {
+					if (isShutdown()) {
+						return false;
+					}
+				}
+			}
+		}
+
+		private void processCancelledTasks() {
+			WheelTask<?> task;
+			while ((task = cancelledTasks.poll()) != null) {
+				if (task.bucket != null) {
+					task.bucket.remove(task);
+					scheduledTaskCount.decrementAndGet();
+				}
+			}
+		}
+
+		private void transferPendingTasks() {
+			// Bounded per tick, so that a flood of new tasks cannot starve expiration
+			for (int i = 0; i < 100000; i++) {
+				WheelTask<?> task = pendingTasks.poll();
+				if (task == null) {
+					break;
+				}
+				if (task.isCancelled()) {
+					scheduledTaskCount.decrementAndGet();
+					continue;
+				}
+				long calculated = task.deadline / tickDuration;
+				task.remainingRounds = (calculated - this.tick) / wheel.length;
+				long ticks = Math.max(calculated, this.tick);
+				wheel[(int) (ticks & mask)].add(task);
+			}
+		}
+
+		private void expire(Bucket bucket) {
+			WheelTask<?> task = bucket.head;
+			while (task != null) {
+				if (task.remainingRounds <= 0) {
+					WheelTask<?> next = bucket.remove(task);
+					scheduledTaskCount.decrementAndGet();
+					if (!task.isCancelled()) {
+						try {
+							workerExecutor.execute(task);
+						}
+						catch (RejectedExecutionException ex) {
+							task.cancel(false);
+						}
+					}
+					task = next;
+				}
+				else {
+					task.remainingRounds--;
+					task = task.next;
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.util.Assert;
+
+/**
+ * Variant of {@link ThreadPoolTaskScheduler} backed by a
+ * {@link HashedWheelScheduledExecutor} instead of a
+ * {@link java.util.concurrent.ScheduledThreadPoolExecutor}.
+ *
+ * <p>Scheduling and cancellation are O(1) and do not contend on a single lock,
+ * which pays off for hundreds of thousands of short-lived timeouts such as
+ * session timeouts, heartbeats and async request timeouts. In exchange, tasks
+ * fire up to one {@link #setTickDuration tick duration} late. {@link org.springframework.scheduling.Trigger}
+ * based tasks are rescheduled on the wheel just like on a regular scheduler.
+ *
+ * <p>The {@link #setPoolSize pool size} determines the number of worker
+ * threads executing expired tasks; the wheel is advanced by an additional
+ * dedicated thread. Cancelled tasks are always removed from the wheel.
+ *
+ * @author agent
+ * @since 4.2.10
+ * @see #setTickDuration
+ * @see #setTicksPerWheel
+ */
+@SuppressWarnings("serial")
+public class HashedWheelTaskScheduler extends ThreadPoolTaskScheduler {
+
+	private long tickDuration = 100;
+
+	private int ticksPerWheel = 512;
+
+
+	/**
+	 * Set the duration of a single tick of the wheel, in milliseconds.
+	 * Default is 100.
+	 * <p>This is the precision of the scheduler: a smaller tick duration
+	 * reduces the maximum lateness of a task, at the expense of more
+	 * frequent wake-ups of the wheel thread.
+	 */
+	public void setTickDuration(long tickDuration) {
+		Assert.isTrue(tickDuration > 0, "'tickDuration' must be greater than 0");
+		this.tickDuration = tickDuration;
+	}
+
+	/**
+	 * Set the number of slots in the wheel, rounded up to the next power of two.
+	 * Default is 512.
+	 * <p>Tasks further out than one revolution of the wheel
+	 * ({@code tickDuration * ticksPerWheel}) remain valid but get checked
+	 * once per revolution.
+	 */
+	public void setTicksPerWheel(int ticksPerWheel) {
+		Assert.isTrue(ticksPerWheel > 0, "'ticksPerWheel' must be greater than 0");
+		this.ticksPerWheel = ticksPerWheel;
+	}
+
+
+	@Override
+	protected ScheduledExecutorService createExecutor(
+			int poolSize, ThreadFactory threadFactory, RejectedExecutionHandler rejectedExecutionHandler) {
+
+		return new HashedWheelScheduledExecutor(this.tickDuration, TimeUnit.MILLISECONDS, this.ticksPerWheel,
+				poolSize, threadFactory, rejectedExecutionHandler);
+	}
+
+	/**
+	 * Set the number of worker threads executing expired tasks. Default is 1.
+	 * <p><b>This setting can be modified at runtime, for example through JMX.</b>
+	 */
+	@Override
+	public void setPoolSize(int poolSize) {
+		super.setPoolSize(poolSize);
+		try {
+			getHashedWheelScheduledExecutor().setPoolSize(poolSize);
+		}
+		catch (IllegalStateException ex) {
+			// Not initialized yet: pool size to be applied on initialization.
+		}
+	}
+
+	/**
+	 * Return the underlying HashedWheelScheduledExecutor.
+	 * @throws IllegalStateException if the HashedWheelTaskScheduler hasn't been initialized yet
+	 */
+	public HashedWheelScheduledExecutor getHashedWheelScheduledExecutor() throws IllegalStateException {
+		ScheduledExecutorService executor = getScheduledExecutor();
+		Assert.state(executor instanceof HashedWheelScheduledExecutor, "No HashedWheelScheduledExecutor available");
+		return (HashedWheelScheduledExecutor) executor;
+	}
+
+	/**
+	 * Return the current number of worker threads.
+	 */
+	@Override
+	public int getPoolSize() {
+		try {
+			return getHashedWheelScheduledExecutor().getWorkerExecutor().getPoolSize();
+		}
+		catch (IllegalStateException ex) {
+			// Not initialized yet: assume initial pool size.
+			return super.getPoolSize();
+		}
+	}
+
+	/**
+	 * Return the number of currently active worker threads.
+	 */
+	@Override
+	public int getActiveCount() {
+		try {
+			return getHashedWheelScheduledExecutor().getWorkerExecutor().getActiveCount();
+		}
+		catch (IllegalStateException ex) {
+			// Not initialized yet: assume no active threads.
+			return 0;
+		}
+	}
+
+	/**
+	 * Not applicable: cancelled tasks are always removed from the wheel.
+	 */
+	@Override
+	public void setRemoveOnCancelPolicy(boolean removeOnCancelPolicy) {
+	}
+
+	/**
+	 * Cancelled tasks are always removed from the wheel.
+	 */
+	@Override
+	public boolean isRemoveOnCancelPolicy() {
+		return true;
+	}
+
+	/**
+	 * Return the number of delayed tasks currently waiting on the wheel.
+	 */
+	public int getScheduledTaskCount() {
+		try {
+			return getHashedWheelScheduledExecutor().getScheduledTaskCount();
+		}
+		catch (IllegalStateException ex) {
+			return 0;
+		}
+	}
+
+}
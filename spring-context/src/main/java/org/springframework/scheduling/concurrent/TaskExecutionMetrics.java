@@ -0,0 +1,272 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.util.LatencyHistogram;
+
+/**
+ * Execution statistics of a task executor: queue wait time (from submission to
+ * start) and execution time (from start to finish) histograms, rejection counts
+ * and completed task counts per task type.
+ *
+ * <p>All statistics are exposed as bean properties in milliseconds, which makes
+ * an instance suitable for registration with an
+ * {@link org.springframework.jmx.export.MBeanExporter}.
+ *
+ * @author agent
+ * @since 4.2.10
+ * @see ThreadPoolTaskExecutor#setMetricsEnabled
+ */
+public class TaskExecutionMetrics {
+
+	private final LatencyHistogram queueWaitTime = new LatencyHistogram();
+
+	private final LatencyHistogram executionTime = new LatencyHistogram();
+
+	private final AtomicLong submittedTaskCount = new AtomicLong();
+
+	private final AtomicLong failedTaskCount = new AtomicLong();
+
+	private final AtomicLong rejectedTaskCount = new AtomicLong();
+
+	private final ConcurrentMap<Class<?>, AtomicLong> completedTaskCountsByType =
+			new ConcurrentHashMap<Class<?>, AtomicLong>(16);
+
+
+	/**
+	 * Decorate the given task for measurement, taking the current time
+	 * as its submission time.
+	 * @param runnable the actual Runnable to execute
+	 * @param task the task as submitted by the caller, determining the task type
+	 * @return the decorated Runnable
+	 */
+	public Runnable decorate(Runnable runnable, Object task) {
+		this.submittedTaskCount.incrementAndGet();
+		return new MeasuredRunnable(runnable, task.getClass());
+	}
+
+	/**
+	 * Decorate the given RejectedExecutionHandler for counting rejected tasks.
+	 */
+	public RejectedExecutionHandler decorate(final RejectedExecutionHandler rejectedExecutionHandler) {
+		return new RejectedExecutionHandler() {
+			@Override
+			public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+				rejectedTaskCount.incrementAndGet();
+				rejectedExecutionHandler.rejectedExecution(task, executor);
+			}
+		};
+	}
+
+	/**
+	 * Record a task rejected outside of a RejectedExecutionHandler.
+	 */
+	public void recordRejection() {
+		this.rejectedTaskCount.incrementAndGet();
+	}
+
+
+	/**
+	 * Return the histogram of queue wait times, in nanoseconds.
+	 */
+	public LatencyHistogram getQueueWaitTimeHistogram() {
+		return this.queueWaitTime;
+	}
+
+	/**
+	 * Return the histogram of execution times, in nanoseconds.
+	 */
+	public LatencyHistogram getExecutionTimeHistogram() {
+		return this.executionTime;
+	}
+
+	/**
+	 * Return the number of tasks submitted so far.
+	 */
+	public long getSubmittedTaskCount() {
+		return this.submittedTaskCount.get();
+	}
+
+	/**
+	 * Return the number of tasks completed so far, including failed ones.
+	 */
+	public long getCompletedTaskCount() {
+		return this.executionTime.getCount();
+	}
+
+	/**
+	 * Return the number of tasks that threw an exception.
+	 * <p>Tasks submitted for a {@code Future} are not included here,
+	 * since the Future captures their exception.
+	 */
+	public long getFailedTaskCount() {
+		return this.failedTaskCount.get();
+	}
+
+	/**
+	 * Return the number of tasks rejected by the executor.
+	 */
+	public long getRejectedTaskCount() {
+		return this.rejectedTaskCount.get();
+	}
+
+	/**
+	 * Return the mean queue wait time in milliseconds.
+	 */
+	public double getQueueWaitTimeMean() {
+		return this.queueWaitTime.getMean(TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Return the median queue wait time in milliseconds.
+	 */
+	public double getQueueWaitTimeMedian() {
+		return this.queueWaitTime.getPercentile(50, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Return the 99th percentile of the queue wait time in milliseconds.
+	 */
+	public double getQueueWaitTime99thPercentile() {
+		return this.queueWaitTime.getPercentile(99, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Return the maximum queue wait time in milliseconds.
+	 */
+	public long getQueueWaitTimeMax() {
+		return this.queueWaitTime.getMax(TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Return the mean execution time in milliseconds.
+	 */
+	public double getExecutionTimeMean() {
+		return this.executionTime.getMean(TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Return the median execution time in milliseconds.
+	 */
+	public double getExecutionTimeMedian() {
+		return this.executionTime.getPercentile(50, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Return the 99th percentile of the execution time in milliseconds.
+	 */
+	public double getExecutionTime99thPercentile() {
+		return this.executionTime.getPercentile(99, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Return the maximum execution time in milliseconds.
+	 */
+	public long getExecutionTimeMax() {
+		return this.executionTime.getMax(TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Return the number of completed tasks per task class name.
+	 */
+	public Map<String, Long> getCompletedTaskCountsByType() {
+		Map<String, Long> result = new LinkedHashMap<String, Long>(this.completedTaskCountsByType.size());
+		for (Map.Entry<Class<?>, AtomicLong> entry : this.completedTaskCountsByType.entrySet()) {
+			result.put(entry.getKey().getName(), entry.getValue().get());
+		}
+		return result;
+	}
+
+	/**
+	 * Reset all statistics.
+	 */
+	public void reset() {
+		this.queueWaitTime.reset();
+		this.executionTime.reset();
+		this.submittedTaskCount.set(0);
+		this.failedTaskCount.set(0);
+		this.rejectedTaskCount.set(0);
+		this.completedTaskCountsByType.clear();
+	}
+
+	private void recordCompletion(Class<?> taskType) {
+		AtomicLong counter = this.completedTaskCountsByType.get(taskType);
+		if (counter == null) {
+			counter = new AtomicLong();
+			AtomicLong existing = this.completedTaskCountsByType.putIfAbsent(taskType, counter);
+			if (existing != null) {
+				counter = existing;
+			}
+		}
+		counter.incrementAndGet();
+	}
+
+
+	@Override
+	public String toString() {
+		return "TaskExecutionMetrics: queue wait [" + this.queueWaitTime + "], execution [" +
+				this.executionTime + "], rejected=" + getRejectedTaskCount();
+	}
+
+
+	private class MeasuredRunnable implements Runnable {
+
+		private final Runnable delegate;
+
+		private final Class<?> taskType;
+
+		private final long submissionTime = System.nanoTime();
+
+		public MeasuredRunnable(Runnable delegate, Class<?> taskType) {
+			this.delegate = delegate;
+			this.taskType = taskType;
+		}
+
+		@Override
+		public void run() {
+			long startTime = System.nanoTime();
+			queueWaitTime.record(startTime - this.submissionTime);
+			boolean success = false;
+			try {
+				this.delegate.run();
+				success = true;
+			}
+			finally {
+				executionTime.recordSince(startTime);
+				if (!success) {
+					failedTaskCount.incrementAndGet();
+				}
+				recordCompletion(this.taskType);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return this.delegate.toString();
+		}
+	}
+
+}
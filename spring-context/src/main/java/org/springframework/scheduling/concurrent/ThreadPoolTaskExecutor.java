@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,7 +20,10 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
@@ -31,6 +34,7 @@ import java.util.concurrent.TimeUnit;
 
 import org.springframework.core.task.AsyncListenableTaskExecutor;
 import org.springframework.core.task.TaskRejectedException;
+import org.springframework.lang.UsesJava7;
 import org.springframework.scheduling.SchedulingTaskExecutor;
 import org.springframework.util.Assert;
 import org.springframework.util.concurrent.ListenableFuture;
@@ -57,6 +61,12 @@ import org.springframework.util.concurrent.ListenableFutureTask;
  * exception handling follows the TaskExecutor contract rather than the Executor contract,
  * in particular regarding the {@link org.springframework.core.task.TaskRejectedException}.
  *
+ * <p>For sizing the pool, an instrumented mode can be switched on through the
+ * {@link #setMetricsEnabled "metricsEnabled"} property, recording queue wait and
+ * execution time histograms as well as rejection counts in {@link TaskExecutionMetrics}.
+ * Alternatively, a {@link ForkJoinPool} may be used as a work-stealing backend through
+ * the {@link #setWorkStealing "workStealing"} property.
+ *
  * <p><b>If you prefer native {@link java.util.concurrent.ExecutorService} exposure instead,
  * consider {@link ThreadPoolExecutorFactoryBean} as an alternative to this class.</b>
  *
@@ -82,8 +92,14 @@ public class ThreadPoolTaskExecutor extends ExecutorConfigurationSupport
 
 	private boolean allowCoreThreadTimeOut = false;
 
+	private boolean workStealing = false;
+
+	private TaskExecutionMetrics executionMetrics;
+
 	private ThreadPoolExecutor threadPoolExecutor;
 
+	private ExecutorService workStealingPool;
+
 
 	/**
 	 * Set the ThreadPoolExecutor's core pool size.
@@ -177,11 +193,55 @@ public class ThreadPoolTaskExecutor extends ExecutorConfigurationSupport
 		this.allowCoreThreadTimeOut = allowCoreThreadTimeOut;
 	}
 
+	/**
+	 * Specify whether to use a work-stealing {@link ForkJoinPool} (JDK 7+)
+	 * instead of a {@link ThreadPoolExecutor}, with a parallelism level
+	 * of the configured {@link #setCorePoolSize "corePoolSize"}.
+	 * <p>Default is "false". A work-stealing pool avoids contention on a single
+	 * task queue for large numbers of short tasks. The "maxPoolSize", "keepAliveSeconds",
+	 * "queueCapacity", "threadFactory" and "rejectedExecutionHandler" settings
+	 * do not apply in this mode; the thread name prefix still does.
+	 * @see java.util.concurrent.ForkJoinPool
+	 */
+	public void setWorkStealing(boolean workStealing) {
+		this.workStealing = workStealing;
+	}
+
+	/**
+	 * Specify whether to record {@link TaskExecutionMetrics} for this executor:
+	 * queue wait time and execution time histograms, rejection counts and
+	 * completed task counts per task type.
+	 * <p>Default is "false". The overhead is a few atomic operations per task.
+	 * @see #getExecutionMetrics()
+	 */
+	public void setMetricsEnabled(boolean metricsEnabled) {
+		this.executionMetrics = (metricsEnabled ? new TaskExecutionMetrics() : null);
+	}
+
+	/**
+	 * Return the {@link TaskExecutionMetrics} recorded for this executor, if enabled.
+	 * <p>The returned object exposes its statistics as bean properties
+	 * and may be registered with an {@link org.springframework.jmx.export.MBeanExporter}.
+	 * @return the metrics, or {@code null} if not enabled
+	 * @see #setMetricsEnabled
+	 */
+	public TaskExecutionMetrics getExecutionMetrics() {
+		return this.executionMetrics;
+	}
+
 
 	@Override
 	protected ExecutorService initializeExecutor(
 			ThreadFactory threadFactory, RejectedExecutionHandler rejectedExecutionHandler) {
 
+		if (this.workStealing) {
+			this.workStealingPool = new WorkStealingPoolDelegate(this).createPool(this.corePoolSize);
+			return this.workStealingPool;
+		}
+
+		if (this.executionMetrics != null) {
+			rejectedExecutionHandler = this.executionMetrics.decorate(rejectedExecutionHandler);
+		}
 		BlockingQueue<Runnable> queue = createQueue(this.queueCapacity);
 		ThreadPoolExecutor executor  = new ThreadPoolExecutor(
 				this.corePoolSize, this.maxPoolSize, this.keepAliveSeconds, TimeUnit.SECONDS,
@@ -216,17 +276,26 @@ public class ThreadPoolTaskExecutor extends ExecutorConfigurationSupport
 	 * Return the underlying ThreadPoolExecutor for native access.
 	 * @return the underlying ThreadPoolExecutor (never {@code null})
 	 * @throws IllegalStateException if the ThreadPoolTaskExecutor hasn't been initialized yet
+	 * or if it runs in {@link #setWorkStealing work-stealing} mode
 	 */
 	public ThreadPoolExecutor getThreadPoolExecutor() throws IllegalStateException {
+		Assert.state(this.workStealingPool == null, "No ThreadPoolExecutor available in work-stealing mode");
 		Assert.state(this.threadPoolExecutor != null, "ThreadPoolTaskExecutor not initialized");
 		return this.threadPoolExecutor;
 	}
 
+	private ExecutorService getExecutorService() {
+		return (this.workStealingPool != null ? this.workStealingPool : getThreadPoolExecutor());
+	}
+
 	/**
 	 * Return the current pool size.
 	 * @see java.util.concurrent.ThreadPoolExecutor#getPoolSize()
 	 */
 	public int getPoolSize() {
+		if (this.workStealingPool != null) {
+			return WorkStealingPoolDelegate.getPoolSize(this.workStealingPool);
+		}
 		if (this.threadPoolExecutor == null) {
 			// Not initialized yet: assume core pool size.
 			return this.corePoolSize;
@@ -239,6 +308,9 @@ public class ThreadPoolTaskExecutor extends ExecutorConfigurationSupport
 	 * @see java.util.concurrent.ThreadPoolExecutor#getActiveCount()
 	 */
 	public int getActiveCount() {
+		if (this.workStealingPool != null) {
+			return WorkStealingPoolDelegate.getActiveCount(this.workStealingPool);
+		}
 		if (this.threadPoolExecutor == null) {
 			// Not initialized yet: assume no active threads.
 			return 0;
@@ -246,15 +318,31 @@ public class ThreadPoolTaskExecutor extends ExecutorConfigurationSupport
 		return this.threadPoolExecutor.getActiveCount();
 	}
 
+	/**
+	 * Return the number of tasks waiting for execution.
+	 * @see java.util.concurrent.ThreadPoolExecutor#getQueue()
+	 * @see java.util.concurrent.ForkJoinPool#getQueuedSubmissionCount()
+	 */
+	public int getQueueSize() {
+		if (this.workStealingPool != null) {
+			return WorkStealingPoolDelegate.getQueueSize(this.workStealingPool);
+		}
+		if (this.threadPoolExecutor == null) {
+			// Not initialized yet: assume no queued tasks.
+			return 0;
+		}
+		return this.threadPoolExecutor.getQueue().size();
+	}
+
 
 	@Override
 	public void execute(Runnable task) {
-		Executor executor = getThreadPoolExecutor();
+		Executor executor = getExecutorService();
 		try {
-			executor.execute(task);
+			executor.execute(decorateTask(task, task));
 		}
 		catch (RejectedExecutionException ex) {
-			throw new TaskRejectedException("Executor [" + executor + "] did not accept task: " + task, ex);
+			throw taskRejected(executor, task, ex);
 		}
 	}
 
@@ -265,49 +353,59 @@ public class ThreadPoolTaskExecutor extends ExecutorConfigurationSupport
 
 	@Override
 	public Future<?> submit(Runnable task) {
-		ExecutorService executor = getThreadPoolExecutor();
+		ExecutorService executor = getExecutorService();
 		try {
+			if (this.executionMetrics != null) {
+				FutureTask<Object> future = new FutureTask<Object>(task, null);
+				executor.execute(decorateTask(future, task));
+				return future;
+			}
 			return executor.submit(task);
 		}
 		catch (RejectedExecutionException ex) {
-			throw new TaskRejectedException("Executor [" + executor + "] did not accept task: " + task, ex);
+			throw taskRejected(executor, task, ex);
 		}
 	}
 
 	@Override
 	public <T> Future<T> submit(Callable<T> task) {
-		ExecutorService executor = getThreadPoolExecutor();
+		ExecutorService executor = getExecutorService();
 		try {
+			if (this.executionMetrics != null) {
+				FutureTask<T> future = new FutureTask<T>(task);
+				executor.execute(decorateTask(future, task));
+				return future;
+			}
 			return executor.submit(task);
 		}
 		catch (RejectedExecutionException ex) {
-			throw new TaskRejectedException("Executor [" + executor + "] did not accept task: " + task, ex);
+			throw taskRejected(executor, task, ex);
 		}
 	}
 
 	@Override
 	public ListenableFuture<?> submitListenable(Runnable task) {
-		ExecutorService executor = getThreadPoolExecutor();
+		ExecutorService executor = getExecutorService();
 		try {
 			ListenableFutureTask<Object> future = new ListenableFutureTask<Object>(task, null);
-			executor.execute(future);
+			executor.execute(decorateTask(future, task));
 			return future;
 		}
 		catch (RejectedExecutionException ex) {
-			throw new TaskRejectedException("Executor [" + executor + "] did not accept task: " + task, ex);
+			throw taskRejected(executor, task, ex);
 		}
 	}
 
 	@Override
 	public <T> ListenableFuture<T> submitListenable(Callable<T> task) {
-		ExecutorService executor = getThreadPoolExecutor();
+		ExecutorService executor = getExecutorService();
 		try {
 			ListenableFutureTask<T> future = new ListenableFutureTask<T>(task);
-			executor.execute(future);
+			executor.execute(decorateTask(future, task));
 			return future;
 		}
 		catch (RejectedExecutionException ex) {
-			throw new TaskRejectedException("Executor [" + executor + "] did not accept task: " + task, ex);
+			throw taskRejected(executor, task, ex);
 		}
 	}
 
@@ -319,4 +417,56 @@ public class ThreadPoolTaskExecutor extends ExecutorConfigurationSupport
 		return true;
 	}
 
+
+	private Runnable decorateTask(Runnable runnable, Object task) {
+		return (this.executionMetrics != null ? this.executionMetrics.decorate(runnable, task) : runnable);
+	}
+
+	private TaskRejectedException taskRejected(Executor executor, Object task, RejectedExecutionException ex) {
+		if (this.workStealingPool != null && this.executionMetrics != null) {
+			// Not counted by a RejectedExecutionHandler in work-stealing mode
+			this.executionMetrics.recordRejection();
+		}
+		return new TaskRejectedException("Executor [" + executor + "] did not accept task: " + task, ex);
+	}
+
+
+	/**
+	 * Inner class to avoid a hard dependency on JDK 7's ForkJoinPool.
+	 */
+	@UsesJava7
+	private static class WorkStealingPoolDelegate implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+		private final ThreadPoolTaskExecutor threadNameSource;
+
+		public WorkStealingPoolDelegate(ThreadPoolTaskExecutor threadNameSource) {
+			this.threadNameSource = threadNameSource;
+		}
+
+		public ExecutorService createPool(int parallelism) {
+			return new ForkJoinPool(parallelism, this, null, true);
+		}
+
+		@Override
+		public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName(this.threadNameSource.nextThreadName());
+			return thread;
+		}
+
+		public static int getPoolSize(ExecutorService pool) {
+			return ((ForkJoinPool) pool).getPoolSize();
+		}
+
+		public static int getActiveCount(ExecutorService pool) {
+			return ((ForkJoinPool) pool).getActiveThreadCount();
+		}
+
+		public static int getQueueSize(ExecutorService pool) {
+			ForkJoinPool forkJoinPool = (ForkJoinPool) pool;
+			return (int) Math.min(forkJoinPool.getQueuedSubmissionCount() + forkJoinPool.getQueuedTaskCount(),
+					Integer.MAX_VALUE);
+		}
+	}
+
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.lang.reflect.Method;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Variant of {@link SimpleAsyncTaskExecutor} which fires up a new <i>virtual</i>
+ * thread for each task, as available on JDK 21+. Virtual threads are cheap to
+ * create and to block, so blocking-I/O-heavy workloads such as {@code @Async}
+ * methods, async MVC request processing or JMS listener invokers can run far
+ * more concurrent tasks than a platform thread pool would allow.
+ *
+ * <p>The virtual thread API is accessed reflectively, so this class can be
+ * compiled against older JDKs; instantiating it on a JDK without virtual thread
+ * support throws an {@link IllegalStateException}. Check
+ * {@link #isVirtualThreadSupported()} for conditional setup.
+ *
+ * <p>Concurrency can be limited through the inherited
+ * {@link #setConcurrencyLimit "concurrencyLimit"} bean property, based on
+ * {@link org.springframework.util.ConcurrencyThrottleSupport}, e.g. in order
+ * to protect a downstream resource such as a connection pool.
+ *
+ * <p>Since this is a regular {@link org.springframework.core.task.AsyncListenableTaskExecutor},
+ * it can be exposed as the executor for
+ * {@link org.springframework.scheduling.annotation.EnableAsync @EnableAsync}
+ * (through an {@link org.springframework.scheduling.annotation.AsyncConfigurer}
+ * or a "taskExecutor" bean), passed to a {@code WebAsyncTask}, or set as the
+ * "taskExecutor" of a {@code DefaultMessageListenerContainer}.
+ *
+ * @author agent
+ * @since 4.2.10
+ * @see #setConcurrencyLimit
+ */
+@SuppressWarnings("serial")
+public class VirtualThreadTaskExecutor extends SimpleAsyncTaskExecutor {
+
+	private static final Method ofVirtualMethod = ClassUtils.getMethodIfAvailable(Thread.class, "ofVirtual");
+
+	private static final Method nameMethod;
+
+	private static final Method unstartedMethod;
+
+	static {
+		if (ofVirtualMethod != null) {
+			Class<?> builderClass = ofVirtualMethod.getReturnType();
+			nameMethod = ClassUtils.getMethodIfAvailable(builderClass, "name", String.class);
+			unstartedMethod = ClassUtils.getMethodIfAvailable(builderClass, "unstarted", Runnable.class);
+		}
+		else {
+			nameMethod = null;
+			unstartedMethod = null;
+		}
+	}
+
+
+	/**
+	 * Create a new VirtualThreadTaskExecutor with default thread name prefix.
+	 * @throws IllegalStateException if virtual threads are not supported on this JDK
+	 */
+	public VirtualThreadTaskExecutor() {
+		super();
+		assertVirtualThreadSupported();
+	}
+
+	/**
+	 * Create a new VirtualThreadTaskExecutor with the given thread name prefix.
+	 * @param threadNamePrefix the prefix to use for the names of newly created threads
+	 * @throws IllegalStateException if virtual threads are not supported on this JDK
+	 */
+	public VirtualThreadTaskExecutor(String threadNamePrefix) {
+		super(threadNamePrefix);
+		assertVirtualThreadSupported();
+	}
+
+
+	/**
+	 * Return whether virtual threads are supported on the current JDK.
+	 */
+	public static boolean isVirtualThreadSupported() {
+		return (unstartedMethod != null && nameMethod != null);
+	}
+
+	private static void assertVirtualThreadSupported() {
+		if (!isVirtualThreadSupported()) {
+			throw new IllegalStateException("Virtual threads not supported on this JDK - JDK 21+ required");
+		}
+	}
+
+
+	/**
+	 * Create an unstarted virtual thread for the given Runnable,
+	 * named according to the "threadNamePrefix" of this executor.
+	 * <p>Priority, daemon and thread group settings do not apply:
+	 * virtual threads are always daemon threads at normal priority.
+	 */
+	@Override
+	public Thread createThread(Runnable runnable) {
+		Object builder = ReflectionUtils.invokeMethod(ofVirtualMethod, null);
+		builder = ReflectionUtils.invokeMethod(nameMethod, builder, nextThreadName());
+		return (Thread) ReflectionUtils.invokeMethod(unstartedMethod, builder, runnable);
+	}
+
+}
@@ -17,12 +17,8 @@
 package org.springframework.scheduling.support;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.BitSet;
-import java.util.Calendar;
-import java.util.Collections;
 import java.util.Date;
-import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.TimeZone;
 
@@ -48,6 +44,10 @@ import org.springframework.util.StringUtils;
  * <li>"0 0 0 25 12 ?" = every Christmas Day at midnight</li>
  * </ul>
  *
+ * <p>The pattern is compiled into bit masks on construction; computing the next
+ * matching time works on the epoch value of the local wall clock, without any
+ * {@link java.util.Calendar} allocation. Instances are immutable and thread-safe.
+ *
  * @author Dave Syer
  * @author Juergen Hoeller
  * @since 3.0
@@ -55,6 +55,11 @@ import org.springframework.util.StringUtils;
  */
 public class CronSequenceGenerator {
 
+	private static final long SECONDS_PER_DAY = 86400;
+
+	/** Give up after about four years without a match, e.g. for February 30th */
+	private static final long MAX_DAYS_TO_SEARCH = 4 * 366;
+
 	private final String expression;
 
 	private final TimeZone timeZone;
@@ -71,6 +76,18 @@ public class CronSequenceGenerator {
 
 	private final BitSet seconds = new BitSet(60);
 
+	private final long monthsMask;
+
+	private final long daysOfMonthMask;
+
+	private final long daysOfWeekMask;
+
+	private final long hoursMask;
+
+	private final long minutesMask;
+
+	private final long secondsMask;
+
 
 	/**
 	 * Construct a {@link CronSequenceGenerator} from the pattern provided,
@@ -94,6 +111,12 @@ public class CronSequenceGenerator {
 		this.expression = expression;
 		this.timeZone = timeZone;
 		parse(expression);
+		this.monthsMask = toMask(this.months);
+		this.daysOfMonthMask = toMask(this.daysOfMonth);
+		this.daysOfWeekMask = toMask(this.daysOfWeek);
+		this.hoursMask = toMask(this.hours);
+		this.minutesMask = toMask(this.minutes);
+		this.secondsMask = toMask(this.seconds);
 	}
 
 
@@ -113,144 +136,180 @@ public class CronSequenceGenerator {
 	 * @return the next value matching the pattern
 	 */
 	public Date next(Date date) {
-		/*
-		The plan:
-
-		1 Start with whole second (rounding up if necessary)
-
-		2 If seconds match move on, otherwise find the next match:
-		2.1 If next match is in the next minute then roll forwards
-
-		3 If minute matches move on, otherwise find the next match
-		3.1 If next match is in the next hour then roll forwards
-		3.2 Reset the seconds and go to 2
-
-		4 If hour matches move on, otherwise find the next match
-		4.1 If next match is in the next day then roll forwards,
-		4.2 Reset the minutes and seconds and go to 2
-		*/
-
-		Calendar calendar = new GregorianCalendar();
-		calendar.setTimeZone(this.timeZone);
-		calendar.setTime(date);
-
-		// First, just reset the milliseconds and try to calculate from there...
-		calendar.set(Calendar.MILLISECOND, 0);
-		long originalTimestamp = calendar.getTimeInMillis();
-		doNext(calendar, calendar.get(Calendar.YEAR));
+		return new Date(nextTime(date.getTime()));
+	}
 
-		if (calendar.getTimeInMillis() == originalTimestamp) {
-			// We arrived at the original timestamp - round up to the next whole second and try again...
-			calendar.add(Calendar.SECOND, 1);
-			doNext(calendar, calendar.get(Calendar.YEAR));
+	/**
+	 * Get the given number of consecutive {@link Date Dates} in the sequence
+	 * matching the Cron pattern, starting after the value provided.
+	 * <p>Allows for planning ahead, e.g. for coalescing tasks sharing the
+	 * same expression, at a fraction of the cost of individual calls.
+	 * @param date a seed value
+	 * @param count the number of values to compute
+	 * @return the next values matching the pattern, in ascending order
+	 * @since 4.2.10
+	 * @see #next(Date)
+	 */
+	public List<Date> next(Date date, int count) {
+		List<Date> result = new ArrayList<Date>(count);
+		long time = date.getTime();
+		for (int i = 0; i < count; i++) {
+			time = nextTime(time);
+			result.add(new Date(time));
 		}
-
-		return calendar.getTime();
+		return result;
 	}
 
-	private void doNext(Calendar calendar, int dot) {
-		List<Integer> resets = new ArrayList<Integer>();
-
-		int second = calendar.get(Calendar.SECOND);
-		List<Integer> emptyList = Collections.emptyList();
-		int updateSecond = findNext(this.seconds, second, calendar, Calendar.SECOND, Calendar.MINUTE, emptyList);
-		if (second == updateSecond) {
-			resets.add(Calendar.SECOND);
+	/**
+	 * Compute the next matching time after the given time, based on
+	 * bit masks and epoch arithmetic rather than a {@link java.util.Calendar}.
+	 * <p>The search runs on the local wall clock of the time zone: fields are
+	 * derived from the local epoch second, and non-matching months, days,
+	 * hours and minutes get skipped as a whole.
+	 */
+	private long nextTime(long time) {
+		// Whole second after the given time (matching the given time itself is not allowed)
+		long startTime = floorDiv(time, 1000) * 1000 + 1000;
+		long localSeconds = floorDiv(startTime + this.timeZone.getOffset(startTime), 1000);
+		long startDay = floorDiv(localSeconds, SECONDS_PER_DAY);
+		while (true) {
+			long day = floorDiv(localSeconds, SECONDS_PER_DAY);
+			if (day - startDay > MAX_DAYS_TO_SEARCH) {
+				throw new IllegalArgumentException("Invalid cron expression \"" + this.expression +
+						"\" led to runaway search for next trigger");
+			}
+			int secondOfDay = (int) (localSeconds - day * SECONDS_PER_DAY);
+			int[] date = civilFromDays(day);
+			int month = date[1];
+			if (!isSet(this.monthsMask, month - 1)) {
+				// Skip to the first day of the next month
+				int nextYear = (month == 12 ? date[0] + 1 : date[0]);
+				int nextMonth = (month == 12 ? 1 : month + 1);
+				localSeconds = daysFromCivil(nextYear, nextMonth, 1) * SECONDS_PER_DAY;
+				continue;
+			}
+			// 1970-01-01 was a Thursday; cron day-of-week 0 is Sunday
+			int dayOfWeek = (int) floorMod(day + 4, 7);
+			if (!isSet(this.daysOfMonthMask, date[2]) || !isSet(this.daysOfWeekMask, dayOfWeek)) {
+				localSeconds = (day + 1) * SECONDS_PER_DAY;
+				continue;
+			}
+			int hour = secondOfDay / 3600;
+			int minute = (secondOfDay / 60) % 60;
+			int second = secondOfDay % 60;
+			int nextHour = nextSetBit(this.hoursMask, hour);
+			if (nextHour < 0) {
+				localSeconds = (day + 1) * SECONDS_PER_DAY;
+				continue;
+			}
+			if (nextHour != hour) {
+				hour = nextHour;
+				minute = 0;
+				second = 0;
+			}
+			int nextMinute = nextSetBit(this.minutesMask, minute);
+			if (nextMinute < 0) {
+				localSeconds = day * SECONDS_PER_DAY + (hour + 1) * 3600;
+				continue;
+			}
+			if (nextMinute != minute) {
+				minute = nextMinute;
+				second = 0;
+			}
+			int nextSecond = nextSetBit(this.secondsMask, second);
+			if (nextSecond < 0) {
+				localSeconds = day * SECONDS_PER_DAY + hour * 3600 + (minute + 1) * 60;
+				continue;
+			}
+			long candidate = day * SECONDS_PER_DAY + hour * 3600 + minute * 60 + nextSecond;
+			long result = toUtcTime(candidate * 1000);
+			long actualLocalSeconds = floorDiv(result + this.timeZone.getOffset(result), 1000);
+			if (actualLocalSeconds != candidate) {
+				// Local time skipped by daylight saving time: continue after the gap
+				localSeconds = actualLocalSeconds;
+			}
+			else if (result < startTime) {
+				// Local time occurring twice (end of daylight saving time): keep searching
+				localSeconds = candidate + 1;
+			}
+			else {
+				return result;
+			}
 		}
+	}
 
-		int minute = calendar.get(Calendar.MINUTE);
-		int updateMinute = findNext(this.minutes, minute, calendar, Calendar.MINUTE, Calendar.HOUR_OF_DAY, resets);
-		if (minute == updateMinute) {
-			resets.add(Calendar.MINUTE);
+	/**
+	 * Convert the given local wall clock time to UTC, resolving wall clock times
+	 * within a daylight saving gap to the corresponding time after the gap
+	 * (in line with a lenient {@link java.util.Calendar}).
+	 */
+	private long toUtcTime(long localTime) {
+		int offset = this.timeZone.getOffset(localTime - this.timeZone.getRawOffset());
+		int actualOffset = this.timeZone.getOffset(localTime - offset);
+		if (actualOffset == offset) {
+			return localTime - offset;
 		}
-		else {
-			doNext(calendar, dot);
+		if (this.timeZone.getOffset(localTime - actualOffset) == actualOffset) {
+			return localTime - actualOffset;
 		}
+		// Within a gap: apply the offset from before the transition
+		return localTime - Math.min(offset, actualOffset);
+	}
 
-		int hour = calendar.get(Calendar.HOUR_OF_DAY);
-		int updateHour = findNext(this.hours, hour, calendar, Calendar.HOUR_OF_DAY, Calendar.DAY_OF_WEEK, resets);
-		if (hour == updateHour) {
-			resets.add(Calendar.HOUR_OF_DAY);
-		}
-		else {
-			doNext(calendar, dot);
-		}
+	private static boolean isSet(long mask, int bit) {
+		return ((mask >>> bit) & 1L) != 0;
+	}
 
-		int dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
-		int dayOfMonth = calendar.get(Calendar.DAY_OF_MONTH);
-		int updateDayOfMonth = findNextDay(calendar, this.daysOfMonth, dayOfMonth, daysOfWeek, dayOfWeek, resets);
-		if (dayOfMonth == updateDayOfMonth) {
-			resets.add(Calendar.DAY_OF_MONTH);
-		}
-		else {
-			doNext(calendar, dot);
-		}
+	private static int nextSetBit(long mask, int fromBit) {
+		long remaining = mask & (-1L << fromBit);
+		return (remaining != 0 ? Long.numberOfTrailingZeros(remaining) : -1);
+	}
 
-		int month = calendar.get(Calendar.MONTH);
-		int updateMonth = findNext(this.months, month, calendar, Calendar.MONTH, Calendar.YEAR, resets);
-		if (month != updateMonth) {
-			if (calendar.get(Calendar.YEAR) - dot > 4) {
-				throw new IllegalArgumentException("Invalid cron expression \"" + this.expression +
-						"\" led to runaway search for next trigger");
-			}
-			doNext(calendar, dot);
+	private static long toMask(BitSet bits) {
+		long mask = 0;
+		for (int i = bits.nextSetBit(0); i >= 0 && i < 64; i = bits.nextSetBit(i + 1)) {
+			mask |= (1L << i);
 		}
+		return mask;
+	}
 
+	private static long floorDiv(long x, long y) {
+		long result = x / y;
+		return ((x % y != 0 && ((x ^ y) < 0)) ? result - 1 : result);
 	}
 
-	private int findNextDay(Calendar calendar, BitSet daysOfMonth, int dayOfMonth, BitSet daysOfWeek, int dayOfWeek,
-			List<Integer> resets) {
-
-		int count = 0;
-		int max = 366;
-		// the DAY_OF_WEEK values in java.util.Calendar start with 1 (Sunday),
-		// but in the cron pattern, they start with 0, so we subtract 1 here
-		while ((!daysOfMonth.get(dayOfMonth) || !daysOfWeek.get(dayOfWeek - 1)) && count++ < max) {
-			calendar.add(Calendar.DAY_OF_MONTH, 1);
-			dayOfMonth = calendar.get(Calendar.DAY_OF_MONTH);
-			dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
-			reset(calendar, resets);
-		}
-		if (count >= max) {
-			throw new IllegalArgumentException("Overflow in day for expression \"" + this.expression + "\"");
-		}
-		return dayOfMonth;
+	private static long floorMod(long x, long y) {
+		return x - floorDiv(x, y) * y;
 	}
 
 	/**
-	 * Search the bits provided for the next set bit after the value provided,
-	 * and reset the calendar.
-	 * @param bits a {@link BitSet} representing the allowed values of the field
-	 * @param value the current value of the field
-	 * @param calendar the calendar to increment as we move through the bits
-	 * @param field the field to increment in the calendar (@see
-	 * {@link Calendar} for the static constants defining valid fields)
-	 * @param lowerOrders the Calendar field ids that should be reset (i.e. the
-	 * ones of lower significance than the field of interest)
-	 * @return the value of the calendar field that is next in the sequence
+	 * Compute year, month (1-12) and day of month (1-31) for the given
+	 * number of days since 1970-01-01 in the proleptic Gregorian calendar.
 	 */
-	private int findNext(BitSet bits, int value, Calendar calendar, int field, int nextField, List<Integer> lowerOrders) {
-		int nextValue = bits.nextSetBit(value);
-		// roll over if needed
-		if (nextValue == -1) {
-			calendar.add(nextField, 1);
-			reset(calendar, Arrays.asList(field));
-			nextValue = bits.nextSetBit(0);
-		}
-		if (nextValue != value) {
-			calendar.set(field, nextValue);
-			reset(calendar, lowerOrders);
-		}
-		return nextValue;
+	private static int[] civilFromDays(long epochDay) {
+		long z = epochDay + 719468;
+		long era = floorDiv(z, 146097);
+		long dayOfEra = z - era * 146097;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long shiftedMonth = (5 * dayOfYear + 2) / 153;
+		int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+		int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+		int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+		return new int[] {year, month, day};
 	}
 
 	/**
-	 * Reset the calendar setting all the fields provided to zero.
+	 * Compute the number of days since 1970-01-01 for the given year,
+	 * month (1-12) and day of month in the proleptic Gregorian calendar.
 	 */
-	private void reset(Calendar calendar, List<Integer> fields) {
-		for (int field : fields) {
-			calendar.set(field, field == Calendar.DAY_OF_MONTH ? 1 : 0);
-		}
+	private static long daysFromCivil(int year, int month, int day) {
+		long y = (month <= 2 ? year - 1 : year);
+		long era = floorDiv(y, 400);
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
 	}
 
 
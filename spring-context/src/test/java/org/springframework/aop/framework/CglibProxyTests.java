@@ -17,6 +17,10 @@
 package org.springframework.aop.framework;
 
 import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
@@ -26,8 +30,11 @@ import test.mixin.LockMixinAdvisor;
 import org.springframework.aop.ClassFilter;
 import org.springframework.aop.MethodMatcher;
 import org.springframework.aop.Pointcut;
+import org.springframework.aop.TargetSource;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.cglib.core.ClassGenerationStatistics;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextException;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
@@ -258,6 +265,116 @@ public class CglibProxyTests extends AbstractAopProxyTests implements Serializab
 		return (ITestBean) pf.getProxy();
 	}
 
+	@Test
+	public void testMultipleProxiesWithEquivalentPointcuts() {
+		ITestBean proxy1 = getMethodNameProxy(new TestBean(), "getAge");
+		long generatedClassCount = ClassGenerationStatistics.getGeneratedClassCount();
+		ITestBean proxy2 = getMethodNameProxy(new TestBean(), "getAge");
+		assertSame("Incorrect duplicate creation of proxy classes", proxy1.getClass(), proxy2.getClass());
+		assertEquals(generatedClassCount, ClassGenerationStatistics.getGeneratedClassCount());
+
+		ITestBean proxy3 = getMethodNameProxy(new TestBean(), "getName");
+		assertNotSame(proxy1.getClass(), proxy3.getClass());
+		assertEquals(generatedClassCount + 1, ClassGenerationStatistics.getGeneratedClassCount());
+		assertTrue(ClassGenerationStatistics.getGenerationTimeHistogram().getCount() > 0);
+	}
+
+	private ITestBean getMethodNameProxy(TestBean target, final String methodName) {
+		ProxyFactory pf = new ProxyFactory(ITestBean.class);
+		pf.setProxyTargetClass(true);
+
+		// A new pointcut instance without equals implementation for every proxy
+		Pointcut pointcut = new StaticMethodMatcherPointcut() {
+			@Override
+			public boolean matches(Method method, Class<?> targetClass) {
+				return method.getName().equals(methodName);
+			}
+		};
+		pf.addAdvisor(new DefaultPointcutAdvisor(pointcut, new NopInterceptor()));
+		pf.setTarget(target);
+		pf.setFrozen(true);
+		pf.setExposeProxy(false);
+
+		return (ITestBean) pf.getProxy();
+	}
+
+	@Test
+	public void testFrozenProxyDoesNotLookUpAdviceChain() throws Throwable {
+		TestBean target = new TestBean();
+		target.setAge(21);
+		LookupCountingProxyFactory pc = new LookupCountingProxyFactory(target);
+		NopInterceptor nop = new NopInterceptor();
+		pc.addAdvice(nop);
+		pc.setFrozen(true);
+		ITestBean proxied = (ITestBean) createProxy(pc);
+		pc.lookups.set(0);
+
+		assertEquals(21, proxied.getAge());
+		proxied.setAge(22);
+		assertEquals(22, proxied.getAge());
+		assertEquals(3, nop.getCount());
+		assertEquals(0, pc.lookups.get());
+	}
+
+	@Test
+	public void testFrozenProxyWithExposedProxy() throws Throwable {
+		TestBean target = new TestBean();
+		target.setAge(21);
+		LookupCountingProxyFactory pc = new LookupCountingProxyFactory(target);
+		final AtomicReference<Object> exposedProxy = new AtomicReference<Object>();
+		pc.addAdvice(new MethodInterceptor() {
+			@Override
+			public Object invoke(MethodInvocation invocation) throws Throwable {
+				exposedProxy.set(AopContext.currentProxy());
+				return invocation.proceed();
+			}
+		});
+		pc.setExposeProxy(true);
+		pc.setFrozen(true);
+		ITestBean proxied = (ITestBean) createProxy(pc);
+		pc.lookups.set(0);
+
+		assertEquals(21, proxied.getAge());
+		assertSame(proxied, exposedProxy.get());
+		assertEquals(0, pc.lookups.get());
+	}
+
+	@Test
+	public void testFrozenProxyWithDynamicTargetSource() throws Throwable {
+		final TestBean target = new TestBean();
+		target.setAge(21);
+		final AtomicInteger releaseCount = new AtomicInteger();
+		LookupCountingProxyFactory pc = new LookupCountingProxyFactory(target);
+		pc.setTargetSource(new TargetSource() {
+			@Override
+			public Class<?> getTargetClass() {
+				return TestBean.class;
+			}
+			@Override
+			public boolean isStatic() {
+				return false;
+			}
+			@Override
+			public Object getTarget() {
+				return target;
+			}
+			@Override
+			public void releaseTarget(Object target) {
+				releaseCount.incrementAndGet();
+			}
+		});
+		NopInterceptor nop = new NopInterceptor();
+		pc.addAdvice(nop);
+		pc.setFrozen(true);
+		ITestBean proxied = (ITestBean) createProxy(pc);
+		pc.lookups.set(0);
+
+		assertEquals(21, proxied.getAge());
+		assertEquals(1, nop.getCount());
+		assertEquals(1, releaseCount.get());
+		assertEquals(0, pc.lookups.get());
+	}
+
 	@Test
 	public void testWithNoArgConstructor() {
 		NoArgCtorTestBean target = new NoArgCtorTestBean("b", 1);
@@ -502,6 +619,23 @@ public class CglibProxyTests extends AbstractAopProxyTests implements Serializab
 			return this.value;
 		}
 	}
+
+
+	@SuppressWarnings("serial")
+	private static class LookupCountingProxyFactory extends ProxyFactory {
+
+		final AtomicInteger lookups = new AtomicInteger();
+
+		public LookupCountingProxyFactory(Object target) {
+			super(target);
+		}
+
+		@Override
+		public List<Object> getInterceptorsAndDynamicInterceptionAdvice(Method method, Class<?> targetClass) {
+			this.lookups.incrementAndGet();
+			return super.getInterceptorsAndDynamicInterceptionAdvice(method, targetClass);
+		}
+	}
 }
 
 
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListenerExecution.OverflowPolicy;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ */
+public class EventListenerExecutionQueueTests {
+
+	@Test
+	public void invocationsRunInOrder() throws Exception {
+		EventListenerExecutionQueue queue = new EventListenerExecutionQueue(
+				"test", new SimpleAsyncTaskExecutor(), 1, 1000, OverflowPolicy.ABORT);
+		final List<Integer> results = new ArrayList<Integer>();
+		final CountDownLatch latch = new CountDownLatch(100);
+		for (int i = 0; i < 100; i++) {
+			final int value = i;
+			queue.execute(new Runnable() {
+				@Override
+				public void run() {
+					results.add(value);
+					latch.countDown();
+				}
+			});
+		}
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		assertTrue(queue.awaitTermination(10, TimeUnit.SECONDS));
+		for (int i = 0; i < 100; i++) {
+			assertEquals(i, results.get(i).intValue());
+		}
+		assertEquals(100, queue.getProcessedCount());
+		assertEquals(0, queue.getRejectedCount());
+	}
+
+	@Test
+	public void overflowWithAbort() throws Exception {
+		CountDownLatch blocker = new CountDownLatch(1);
+		EventListenerExecutionQueue queue = new EventListenerExecutionQueue(
+				"test", new SimpleAsyncTaskExecutor(), 1, 1, OverflowPolicy.ABORT);
+		CountDownLatch started = new CountDownLatch(1);
+		queue.execute(new BlockingInvocation(started, blocker));
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		queue.execute(new NoOpInvocation());
+		try {
+			queue.execute(new NoOpInvocation());
+			fail("Should have thrown TaskRejectedException");
+		}
+		catch (TaskRejectedException ex) {
+			// expected
+		}
+		finally {
+			blocker.countDown();
+		}
+		assertEquals(1, queue.getRejectedCount());
+		assertEquals(1, queue.getLargestQueueSize());
+	}
+
+	@Test
+	public void overflowWithDiscardOldest() throws Exception {
+		CountDownLatch blocker = new CountDownLatch(1);
+		EventListenerExecutionQueue queue = new EventListenerExecutionQueue(
+				"test", new SimpleAsyncTaskExecutor(), 1, 1, OverflowPolicy.DISCARD_OLDEST);
+		CountDownLatch started = new CountDownLatch(1);
+		queue.execute(new BlockingInvocation(started, blocker));
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		final List<String> results = new ArrayList<String>();
+		final CountDownLatch done = new CountDownLatch(1);
+		queue.execute(new Runnable() {
+			@Override
+			public void run() {
+				results.add("first");
+			}
+		});
+		queue.execute(new Runnable() {
+			@Override
+			public void run() {
+				results.add("second");
+				done.countDown();
+			}
+		});
+		blocker.countDown();
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(1, results.size());
+		assertEquals("second", results.get(0));
+		assertEquals(1, queue.getRejectedCount());
+	}
+
+	@Test
+	public void overflowWithBlockPreservesOrder() throws Exception {
+		CountDownLatch blocker = new CountDownLatch(1);
+		final EventListenerExecutionQueue queue = new EventListenerExecutionQueue(
+				"test", new SimpleAsyncTaskExecutor(), 1, 1, OverflowPolicy.BLOCK);
+		CountDownLatch started = new CountDownLatch(1);
+		queue.execute(new BlockingInvocation(started, blocker));
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		final List<String> results = new CopyOnWriteArrayList<String>();
+		queue.execute(new RecordingInvocation(results, "first"));
+		Thread publisher = new Thread() {
+			@Override
+			public void run() {
+				queue.execute(new RecordingInvocation(results, "second"));
+			}
+		};
+		publisher.start();
+		publisher.join(200);
+		assertTrue("Publisher should be blocked", publisher.isAlive());
+		blocker.countDown();
+		publisher.join(10000);
+		assertTrue(queue.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList("first", "second"), results);
+		assertEquals(1, queue.getRejectedCount());
+	}
+
+	@Test
+	public void overflowWithBlockRejectsWhenShutDown() throws Exception {
+		CountDownLatch blocker = new CountDownLatch(1);
+		final EventListenerExecutionQueue queue = new EventListenerExecutionQueue(
+				"test", new SimpleAsyncTaskExecutor(), 1, 1, OverflowPolicy.BLOCK);
+		CountDownLatch started = new CountDownLatch(1);
+		queue.execute(new BlockingInvocation(started, blocker));
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		queue.execute(new NoOpInvocation());
+		final List<Exception> failures = new CopyOnWriteArrayList<Exception>();
+		Thread publisher = new Thread() {
+			@Override
+			public void run() {
+				try {
+					queue.execute(new NoOpInvocation());
+				}
+				catch (TaskRejectedException ex) {
+					failures.add(ex);
+				}
+			}
+		};
+		publisher.start();
+		publisher.join(200);
+		queue.shutdown();
+		publisher.join(10000);
+		blocker.countDown();
+		assertEquals(1, failures.size());
+		assertTrue(queue.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(2, queue.getProcessedCount());
+	}
+
+	@Test
+	public void shutdownDrainsPendingInvocations() throws Exception {
+		CountDownLatch blocker = new CountDownLatch(1);
+		EventListenerExecutionQueue queue = new EventListenerExecutionQueue(
+				"test", new SimpleAsyncTaskExecutor(), 1, 10, OverflowPolicy.ABORT);
+		CountDownLatch started = new CountDownLatch(1);
+		queue.execute(new BlockingInvocation(started, blocker));
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		queue.execute(new NoOpInvocation());
+		queue.shutdown();
+		try {
+			queue.execute(new NoOpInvocation());
+			fail("Should have thrown TaskRejectedException");
+		}
+		catch (TaskRejectedException ex) {
+			// expected
+		}
+		assertFalse(queue.awaitTermination(50, TimeUnit.MILLISECONDS));
+		blocker.countDown();
+		assertTrue(queue.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(2, queue.getProcessedCount());
+		assertEquals(0, queue.shutdownNow());
+
+		queue.start();
+		queue.execute(new NoOpInvocation());
+		assertTrue(queue.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(3, queue.getProcessedCount());
+	}
+
+	@Test
+	public void shutdownNowDiscardsPendingInvocations() throws Exception {
+		CountDownLatch blocker = new CountDownLatch(1);
+		EventListenerExecutionQueue queue = new EventListenerExecutionQueue(
+				"test", new SimpleAsyncTaskExecutor(), 1, 10, OverflowPolicy.ABORT);
+		CountDownLatch started = new CountDownLatch(1);
+		queue.execute(new BlockingInvocation(started, blocker));
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		queue.execute(new NoOpInvocation());
+		queue.execute(new NoOpInvocation());
+		assertEquals(2, queue.shutdownNow());
+		blocker.countDown();
+		assertTrue(queue.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(1, queue.getProcessedCount());
+		assertEquals(2, queue.getRejectedCount());
+	}
+
+	@Test
+	public void failedInvocationDoesNotStopWorker() {
+		EventListenerExecutionQueue queue = new EventListenerExecutionQueue(
+				"test", new SyncTaskExecutor(), 1, 10, OverflowPolicy.ABORT);
+		queue.execute(new Runnable() {
+			@Override
+			public void run() {
+				throw new IllegalStateException("Test exception");
+			}
+		});
+		queue.execute(new NoOpInvocation());
+		assertEquals(2, queue.getProcessedCount());
+		assertEquals(1, queue.getFailedCount());
+		assertEquals(0, queue.getActiveWorkerCount());
+	}
+
+	@Test
+	public void annotatedListenerUsesNamedExecutor() throws Exception {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(QueuedListenerConfig.class);
+		QueuedListener listener = context.getBean(QueuedListener.class);
+		context.publishEvent("hello");
+		assertTrue(listener.latch.await(10, TimeUnit.SECONDS));
+		assertTrue(listener.threadName.startsWith("listener-"));
+
+		EventListenerMethodProcessor processor = context.getBean(EventListenerMethodProcessor.class);
+		EventListenerExecutionQueue queue = processor.getExecutionQueues().get("queuedListener.handle(String)");
+		assertNotNull(queue);
+		assertEquals(2, queue.getConcurrency());
+		assertEquals(10, queue.getQueueCapacity());
+		context.close();
+	}
+
+	@Test
+	public void contextCloseDrainsQueues() throws Exception {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(SlowListenerConfig.class);
+		SlowListener listener = context.getBean(SlowListener.class);
+		for (int i = 0; i < 5; i++) {
+			context.publishEvent(i);
+		}
+		EventListenerMethodProcessor processor = context.getBean(EventListenerMethodProcessor.class);
+		EventListenerExecutionQueue queue = processor.getExecutionQueues().get("slowListener.handle(Integer)");
+		context.close();
+		assertEquals(Arrays.asList(0, 1, 2, 3, 4), listener.received);
+		assertTrue(listener.threadName.startsWith("eventListener-"));
+		assertTrue(queue.isShutdown());
+		assertEquals(0, queue.getActiveWorkerCount());
+	}
+
+
+	private static class BlockingInvocation implements Runnable {
+
+		private final CountDownLatch started;
+
+		private final CountDownLatch blocker;
+
+		public BlockingInvocation(CountDownLatch started, CountDownLatch blocker) {
+			this.started = started;
+			this.blocker = blocker;
+		}
+
+		@Override
+		public void run() {
+			this.started.countDown();
+			try {
+				this.blocker.await(10, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+
+	private static class RecordingInvocation implements Runnable {
+
+		private final List<String> results;
+
+		private final String value;
+
+		public RecordingInvocation(List<String> results, String value) {
+			this.results = results;
+			this.value = value;
+		}
+
+		@Override
+		public void run() {
+			this.results.add(this.value);
+		}
+	}
+
+
+	private static class NoOpInvocation implements Runnable {
+
+		@Override
+		public void run() {
+		}
+	}
+
+
+	@Configuration
+	static class QueuedListenerConfig {
+
+		@Bean
+		public TaskExecutor listenerExecutor() {
+			return new SimpleAsyncTaskExecutor("listener-");
+		}
+
+		@Bean
+		public QueuedListener queuedListener() {
+			return new QueuedListener();
+		}
+	}
+
+
+	static class QueuedListener {
+
+		final CountDownLatch latch = new CountDownLatch(1);
+
+		volatile String threadName;
+
+		@EventListener
+		@EventListenerExecution(executor = "listenerExecutor", concurrency = 2, queueCapacity = 10)
+		public void handle(String payload) {
+			this.threadName = Thread.currentThread().getName();
+			this.latch.countDown();
+		}
+	}
+
+
+	@Configuration
+	static class SlowListenerConfig {
+
+		@Bean
+		public SlowListener slowListener() {
+			return new SlowListener();
+		}
+	}
+
+
+	static class SlowListener {
+
+		final List<Integer> received = new CopyOnWriteArrayList<Integer>();
+
+		volatile String threadName = "";
+
+		@EventListener
+		@EventListenerExecution
+		public void handle(Integer payload) throws InterruptedException {
+			this.threadName = Thread.currentThread().getName();
+			Thread.sleep(20);
+			this.received.add(payload);
+		}
+	}
+
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ */
+public class HashedWheelTaskSchedulerTests {
+
+	private static final String THREAD_NAME_PREFIX = "wheel-";
+
+	private final HashedWheelTaskScheduler scheduler = new HashedWheelTaskScheduler();
+
+
+	@Before
+	public void initScheduler() {
+		scheduler.setThreadNamePrefix(THREAD_NAME_PREFIX);
+		scheduler.setTickDuration(10);
+		scheduler.setTicksPerWheel(8);
+		scheduler.setPoolSize(2);
+		scheduler.afterPropertiesSet();
+	}
+
+	@After
+	public void shutdownScheduler() {
+		scheduler.destroy();
+	}
+
+
+	@Test
+	public void scheduleOneTimeTask() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final List<String> threadNames = new ArrayList<String>();
+		long start = System.currentTimeMillis();
+		ScheduledFuture<?> future = scheduler.schedule(new Runnable() {
+			@Override
+			public void run() {
+				threadNames.add(Thread.currentThread().getName());
+				latch.countDown();
+			}
+		}, new Date(start + 50));
+		assertTrue(latch.await(2, TimeUnit.SECONDS));
+		assertTrue(System.currentTimeMillis() - start >= 50);
+		assertNull(future.get(1, TimeUnit.SECONDS));
+		assertTrue(future.isDone());
+		assertTrue(threadNames.get(0).startsWith(THREAD_NAME_PREFIX));
+	}
+
+	@Test
+	public void scheduleBeyondOneRevolution() throws Exception {
+		// 8 slots of 10 ms each: 200 ms takes more than two revolutions
+		final CountDownLatch latch = new CountDownLatch(1);
+		long start = System.currentTimeMillis();
+		scheduler.schedule(new CountDownTask(latch), new Date(start + 200));
+		assertTrue(latch.await(2, TimeUnit.SECONDS));
+		assertTrue(System.currentTimeMillis() - start >= 200);
+	}
+
+	@Test
+	public void cancelledTaskIsRemoved() throws Exception {
+		AtomicInteger counter = new AtomicInteger();
+		List<ScheduledFuture<?>> futures = new ArrayList<ScheduledFuture<?>>();
+		for (int i = 0; i < 1000; i++) {
+			futures.add(scheduler.schedule(new CountingTask(counter), new Date(System.currentTimeMillis() + 200)));
+		}
+		for (ScheduledFuture<?> future : futures) {
+			assertTrue(future.cancel(false));
+			assertTrue(future.isCancelled());
+		}
+		Thread.sleep(300);
+		assertEquals(0, counter.get());
+		assertEquals(0, scheduler.getScheduledTaskCount());
+	}
+
+	@Test
+	public void scheduleAtFixedRate() throws Exception {
+		CountDownLatch latch = new CountDownLatch(3);
+		ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(new CountDownTask(latch), 20);
+		assertTrue(latch.await(2, TimeUnit.SECONDS));
+		future.cancel(false);
+		assertTrue(future.isCancelled());
+	}
+
+	@Test
+	public void scheduleWithFixedDelay() throws Exception {
+		CountDownLatch latch = new CountDownLatch(3);
+		ScheduledFuture<?> future = scheduler.scheduleWithFixedDelay(new CountDownTask(latch), 20);
+		assertTrue(latch.await(2, TimeUnit.SECONDS));
+		future.cancel(false);
+		assertTrue(future.isCancelled());
+	}
+
+	@Test
+	public void scheduleTriggerTask() throws Exception {
+		CountDownLatch latch = new CountDownLatch(3);
+		ScheduledFuture<?> future = scheduler.schedule(new CountDownTask(latch), new TestTrigger(3, 20));
+		assertTrue(latch.await(2, TimeUnit.SECONDS));
+		assertNull(future.get(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void pendingTasksDiscardedOnShutdown() throws Exception {
+		AtomicInteger counter = new AtomicInteger();
+		ScheduledFuture<?> future = scheduler.schedule(
+				new CountingTask(counter), new Date(System.currentTimeMillis() + 10000));
+		scheduler.shutdown();
+		assertTrue(scheduler.getScheduledExecutor().awaitTermination(2, TimeUnit.SECONDS));
+		assertTrue(future.isCancelled());
+		assertEquals(0, counter.get());
+	}
+
+	@Test
+	public void scheduleAfterShutdownRejected() throws Exception {
+		HashedWheelScheduledExecutor executor = scheduler.getHashedWheelScheduledExecutor();
+		executor.schedule(new CountingTask(new AtomicInteger()), 10, TimeUnit.SECONDS);
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(2, TimeUnit.SECONDS));
+		try {
+			executor.schedule(new CountingTask(new AtomicInteger()), 10, TimeUnit.SECONDS);
+			fail("Should have thrown RejectedExecutionException");
+		}
+		catch (RejectedExecutionException ex) {
+			// expected
+		}
+		assertEquals(0, executor.getScheduledTaskCount());
+	}
+
+	@Test
+	public void scheduleConcurrentlyWithShutdownNeverHangs() throws Exception {
+		final HashedWheelScheduledExecutor executor = new HashedWheelScheduledExecutor();
+		final List<ScheduledFuture<?>> futures = new CopyOnWriteArrayList<ScheduledFuture<?>>();
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						while (true) {
+							futures.add(executor.schedule(new CountingTask(new AtomicInteger()), 10, TimeUnit.SECONDS));
+						}
+					}
+					catch (RejectedExecutionException ex) {
+						// shut down
+					}
+				}
+			};
+			threads[i].start();
+		}
+		Thread.sleep(50);
+		executor.shutdown();
+		for (Thread thread : threads) {
+			thread.join(2000);
+		}
+		assertTrue(executor.awaitTermination(2, TimeUnit.SECONDS));
+		assertFalse(futures.isEmpty());
+		for (ScheduledFuture<?> future : futures) {
+			assertTrue(future.isCancelled());
+		}
+	}
+
+	@Test
+	public void setPoolSizeAtRuntime() {
+		ThreadPoolExecutor workerExecutor = scheduler.getHashedWheelScheduledExecutor().getWorkerExecutor();
+		scheduler.setPoolSize(4);
+		assertEquals(4, workerExecutor.getCorePoolSize());
+		assertEquals(4, workerExecutor.getMaximumPoolSize());
+		scheduler.setPoolSize(1);
+		assertEquals(1, workerExecutor.getCorePoolSize());
+		assertEquals(1, workerExecutor.getMaximumPoolSize());
+	}
+
+
+	private static class CountDownTask implements Runnable {
+
+		private final CountDownLatch latch;
+
+		CountDownTask(CountDownLatch latch) {
+			this.latch = latch;
+		}
+
+		@Override
+		public void run() {
+			this.latch.countDown();
+		}
+	}
+
+
+	private static class CountingTask implements Runnable {
+
+		private final AtomicInteger counter;
+
+		CountingTask(AtomicInteger counter) {
+			this.counter = counter;
+		}
+
+		@Override
+		public void run() {
+			this.counter.incrementAndGet();
+		}
+	}
+
+
+	private static class TestTrigger implements Trigger {
+
+		private final int maxRunCount;
+
+		private final long delay;
+
+		private final AtomicInteger actualRunCount = new AtomicInteger();
+
+		TestTrigger(int maxRunCount, long delay) {
+			this.maxRunCount = maxRunCount;
+			this.delay = delay;
+		}
+
+		@Override
+		public Date nextExecutionTime(TriggerContext triggerContext) {
+			if (this.actualRunCount.incrementAndGet() > this.maxRunCount) {
+				return null;
+			}
+			return new Date(System.currentTimeMillis() + this.delay);
+		}
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.core.task.TaskRejectedException;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ */
+public class ThreadPoolTaskExecutorTests {
+
+	private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+
+	@After
+	public void shutdownExecutor() {
+		executor.destroy();
+	}
+
+
+	@Test
+	public void metricsDisabledByDefault() {
+		executor.afterPropertiesSet();
+		assertNull(executor.getExecutionMetrics());
+	}
+
+	@Test
+	public void metricsForExecutedAndSubmittedTasks() throws Exception {
+		executor.setMetricsEnabled(true);
+		executor.afterPropertiesSet();
+		final CountDownLatch latch = new CountDownLatch(1);
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				latch.countDown();
+			}
+		});
+		Future<String> future = executor.submit(new Callable<String>() {
+			@Override
+			public String call() {
+				return "result";
+			}
+		});
+		assertTrue(latch.await(1, TimeUnit.SECONDS));
+		assertEquals("result", future.get(1, TimeUnit.SECONDS));
+
+		TaskExecutionMetrics metrics = executor.getExecutionMetrics();
+		assertEquals(2, metrics.getSubmittedTaskCount());
+		awaitCompletion(metrics, 2);
+		assertEquals(2, metrics.getQueueWaitTimeHistogram().getCount());
+		assertEquals(2, metrics.getCompletedTaskCountsByType().size());
+		assertEquals(0, metrics.getRejectedTaskCount());
+	}
+
+	@Test
+	public void metricsForRejectedTasks() throws Exception {
+		executor.setMetricsEnabled(true);
+		executor.setMaxPoolSize(1);
+		executor.setQueueCapacity(0);
+		executor.afterPropertiesSet();
+		final CountDownLatch blocker = new CountDownLatch(1);
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					blocker.await(1, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+				}
+			});
+			fail("Should have thrown TaskRejectedException");
+		}
+		catch (TaskRejectedException ex) {
+			// expected
+		}
+		finally {
+			blocker.countDown();
+		}
+		assertEquals(1, executor.getExecutionMetrics().getRejectedTaskCount());
+	}
+
+	@Test
+	public void workStealingMode() throws Exception {
+		executor.setWorkStealing(true);
+		executor.setCorePoolSize(2);
+		executor.setThreadNamePrefix("stealing-");
+		executor.setMetricsEnabled(true);
+		executor.afterPropertiesSet();
+		Future<String> future = executor.submit(new Callable<String>() {
+			@Override
+			public String call() {
+				return Thread.currentThread().getName();
+			}
+		});
+		assertTrue(future.get(1, TimeUnit.SECONDS).startsWith("stealing-"));
+		awaitCompletion(executor.getExecutionMetrics(), 1);
+		try {
+			executor.getThreadPoolExecutor();
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+	}
+
+
+	private static void awaitCompletion(TaskExecutionMetrics metrics, int expected) throws InterruptedException {
+		// Metrics are recorded after the task itself has completed
+		for (int i = 0; i < 100 && metrics.getCompletedTaskCount() < expected; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(expected, metrics.getCompletedTaskCount());
+	}
+
+}
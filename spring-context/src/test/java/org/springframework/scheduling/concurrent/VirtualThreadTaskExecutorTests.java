@@ -0,0 +1,91 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+/**
+ * @author agent
+ */
+public class VirtualThreadTaskExecutorTests {
+
+	@Test
+	public void unsupportedJdk() {
+		assumeFalse(VirtualThreadTaskExecutor.isVirtualThreadSupported());
+		try {
+			new VirtualThreadTaskExecutor();
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void submitCallable() throws Exception {
+		assumeTrue(VirtualThreadTaskExecutor.isVirtualThreadSupported());
+		VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor("virtual-");
+		Future<String> future = executor.submit(new Callable<String>() {
+			@Override
+			public String call() {
+				return Thread.currentThread().getName();
+			}
+		});
+		assertTrue(future.get(1, TimeUnit.SECONDS).startsWith("virtual-"));
+	}
+
+	@Test
+	public void concurrencyLimit() throws Exception {
+		assumeTrue(VirtualThreadTaskExecutor.isVirtualThreadSupported());
+		VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor();
+		executor.setConcurrencyLimit(2);
+		final AtomicInteger active = new AtomicInteger();
+		final AtomicInteger maxActive = new AtomicInteger();
+		final CountDownLatch latch = new CountDownLatch(10);
+		for (int i = 0; i < 10; i++) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					int current = active.incrementAndGet();
+					synchronized (maxActive) {
+						maxActive.set(Math.max(maxActive.get(), current));
+					}
+					try {
+						Thread.sleep(10);
+					}
+					catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					}
+					active.decrementAndGet();
+					latch.countDown();
+				}
+			});
+		}
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertTrue(maxActive.get() <= 2);
+	}
+
+}
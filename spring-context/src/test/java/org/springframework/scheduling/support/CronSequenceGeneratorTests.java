@@ -16,7 +16,12 @@
 
 package org.springframework.scheduling.support;
 
+import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
 
 import org.junit.Test;
 
@@ -76,4 +81,58 @@ public class CronSequenceGeneratorTests {
 		new CronSequenceGenerator("* * 6-6 * * *").next(new Date(2012, 6, 1, 9, 0));
 	}
 
+	@Test
+	public void nextBatch() {
+		List<Date> dates = new CronSequenceGenerator("0 0 12 * * MON-FRI").next(new Date(116, 0, 1, 12, 0), 3);
+		assertEquals(Arrays.asList(new Date(116, 0, 4, 12, 0), new Date(116, 0, 5, 12, 0), new Date(116, 0, 6, 12, 0)),
+				dates);
+	}
+
+	@Test
+	public void nextBatchMatchesSingleSteps() {
+		CronSequenceGenerator generator = new CronSequenceGenerator("*/7 */13 1,5,23 * * *");
+		Date date = new Date(2016, 1, 28, 22, 59, 3);
+		for (Date next : generator.next(date, 50)) {
+			date = generator.next(date);
+			assertEquals(date, next);
+		}
+	}
+
+	@Test
+	public void leapDay() {
+		assertEquals(new Date(116, 1, 29),
+				new CronSequenceGenerator("0 0 0 29 2 *").next(new Date(113, 2, 1)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void withNonExistentDate() {
+		new CronSequenceGenerator("0 0 0 30 2 *").next(new Date(2012, 6, 1, 9, 0));
+	}
+
+	@Test
+	public void skipsLocalTimeInDaylightSavingGap() {
+		TimeZone timeZone = TimeZone.getTimeZone("Europe/Berlin");
+		CronSequenceGenerator generator = new CronSequenceGenerator("0 30 2 * * *", timeZone);
+		Calendar calendar = new GregorianCalendar(timeZone);
+		calendar.clear();
+		calendar.set(2016, Calendar.MARCH, 26, 3, 0);
+		Date next = generator.next(calendar.getTime());
+		calendar.set(2016, Calendar.MARCH, 28, 2, 30);
+		assertEquals(calendar.getTime(), next);
+	}
+
+	@Test
+	public void repeatedLocalTimeInDaylightSavingOverlap() {
+		TimeZone timeZone = TimeZone.getTimeZone("Europe/Berlin");
+		CronSequenceGenerator generator = new CronSequenceGenerator("0 0 * * * *", timeZone);
+		Calendar calendar = new GregorianCalendar(timeZone);
+		calendar.clear();
+		calendar.set(2016, Calendar.OCTOBER, 30, 0, 30);
+		long hour = 60 * 60 * 1000;
+		long start = calendar.getTimeInMillis();
+		// 01:00 summer time, then 02:00 and 03:00 standard time (02:00 not repeated)
+		assertEquals(Arrays.asList(new Date(start + hour / 2), new Date(start + hour / 2 + 2 * hour),
+				new Date(start + hour / 2 + 3 * hour)), generator.next(new Date(start), 3));
+	}
+
 }
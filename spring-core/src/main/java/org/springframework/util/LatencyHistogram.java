@@ -0,0 +1,176 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe, lock-free histogram of latencies in nanoseconds, with log-linear
+ * buckets in the style of an HDR histogram: each power-of-two range is split into
+ * 32 linear sub-buckets, bounding the relative error of reported percentiles to
+ * about 3% across the entire range.
+ *
+ * <p>Recording a value does not allocate and costs a few atomic increments, so
+ * a histogram can be kept on hot paths in production. Values beyond the tracked
+ * range (about 73 minutes) are counted in the highest bucket; the exact maximum
+ * is tracked separately.
+ *
+ * <p>Percentiles are computed from a concurrently updated set of counters and are
+ * therefore approximations while recording is in progress.
+ *
+ * @author agent
+ * @since 4.2.10
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	/** Values up to 2^42 ns (about 73 minutes) are tracked with full precision */
+	private static final int MAX_EXPONENT = 42;
+
+	private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+	private final AtomicLong totalCount = new AtomicLong();
+
+	private final AtomicLong totalTime = new AtomicLong();
+
+	private final AtomicLong maxTime = new AtomicLong();
+
+
+	/**
+	 * Record the given latency.
+	 * @param nanos the latency in nanoseconds (negative values count as 0)
+	 */
+	public void record(long nanos) {
+		long value = Math.max(nanos, 0);
+		this.counts.incrementAndGet(indexFor(value));
+		this.totalCount.incrementAndGet();
+		this.totalTime.addAndGet(value);
+		long max = this.maxTime.get();
+		while (value > max && !this.maxTime.compareAndSet(max, value)) {
+			max = this.maxTime.get();
+		}
+	}
+
+	/**
+	 * Record the latency since the given start time.
+	 * @param startNanos the start time, as obtained from {@link System#nanoTime()}
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Return the number of recorded values.
+	 */
+	public long getCount() {
+		return this.totalCount.get();
+	}
+
+	/**
+	 * Return the mean of all recorded values in the given unit.
+	 */
+	public double getMean(TimeUnit unit) {
+		long count = this.totalCount.get();
+		return (count > 0 ? (double) this.totalTime.get() / count / unit.toNanos(1) : 0);
+	}
+
+	/**
+	 * Return the largest recorded value in the given unit.
+	 */
+	public long getMax(TimeUnit unit) {
+		return unit.convert(this.maxTime.get(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Return the value in the given unit at or below which the given percentage
+	 * of the recorded values fall, e.g. {@code getPercentile(99.0, TimeUnit.MILLISECONDS)}.
+	 * @param percentile the percentile, between 0 and 100
+	 * @param unit the time unit to return the value in
+	 */
+	public double getPercentile(double percentile, TimeUnit unit) {
+		Assert.isTrue(percentile >= 0 && percentile <= 100, "Percentile must be between 0 and 100");
+		long count = this.totalCount.get();
+		if (count == 0) {
+			return 0;
+		}
+		long threshold = Math.max((long) Math.ceil(count * percentile / 100), 1);
+		long seen = 0;
+		long max = this.maxTime.get();
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += this.counts.get(i);
+			if (seen >= threshold) {
+				return (double) Math.min(highestValueAt(i), max) / unit.toNanos(1);
+			}
+		}
+		return (double) max / unit.toNanos(1);
+	}
+
+	/**
+	 * Reset all recorded values.
+	 * <p>Values recorded concurrently may be partially lost.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			this.counts.set(i, 0);
+		}
+		this.totalCount.set(0);
+		this.totalTime.set(0);
+		this.maxTime.set(0);
+	}
+
+
+	static int indexFor(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if (exponent > MAX_EXPONENT) {
+			return BUCKET_COUNT - 1;
+		}
+		int shift = exponent - SUB_BUCKET_BITS;
+		int subIndex = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+		return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subIndex;
+	}
+
+	static long highestValueAt(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+		int subIndex = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+		long lowest = (long) (SUB_BUCKET_COUNT + subIndex) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+
+
+	@Override
+	public String toString() {
+		return "count=" + getCount() + ", mean=" + getMean(TimeUnit.MILLISECONDS) +
+				"ms, p50=" + getPercentile(50, TimeUnit.MILLISECONDS) +
+				"ms, p99=" + getPercentile(99, TimeUnit.MILLISECONDS) +
+				"ms, max=" + getMax(TimeUnit.MILLISECONDS) + "ms";
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ */
+public class LatencyHistogramTests {
+
+	@Test
+	public void emptyHistogram() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMean(TimeUnit.NANOSECONDS), 0);
+		assertEquals(0, histogram.getPercentile(99, TimeUnit.NANOSECONDS), 0);
+		assertEquals(0, histogram.getMax(TimeUnit.NANOSECONDS));
+	}
+
+	@Test
+	public void indexRoundTrip() {
+		long[] values = {0, 1, 31, 32, 33, 63, 64, 1000, 123456789L, 1L << 41};
+		for (long value : values) {
+			int index = LatencyHistogram.indexFor(value);
+			long highest = LatencyHistogram.highestValueAt(index);
+			assertTrue("Value " + value + " above bucket bound " + highest, value <= highest);
+			assertTrue("Bucket bound " + highest + " too imprecise for " + value, highest <= value + value / 32);
+			if (index > 0) {
+				assertTrue(LatencyHistogram.highestValueAt(index - 1) < value);
+			}
+		}
+	}
+
+	@Test
+	public void valuesBeyondRange() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(Long.MAX_VALUE);
+		histogram.record(-5);
+		assertEquals(2, histogram.getCount());
+		assertEquals(Long.MAX_VALUE, histogram.getMax(TimeUnit.NANOSECONDS));
+		assertEquals(0, histogram.getPercentile(50, TimeUnit.NANOSECONDS), 0);
+	}
+
+	@Test
+	public void percentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+		}
+		assertEquals(1000, histogram.getCount());
+		assertEquals(500.5, histogram.getMean(TimeUnit.MICROSECONDS), 0.001);
+		assertEquals(500, histogram.getPercentile(50, TimeUnit.MICROSECONDS), 500 * 0.04);
+		assertEquals(990, histogram.getPercentile(99, TimeUnit.MICROSECONDS), 990 * 0.04);
+		assertEquals(1000, histogram.getPercentile(100, TimeUnit.MICROSECONDS), 0.001);
+		assertEquals(1, histogram.getMax(TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void reset() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(1000);
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getPercentile(50, TimeUnit.NANOSECONDS), 0);
+	}
+
+}
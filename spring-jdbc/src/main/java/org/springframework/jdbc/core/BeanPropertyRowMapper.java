@@ -17,9 +17,13 @@
 package org.springframework.jdbc.core;
 
 import java.beans.PropertyDescriptor;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Locale;
@@ -39,6 +43,7 @@ import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 
 /**
@@ -64,6 +69,11 @@ import org.springframework.util.StringUtils;
  * Be aware that if you use the values from the generated bean to update the database the primitive value
  * will have been set to the primitive's default value instead of null.
  *
+ * <p>The mapping from column indexes to bean properties is computed once per result set
+ * shape and reused for subsequent rows. In addition, the
+ * {@link #setDirectSetterInvocation "directSetterInvocation"} mode allows for invoking
+ * setter methods directly for values of a compatible type, bypassing the BeanWrapper.
+ *
  * <p>Please note that this class is designed to provide convenience rather than high performance.
  * For best performance, consider using a custom {@link RowMapper} implementation.
  *
@@ -91,6 +101,12 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 	/** Set of bean properties we provide mapping for */
 	private Set<String> mappedProperties;
 
+	/** Whether we're invoking setters directly for compatible values */
+	private boolean directSetterInvocation = false;
+
+	/** Column mapping plan for the most recent result set shape */
+	private volatile ColumnPlan columnPlan;
+
 
 	/**
 	 * Create a new {@code BeanPropertyRowMapper} for bean-style configuration.
@@ -179,6 +195,32 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 		return this.primitivesDefaultedForNullValue;
 	}
 
+	/**
+	 * Set whether to invoke the setter methods of the mapped class directly for
+	 * column values which are already assignable to the corresponding property type,
+	 * as obtained through {@link #getColumnValue} with its type-specific ResultSet
+	 * access methods.
+	 * <p>Default is {@code false}, always going through a {@link BeanWrapper} for
+	 * each row. Switch this to {@code true} for mapping large result sets at a lower
+	 * per-row cost; values which require conversion (as well as {@code null} values
+	 * for primitive properties) will still be applied through a BeanWrapper then.
+	 * <p>Note that custom editors registered in {@link #initBeanWrapper} will not
+	 * be applied to values set directly in this mode.
+	 * @since 4.2.10
+	 */
+	public void setDirectSetterInvocation(boolean directSetterInvocation) {
+		this.directSetterInvocation = directSetterInvocation;
+	}
+
+	/**
+	 * Return whether to invoke the setter methods of the mapped class directly
+	 * for column values which are assignable to the corresponding property type.
+	 * @since 4.2.10
+	 */
+	public boolean isDirectSetterInvocation() {
+		return this.directSetterInvocation;
+	}
+
 
 	/**
 	 * Initialize the mapping metadata for the given class.
@@ -186,6 +228,7 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 	 */
 	protected void initialize(Class<T> mappedClass) {
 		this.mappedClass = mappedClass;
+		this.columnPlan = null;
 		this.mappedFields = new HashMap<String, PropertyDescriptor>();
 		this.mappedProperties = new HashSet<String>();
 		PropertyDescriptor[] pds = BeanUtils.getPropertyDescriptors(mappedClass);
@@ -249,17 +292,21 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 	public T mapRow(ResultSet rs, int rowNumber) throws SQLException {
 		Assert.state(this.mappedClass != null, "Mapped class was not specified");
 		T mappedObject = BeanUtils.instantiate(this.mappedClass);
-		BeanWrapper bw = PropertyAccessorFactory.forBeanPropertyAccess(mappedObject);
-		initBeanWrapper(bw);
+		BeanWrapper bw = null;
+		if (!this.directSetterInvocation) {
+			bw = PropertyAccessorFactory.forBeanPropertyAccess(mappedObject);
+			initBeanWrapper(bw);
+		}
 
-		ResultSetMetaData rsmd = rs.getMetaData();
-		int columnCount = rsmd.getColumnCount();
-		Set<String> populatedProperties = (isCheckFullyPopulated() ? new HashSet<String>() : null);
+		ColumnPlan plan = getColumnPlan(rs.getMetaData());
+		String[] columns = plan.columns;
+		PropertyDescriptor[] pds = plan.propertyDescriptors;
+		Method[] writeMethods = plan.writeMethods;
 
-		for (int index = 1; index <= columnCount; index++) {
-			String column = JdbcUtils.lookupColumnName(rsmd, index);
-			String field = lowerCaseName(column.replaceAll(" ", ""));
-			PropertyDescriptor pd = this.mappedFields.get(field);
+		for (int i = 0; i < columns.length; i++) {
+			String column = columns[i];
+			PropertyDescriptor pd = pds[i];
+			int index = i + 1;
 			if (pd != null) {
 				try {
 					Object value = getColumnValue(rs, index, pd);
@@ -267,6 +314,16 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 						logger.debug("Mapping column '" + column + "' to property '" + pd.getName() +
 								"' of type [" + ClassUtils.getQualifiedName(pd.getPropertyType()) + "]");
 					}
+					if (writeMethods != null && (value != null ?
+							ClassUtils.isAssignableValue(pd.getPropertyType(), value) :
+							!pd.getPropertyType().isPrimitive())) {
+						invokeSetter(writeMethods[i], mappedObject, value);
+						continue;
+					}
+					if (bw == null) {
+						bw = PropertyAccessorFactory.forBeanPropertyAccess(mappedObject);
+						initBeanWrapper(bw);
+					}
 					try {
 						bw.setPropertyValue(pd.getName(), value);
 					}
@@ -284,9 +341,6 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 							throw ex;
 						}
 					}
-					if (populatedProperties != null) {
-						populatedProperties.add(pd.getName());
-					}
 				}
 				catch (NotWritablePropertyException ex) {
 					throw new DataRetrievalFailureException(
@@ -296,12 +350,13 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 			else {
 				// No PropertyDescriptor found
 				if (rowNumber == 0 && logger.isDebugEnabled()) {
-					logger.debug("No property found for column '" + column + "' mapped to field '" + field + "'");
+					logger.debug("No property found for column '" + column + "' mapped to field '" +
+							lowerCaseName(column.replaceAll(" ", "")) + "'");
 				}
 			}
 		}
 
-		if (populatedProperties != null && !populatedProperties.equals(this.mappedProperties)) {
+		if (isCheckFullyPopulated() && !plan.populatedProperties.equals(this.mappedProperties)) {
 			throw new InvalidDataAccessApiUsageException("Given ResultSet does not contain all fields " +
 					"necessary to populate object of class [" + this.mappedClass.getName() + "]: " +
 					this.mappedProperties);
@@ -310,6 +365,47 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 		return mappedObject;
 	}
 
+	/**
+	 * Obtain the column mapping plan for the given result set metadata,
+	 * reusing the plan for the previous result set if of the same shape.
+	 * <p>The column labels are only looked up once per metadata instance,
+	 * i.e. typically on the first row of each result set. The plan itself
+	 * is keyed on the column labels: it must not hold on to the metadata
+	 * object, which may keep the underlying statement alive.
+	 */
+	private ColumnPlan getColumnPlan(ResultSetMetaData rsmd) throws SQLException {
+		ColumnPlan plan = this.columnPlan;
+		if (plan != null && plan.directSetterInvocation != this.directSetterInvocation) {
+			plan = null;
+		}
+		if (plan != null && plan.metaData.get() == rsmd) {
+			return plan;
+		}
+		int columnCount = rsmd.getColumnCount();
+		String[] columns = new String[columnCount];
+		for (int index = 1; index <= columnCount; index++) {
+			columns[index - 1] = JdbcUtils.lookupColumnName(rsmd, index);
+		}
+		if (plan == null || !Arrays.equals(plan.columns, columns)) {
+			plan = new ColumnPlan(columns);
+			this.columnPlan = plan;
+		}
+		plan.metaData = new WeakReference<ResultSetMetaData>(rsmd);
+		return plan;
+	}
+
+	private void invokeSetter(Method writeMethod, Object target, Object value) {
+		try {
+			writeMethod.invoke(target, value);
+		}
+		catch (InvocationTargetException ex) {
+			ReflectionUtils.rethrowRuntimeException(ex.getTargetException());
+		}
+		catch (IllegalAccessException ex) {
+			throw new IllegalStateException("Could not access setter method: " + writeMethod, ex);
+		}
+	}
+
 	/**
 	 * Initialize the given BeanWrapper to be used for row mapping.
 	 * To be called for each row.
@@ -347,4 +443,45 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 		return new BeanPropertyRowMapper<T>(mappedClass);
 	}
 
+
+	/**
+	 * Mapping of column indexes to bean properties for a specific result set shape.
+	 */
+	private class ColumnPlan {
+
+		final String[] columns;
+
+		final PropertyDescriptor[] propertyDescriptors;
+
+		final Method[] writeMethods;
+
+		final Set<String> populatedProperties;
+
+		final boolean directSetterInvocation;
+
+		/** Metadata of the most recent result set known to be of this shape */
+		volatile WeakReference<ResultSetMetaData> metaData = new WeakReference<ResultSetMetaData>(null);
+
+		ColumnPlan(String[] columns) {
+			this.columns = columns;
+			this.propertyDescriptors = new PropertyDescriptor[columns.length];
+			this.directSetterInvocation = isDirectSetterInvocation();
+			this.writeMethods = (this.directSetterInvocation ? new Method[columns.length] : null);
+			this.populatedProperties = new HashSet<String>();
+			for (int i = 0; i < columns.length; i++) {
+				String field = lowerCaseName(columns[i].replaceAll(" ", ""));
+				PropertyDescriptor pd = mappedFields.get(field);
+				if (pd != null) {
+					this.propertyDescriptors[i] = pd;
+					this.populatedProperties.add(pd.getName());
+					if (this.writeMethods != null) {
+						Method writeMethod = pd.getWriteMethod();
+						ReflectionUtils.makeAccessible(writeMethod);
+						this.writeMethods[i] = writeMethod;
+					}
+				}
+			}
+		}
+	}
+
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+/**
+ * Callback interface for instrumenting the JDBC operations of a {@link JdbcTemplate},
+ * receiving the time spent obtaining Connections and executing statements.
+ *
+ * <p>Implementations are invoked on the executing thread and need to be thread-safe
+ * and fast; they should not throw exceptions. See
+ * {@link org.springframework.jdbc.core.support.JdbcExecutionMetrics} for
+ * a histogram-based implementation.
+ *
+ * @author agent
+ * @since 4.2.10
+ * @see JdbcTemplate#setExecutionListener
+ */
+public interface JdbcExecutionListener {
+
+	/**
+	 * Called after a Connection has been obtained for an operation,
+	 * e.g. from a connection pool or a current transaction.
+	 * @param elapsedNanos the time spent obtaining the Connection, in nanoseconds
+	 */
+	void connectionObtained(long elapsedNanos);
+
+	/**
+	 * Called after a statement has been executed, including the processing of its results.
+	 * @param sql the SQL statement, or {@code null} if not exposed by the callback
+	 * @param elapsedNanos the time spent executing the statement, in nanoseconds
+	 * @param rowCount the number of rows fetched or affected, or -1 if unknown
+	 * @param batchSize the number of statements in a batch, or 1 for a single statement
+	 * @param success whether the statement completed without an exception
+	 */
+	void statementExecuted(String sql, long elapsedNanos, long rowCount, int batchSize, boolean success);
+
+}
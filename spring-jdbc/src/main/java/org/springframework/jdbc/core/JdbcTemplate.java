@@ -35,6 +35,8 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentMap;
 import javax.sql.DataSource;
 
 import org.springframework.dao.DataAccessException;
@@ -49,6 +51,7 @@ import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.nativejdbc.NativeJdbcExtractor;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.LinkedCaseInsensitiveMap;
 import org.springframework.util.StringUtils;
 
@@ -149,6 +152,16 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	 */
 	private boolean resultsMapCaseInsensitive = false;
 
+	/** If this variable is set to true then resolved null parameter types get cached per SQL statement */
+	private boolean cacheNullParameterTypes = false;
+
+	/** Listener for instrumenting Connection retrieval and statement execution, if any */
+	private JdbcExecutionListener executionListener;
+
+	/** Cache of resolved null parameter types per SQL statement, if activated */
+	private final ConcurrentMap<String, Map<Integer, Integer>> nullTypeCache =
+			new ConcurrentReferenceHashMap<String, Map<Integer, Integer>>(64);
+
 
 	/**
 	 * Construct a new JdbcTemplate for bean usage.
@@ -326,6 +339,46 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return this.resultsMapCaseInsensitive;
 	}
 
+	/**
+	 * Set whether to cache the SQL types resolved for null parameter values of
+	 * unknown type per SQL statement, avoiding repeated metadata lookups, e.g. for
+	 * batches with sparse values.
+	 * <p>Default is "false". Only switch this on if all Connections from this
+	 * template's DataSource refer to the same kind of database: not for a routing
+	 * DataSource whose target databases may require different types.
+	 * @since 4.2.10
+	 */
+	public void setCacheNullParameterTypes(boolean cacheNullParameterTypes) {
+		this.cacheNullParameterTypes = cacheNullParameterTypes;
+	}
+
+	/**
+	 * Return whether resolved null parameter types get cached per SQL statement.
+	 * @since 4.2.10
+	 */
+	public boolean isCacheNullParameterTypes() {
+		return this.cacheNullParameterTypes;
+	}
+
+	/**
+	 * Set a listener to be notified of the time spent obtaining Connections
+	 * and executing statements, e.g. a
+	 * {@link org.springframework.jdbc.core.support.JdbcExecutionMetrics} instance.
+	 * <p>Default is none, not measuring any operations.
+	 * @since 4.2.10
+	 */
+	public void setExecutionListener(JdbcExecutionListener executionListener) {
+		this.executionListener = executionListener;
+	}
+
+	/**
+	 * Return the listener for instrumenting JDBC operations, if any.
+	 * @since 4.2.10
+	 */
+	public JdbcExecutionListener getExecutionListener() {
+		return this.executionListener;
+	}
+
 
 	//-------------------------------------------------------------------------
 	// Methods dealing with a plain java.sql.Connection
@@ -335,7 +388,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	public <T> T execute(ConnectionCallback<T> action) throws DataAccessException {
 		Assert.notNull(action, "Callback object must not be null");
 
-		Connection con = DataSourceUtils.getConnection(getDataSource());
+		Connection con = obtainConnection();
 		try {
 			Connection conToUse = con;
 			if (this.nativeJdbcExtractor != null) {
@@ -385,9 +438,21 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 
 	@Override
 	public <T> T execute(StatementCallback<T> action) throws DataAccessException {
+		return execute(action, false);
+	}
+
+	/**
+	 * Execute the given StatementCallback, reporting the row count derived from
+	 * its result to the execution listener if the callback is known to return
+	 * a row count (as is the case for the template's own callbacks only).
+	 * @see #notifyExecution
+	 */
+	private <T> T execute(StatementCallback<T> action, boolean reportRowCount) throws DataAccessException {
 		Assert.notNull(action, "Callback object must not be null");
 
-		Connection con = DataSourceUtils.getConnection(getDataSource());
+		Connection con = obtainConnection();
+		long startTime = executionStartTime();
+		boolean executed = false;
 		Statement stmt = null;
 		try {
 			Connection conToUse = con;
@@ -403,6 +468,8 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			}
 			T result = action.doInStatement(stmtToUse);
 			handleWarnings(stmt);
+			executed = true;
+			notifyExecution(getSql(action), startTime, (reportRowCount ? result : null), true);
 			return result;
 		}
 		catch (SQLException ex) {
@@ -415,6 +482,9 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			throw getExceptionTranslator().translate("StatementCallback", getSql(action), ex);
 		}
 		finally {
+			if (!executed) {
+				notifyExecution(getSql(action), startTime, null, false);
+			}
 			JdbcUtils.closeStatement(stmt);
 			DataSourceUtils.releaseConnection(con, getDataSource());
 		}
@@ -467,7 +537,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 				return sql;
 			}
 		}
-		return execute(new QueryStatementCallback());
+		return execute(new QueryStatementCallback(), rse instanceof RowMapperResultSetExtractor);
 	}
 
 	@Override
@@ -531,7 +601,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 				return sql;
 			}
 		}
-		return execute(new UpdateStatementCallback());
+		return execute(new UpdateStatementCallback(), true);
 	}
 
 	@Override
@@ -593,7 +663,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			}
 		}
 
-		return execute(new BatchUpdateStatementCallback());
+		return execute(new BatchUpdateStatementCallback(), true);
 	}
 
 
@@ -605,15 +675,31 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action)
 			throws DataAccessException {
 
+		return execute(psc, action, false);
+	}
+
+	/**
+	 * Execute the given PreparedStatementCallback, reporting the row count derived
+	 * from its result to the execution listener if the callback is known to return
+	 * a row count (as is the case for the template's own callbacks only).
+	 * @see #notifyExecution
+	 */
+	private <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action,
+			boolean reportRowCount) throws DataAccessException {
+
 		Assert.notNull(psc, "PreparedStatementCreator must not be null");
 		Assert.notNull(action, "Callback object must not be null");
+		String sql = getSql(psc);
 		if (logger.isDebugEnabled()) {
-			String sql = getSql(psc);
 			logger.debug("Executing prepared SQL statement" + (sql != null ? " [" + sql + "]" : ""));
 		}
 
-		Connection con = DataSourceUtils.getConnection(getDataSource());
+		Connection con = obtainConnection();
+		long startTime = executionStartTime();
+		boolean executed = false;
 		PreparedStatement ps = null;
+		Object previousNullTypes = StatementCreatorUtils.bindNullTypes(
+				(this.cacheNullParameterTypes ? this.nullTypeCache : null), sql);
 		try {
 			Connection conToUse = con;
 			if (this.nativeJdbcExtractor != null &&
@@ -626,8 +712,11 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			if (this.nativeJdbcExtractor != null) {
 				psToUse = this.nativeJdbcExtractor.getNativePreparedStatement(ps);
 			}
+			StatementCreatorUtils.restrictNullTypes(ps, psToUse);
 			T result = action.doInPreparedStatement(psToUse);
 			handleWarnings(ps);
+			executed = true;
+			notifyExecution(sql, startTime, (reportRowCount ? result : null), true);
 			return result;
 		}
 		catch (SQLException ex) {
@@ -636,7 +725,6 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			if (psc instanceof ParameterDisposer) {
 				((ParameterDisposer) psc).cleanupParameters();
 			}
-			String sql = getSql(psc);
 			psc = null;
 			JdbcUtils.closeStatement(ps);
 			ps = null;
@@ -645,6 +733,10 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			throw getExceptionTranslator().translate("PreparedStatementCallback", sql, ex);
 		}
 		finally {
+			if (!executed) {
+				notifyExecution(sql, startTime, null, false);
+			}
+			StatementCreatorUtils.resetNullTypes(previousNullTypes);
 			if (psc instanceof ParameterDisposer) {
 				((ParameterDisposer) psc).cleanupParameters();
 			}
@@ -699,7 +791,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 					}
 				}
 			}
-		});
+		}, rse instanceof RowMapperResultSetExtractor);
 	}
 
 	@Override
@@ -777,6 +869,160 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return query(sql, args, new RowMapperResultSetExtractor<T>(rowMapper));
 	}
 
+	/**
+	 * Query using a prepared statement, allowing for a PreparedStatementCreator
+	 * and a PreparedStatementSetter, and lazily mapping each row via a RowMapper
+	 * while the caller iterates over the returned {@link RowIterator}.
+	 * <p>The Connection, PreparedStatement and ResultSet stay open until the
+	 * iterator has been exhausted or closed.
+	 * @param psc Callback handler that can create a PreparedStatement given a
+	 * Connection
+	 * @param pss object that knows how to set values on the prepared statement.
+	 * If this is null, the SQL will be assumed to contain no bind parameters.
+	 * @param rowMapper object that will map one object per row
+	 * @return the result iterator, to be closed after use
+	 * @throws DataAccessException if there is any problem
+	 * @since 4.2.10
+	 */
+	public <T> RowIterator<T> queryForIterator(
+			PreparedStatementCreator psc, PreparedStatementSetter pss, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		Assert.notNull(psc, "PreparedStatementCreator must not be null");
+		Assert.notNull(rowMapper, "RowMapper must not be null");
+		String sql = getSql(psc);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing prepared SQL query for iteration" + (sql != null ? " [" + sql + "]" : ""));
+		}
+
+		Connection con = obtainConnection();
+		long startTime = executionStartTime();
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		boolean executed = false;
+		try {
+			Connection conToUse = con;
+			if (this.nativeJdbcExtractor != null &&
+					this.nativeJdbcExtractor.isNativeConnectionNecessaryForNativePreparedStatements()) {
+				conToUse = this.nativeJdbcExtractor.getNativeConnection(con);
+			}
+			ps = psc.createPreparedStatement(conToUse);
+			applyStatementSettings(ps);
+			PreparedStatement psToUse = ps;
+			if (this.nativeJdbcExtractor != null) {
+				psToUse = this.nativeJdbcExtractor.getNativePreparedStatement(ps);
+			}
+			if (pss != null) {
+				pss.setValues(psToUse);
+			}
+			rs = psToUse.executeQuery();
+			executed = true;
+			notifyExecution(sql, startTime, null, true);
+			ResultSet rsToUse = rs;
+			if (this.nativeJdbcExtractor != null) {
+				rsToUse = this.nativeJdbcExtractor.getNativeResultSet(rs);
+			}
+			return new ResultSetRowIterator<T>(con, ps, rs, rsToUse, psc, pss, rowMapper);
+		}
+		catch (SQLException ex) {
+			if (!executed) {
+				notifyExecution(sql, startTime, null, false);
+			}
+			releaseIterationResources(con, ps, rs, psc, pss);
+			throw getExceptionTranslator().translate("PreparedStatementCallback", sql, ex);
+		}
+		catch (RuntimeException ex) {
+			if (!executed) {
+				notifyExecution(sql, startTime, null, false);
+			}
+			releaseIterationResources(con, ps, rs, psc, pss);
+			throw ex;
+		}
+		catch (Error err) {
+			if (!executed) {
+				notifyExecution(sql, startTime, null, false);
+			}
+			releaseIterationResources(con, ps, rs, psc, pss);
+			throw err;
+		}
+	}
+
+	/**
+	 * Query using a prepared statement, lazily mapping each row to a Java object
+	 * via a RowMapper while the caller iterates over the result.
+	 * <p>The returned iterator holds on to the JDBC resources until it has been
+	 * exhausted or closed: it must be {@link RowIterator#close() closed} by the caller.
+	 * Rows are fetched according to the "fetchSize" setting of this template.
+	 * @param psc object that can create a PreparedStatement given a Connection
+	 * @param rowMapper object that will map one object per row
+	 * @return the result iterator, to be closed after use
+	 * @throws DataAccessException if the query fails
+	 * @since 4.2.10
+	 */
+	public <T> RowIterator<T> queryForIterator(PreparedStatementCreator psc, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return queryForIterator(psc, null, rowMapper);
+	}
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a
+	 * PreparedStatementSetter implementation that knows how to bind values to the
+	 * query, lazily mapping each row to a Java object via a RowMapper while the
+	 * caller iterates over the result.
+	 * <p>The returned iterator holds on to the JDBC resources until it has been
+	 * exhausted or closed: it must be {@link RowIterator#close() closed} by the caller.
+	 * @param sql SQL query to execute
+	 * @param pss object that knows how to set values on the prepared statement.
+	 * If this is {@code null}, the SQL will be assumed to contain no bind parameters.
+	 * @param rowMapper object that will map one object per row
+	 * @return the result iterator, to be closed after use
+	 * @throws DataAccessException if the query fails
+	 * @since 4.2.10
+	 */
+	public <T> RowIterator<T> queryForIterator(String sql, PreparedStatementSetter pss, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return queryForIterator(new SimplePreparedStatementCreator(sql), pss, rowMapper);
+	}
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list
+	 * of arguments to bind to the query, lazily mapping each row to a Java
+	 * object via a RowMapper while the caller iterates over the result.
+	 * <p>The returned iterator holds on to the JDBC resources until it has been
+	 * exhausted or closed: it must be {@link RowIterator#close() closed} by the caller.
+	 * This allows for processing large result sets in constant memory.
+	 * @param sql SQL query to execute
+	 * @param rowMapper object that will map one object per row
+	 * @param args arguments to bind to the query
+	 * (leaving it to the PreparedStatement to guess the corresponding SQL type);
+	 * may also contain {@link SqlParameterValue} objects which indicate not
+	 * only the argument value but also the SQL type and optionally the scale
+	 * @return the result iterator, to be closed after use
+	 * @throws DataAccessException if the query fails
+	 * @since 4.2.10
+	 */
+	public <T> RowIterator<T> queryForIterator(String sql, RowMapper<T> rowMapper, Object... args)
+			throws DataAccessException {
+
+		return queryForIterator(sql, newArgPreparedStatementSetter(args), rowMapper);
+	}
+
+	private void releaseIterationResources(Connection con, Statement stmt, ResultSet rs,
+			PreparedStatementCreator psc, PreparedStatementSetter pss) {
+
+		JdbcUtils.closeResultSet(rs);
+		if (pss instanceof ParameterDisposer) {
+			((ParameterDisposer) pss).cleanupParameters();
+		}
+		if (psc instanceof ParameterDisposer) {
+			((ParameterDisposer) psc).cleanupParameters();
+		}
+		JdbcUtils.closeStatement(stmt);
+		DataSourceUtils.releaseConnection(con, getDataSource());
+	}
+
 	@Override
 	public <T> T queryForObject(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper)
 			throws DataAccessException {
@@ -882,7 +1128,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 					}
 				}
 			}
-		});
+		}, true);
 	}
 
 	@Override
@@ -919,7 +1165,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 				}
 				return rows;
 			}
-		});
+		}, true);
 	}
 
 	@Override
@@ -943,7 +1189,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			logger.debug("Executing SQL batch update [" + sql + "]");
 		}
 
-		return execute(sql, new PreparedStatementCallback<int[]>() {
+		return execute(new SimplePreparedStatementCreator(sql), new PreparedStatementCallback<int[]>() {
 			@Override
 			public int[] doInPreparedStatement(PreparedStatement ps) throws SQLException {
 				try {
@@ -983,7 +1229,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 					}
 				}
 			}
-		});
+		}, true);
 	}
 
 	@Override
@@ -1003,7 +1249,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		if (logger.isDebugEnabled()) {
 			logger.debug("Executing SQL batch update [" + sql + "] with a batch size of " + batchSize);
 		}
-		return execute(sql, new PreparedStatementCallback<int[][]>() {
+		return execute(new SimplePreparedStatementCreator(sql), new PreparedStatementCallback<int[][]>() {
 			@Override
 			public int[][] doInPreparedStatement(PreparedStatement ps) throws SQLException {
 				List<int[]> rowsAffected = new ArrayList<int[]>();
@@ -1045,7 +1291,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 					}
 				}
 			}
-		});
+		}, true);
 	}
 
 	//-------------------------------------------------------------------------
@@ -1058,12 +1304,14 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 
 		Assert.notNull(csc, "CallableStatementCreator must not be null");
 		Assert.notNull(action, "Callback object must not be null");
+		String sql = getSql(csc);
 		if (logger.isDebugEnabled()) {
-			String sql = getSql(csc);
 			logger.debug("Calling stored procedure" + (sql != null ? " [" + sql  + "]" : ""));
 		}
 
-		Connection con = DataSourceUtils.getConnection(getDataSource());
+		Connection con = obtainConnection();
+		long startTime = executionStartTime();
+		boolean executed = false;
 		CallableStatement cs = null;
 		try {
 			Connection conToUse = con;
@@ -1078,6 +1326,8 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			}
 			T result = action.doInCallableStatement(csToUse);
 			handleWarnings(cs);
+			executed = true;
+			notifyExecution(sql, startTime, null, true);
 			return result;
 		}
 		catch (SQLException ex) {
@@ -1086,7 +1336,6 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			if (csc instanceof ParameterDisposer) {
 				((ParameterDisposer) csc).cleanupParameters();
 			}
-			String sql = getSql(csc);
 			csc = null;
 			JdbcUtils.closeStatement(cs);
 			cs = null;
@@ -1095,6 +1344,9 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			throw getExceptionTranslator().translate("CallableStatementCallback", sql, ex);
 		}
 		finally {
+			if (!executed) {
+				notifyExecution(sql, startTime, null, false);
+			}
 			if (csc instanceof ParameterDisposer) {
 				((ParameterDisposer) csc).cleanupParameters();
 			}
@@ -1337,6 +1589,78 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		}
 	}
 
+	/**
+	 * Obtain a Connection from the DataSource of this template,
+	 * notifying the execution listener (if any) of the time spent.
+	 * @see DataSourceUtils#getConnection
+	 */
+	private Connection obtainConnection() {
+		if (this.executionListener == null) {
+			return DataSourceUtils.getConnection(getDataSource());
+		}
+		long startTime = System.nanoTime();
+		Connection con = DataSourceUtils.getConnection(getDataSource());
+		this.executionListener.connectionObtained(System.nanoTime() - startTime);
+		return con;
+	}
+
+	/**
+	 * Return the start time for measuring a statement execution,
+	 * or 0 if no execution listener has been specified.
+	 */
+	private long executionStartTime() {
+		return (this.executionListener != null ? System.nanoTime() : 0);
+	}
+
+	/**
+	 * Notify the execution listener (if any) of a statement execution,
+	 * deriving the row count from the result of the callback: the size of
+	 * a result List, an update count, or the update counts of a batch.
+	 * @param sql the SQL statement, if known
+	 * @param startTime the start time as returned by {@link #executionStartTime()}
+	 * @param result the result of the callback, if it represents a row count
+	 * (i.e. only for the template's own query, update and batch callbacks)
+	 * @param success whether the execution completed without an exception
+	 */
+	private void notifyExecution(String sql, long startTime, Object result, boolean success) {
+		if (this.executionListener == null) {
+			return;
+		}
+		long elapsed = System.nanoTime() - startTime;
+		long rowCount = -1;
+		int batchSize = 1;
+		if (result instanceof Collection) {
+			rowCount = ((Collection<?>) result).size();
+		}
+		else if (result instanceof Integer) {
+			rowCount = (Integer) result;
+		}
+		else if (result instanceof int[]) {
+			int[] updateCounts = (int[]) result;
+			batchSize = updateCounts.length;
+			rowCount = 0;
+			for (int updateCount : updateCounts) {
+				if (updateCount > 0) {
+					rowCount += updateCount;
+				}
+			}
+		}
+		else if (result instanceof int[][]) {
+			int[][] updateCounts = (int[][]) result;
+			batchSize = 0;
+			rowCount = 0;
+			for (int[] batchUpdateCounts : updateCounts) {
+				batchSize += batchUpdateCounts.length;
+				for (int updateCount : batchUpdateCounts) {
+					if (updateCount > 0) {
+						rowCount += updateCount;
+					}
+				}
+			}
+		}
+		this.executionListener.statementExecuted(sql, elapsed, rowCount, batchSize, success);
+	}
+
 	/**
 	 * Prepare the given JDBC Statement (or PreparedStatement or CallableStatement),
 	 * applying statement settings such as fetch size, max rows, and query timeout.
@@ -1548,6 +1872,112 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	}
 
 
+	/**
+	 * RowIterator implementation on top of an open ResultSet,
+	 * releasing all JDBC resources once exhausted or closed.
+	 */
+	private class ResultSetRowIterator<T> implements RowIterator<T> {
+
+		private Connection con;
+
+		private PreparedStatement ps;
+
+		private ResultSet rs;
+
+		private final ResultSet rsToUse;
+
+		private final PreparedStatementCreator psc;
+
+		private final PreparedStatementSetter pss;
+
+		private final RowMapper<T> rowMapper;
+
+		private int rowNum = 0;
+
+		private Boolean hasNext;
+
+		public ResultSetRowIterator(Connection con, PreparedStatement ps, ResultSet rs, ResultSet rsToUse,
+				PreparedStatementCreator psc, PreparedStatementSetter pss, RowMapper<T> rowMapper) {
+
+			this.con = con;
+			this.ps = ps;
+			this.rs = rs;
+			this.rsToUse = rsToUse;
+			this.psc = psc;
+			this.pss = pss;
+			this.rowMapper = rowMapper;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (this.hasNext == null) {
+				if (this.rs == null) {
+					return false;
+				}
+				try {
+					this.hasNext = this.rsToUse.next();
+					if (!this.hasNext) {
+						handleWarnings(this.ps);
+						close();
+					}
+				}
+				catch (SQLException ex) {
+					throw translateAndClose(ex);
+				}
+				catch (RuntimeException ex) {
+					close();
+					throw ex;
+				}
+			}
+			return this.hasNext;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("No more rows in ResultSet");
+			}
+			this.hasNext = null;
+			try {
+				return this.rowMapper.mapRow(this.rsToUse, this.rowNum++);
+			}
+			catch (SQLException ex) {
+				throw translateAndClose(ex);
+			}
+			catch (RuntimeException ex) {
+				close();
+				throw ex;
+			}
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException("remove");
+		}
+
+		@Override
+		public void close() {
+			if (this.rs != null) {
+				ResultSet rs = this.rs;
+				Statement ps = this.ps;
+				Connection con = this.con;
+				this.rs = null;
+				this.ps = null;
+				this.con = null;
+				this.hasNext = Boolean.FALSE;
+				releaseIterationResources(con, ps, rs, this.psc, this.pss);
+			}
+		}
+
+		private DataAccessException translateAndClose(SQLException ex) {
+			// Release Connection early, to avoid potential connection pool deadlock
+			// in the case when the exception translator hasn't been initialized yet.
+			close();
+			return getExceptionTranslator().translate("ResultSetRowIterator", getSql(this.psc), ex);
+		}
+	}
+
+
 	/**
 	 * Adapter to enable use of a RowCallbackHandler inside a ResultSetExtractor.
 	 * <p>Uses a regular ResultSet, so we have to be careful when using it:
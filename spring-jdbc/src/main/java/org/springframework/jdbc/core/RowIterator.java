@@ -0,0 +1,65 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Iterator over mapped rows, lazily reading from an open JDBC ResultSet.
+ * Holds on to the underlying ResultSet, Statement and Connection until
+ * either the last row has been read or {@link #close()} has been called.
+ *
+ * <p>Allows for processing arbitrarily large result sets in constant memory,
+ * with rows being fetched from the database according to the "fetchSize"
+ * setting of the {@link JdbcTemplate} which created the iterator.
+ *
+ * <p>Callers are expected to always close the iterator, typically in a
+ * {@code finally} block, since it cannot tell whether a caller abandons
+ * an iteration halfway through:
+ *
+ * <pre class="code">
+ * RowIterator&lt;Customer&gt; it = jdbcTemplate.queryForIterator("select ...", rowMapper);
+ * try {
+ *   while (it.hasNext()) {
+ *     export(it.next());
+ *   }
+ * }
+ * finally {
+ *   it.close();
+ * }</pre>
+ *
+ * <p>Any {@link java.sql.SQLException} encountered during iteration gets translated
+ * to a {@link org.springframework.dao.DataAccessException} and closes the iterator.
+ * {@link #remove()} is not supported.
+ *
+ * @author agent
+ * @since 4.2.10
+ * @param <T> the type of mapped row objects
+ * @see JdbcTemplate#queryForIterator(String, RowMapper, Object...)
+ */
+public interface RowIterator<T> extends Iterator<T>, Closeable {
+
+	/**
+	 * Release the underlying ResultSet, Statement and Connection.
+	 * <p>Can be called multiple times; calls after the first one have no effect.
+	 * Also happens implicitly once the last row has been read.
+	 */
+	@Override
+	void close();
+
+}
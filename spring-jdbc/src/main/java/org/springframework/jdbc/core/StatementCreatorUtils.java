@@ -35,10 +35,12 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.core.NamedThreadLocal;
 import org.springframework.core.SpringProperties;
 import org.springframework.jdbc.support.SqlValue;
 
@@ -84,6 +86,12 @@ public abstract class StatementCreatorUtils {
 	static final Set<String> driversWithNoSupportForGetParameterType =
 			Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>(1));
 
+	/** Marker for a null parameter to be set through {@code setObject(paramIndex, null)} */
+	private static final int SET_OBJECT_NULL = Integer.MIN_VALUE;
+
+	private static final ThreadLocal<NullTypeBinding> currentNullTypes =
+			new NamedThreadLocal<NullTypeBinding>("Null parameter types of current SQL statement");
+
 	private static final Log logger = LogFactory.getLog(StatementCreatorUtils.class);
 
 	private static final Map<Class<?>, Integer> javaTypeToSqlTypeMap = new HashMap<Class<?>, Integer>(32);
@@ -242,80 +250,24 @@ public abstract class StatementCreatorUtils {
 	/**
 	 * Set the specified PreparedStatement parameter to null,
 	 * respecting database-specific peculiarities.
+	 * <p>For an unknown SQL type, the resolved type gets cached for the
+	 * current SQL statement, if any (see {@link #bindNullTypes}).
 	 */
 	private static void setNull(PreparedStatement ps, int paramIndex, int sqlType, String typeName) throws SQLException {
 		if (sqlType == SqlTypeValue.TYPE_UNKNOWN || sqlType == Types.OTHER) {
-			boolean useSetObject = false;
-			Integer sqlTypeToUse = null;
-			DatabaseMetaData dbmd = null;
-			String jdbcDriverName = null;
-			boolean tryGetParameterType = true;
-
-			if (shouldIgnoreGetParameterType == null) {
-				try {
-					dbmd = ps.getConnection().getMetaData();
-					jdbcDriverName = dbmd.getDriverName();
-					tryGetParameterType = !driversWithNoSupportForGetParameterType.contains(jdbcDriverName);
-					if (tryGetParameterType && jdbcDriverName.startsWith("Oracle")) {
-						// Avoid getParameterType use with Oracle 12c driver by default:
-						// needs to be explicitly activated through spring.jdbc.getParameterType.ignore=false
-						tryGetParameterType = false;
-						driversWithNoSupportForGetParameterType.add(jdbcDriverName);
-					}
-				}
-				catch (Throwable ex) {
-					logger.debug("Could not check connection metadata", ex);
-				}
-			}
-			else {
-				tryGetParameterType = !shouldIgnoreGetParameterType;
-			}
-
-			if (tryGetParameterType) {
-				try {
-					sqlTypeToUse = ps.getParameterMetaData().getParameterType(paramIndex);
-				}
-				catch (Throwable ex) {
-					if (logger.isDebugEnabled()) {
-						logger.debug("JDBC 3.0 getParameterType call not supported - using fallback method instead: " + ex);
-					}
-				}
-			}
-
+			NullTypeBinding binding = currentNullTypes.get();
+			Integer sqlTypeToUse = (binding != null ? binding.getNullType(ps, paramIndex) : null);
 			if (sqlTypeToUse == null) {
-				// JDBC driver not compliant with JDBC 3.0 -> proceed with database-specific checks
-				sqlTypeToUse = Types.NULL;
-				try {
-					if (dbmd == null) {
-						dbmd = ps.getConnection().getMetaData();
-					}
-					if (jdbcDriverName == null) {
-						jdbcDriverName = dbmd.getDriverName();
-					}
-					if (shouldIgnoreGetParameterType == null) {
-						// Register JDBC driver with no support for getParameterType, except for the
-						// Oracle 12c driver where getParameterType fails for specific statements only
-						// (so an exception thrown above does not indicate general lack of support).
-						driversWithNoSupportForGetParameterType.add(jdbcDriverName);
-					}
-					String databaseProductName = dbmd.getDatabaseProductName();
-					if (databaseProductName.startsWith("Informix") ||
-							(jdbcDriverName.startsWith("Microsoft") && jdbcDriverName.contains("SQL Server"))) {
-							// "Microsoft SQL Server JDBC Driver 3.0" versus "Microsoft JDBC Driver 4.0 for SQL Server"
-						useSetObject = true;
-					}
-					else if (databaseProductName.startsWith("DB2") ||
-							jdbcDriverName.startsWith("jConnect") ||
-							jdbcDriverName.startsWith("SQLServer")||
-							jdbcDriverName.startsWith("Apache Derby")) {
-						sqlTypeToUse = Types.VARCHAR;
-					}
+				sqlTypeToUse = resolveNullType(ps, paramIndex);
+				if (sqlTypeToUse == null) {
+					// metadata not available right now: use Types.NULL for this call only
+					sqlTypeToUse = Types.NULL;
 				}
-				catch (Throwable ex) {
-					logger.debug("Could not check connection metadata", ex);
+				else if (binding != null) {
+					binding.putNullType(ps, paramIndex, sqlTypeToUse);
 				}
 			}
-			if (useSetObject) {
+			if (sqlTypeToUse == SET_OBJECT_NULL) {
 				ps.setObject(paramIndex, null);
 			}
 			else {
@@ -330,6 +282,88 @@ public abstract class StatementCreatorUtils {
 		}
 	}
 
+	/**
+	 * Determine the SQL type to use for a null value of unknown type,
+	 * respecting database-specific peculiarities.
+	 * @return the SQL type for {@code setNull}, {@link #SET_OBJECT_NULL}
+	 * for a {@code setObject(paramIndex, null)} call, or {@code null} if the
+	 * database metadata could not be checked
+	 */
+	private static Integer resolveNullType(PreparedStatement ps, int paramIndex) {
+		boolean useSetObject = false;
+		Integer sqlTypeToUse = null;
+		DatabaseMetaData dbmd = null;
+		String jdbcDriverName = null;
+		boolean tryGetParameterType = true;
+
+		if (shouldIgnoreGetParameterType == null) {
+			try {
+				dbmd = ps.getConnection().getMetaData();
+				jdbcDriverName = dbmd.getDriverName();
+				tryGetParameterType = !driversWithNoSupportForGetParameterType.contains(jdbcDriverName);
+				if (tryGetParameterType && jdbcDriverName.startsWith("Oracle")) {
+					// Avoid getParameterType use with Oracle 12c driver by default:
+					// needs to be explicitly activated through spring.jdbc.getParameterType.ignore=false
+					tryGetParameterType = false;
+					driversWithNoSupportForGetParameterType.add(jdbcDriverName);
+				}
+			}
+			catch (Throwable ex) {
+				logger.debug("Could not check connection metadata", ex);
+			}
+		}
+		else {
+			tryGetParameterType = !shouldIgnoreGetParameterType;
+		}
+
+		if (tryGetParameterType) {
+			try {
+				sqlTypeToUse = ps.getParameterMetaData().getParameterType(paramIndex);
+			}
+			catch (Throwable ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("JDBC 3.0 getParameterType call not supported - using fallback method instead: " + ex);
+				}
+			}
+		}
+
+		if (sqlTypeToUse == null) {
+			// JDBC driver not compliant with JDBC 3.0 -> proceed with database-specific checks
+			sqlTypeToUse = Types.NULL;
+			try {
+				if (dbmd == null) {
+					dbmd = ps.getConnection().getMetaData();
+				}
+				if (jdbcDriverName == null) {
+					jdbcDriverName = dbmd.getDriverName();
+				}
+				if (shouldIgnoreGetParameterType == null) {
+					// Register JDBC driver with no support for getParameterType, except for the
+					// Oracle 12c driver where getParameterType fails for specific statements only
+					// (so an exception thrown above does not indicate general lack of support).
+					driversWithNoSupportForGetParameterType.add(jdbcDriverName);
+				}
+				String databaseProductName = dbmd.getDatabaseProductName();
+				if (databaseProductName.startsWith("Informix") ||
+						(jdbcDriverName.startsWith("Microsoft") && jdbcDriverName.contains("SQL Server"))) {
+						// "Microsoft SQL Server JDBC Driver 3.0" versus "Microsoft JDBC Driver 4.0 for SQL Server"
+					useSetObject = true;
+				}
+				else if (databaseProductName.startsWith("DB2") ||
+						jdbcDriverName.startsWith("jConnect") ||
+						jdbcDriverName.startsWith("SQLServer")||
+						jdbcDriverName.startsWith("Apache Derby")) {
+					sqlTypeToUse = Types.VARCHAR;
+				}
+			}
+			catch (Throwable ex) {
+				logger.debug("Could not check connection metadata", ex);
+				return null;
+			}
+		}
+		return (useSetObject ? SET_OBJECT_NULL : sqlTypeToUse);
+	}
+
 	private static void setValue(PreparedStatement ps, int paramIndex, int sqlType, String typeName,
 			Integer scale, Object inValue) throws SQLException {
 
@@ -513,4 +547,106 @@ public abstract class StatementCreatorUtils {
 		}
 	}
 
+
+	/**
+	 * Bind the given cache of null parameter types to the current thread, letting
+	 * {@code setParameterValue} reuse the SQL types resolved for null values of
+	 * unknown type, e.g. across all rows of a batch with sparse values.
+	 * <p>Any previous binding is suspended until {@link #resetNullTypes}, so that
+	 * nested statement executions on the same thread never share a cache.
+	 * @param nullTypeCache the cache of SQL types per parameter index, keyed by
+	 * SQL statement, or {@code null} to disable caching for the statement
+	 * @param sql the SQL statement about to be executed, or {@code null}
+	 * to disable caching for that statement
+	 * @return the previous binding, to be passed into {@link #resetNullTypes}
+	 * @since 4.2.10
+	 */
+	static Object bindNullTypes(ConcurrentMap<String, Map<Integer, Integer>> nullTypeCache, String sql) {
+		NullTypeBinding previous = currentNullTypes.get();
+		currentNullTypes.set(new NullTypeBinding(sql != null ? nullTypeCache : null, sql));
+		return previous;
+	}
+
+	/**
+	 * Restrict the current binding of null parameter types to the given statement,
+	 * ignoring any other statements created on the current thread meanwhile.
+	 * @param ps the PreparedStatement created for the bound SQL statement
+	 * @param psToUse the native PreparedStatement, if extracted
+	 * @since 4.2.10
+	 */
+	static void restrictNullTypes(PreparedStatement ps, PreparedStatement psToUse) {
+		NullTypeBinding binding = currentNullTypes.get();
+		if (binding != null) {
+			binding.restrictTo(ps, psToUse);
+		}
+	}
+
+	/**
+	 * Reset the binding of null parameter types for the current thread.
+	 * @param previous the previous binding, as returned from {@link #bindNullTypes}
+	 * @since 4.2.10
+	 */
+	static void resetNullTypes(Object previous) {
+		if (previous != null) {
+			currentNullTypes.set((NullTypeBinding) previous);
+		}
+		else {
+			currentNullTypes.remove();
+		}
+	}
+
+
+	/**
+	 * Thread-bound cache of null parameter types for the SQL statement being executed,
+	 * optionally restricted to the PreparedStatement created for it. The entry for
+	 * the statement only gets created once a type has actually been resolved.
+	 */
+	private static class NullTypeBinding {
+
+		private final ConcurrentMap<String, Map<Integer, Integer>> nullTypeCache;
+
+		private final String sql;
+
+		private PreparedStatement ps;
+
+		private PreparedStatement psToUse;
+
+		public NullTypeBinding(ConcurrentMap<String, Map<Integer, Integer>> nullTypeCache, String sql) {
+			this.nullTypeCache = nullTypeCache;
+			this.sql = sql;
+		}
+
+		public void restrictTo(PreparedStatement ps, PreparedStatement psToUse) {
+			this.ps = ps;
+			this.psToUse = psToUse;
+		}
+
+		public Integer getNullType(PreparedStatement ps, int paramIndex) {
+			if (!appliesTo(ps)) {
+				return null;
+			}
+			Map<Integer, Integer> nullTypes = this.nullTypeCache.get(this.sql);
+			return (nullTypes != null ? nullTypes.get(paramIndex) : null);
+		}
+
+		public void putNullType(PreparedStatement ps, int paramIndex, int sqlType) {
+			if (!appliesTo(ps)) {
+				return;
+			}
+			Map<Integer, Integer> nullTypes = this.nullTypeCache.get(this.sql);
+			if (nullTypes == null) {
+				nullTypes = new ConcurrentHashMap<Integer, Integer>(8);
+				Map<Integer, Integer> existing = this.nullTypeCache.putIfAbsent(this.sql, nullTypes);
+				if (existing != null) {
+					nullTypes = existing;
+				}
+			}
+			nullTypes.put(paramIndex, sqlType);
+		}
+
+		private boolean appliesTo(PreparedStatement ps) {
+			return (this.nullTypeCache != null && (this.ps == null || this.ps == ps || this.psToUse == ps));
+		}
+	}
+
 }
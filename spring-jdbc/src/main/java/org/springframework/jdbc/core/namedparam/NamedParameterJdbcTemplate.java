@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,12 @@
 
 package org.springframework.jdbc.core.namedparam;
 
-import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.sql.DataSource;
 
 import org.springframework.dao.DataAccessException;
@@ -31,6 +34,7 @@ import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
 import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowIterator;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.SingleColumnRowMapper;
 import org.springframework.jdbc.core.SqlParameter;
@@ -72,14 +76,11 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	private volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
 
 	/** Cache of original SQL String to ParsedSql representation */
-	@SuppressWarnings("serial")
-	private final Map<String, ParsedSql> parsedSqlCache =
-			new LinkedHashMap<String, ParsedSql>(DEFAULT_CACHE_LIMIT, 0.75f, true) {
-				@Override
-				protected boolean removeEldestEntry(Map.Entry<String, ParsedSql> eldest) {
-					return size() > getCacheLimit();
-				}
-			};
+	private final ConcurrentMap<String, CachedSql> parsedSqlCache =
+			new ConcurrentHashMap<String, CachedSql>(DEFAULT_CACHE_LIMIT);
+
+	/** Cached entries in the order of their addition, for second-chance eviction */
+	private final Queue<CachedSql> parsedSqlCacheQueue = new LinkedList<CachedSql>();
 
 
 	/**
@@ -199,6 +200,54 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 		return query(sql, new MapSqlParameterSource(paramMap), rowMapper);
 	}
 
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list
+	 * of arguments to bind to the query, lazily mapping each row to a Java
+	 * object via a RowMapper while the caller iterates over the result.
+	 * <p>The returned iterator holds on to the JDBC resources until it has
+	 * been exhausted or closed: it must be closed by the caller.
+	 * @param sql SQL query to execute
+	 * @param paramSource container of arguments to bind to the query
+	 * @param rowMapper object that will map one object per row
+	 * @return the result iterator, to be closed after use
+	 * @throws org.springframework.dao.DataAccessException if the query fails
+	 * @throws IllegalStateException if the wrapped {@link #getJdbcOperations()
+	 * JdbcOperations} instance is not a {@link JdbcTemplate}
+	 * @since 4.2.10
+	 * @see RowIterator#close()
+	 */
+	public <T> RowIterator<T> queryForIterator(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		Assert.state(getJdbcOperations() instanceof JdbcTemplate,
+				"Row iteration requires the wrapped JdbcOperations to be a JdbcTemplate");
+		return ((JdbcTemplate) getJdbcOperations()).queryForIterator(
+				getPreparedStatementCreator(sql, paramSource), rowMapper);
+	}
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list
+	 * of arguments to bind to the query, lazily mapping each row to a Java
+	 * object via a RowMapper while the caller iterates over the result.
+	 * <p>The returned iterator holds on to the JDBC resources until it has
+	 * been exhausted or closed: it must be closed by the caller.
+	 * @param sql SQL query to execute
+	 * @param paramMap map of parameters to bind to the query
+	 * (leaving it to the PreparedStatement to guess the corresponding SQL type)
+	 * @param rowMapper object that will map one object per row
+	 * @return the result iterator, to be closed after use
+	 * @throws org.springframework.dao.DataAccessException if the query fails
+	 * @throws IllegalStateException if the wrapped {@link #getJdbcOperations()
+	 * JdbcOperations} instance is not a {@link JdbcTemplate}
+	 * @since 4.2.10
+	 * @see RowIterator#close()
+	 */
+	public <T> RowIterator<T> queryForIterator(String sql, Map<String, ?> paramMap, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return queryForIterator(sql, new MapSqlParameterSource(paramMap), rowMapper);
+	}
+
 	@Override
 	public <T> List<T> query(String sql, RowMapper<T> rowMapper) throws DataAccessException {
 		return query(sql, EmptySqlParameterSource.INSTANCE, rowMapper);
@@ -353,23 +402,70 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 
 	/**
 	 * Obtain a parsed representation of the given SQL statement.
-	 * <p>The default implementation uses an LRU cache with an upper limit
-	 * of 256 entries.
+	 * <p>The default implementation uses an approximate LRU cache with an upper
+	 * limit of 256 entries (see {@link #setCacheLimit}). Cache hits are lock-free,
+	 * just marking the entry as recently used; on a cache miss with a full cache,
+	 * the oldest entry which has not been used since its last check gets evicted.
 	 * @param sql the original SQL
 	 * @return a representation of the parsed SQL statement
 	 */
 	protected ParsedSql getParsedSql(String sql) {
-		if (getCacheLimit() <= 0) {
+		int cacheLimit = getCacheLimit();
+		if (cacheLimit <= 0) {
 			return NamedParameterUtils.parseSqlStatement(sql);
 		}
-		synchronized (this.parsedSqlCache) {
-			ParsedSql parsedSql = this.parsedSqlCache.get(sql);
-			if (parsedSql == null) {
-				parsedSql = NamedParameterUtils.parseSqlStatement(sql);
-				this.parsedSqlCache.put(sql, parsedSql);
+		CachedSql cachedSql = this.parsedSqlCache.get(sql);
+		if (cachedSql != null) {
+			if (!cachedSql.referenced) {
+				cachedSql.referenced = true;
+			}
+			return cachedSql.parsedSql;
+		}
+		synchronized (this.parsedSqlCacheQueue) {
+			cachedSql = this.parsedSqlCache.get(sql);
+			if (cachedSql != null) {
+				cachedSql.referenced = true;
+				return cachedSql.parsedSql;
+			}
+			while (this.parsedSqlCache.size() >= cacheLimit) {
+				CachedSql oldest = this.parsedSqlCacheQueue.poll();
+				if (oldest == null) {
+					break;
+				}
+				if (oldest.referenced) {
+					// Used since the last check: give it a second chance
+					oldest.referenced = false;
+					this.parsedSqlCacheQueue.add(oldest);
+				}
+				else {
+					this.parsedSqlCache.remove(oldest.sql);
+				}
 			}
+			ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+			parsedSql.enableExpandedSqlCache();
+			cachedSql = new CachedSql(sql, parsedSql);
+			this.parsedSqlCacheQueue.add(cachedSql);
+			this.parsedSqlCache.put(sql, cachedSql);
 			return parsedSql;
 		}
 	}
 
+
+	/**
+	 * Entry in the parsed SQL cache, with a flag for recent use.
+	 */
+	private static class CachedSql {
+
+		private final String sql;
+
+		private final ParsedSql parsedSql;
+
+		private volatile boolean referenced;
+
+		public CachedSql(String sql, ParsedSql parsedSql) {
+			this.sql = sql;
+			this.parsedSql = parsedSql;
+		}
+	}
+
 }
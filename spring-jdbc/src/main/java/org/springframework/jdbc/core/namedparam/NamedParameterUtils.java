@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,9 +17,9 @@
 package org.springframework.jdbc.core.namedparam;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -250,63 +250,98 @@ public abstract class NamedParameterUtils {
 	 * be used for a select list. Select lists should be limited to 100 or fewer elements.
 	 * A larger number of elements is not guaranteed to be supported by the database and
 	 * is strictly vendor-dependent.
+	 * <p>The resulting statement is cached in the given {@link ParsedSql}: once for
+	 * the plain case without collection parameters, and per combination of
+	 * collection sizes for a limited number of such combinations.
 	 * @param parsedSql the parsed representation of the SQL statement
 	 * @param paramSource the source for named parameters
 	 * @return the SQL statement with substituted parameters
 	 * @see #parseSqlStatement
 	 */
 	public static String substituteNamedParameters(ParsedSql parsedSql, SqlParameterSource paramSource) {
-		String originalSql = parsedSql.getOriginalSql();
-		StringBuilder actualSql = new StringBuilder();
 		List<String> paramNames = parsedSql.getParameterNames();
-		int lastIndex = 0;
-		for (int i = 0; i < paramNames.size(); i++) {
-			String paramName = paramNames.get(i);
-			int[] indexes = parsedSql.getParameterIndexes(i);
-			int startIndex = indexes[0];
-			int endIndex = indexes[1];
-			actualSql.append(originalSql, lastIndex, startIndex);
-			if (paramSource != null && paramSource.hasValue(paramName)) {
-				Object value = paramSource.getValue(paramName);
-				if (value instanceof SqlParameterValue) {
-					value = ((SqlParameterValue) value).getValue();
-				}
-				if (value instanceof Collection) {
-					Iterator<?> entryIter = ((Collection<?>) value).iterator();
-					int k = 0;
-					while (entryIter.hasNext()) {
-						if (k > 0) {
-							actualSql.append(", ");
+		Collection<?>[] collections = null;
+		int[] elementCounts = null;
+		boolean expressionLists = false;
+		if (paramSource != null) {
+			for (int i = 0; i < paramNames.size(); i++) {
+				String paramName = paramNames.get(i);
+				if (paramSource.hasValue(paramName)) {
+					Object value = paramSource.getValue(paramName);
+					if (value instanceof SqlParameterValue) {
+						value = ((SqlParameterValue) value).getValue();
+					}
+					if (value instanceof Collection) {
+						if (collections == null) {
+							collections = new Collection<?>[paramNames.size()];
+							elementCounts = new int[paramNames.size()];
+							Arrays.fill(elementCounts, -1);
 						}
-						k++;
-						Object entryItem = entryIter.next();
-						if (entryItem instanceof Object[]) {
-							Object[] expressionList = (Object[]) entryItem;
-							actualSql.append("(");
-							for (int m = 0; m < expressionList.length; m++) {
-								if (m > 0) {
-									actualSql.append(", ");
+						Collection<?> entries = (Collection<?>) value;
+						collections[i] = entries;
+						elementCounts[i] = entries.size();
+						if (!expressionLists) {
+							for (Object entryItem : entries) {
+								if (entryItem instanceof Object[]) {
+									expressionLists = true;
+									break;
 								}
-								actualSql.append("?");
 							}
-							actualSql.append(")");
 						}
-						else {
+					}
+				}
+			}
+		}
+
+		if (collections == null) {
+			// No collection expansion: same statement for all invocations
+			return parsedSql.getSubstitutedSql();
+		}
+		if (!expressionLists) {
+			String expandedSql = parsedSql.getExpandedSql(elementCounts);
+			if (expandedSql != null) {
+				return expandedSql;
+			}
+		}
+
+		String[] fragments = parsedSql.getSqlFragments();
+		StringBuilder actualSql = new StringBuilder(parsedSql.getOriginalSql().length() + 16);
+		for (int i = 0; i < collections.length; i++) {
+			actualSql.append(fragments[i]);
+			Collection<?> entries = collections[i];
+			if (entries != null) {
+				int k = 0;
+				for (Object entryItem : entries) {
+					if (k > 0) {
+						actualSql.append(", ");
+					}
+					k++;
+					if (entryItem instanceof Object[]) {
+						Object[] expressionList = (Object[]) entryItem;
+						actualSql.append("(");
+						for (int m = 0; m < expressionList.length; m++) {
+							if (m > 0) {
+								actualSql.append(", ");
+							}
 							actualSql.append("?");
 						}
+						actualSql.append(")");
+					}
+					else {
+						actualSql.append("?");
 					}
-				}
-				else {
-					actualSql.append("?");
 				}
 			}
 			else {
 				actualSql.append("?");
 			}
-			lastIndex = endIndex;
 		}
-		actualSql.append(originalSql, lastIndex, originalSql.length());
-		return actualSql.toString();
+		actualSql.append(fragments[collections.length]);
+		String expandedSql = actualSql.toString();
+		if (!expressionLists) {
+			parsedSql.cacheExpandedSql(elementCounts, expandedSql);
+		}
+		return expandedSql;
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2008 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,7 +17,10 @@
 package org.springframework.jdbc.core.namedparam;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Holds information about a parsed SQL statement.
@@ -28,6 +31,10 @@ import java.util.List;
  */
 public class ParsedSql {
 
+	/** Maximum number of distinct collection expansions to cache per statement */
+	private static final int MAX_EXPANSIONS_TO_CACHE = 32;
+
+
 	private String originalSql;
 
 	private List<String> parameterNames = new ArrayList<String>();
@@ -40,6 +47,15 @@ public class ParsedSql {
 
 	private int totalParameterCount;
 
+	/** SQL fragments around the parameters, computed on first use */
+	private volatile String[] sqlFragments;
+
+	/** The SQL statement with each parameter replaced by a single placeholder */
+	private volatile String substitutedSql;
+
+	/** SQL statements with expanded collection parameters, keyed by expansion, if enabled */
+	private volatile ConcurrentMap<Expansion, String> expandedSqlCache;
+
 
 	/**
 	 * Create a new instance of the {@link ParsedSql} class.
@@ -134,6 +150,85 @@ public class ParsedSql {
 	}
 
 
+	/**
+	 * Return the fragments of the original SQL statement between the parameters:
+	 * one more than the number of parameters, with the first fragment preceding
+	 * the first parameter and the last fragment following the last parameter.
+	 */
+	String[] getSqlFragments() {
+		String[] fragments = this.sqlFragments;
+		if (fragments == null) {
+			int paramCount = this.parameterIndexes.size();
+			fragments = new String[paramCount + 1];
+			int lastIndex = 0;
+			for (int i = 0; i < paramCount; i++) {
+				int[] indexes = this.parameterIndexes.get(i);
+				fragments[i] = this.originalSql.substring(lastIndex, indexes[0]);
+				lastIndex = indexes[1];
+			}
+			fragments[paramCount] = this.originalSql.substring(lastIndex);
+			this.sqlFragments = fragments;
+		}
+		return fragments;
+	}
+
+	/**
+	 * Return the SQL statement with each parameter replaced by a single
+	 * JDBC-style placeholder, i.e. without any collection expansion.
+	 */
+	String getSubstitutedSql() {
+		String sql = this.substitutedSql;
+		if (sql == null) {
+			String[] fragments = getSqlFragments();
+			StringBuilder sb = new StringBuilder(this.originalSql.length());
+			for (int i = 0; i < fragments.length - 1; i++) {
+				sb.append(fragments[i]).append('?');
+			}
+			sb.append(fragments[fragments.length - 1]);
+			sql = sb.toString();
+			this.substitutedSql = sql;
+		}
+		return sql;
+	}
+
+	/**
+	 * Enable caching of SQL statements with expanded collection parameters,
+	 * for a parsed statement which is going to be reused itself.
+	 */
+	void enableExpandedSqlCache() {
+		if (this.expandedSqlCache == null) {
+			this.expandedSqlCache = new ConcurrentHashMap<Expansion, String>(4);
+		}
+	}
+
+	/**
+	 * Return a previously cached SQL statement for the given expansion.
+	 * @param elementCounts the number of placeholders per parameter,
+	 * with -1 indicating a plain (non-collection) parameter
+	 * @return the cached SQL statement, or {@code null} if none
+	 */
+	String getExpandedSql(int[] elementCounts) {
+		ConcurrentMap<Expansion, String> cache = this.expandedSqlCache;
+		return (cache != null ? cache.get(new Expansion(elementCounts)) : null);
+	}
+
+	/**
+	 * Cache the given SQL statement for the given expansion, unless caching
+	 * is not enabled or the maximum number of expansions per statement has
+	 * been reached.
+	 * @param elementCounts the number of placeholders per parameter,
+	 * with -1 indicating a plain (non-collection) parameter
+	 * @param expandedSql the SQL statement for the given expansion
+	 * @see #enableExpandedSqlCache()
+	 */
+	void cacheExpandedSql(int[] elementCounts, String expandedSql) {
+		ConcurrentMap<Expansion, String> cache = this.expandedSqlCache;
+		if (cache != null && cache.size() < MAX_EXPANSIONS_TO_CACHE) {
+			cache.putIfAbsent(new Expansion(elementCounts), expandedSql);
+		}
+	}
+
+
 	/**
 	 * Exposes the original SQL String.
 	 */
@@ -142,4 +237,28 @@ public class ParsedSql {
 		return this.originalSql;
 	}
 
+
+	/**
+	 * Cache key for a specific expansion of collection parameters.
+	 */
+	private static class Expansion {
+
+		private final int[] elementCounts;
+
+		public Expansion(int[] elementCounts) {
+			this.elementCounts = elementCounts;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return (this == other || (other instanceof Expansion &&
+					Arrays.equals(this.elementCounts, ((Expansion) other).elementCounts)));
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(this.elementCounts);
+		}
+	}
+
 }
@@ -0,0 +1,693 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.support;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.ParameterDisposer;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+/**
+ * Helper for loading large numbers of rows through JDBC batch inserts,
+ * on top of a {@link JdbcOperations} instance such as a
+ * {@link org.springframework.jdbc.core.JdbcTemplate}.
+ *
+ * <p>Rows are sent in chunks of a configurable {@link #setChunkSize "chunkSize"},
+ * with one JDBC batch per chunk. For databases which process multi-row inserts
+ * more efficiently than JDBC batches of single-row inserts (e.g. MySQL or
+ * PostgreSQL), the insert statement can be rewritten to a multi-row
+ * {@code VALUES} clause through the {@link #setRowsPerStatement "rowsPerStatement"}
+ * property. Parameter values are still set per row: a {@link RowParameterSetter}
+ * receives the offset of the row's parameters within the statement, whereas the
+ * indexes used by a {@link ParameterizedPreparedStatementSetter} get shifted
+ * transparently, at the expense of a reflective call per parameter.
+ *
+ * <p>If a {@link #setTaskExecutor TaskExecutor} has been specified, chunks will be
+ * executed in parallel - each on its own Connection - unless a transaction is active
+ * for the calling thread, in which case all chunks are executed within the
+ * transaction in the calling thread. Note that a parallel load is not atomic:
+ * a failure in one chunk does not roll back the other chunks.
+ *
+ * <pre class="code">
+ * JdbcBatchLoader loader = new JdbcBatchLoader(jdbcTemplate);
+ * loader.setChunkSize(5000);
+ * loader.setRowsPerStatement(50);
+ * loader.setTaskExecutor(taskExecutor);
+ * loader.load("INSERT INTO customer (id, name) VALUES (?, ?)", customers,
+ *     new JdbcBatchLoader.RowParameterSetter&lt;Customer&gt;() {
+ *       public void setValues(PreparedStatement ps, int offset, Customer customer) throws SQLException {
+ *         ps.setLong(offset + 1, customer.getId());
+ *         ps.setString(offset + 2, customer.getName());
+ *       }
+ *     });</pre>
+ *
+ * @author agent
+ * @since 4.2.10
+ * @see org.springframework.jdbc.core.JdbcTemplate#batchUpdate(String, Collection, int, ParameterizedPreparedStatementSetter)
+ */
+public class JdbcBatchLoader {
+
+	/** Default number of rows per chunk: 1000 */
+	public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private final JdbcOperations jdbcOperations;
+
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	private int rowsPerStatement = 1;
+
+	private TaskExecutor taskExecutor;
+
+
+	/**
+	 * Create a new JdbcBatchLoader for the given JdbcOperations.
+	 * @param jdbcOperations the JdbcTemplate to execute the statements with
+	 */
+	public JdbcBatchLoader(JdbcOperations jdbcOperations) {
+		Assert.notNull(jdbcOperations, "JdbcOperations must not be null");
+		this.jdbcOperations = jdbcOperations;
+	}
+
+
+	/**
+	 * Set the number of rows to send to the database in one JDBC batch.
+	 * Default is 1000.
+	 */
+	public void setChunkSize(int chunkSize) {
+		Assert.isTrue(chunkSize > 0, "'chunkSize' must be larger than 0");
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Return the number of rows to send to the database in one JDBC batch.
+	 */
+	public int getChunkSize() {
+		return this.chunkSize;
+	}
+
+	/**
+	 * Set the number of rows to insert per statement, rewriting an
+	 * {@code INSERT ... VALUES (...)} statement to a multi-row
+	 * {@code INSERT ... VALUES (...), (...), ...} statement.
+	 * <p>Default is 1, i.e. no rewriting. Only set this to a higher value for
+	 * databases supporting the multi-row syntax, and keep it below the database's
+	 * limit for the number of parameters per statement.
+	 * <p>Statements with a clause after the {@code VALUES} tuple, e.g.
+	 * {@code ON DUPLICATE KEY UPDATE}, are not rewritten but executed as
+	 * regular batches of single-row statements.
+	 */
+	public void setRowsPerStatement(int rowsPerStatement) {
+		Assert.isTrue(rowsPerStatement > 0, "'rowsPerStatement' must be larger than 0");
+		this.rowsPerStatement = rowsPerStatement;
+	}
+
+	/**
+	 * Return the number of rows to insert per statement.
+	 */
+	public int getRowsPerStatement() {
+		return this.rowsPerStatement;
+	}
+
+	/**
+	 * Set the TaskExecutor to execute chunks in parallel with, each chunk
+	 * on its own Connection, when not running within a transaction.
+	 * <p>Default is none, executing all chunks in the calling thread.
+	 * The degree of parallelism is determined by the executor; make sure
+	 * that the connection pool is able to serve the corresponding number
+	 * of concurrent Connections.
+	 */
+	public void setTaskExecutor(TaskExecutor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Return the TaskExecutor to execute chunks in parallel with, if any.
+	 */
+	public TaskExecutor getTaskExecutor() {
+		return this.taskExecutor;
+	}
+
+
+	/**
+	 * Load the given rows, each given as an array of arguments to bind.
+	 * @param sql the insert statement to execute
+	 * @param batchArgs the argument arrays, one per row
+	 * @return the update counts per chunk: an array of update counts per statement
+	 * (i.e. per row, or per multi-row statement when using "rowsPerStatement")
+	 * @see org.springframework.jdbc.core.ArgumentPreparedStatementSetter
+	 */
+	public int[][] load(String sql, Collection<Object[]> batchArgs) {
+		return load(sql, batchArgs, new RowParameterSetter<Object[]>() {
+			@Override
+			public void setValues(PreparedStatement ps, int offset, Object[] args) throws SQLException {
+				for (int i = 0; i < args.length; i++) {
+					Object arg = args[i];
+					if (arg instanceof SqlParameterValue) {
+						SqlParameterValue paramValue = (SqlParameterValue) arg;
+						StatementCreatorUtils.setParameterValue(ps, offset + i + 1, paramValue, paramValue.getValue());
+					}
+					else {
+						StatementCreatorUtils.setParameterValue(ps, offset + i + 1, SqlTypeValue.TYPE_UNKNOWN, arg);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Load the given rows, setting the parameter values for each row
+	 * through the given ParameterizedPreparedStatementSetter.
+	 * <p>For multi-row statements, the parameter indexes of all but the first
+	 * row in each statement get shifted through a proxy for the PreparedStatement.
+	 * Consider a {@link RowParameterSetter} for avoiding that overhead.
+	 * @param sql the insert statement to execute
+	 * @param rows the row objects
+	 * @param pss the setter for the parameter values of each row, always setting
+	 * the parameters starting with index 1 (also for multi-row statements)
+	 * @return the update counts per chunk: an array of update counts per statement
+	 * (i.e. per row, or per multi-row statement when using "rowsPerStatement")
+	 * @see #load(String, Collection, RowParameterSetter)
+	 */
+	public <T> int[][] load(String sql, Collection<T> rows, ParameterizedPreparedStatementSetter<T> pss) {
+		Assert.notNull(pss, "ParameterizedPreparedStatementSetter must not be null");
+		return doLoad(sql, rows, new RowSetterAdapter<T>(pss));
+	}
+
+	/**
+	 * Load the given rows, setting the parameter values for each row
+	 * through the given RowParameterSetter.
+	 * @param sql the insert statement to execute
+	 * @param rows the row objects
+	 * @param rowSetter the setter for the parameter values of each row,
+	 * given the offset of the row's parameters within the statement
+	 * @return the update counts per chunk: an array of update counts per statement
+	 * (i.e. per row, or per multi-row statement when using "rowsPerStatement")
+	 */
+	public <T> int[][] load(String sql, Collection<T> rows, RowParameterSetter<T> rowSetter) {
+		Assert.notNull(rowSetter, "RowParameterSetter must not be null");
+		return doLoad(sql, rows, new RowSetterAdapter<T>(rowSetter));
+	}
+
+	private <T> int[][] doLoad(String sql, Collection<T> rows, RowSetterAdapter<T> pss) {
+		Assert.notNull(sql, "SQL must not be null");
+		Assert.notNull(rows, "Rows must not be null");
+		if (rows.isEmpty()) {
+			return new int[0][];
+		}
+
+		MultiRowInsert multiRowInsert = null;
+		if (this.rowsPerStatement > 1) {
+			multiRowInsert = MultiRowInsert.parse(sql);
+			if (multiRowInsert == null && logger.isDebugEnabled()) {
+				logger.debug("Not rewriting statement with clause after VALUES tuple to multi-row insert: " + sql);
+			}
+		}
+		boolean parallel = (this.taskExecutor != null &&
+				!TransactionSynchronizationManager.isActualTransactionActive());
+		if (multiRowInsert == null && !parallel) {
+			return this.jdbcOperations.batchUpdate(sql, rows, this.chunkSize, pss);
+		}
+
+		List<T> rowList = (rows instanceof List ? (List<T>) rows : new ArrayList<T>(rows));
+		int chunkCount = (rowList.size() + this.chunkSize - 1) / this.chunkSize;
+		if (logger.isDebugEnabled()) {
+			logger.debug("Loading " + rowList.size() + " rows with [" + sql + "] in " + chunkCount + " chunks" +
+					(parallel ? " in parallel" : ""));
+		}
+
+		List<FutureTask<int[]>> futures = new ArrayList<FutureTask<int[]>>(chunkCount);
+		int[][] result = new int[chunkCount][];
+		for (int i = 0; i < chunkCount; i++) {
+			List<T> chunk = rowList.subList(i * this.chunkSize, Math.min((i + 1) * this.chunkSize, rowList.size()));
+			if (parallel) {
+				FutureTask<int[]> future = new FutureTask<int[]>(new ChunkLoader<T>(sql, multiRowInsert, chunk, pss));
+				try {
+					this.taskExecutor.execute(future);
+				}
+				catch (RuntimeException ex) {
+					// Do not leave chunks running on their Connections behind the caller's back
+					awaitChunks(futures);
+					throw ex;
+				}
+				futures.add(future);
+			}
+			else {
+				result[i] = loadChunk(sql, multiRowInsert, chunk, pss);
+			}
+		}
+
+		if (parallel) {
+			RuntimeException failure = null;
+			for (int i = 0; i < chunkCount; i++) {
+				try {
+					result[i] = futures.get(i).get();
+				}
+				catch (ExecutionException ex) {
+					if (failure == null) {
+						failure = asRuntimeException(ex.getCause());
+					}
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					for (FutureTask<int[]> future : futures) {
+						future.cancel(true);
+					}
+					throw new IllegalStateException("Interrupted while waiting for batch load to complete", ex);
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Load the given chunk of rows, as one JDBC batch.
+	 */
+	private <T> int[] loadChunk(String sql, MultiRowInsert multiRowInsert, List<T> chunk, RowSetterAdapter<T> pss) {
+
+		if (multiRowInsert == null) {
+			int[][] counts = this.jdbcOperations.batchUpdate(sql, chunk, chunk.size(), pss);
+			return (counts.length > 0 ? counts[0] : new int[0]);
+		}
+
+		int fullStatements = chunk.size() / this.rowsPerStatement;
+		int remainingRows = chunk.size() % this.rowsPerStatement;
+		int[] counts = new int[0];
+		if (fullStatements > 0) {
+			counts = this.jdbcOperations.execute(multiRowInsert.getSql(this.rowsPerStatement),
+					new MultiRowInsertCallback<T>(multiRowInsert, chunk.subList(0, fullStatements * this.rowsPerStatement),
+							this.rowsPerStatement, pss));
+		}
+		if (remainingRows > 0) {
+			int[] remainingCounts = this.jdbcOperations.execute(multiRowInsert.getSql(remainingRows),
+					new MultiRowInsertCallback<T>(multiRowInsert, chunk.subList(chunk.size() - remainingRows, chunk.size()),
+							remainingRows, pss));
+			counts = Arrays.copyOf(counts, counts.length + remainingCounts.length);
+			System.arraycopy(remainingCounts, 0, counts, counts.length - remainingCounts.length, remainingCounts.length);
+		}
+		return counts;
+	}
+
+	/**
+	 * Wait for the given chunks to complete, ignoring their outcome.
+	 */
+	private void awaitChunks(List<FutureTask<int[]>> futures) {
+		for (FutureTask<int[]> future : futures) {
+			try {
+				future.get();
+			}
+			catch (ExecutionException ex) {
+				logger.debug("Batch load chunk failed after submission of further chunks failed", ex.getCause());
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				for (FutureTask<int[]> futureToCancel : futures) {
+					futureToCancel.cancel(true);
+				}
+				return;
+			}
+		}
+	}
+
+	private static RuntimeException asRuntimeException(Throwable ex) {
+		if (ex instanceof RuntimeException) {
+			return (RuntimeException) ex;
+		}
+		if (ex instanceof Error) {
+			throw (Error) ex;
+		}
+		return new IllegalStateException("Unexpected exception during batch load", ex);
+	}
+
+
+	/**
+	 * Callable for loading a single chunk in a separate thread.
+	 */
+	private class ChunkLoader<T> implements Callable<int[]> {
+
+		private final String sql;
+
+		private final MultiRowInsert multiRowInsert;
+
+		private final List<T> chunk;
+
+		private final RowSetterAdapter<T> pss;
+
+		public ChunkLoader(String sql, MultiRowInsert multiRowInsert, List<T> chunk, RowSetterAdapter<T> pss) {
+
+			this.sql = sql;
+			this.multiRowInsert = multiRowInsert;
+			this.chunk = chunk;
+			this.pss = pss;
+		}
+
+		@Override
+		public int[] call() {
+			return loadChunk(this.sql, this.multiRowInsert, this.chunk, this.pss);
+		}
+	}
+
+
+	/**
+	 * Parsed representation of an insert statement, allowing for
+	 * rewriting it to a multi-row insert statement.
+	 */
+	private static class MultiRowInsert {
+
+		private final String prefix;
+
+		private final String valuesTuple;
+
+		private final int parametersPerRow;
+
+		private MultiRowInsert(String prefix, String valuesTuple, int parametersPerRow) {
+			this.prefix = prefix;
+			this.valuesTuple = valuesTuple;
+			this.parametersPerRow = parametersPerRow;
+		}
+
+		/**
+		 * Parse the given statement, skipping literals and comments: the first
+		 * {@code VALUES} keyword needs to be followed by a parenthesized tuple.
+		 * @return the parsed statement, or {@code null} if the statement has
+		 * a clause after the tuple and therefore cannot be rewritten
+		 * @throws InvalidDataAccessApiUsageException if the statement is not
+		 * of the form {@code INSERT ... VALUES (...)}
+		 */
+		public static MultiRowInsert parse(String sql) {
+			String trimmed = sql.trim();
+			if (!trimmed.regionMatches(true, 0, "insert", 0, 6) ||
+					(trimmed.length() > 6 && !Character.isWhitespace(trimmed.charAt(6)))) {
+				throw notAnInsertValuesStatement(sql);
+			}
+			int valuesIndex = findValuesKeyword(sql);
+			int openIndex = (valuesIndex != -1 ? valuesIndex + 6 : sql.length());
+			while (openIndex < sql.length() && Character.isWhitespace(sql.charAt(openIndex))) {
+				openIndex++;
+			}
+			if (openIndex == sql.length() || sql.charAt(openIndex) != '(') {
+				throw notAnInsertValuesStatement(sql);
+			}
+			int depth = 0;
+			int parameterCount = 0;
+			int i = openIndex;
+			while (i < sql.length()) {
+				int skipTo = skipCommentOrLiteral(sql, i);
+				if (skipTo > i) {
+					i = skipTo;
+					continue;
+				}
+				char c = sql.charAt(i);
+				if (c == '(') {
+					depth++;
+				}
+				else if (c == ')' && --depth == 0) {
+					break;
+				}
+				else if (c == '?') {
+					parameterCount++;
+				}
+				i++;
+			}
+			if (depth != 0) {
+				throw notAnInsertValuesStatement(sql);
+			}
+			if (sql.substring(i + 1).trim().length() > 0) {
+				return null;
+			}
+			return new MultiRowInsert(sql.substring(0, openIndex), sql.substring(openIndex, i + 1), parameterCount);
+		}
+
+		private static int findValuesKeyword(String sql) {
+			int i = 0;
+			while (i < sql.length()) {
+				int skipTo = skipCommentOrLiteral(sql, i);
+				if (skipTo > i) {
+					i = skipTo;
+					continue;
+				}
+				if (sql.regionMatches(true, i, "values", 0, 6) &&
+						(i == 0 || !Character.isJavaIdentifierPart(sql.charAt(i - 1))) &&
+						(i + 6 == sql.length() || !Character.isJavaIdentifierPart(sql.charAt(i + 6)))) {
+					return i;
+				}
+				i++;
+			}
+			return -1;
+		}
+
+		/**
+		 * Return the position after the literal or comment starting at the given position,
+		 * or the given position itself if there is no literal or comment.
+		 */
+		private static int skipCommentOrLiteral(String sql, int position) {
+			char c = sql.charAt(position);
+			if (c == '\'' || c == '"') {
+				int end = sql.indexOf(c, position + 1);
+				return (end != -1 ? end + 1 : sql.length());
+			}
+			if (sql.startsWith("--", position)) {
+				int end = sql.indexOf('\n', position);
+				return (end != -1 ? end + 1 : sql.length());
+			}
+			if (sql.startsWith("/*", position)) {
+				int end = sql.indexOf("*/", position + 2);
+				return (end != -1 ? end + 2 : sql.length());
+			}
+			return position;
+		}
+
+		private static InvalidDataAccessApiUsageException notAnInsertValuesStatement(String sql) {
+			return new InvalidDataAccessApiUsageException(
+					"Multi-row rewriting requires a statement of the form INSERT ... VALUES (...): " + sql);
+		}
+
+		public String getSql(int rows) {
+			StringBuilder sb = new StringBuilder(this.prefix.length() + rows * (this.valuesTuple.length() + 2));
+			sb.append(this.prefix);
+			for (int i = 0; i < rows; i++) {
+				if (i > 0) {
+					sb.append(", ");
+				}
+				sb.append(this.valuesTuple);
+			}
+			return sb.toString();
+		}
+
+		public int getParametersPerRow() {
+			return this.parametersPerRow;
+		}
+	}
+
+
+	/**
+	 * Callback for executing a multi-row insert statement as a JDBC batch.
+	 */
+	private class MultiRowInsertCallback<T> implements PreparedStatementCallback<int[]> {
+
+		private final MultiRowInsert multiRowInsert;
+
+		private final List<T> rows;
+
+		private final int rowsPerStatement;
+
+		private final RowSetterAdapter<T> pss;
+
+		public MultiRowInsertCallback(MultiRowInsert multiRowInsert, List<T> rows, int rowsPerStatement,
+				RowSetterAdapter<T> pss) {
+
+			this.multiRowInsert = multiRowInsert;
+			this.rows = rows;
+			this.rowsPerStatement = rowsPerStatement;
+			this.pss = pss;
+		}
+
+		@Override
+		public int[] doInPreparedStatement(PreparedStatement ps) throws SQLException {
+			try {
+				boolean batchSupported = JdbcUtils.supportsBatchUpdates(ps.getConnection());
+				int parametersPerRow = this.multiRowInsert.getParametersPerRow();
+				PreparedStatement[] rowStatements = this.pss.getRowStatements(ps, this.rowsPerStatement, parametersPerRow);
+				int statementCount = this.rows.size() / this.rowsPerStatement;
+				int[] counts = new int[statementCount];
+				for (int i = 0; i < statementCount; i++) {
+					for (int j = 0; j < this.rowsPerStatement; j++) {
+						T row = this.rows.get(i * this.rowsPerStatement + j);
+						this.pss.setValues(rowStatements[j], j * parametersPerRow, row);
+					}
+					if (batchSupported) {
+						ps.addBatch();
+					}
+					else {
+						counts[i] = ps.executeUpdate();
+					}
+				}
+				if (batchSupported) {
+					counts = ps.executeBatch();
+				}
+				return counts;
+			}
+			finally {
+				this.pss.cleanupParameters();
+			}
+		}
+	}
+
+
+	/**
+	 * Adapter exposing either kind of row setter as a ParameterizedPreparedStatementSetter
+	 * for regular batches, and as a RowParameterSetter for multi-row statements.
+	 */
+	private static class RowSetterAdapter<T> implements ParameterizedPreparedStatementSetter<T>, ParameterDisposer {
+
+		private final ParameterizedPreparedStatementSetter<T> pss;
+
+		private final RowParameterSetter<T> rowSetter;
+
+		public RowSetterAdapter(ParameterizedPreparedStatementSetter<T> pss) {
+			this.pss = pss;
+			this.rowSetter = null;
+		}
+
+		public RowSetterAdapter(RowParameterSetter<T> rowSetter) {
+			this.pss = null;
+			this.rowSetter = rowSetter;
+		}
+
+		/**
+		 * Return the statement to set the parameters of each row of a multi-row statement on:
+		 * the given statement itself for a RowParameterSetter, otherwise a proxy per row
+		 * (except for the first row) which shifts the parameter indexes accordingly.
+		 */
+		public PreparedStatement[] getRowStatements(PreparedStatement ps, int rowsPerStatement, int parametersPerRow) {
+			PreparedStatement[] rowStatements = new PreparedStatement[rowsPerStatement];
+			for (int i = 0; i < rowsPerStatement; i++) {
+				rowStatements[i] = (this.pss == null || i == 0 ? ps :
+						(PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+								new Class<?>[] {PreparedStatement.class},
+								new ParameterIndexOffsetInvocationHandler(ps, i * parametersPerRow)));
+			}
+			return rowStatements;
+		}
+
+		@Override
+		public void setValues(PreparedStatement ps, T row) throws SQLException {
+			setValues(ps, 0, row);
+		}
+
+		public void setValues(PreparedStatement ps, int offset, T row) throws SQLException {
+			if (this.rowSetter != null) {
+				this.rowSetter.setValues(ps, offset, row);
+			}
+			else {
+				this.pss.setValues(ps, row);
+			}
+		}
+
+		@Override
+		public void cleanupParameters() {
+			Object setter = (this.rowSetter != null ? this.rowSetter : this.pss);
+			if (setter instanceof ParameterDisposer) {
+				((ParameterDisposer) setter).cleanupParameters();
+			}
+		}
+	}
+
+
+	/**
+	 * Invocation handler that shifts the parameter index of all setter
+	 * methods on a PreparedStatement by a given offset.
+	 */
+	private static class ParameterIndexOffsetInvocationHandler implements InvocationHandler {
+
+		private final PreparedStatement target;
+
+		private final int offset;
+
+		public ParameterIndexOffsetInvocationHandler(PreparedStatement target, int offset) {
+			this.target = target;
+			this.offset = offset;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			Class<?>[] paramTypes = method.getParameterTypes();
+			if (method.getName().startsWith("set") && paramTypes.length >= 2 && paramTypes[0] == int.class) {
+				args[0] = (Integer) args[0] + this.offset;
+			}
+			try {
+				return method.invoke(this.target, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+		}
+	}
+
+
+	/**
+	 * Callback for setting the parameter values of a single row,
+	 * given the offset of the row's parameters within the statement.
+	 * For a multi-row statement, the first row's parameters start at
+	 * index 1, the second row's parameters right after those, etc.
+	 * @param <T> the row type
+	 */
+	public interface RowParameterSetter<T> {
+
+		/**
+		 * Set the parameter values for the given row.
+		 * @param ps the PreparedStatement to set the values on
+		 * @param offset the number of parameters preceding the row's parameters,
+		 * to be added to the row-relative parameter index
+		 * (i.e. {@code ps.setXxx(offset + 1, ...)} for the row's first parameter)
+		 * @param row the row object
+		 * @throws SQLException if an SQLException is encountered
+		 */
+		void setValues(PreparedStatement ps, int offset, T row) throws SQLException;
+	}
+
+}
@@ -0,0 +1,441 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.support;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.jdbc.core.JdbcExecutionListener;
+import org.springframework.util.LatencyHistogram;
+
+/**
+ * {@link JdbcExecutionListener} implementation that collects execution statistics:
+ * Connection acquisition time, plus execution time histograms and row counts per
+ * SQL statement, and logs statements exceeding a slow query threshold.
+ *
+ * <p>Statements are by default grouped by a normalized fingerprint of their SQL,
+ * with literals replaced by placeholders and expanded IN lists collapsed, so that
+ * statements only differing in their values share the same statistics. The number
+ * of distinct statements tracked is limited; further statements are aggregated under
+ * {@link #OTHER_STATEMENTS}.
+ *
+ * <p>All statistics are exposed as bean properties in milliseconds, which makes
+ * an instance suitable for registration with an
+ * {@link org.springframework.jmx.export.MBeanExporter}.
+ *
+ * @author agent
+ * @since 4.2.10
+ * @see org.springframework.jdbc.core.JdbcTemplate#setExecutionListener
+ */
+public class JdbcExecutionMetrics implements JdbcExecutionListener {
+
+	/**
+	 * Key for the statistics of statements beyond the
+	 * {@link #setMaxStatements maximum number of statements}.
+	 */
+	public static final String OTHER_STATEMENTS = "[other]";
+
+	/**
+	 * Key for the statistics of statements with unknown SQL.
+	 */
+	public static final String UNKNOWN_STATEMENTS = "[unknown]";
+
+	private static final Pattern PARAMETER_LIST_PATTERN = Pattern.compile("\\(\\?(?:\\s*,\\s*\\?)+\\)");
+
+	private static final Log logger = LogFactory.getLog(JdbcExecutionMetrics.class);
+
+
+	private boolean normalizeSql = true;
+
+	private int maxStatements = 500;
+
+	private int fingerprintCacheLimit = 1000;
+
+	private long slowQueryThreshold = -1;
+
+	private final LatencyHistogram connectionAcquisitionTime = new LatencyHistogram();
+
+	private final LatencyHistogram executionTime = new LatencyHistogram();
+
+	private final AtomicLong failedExecutionCount = new AtomicLong();
+
+	private final AtomicLong slowQueryCount = new AtomicLong();
+
+	private final ConcurrentMap<String, StatementStatistics> statementStatistics =
+			new ConcurrentHashMap<String, StatementStatistics>(64);
+
+	/** Cache of fingerprints per SQL string, see {@link #setFingerprintCacheLimit} */
+	private final ConcurrentMap<String, String> fingerprintCache = new ConcurrentHashMap<String, String>(64);
+
+
+	/**
+	 * Set whether to group statements by a normalized fingerprint of their SQL.
+	 * Default is "true".
+	 * <p>Switch this to "false" to track every distinct SQL string separately.
+	 * @see #fingerprint
+	 */
+	public void setNormalizeSql(boolean normalizeSql) {
+		this.normalizeSql = normalizeSql;
+	}
+
+	/**
+	 * Set the maximum number of distinct statements to track. Default is 500.
+	 * <p>Further statements are aggregated under {@link #OTHER_STATEMENTS}.
+	 */
+	public void setMaxStatements(int maxStatements) {
+		this.maxStatements = maxStatements;
+	}
+
+	/**
+	 * Set the maximum number of SQL strings to cache the normalized fingerprint for.
+	 * Default is 1000.
+	 * <p>Once the limit has been reached, the fingerprints of further SQL strings
+	 * get computed on every execution, which is typically the case for statements
+	 * with inlined literals that never repeat anyway. Set this to 0 to compute
+	 * the fingerprint on every execution.
+	 * @see #setNormalizeSql
+	 */
+	public void setFingerprintCacheLimit(int fingerprintCacheLimit) {
+		this.fingerprintCacheLimit = fingerprintCacheLimit;
+	}
+
+	/**
+	 * Set the execution time in milliseconds beyond which a statement gets logged
+	 * as a slow query, at warn level. Default is -1, not logging any statements.
+	 */
+	public void setSlowQueryThreshold(long slowQueryThreshold) {
+		this.slowQueryThreshold = slowQueryThreshold;
+	}
+
+	/**
+	 * Return the slow query threshold in milliseconds, or -1 if none.
+	 */
+	public long getSlowQueryThreshold() {
+		return this.slowQueryThreshold;
+	}
+
+
+	@Override
+	public void connectionObtained(long elapsedNanos) {
+		this.connectionAcquisitionTime.record(elapsedNanos);
+	}
+
+	@Override
+	public void statementExecuted(String sql, long elapsedNanos, long rowCount, int batchSize, boolean success) {
+		this.executionTime.record(elapsedNanos);
+		if (!success) {
+			this.failedExecutionCount.incrementAndGet();
+		}
+		obtainStatementStatistics(sql).record(elapsedNanos, rowCount, batchSize, success);
+		if (this.slowQueryThreshold >= 0 && elapsedNanos > TimeUnit.MILLISECONDS.toNanos(this.slowQueryThreshold)) {
+			this.slowQueryCount.incrementAndGet();
+			if (logger.isWarnEnabled()) {
+				logger.warn("Slow SQL statement (" + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms" +
+						(rowCount >= 0 ? ", " + rowCount + " rows" : "") + "): " + sql);
+			}
+		}
+	}
+
+	private StatementStatistics obtainStatementStatistics(String sql) {
+		String key = (sql != null ? getStatementKey(sql) : UNKNOWN_STATEMENTS);
+		StatementStatistics statistics = this.statementStatistics.get(key);
+		if (statistics == null) {
+			if (this.statementStatistics.size() >= this.maxStatements) {
+				key = OTHER_STATEMENTS;
+				statistics = this.statementStatistics.get(key);
+			}
+			if (statistics == null) {
+				statistics = new StatementStatistics();
+				StatementStatistics existing = this.statementStatistics.putIfAbsent(key, statistics);
+				if (existing != null) {
+					statistics = existing;
+				}
+			}
+		}
+		return statistics;
+	}
+
+	/**
+	 * Determine the key for the given SQL statement: its (cached) fingerprint
+	 * or the SQL statement itself, depending on the "normalizeSql" setting.
+	 */
+	private String getStatementKey(String sql) {
+		if (!this.normalizeSql) {
+			return sql;
+		}
+		String fingerprint = this.fingerprintCache.get(sql);
+		if (fingerprint == null) {
+			fingerprint = fingerprint(sql);
+			if (this.fingerprintCache.size() < this.fingerprintCacheLimit) {
+				this.fingerprintCache.put(sql, fingerprint);
+			}
+		}
+		return fingerprint;
+	}
+
+
+	/**
+	 * Return the histogram of Connection acquisition times, in nanoseconds.
+	 */
+	public LatencyHistogram getConnectionAcquisitionTimeHistogram() {
+		return this.connectionAcquisitionTime;
+	}
+
+	/**
+	 * Return the histogram of execution times across all statements, in nanoseconds.
+	 */
+	public LatencyHistogram getExecutionTimeHistogram() {
+		return this.executionTime;
+	}
+
+	/**
+	 * Return the statistics for the given SQL statement, if tracked.
+	 * @param sql the SQL statement (normalized if necessary)
+	 * @return the statistics, or {@code null} if none recorded
+	 */
+	public StatementStatistics getStatementStatistics(String sql) {
+		return this.statementStatistics.get(getStatementKey(sql));
+	}
+
+	/**
+	 * Return the mean Connection acquisition time in milliseconds.
+	 */
+	public double getConnectionAcquisitionTimeMean() {
+		return this.connectionAcquisitionTime.getMean(TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Return the 99th percentile of the Connection acquisition time in milliseconds.
+	 */
+	public double getConnectionAcquisitionTime99thPercentile() {
+		return this.connectionAcquisitionTime.getPercentile(99, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Return the maximum Connection acquisition time in milliseconds.
+	 */
+	public long getConnectionAcquisitionTimeMax() {
+		return this.connectionAcquisitionTime.getMax(TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Return the number of statements executed so far, including failed ones.
+	 */
+	public long getExecutionCount() {
+		return this.executionTime.getCount();
+	}
+
+	/**
+	 * Return the number of statements that failed with an exception.
+	 */
+	public long getFailedExecutionCount() {
+		return this.failedExecutionCount.get();
+	}
+
+	/**
+	 * Return the number of statements beyond the slow query threshold.
+	 */
+	public long getSlowQueryCount() {
+		return this.slowQueryCount.get();
+	}
+
+	/**
+	 * Return the mean execution time in milliseconds.
+	 */
+	public double getExecutionTimeMean() {
+		return this.executionTime.getMean(TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Return the 99th percentile of the execution time in milliseconds.
+	 */
+	public double getExecutionTime99thPercentile() {
+		return this.executionTime.getPercentile(99, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Return the maximum execution time in milliseconds.
+	 */
+	public long getExecutionTimeMax() {
+		return this.executionTime.getMax(TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Return a summary of the statistics per statement.
+	 */
+	public Map<String, String> getStatementSummaries() {
+		Map<String, String> result = new LinkedHashMap<String, String>(this.statementStatistics.size());
+		for (Map.Entry<String, StatementStatistics> entry : this.statementStatistics.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().toString());
+		}
+		return result;
+	}
+
+	/**
+	 * Reset all statistics.
+	 */
+	public void reset() {
+		this.connectionAcquisitionTime.reset();
+		this.executionTime.reset();
+		this.failedExecutionCount.set(0);
+		this.slowQueryCount.set(0);
+		this.statementStatistics.clear();
+		this.fingerprintCache.clear();
+	}
+
+
+	@Override
+	public String toString() {
+		return "JdbcExecutionMetrics: connection acquisition [" + this.connectionAcquisitionTime +
+				"], execution [" + this.executionTime + "], slow queries=" + getSlowQueryCount();
+	}
+
+
+	/**
+	 * Compute a normalized fingerprint of the given SQL statement: with whitespace
+	 * collapsed, numeric and string literals replaced by {@code ?} placeholders
+	 * and lists of placeholders (e.g. from expanded IN clauses) collapsed into a
+	 * single placeholder.
+	 * @param sql the SQL statement
+	 * @return the fingerprint
+	 */
+	public static String fingerprint(String sql) {
+		StringBuilder sb = new StringBuilder(sql.length());
+		int length = sql.length();
+		int i = 0;
+		while (i < length) {
+			char c = sql.charAt(i);
+			if (Character.isWhitespace(c)) {
+				while (i + 1 < length && Character.isWhitespace(sql.charAt(i + 1))) {
+					i++;
+				}
+				if (sb.length() > 0) {
+					sb.append(' ');
+				}
+			}
+			else if (c == '\'') {
+				// String literal, with '' as escaped quote
+				i++;
+				while (i < length && (sql.charAt(i) != '\'' || (i + 1 < length && sql.charAt(i + 1) == '\''))) {
+					i += (sql.charAt(i) == '\'' ? 2 : 1);
+				}
+				sb.append('?');
+			}
+			else if (Character.isDigit(c) && !isIdentifierPart(sb)) {
+				while (i + 1 < length && (Character.isDigit(sql.charAt(i + 1)) || sql.charAt(i + 1) == '.')) {
+					i++;
+				}
+				sb.append('?');
+			}
+			else {
+				sb.append(c);
+			}
+			i++;
+		}
+		int end = sb.length();
+		while (end > 0 && sb.charAt(end - 1) == ' ') {
+			end--;
+		}
+		sb.setLength(end);
+		return PARAMETER_LIST_PATTERN.matcher(sb).replaceAll("(?)");
+	}
+
+	private static boolean isIdentifierPart(StringBuilder sb) {
+		if (sb.length() == 0) {
+			return false;
+		}
+		char previous = sb.charAt(sb.length() - 1);
+		return (Character.isLetterOrDigit(previous) || previous == '_' || previous == '$');
+	}
+
+
+	/**
+	 * Execution statistics of a single statement.
+	 */
+	public static class StatementStatistics {
+
+		private final LatencyHistogram executionTime = new LatencyHistogram();
+
+		private final AtomicLong rowCount = new AtomicLong();
+
+		private final AtomicLong batchedStatementCount = new AtomicLong();
+
+		private final AtomicLong failedExecutionCount = new AtomicLong();
+
+		void record(long elapsedNanos, long rowCount, int batchSize, boolean success) {
+			this.executionTime.record(elapsedNanos);
+			if (rowCount > 0) {
+				this.rowCount.addAndGet(rowCount);
+			}
+			this.batchedStatementCount.addAndGet(batchSize);
+			if (!success) {
+				this.failedExecutionCount.incrementAndGet();
+			}
+		}
+
+		/**
+		 * Return the histogram of execution times, in nanoseconds.
+		 */
+		public LatencyHistogram getExecutionTimeHistogram() {
+			return this.executionTime;
+		}
+
+		/**
+		 * Return the number of executions, including failed ones.
+		 */
+		public long getExecutionCount() {
+			return this.executionTime.getCount();
+		}
+
+		/**
+		 * Return the total number of rows fetched or affected.
+		 */
+		public long getRowCount() {
+			return this.rowCount.get();
+		}
+
+		/**
+		 * Return the total number of statements executed,
+		 * counting each statement within a batch.
+		 */
+		public long getBatchedStatementCount() {
+			return this.batchedStatementCount.get();
+		}
+
+		/**
+		 * Return the number of executions that failed with an exception.
+		 */
+		public long getFailedExecutionCount() {
+			return this.failedExecutionCount.get();
+		}
+
+		@Override
+		public String toString() {
+			return this.executionTime + ", rows=" + getRowCount() + ", statements=" +
+					getBatchedStatementCount() + ", failed=" + getFailedExecutionCount();
+		}
+	}
+
+}
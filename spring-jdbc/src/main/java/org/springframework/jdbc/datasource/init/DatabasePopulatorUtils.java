@@ -35,6 +35,9 @@ public abstract class DatabasePopulatorUtils {
 
 	/**
 	 * Execute the given {@link DatabasePopulator} against the given {@link DataSource}.
+	 * <p>A {@link ResourceDatabasePopulator} with a
+	 * {@link ResourceDatabasePopulator#setTaskExecutor TaskExecutor} will
+	 * have its scripts executed in parallel, each on its own Connection.
 	 * @param populator the {@code DatabasePopulator} to execute
 	 * @param dataSource the {@code DataSource} to execute against
 	 * @throws DataAccessException if an error occurs, specifically a {@link ScriptException}
@@ -42,6 +45,10 @@ public abstract class DatabasePopulatorUtils {
 	public static void execute(DatabasePopulator populator, DataSource dataSource) throws DataAccessException {
 		Assert.notNull(populator, "DatabasePopulator must not be null");
 		Assert.notNull(dataSource, "DataSource must not be null");
+		if (populator instanceof ResourceDatabasePopulator &&
+				((ResourceDatabasePopulator) populator).executeInParallel(dataSource)) {
+			return;
+		}
 		try {
 			Connection connection = DataSourceUtils.getConnection(dataSource);
 			try {
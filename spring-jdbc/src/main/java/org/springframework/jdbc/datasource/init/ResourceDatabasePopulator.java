@@ -20,10 +20,15 @@ import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import javax.sql.DataSource;
 
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
@@ -68,6 +73,10 @@ public class ResourceDatabasePopulator implements DatabasePopulator {
 
 	private boolean ignoreFailedDrops = false;
 
+	private int insertBatchSize = 0;
+
+	private TaskExecutor taskExecutor;
+
 
 	/**
 	 * Construct a new {@code ResourceDatabasePopulator} with default settings.
@@ -225,6 +234,33 @@ public class ResourceDatabasePopulator implements DatabasePopulator {
 		this.ignoreFailedDrops = ignoreFailedDrops;
 	}
 
+	/**
+	 * Specify the maximum number of consecutive {@code INSERT} statements
+	 * to execute as a single JDBC batch, e.g. for seeding a database with
+	 * large data scripts.
+	 * <p>Default is 0, executing every statement individually. Batching does
+	 * not apply in case of {@link #setContinueOnError "continueOnError"}.
+	 * @since 4.2.10
+	 * @see ScriptUtils#executeSqlScript(Connection, EncodedResource, boolean, boolean, String, String, String, String, int)
+	 */
+	public void setInsertBatchSize(int insertBatchSize) {
+		this.insertBatchSize = insertBatchSize;
+	}
+
+	/**
+	 * Specify a TaskExecutor for executing the configured scripts in parallel,
+	 * each on its own Connection, when executed against a {@link DataSource}.
+	 * <p>Only set this if the scripts are independent of each other, since they
+	 * may run in any order. Scripts will still be executed one after the other
+	 * when populating a given Connection or when the DataSource participates
+	 * in a current transaction.
+	 * @since 4.2.10
+	 * @see #execute(DataSource)
+	 */
+	public void setTaskExecutor(TaskExecutor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
 
 	/**
 	 * {@inheritDoc}
@@ -234,16 +270,23 @@ public class ResourceDatabasePopulator implements DatabasePopulator {
 	public void populate(Connection connection) throws ScriptException {
 		Assert.notNull(connection, "Connection must not be null");
 		for (Resource script : this.scripts) {
-			EncodedResource encodedScript = new EncodedResource(script, this.sqlScriptEncoding);
-			ScriptUtils.executeSqlScript(connection, encodedScript, this.continueOnError, this.ignoreFailedDrops,
-					this.commentPrefix, this.separator, this.blockCommentStartDelimiter, this.blockCommentEndDelimiter);
+			executeScript(connection, script);
 		}
 	}
 
+	private void executeScript(Connection connection, Resource script) throws ScriptException {
+		EncodedResource encodedScript = new EncodedResource(script, this.sqlScriptEncoding);
+		ScriptUtils.executeSqlScript(connection, encodedScript, this.continueOnError, this.ignoreFailedDrops,
+				this.commentPrefix, this.separator, this.blockCommentStartDelimiter, this.blockCommentEndDelimiter,
+				this.insertBatchSize);
+	}
+
 	/**
 	 * Execute this {@code ResourceDatabasePopulator} against the given
 	 * {@link DataSource}.
-	 * <p>Delegates to {@link DatabasePopulatorUtils#execute}.
+	 * <p>Delegates to {@link DatabasePopulatorUtils#execute}, which executes
+	 * the scripts in parallel if a {@link #setTaskExecutor TaskExecutor}
+	 * has been specified.
 	 * @param dataSource the {@code DataSource} to execute against (never {@code null})
 	 * @throws ScriptException if an error occurs
 	 * @since 4.1
@@ -253,4 +296,60 @@ public class ResourceDatabasePopulator implements DatabasePopulator {
 		DatabasePopulatorUtils.execute(this, dataSource);
 	}
 
+	/**
+	 * Execute the configured scripts in parallel against the given DataSource,
+	 * if a TaskExecutor has been specified and the DataSource is not bound to
+	 * a current transaction.
+	 * @param dataSource the {@code DataSource} to execute against
+	 * @return {@code true} if the scripts have been executed,
+	 * {@code false} if they need to be executed on a single Connection instead
+	 * @throws ScriptException if an error occurs
+	 * @see DatabasePopulatorUtils#execute
+	 */
+	boolean executeInParallel(final DataSource dataSource) throws ScriptException {
+		if (this.taskExecutor == null || this.scripts.size() < 2 ||
+				TransactionSynchronizationManager.hasResource(dataSource)) {
+			return false;
+		}
+		List<FutureTask<Object>> futures = new ArrayList<FutureTask<Object>>(this.scripts.size());
+		for (final Resource script : this.scripts) {
+			FutureTask<Object> future = new FutureTask<Object>(new Runnable() {
+				@Override
+				public void run() {
+					Connection connection = DataSourceUtils.getConnection(dataSource);
+					try {
+						executeScript(connection, script);
+					}
+					finally {
+						DataSourceUtils.releaseConnection(connection, dataSource);
+					}
+				}
+			}, null);
+			this.taskExecutor.execute(future);
+			futures.add(future);
+		}
+		Throwable failure = null;
+		for (FutureTask<Object> future : futures) {
+			try {
+				future.get();
+			}
+			catch (ExecutionException ex) {
+				if (failure == null) {
+					failure = ex.getCause();
+				}
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new UncategorizedScriptException("Interrupted while waiting for database scripts", ex);
+			}
+		}
+		if (failure instanceof ScriptException) {
+			throw (ScriptException) failure;
+		}
+		if (failure != null) {
+			throw new UncategorizedScriptException("Failed to execute database script", failure);
+		}
+		return true;
+	}
+
 }
@@ -18,11 +18,12 @@ package org.springframework.jdbc.datasource.init;
 
 import java.io.IOException;
 import java.io.LineNumberReader;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
@@ -30,6 +31,7 @@ import org.apache.commons.logging.LogFactory;
 
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.EncodedResource;
+import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
@@ -174,79 +176,17 @@ public abstract class ScriptUtils {
 		Assert.hasText(blockCommentStartDelimiter, "blockCommentStartDelimiter must not be null or empty");
 		Assert.hasText(blockCommentEndDelimiter, "blockCommentEndDelimiter must not be null or empty");
 
-		StringBuilder sb = new StringBuilder();
-		boolean inSingleQuote = false;
-		boolean inDoubleQuote = false;
-		boolean inEscape = false;
-		char[] content = script.toCharArray();
-		for (int i = 0; i < script.length(); i++) {
-			char c = content[i];
-			if (inEscape) {
-				inEscape = false;
-				sb.append(c);
-				continue;
-			}
-			// MySQL style escapes
-			if (c == '\\') {
-				inEscape = true;
-				sb.append(c);
-				continue;
-			}
-			if (!inDoubleQuote && (c == '\'')) {
-				inSingleQuote = !inSingleQuote;
-			}
-			else if (!inSingleQuote && (c == '"')) {
-				inDoubleQuote = !inDoubleQuote;
-			}
-			if (!inSingleQuote && !inDoubleQuote) {
-				if (script.startsWith(separator, i)) {
-					// we've reached the end of the current statement
-					if (sb.length() > 0) {
-						statements.add(sb.toString());
-						sb = new StringBuilder();
-					}
-					i += separator.length() - 1;
-					continue;
-				}
-				else if (script.startsWith(commentPrefix, i)) {
-					// skip over any content from the start of the comment to the EOL
-					int indexOfNextNewline = script.indexOf("\n", i);
-					if (indexOfNextNewline > i) {
-						i = indexOfNextNewline;
-						continue;
-					}
-					else {
-						// if there's no EOL, we must be at the end
-						// of the script, so stop here.
-						break;
-					}
-				}
-				else if (script.startsWith(blockCommentStartDelimiter, i)) {
-					// skip over any block comments
-					int indexOfCommentEnd = script.indexOf(blockCommentEndDelimiter, i);
-					if (indexOfCommentEnd > i) {
-						i = indexOfCommentEnd + blockCommentEndDelimiter.length() - 1;
-						continue;
-					}
-					else {
-						throw new ScriptParseException(String.format("Missing block comment end delimiter [%s].",
-							blockCommentEndDelimiter), resource);
-					}
-				}
-				else if (c == ' ' || c == '\n' || c == '\t') {
-					// avoid multiple adjacent whitespace characters
-					if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') {
-						c = ' ';
-					}
-					else {
-						continue;
-					}
-				}
+		ScriptReader reader = new ScriptReader(script);
+		try {
+			String statement;
+			while ((statement = nextStatement(reader, resource, separator, commentPrefix,
+					blockCommentStartDelimiter, blockCommentEndDelimiter)) != null) {
+				statements.add(statement);
 			}
-			sb.append(c);
 		}
-		if (StringUtils.hasText(sb)) {
-			statements.add(sb.toString());
+		catch (IOException ex) {
+			// cannot happen for a script held in memory
+			throw new CannotReadScriptException(resource, ex);
 		}
 	}
 
@@ -439,83 +379,503 @@ public abstract class ScriptUtils {
 			boolean ignoreFailedDrops, String commentPrefix, String separator, String blockCommentStartDelimiter,
 			String blockCommentEndDelimiter) throws ScriptException {
 
+		executeSqlScript(connection, resource, continueOnError, ignoreFailedDrops, commentPrefix, separator,
+				blockCommentStartDelimiter, blockCommentEndDelimiter, 0);
+	}
+
+	/**
+	 * Execute the given SQL script, grouping consecutive {@code INSERT}
+	 * statements into JDBC batches of the given size.
+	 * <p>Statements are executed as they are parsed from the script, without
+	 * reading the entire script into memory first. Statement separators and
+	 * comments will be removed before executing individual statements.
+	 * <p>Batching only applies if {@code continueOnError} is {@code false} and
+	 * the JDBC driver supports batch updates; otherwise, each statement gets
+	 * executed individually.
+	 * <p><strong>Warning</strong>: this method does <em>not</em> release the
+	 * provided {@link Connection}.
+	 * @param connection the JDBC connection to use to execute the script; already
+	 * configured and ready to use
+	 * @param resource the resource (potentially associated with a specific encoding)
+	 * to load the SQL script from
+	 * @param continueOnError whether or not to continue without throwing an exception
+	 * in the event of an error
+	 * @param ignoreFailedDrops whether or not to continue in the event of specifically
+	 * an error on a {@code DROP} statement
+	 * @param commentPrefix the prefix that identifies single-line comments in the
+	 * SQL script &mdash; typically "--"
+	 * @param separator the script statement separator; defaults to
+	 * {@value #DEFAULT_STATEMENT_SEPARATOR} if not specified and falls back to
+	 * {@value #FALLBACK_STATEMENT_SEPARATOR} as a last resort; may be set to
+	 * {@value #EOF_STATEMENT_SEPARATOR} to signal that the script contains a
+	 * single statement without a separator
+	 * @param blockCommentStartDelimiter the <em>start</em> block comment delimiter; never
+	 * {@code null} or empty
+	 * @param blockCommentEndDelimiter the <em>end</em> block comment delimiter; never
+	 * {@code null} or empty
+	 * @param insertBatchSize the maximum number of consecutive {@code INSERT}
+	 * statements to execute as a batch, or 0 (or 1) for no batching
+	 * @throws ScriptException if an error occurred while executing the SQL script
+	 * @since 4.2.10
+	 * @see #executeSqlScript(Connection, EncodedResource, boolean, boolean, String, String, String, String)
+	 */
+	public static void executeSqlScript(Connection connection, EncodedResource resource, boolean continueOnError,
+			boolean ignoreFailedDrops, String commentPrefix, String separator, String blockCommentStartDelimiter,
+			String blockCommentEndDelimiter, int insertBatchSize) throws ScriptException {
+
 		try {
 			if (logger.isInfoEnabled()) {
 				logger.info("Executing SQL script from " + resource);
 			}
 			long startTime = System.currentTimeMillis();
 
-			String script;
+			Assert.hasText(commentPrefix, "commentPrefix must not be null or empty");
+			Assert.hasText(blockCommentStartDelimiter, "blockCommentStartDelimiter must not be null or empty");
+			Assert.hasText(blockCommentEndDelimiter, "blockCommentEndDelimiter must not be null or empty");
+			ScriptReader reader = openScript(resource, commentPrefix, separator);
 			try {
-				script = readScript(resource, commentPrefix, separator);
+				String separatorToUse = (separator != null ? separator : DEFAULT_STATEMENT_SEPARATOR);
+				if (!EOF_STATEMENT_SEPARATOR.equals(separatorToUse) && !containsSqlScriptDelimiters(reader, separatorToUse)) {
+					separatorToUse = FALLBACK_STATEMENT_SEPARATOR;
+				}
+				executeStatements(connection, reader, resource, continueOnError, ignoreFailedDrops, commentPrefix,
+						separatorToUse, blockCommentStartDelimiter, blockCommentEndDelimiter, insertBatchSize);
 			}
-			catch (IOException ex) {
-				throw new CannotReadScriptException(resource, ex);
+			finally {
+				reader.close();
 			}
 
-			if (separator == null) {
-				separator = DEFAULT_STATEMENT_SEPARATOR;
+			long elapsedTime = System.currentTimeMillis() - startTime;
+			if (logger.isInfoEnabled()) {
+				logger.info("Executed SQL script from " + resource + " in " + elapsedTime + " ms.");
 			}
-			if (!EOF_STATEMENT_SEPARATOR.equals(separator) && !containsSqlScriptDelimiters(script, separator)) {
-				separator = FALLBACK_STATEMENT_SEPARATOR;
+		}
+		catch (Exception ex) {
+			if (ex instanceof ScriptException) {
+				throw (ScriptException) ex;
 			}
+			throw new UncategorizedScriptException(
+				"Failed to execute database script from resource [" + resource + "]", ex);
+		}
+	}
 
-			List<String> statements = new LinkedList<String>();
-			splitSqlScript(resource, script, separator, commentPrefix, blockCommentStartDelimiter,
-					blockCommentEndDelimiter, statements);
+	private static void executeStatements(Connection connection, ScriptReader reader, EncodedResource resource,
+			boolean continueOnError, boolean ignoreFailedDrops, String commentPrefix, String separator,
+			String blockCommentStartDelimiter, String blockCommentEndDelimiter, int insertBatchSize)
+			throws SQLException, IOException {
 
-			int stmtNumber = 0;
-			Statement stmt = connection.createStatement();
+		boolean batching = (insertBatchSize > 1 && !continueOnError && JdbcUtils.supportsBatchUpdates(connection));
+		List<String> batch = (batching ? new ArrayList<String>(insertBatchSize) : null);
+		int stmtNumber = 0;
+		Statement stmt = connection.createStatement();
+		try {
+			String statement;
+			while ((statement = nextStatement(reader, resource, separator, commentPrefix,
+					blockCommentStartDelimiter, blockCommentEndDelimiter)) != null) {
+				stmtNumber++;
+				if (batching && StringUtils.startsWithIgnoreCase(statement.trim(), "insert")) {
+					stmt.addBatch(statement);
+					batch.add(statement);
+					if (batch.size() >= insertBatchSize) {
+						executeBatch(stmt, batch, stmtNumber - batch.size() + 1, resource);
+					}
+					continue;
+				}
+				if (batching && !batch.isEmpty()) {
+					executeBatch(stmt, batch, stmtNumber - batch.size(), resource);
+				}
+				executeStatement(stmt, statement, stmtNumber, resource, continueOnError, ignoreFailedDrops);
+			}
+			if (batching && !batch.isEmpty()) {
+				executeBatch(stmt, batch, stmtNumber - batch.size() + 1, resource);
+			}
+			Assert.isTrue(reader.hasText(), "script must not be null or empty");
+		}
+		finally {
 			try {
-				for (String statement : statements) {
-					stmtNumber++;
-					try {
-						stmt.execute(statement);
-						int rowsAffected = stmt.getUpdateCount();
-						if (logger.isDebugEnabled()) {
-							logger.debug(rowsAffected + " returned as update count for SQL: " + statement);
-							SQLWarning warningToLog = stmt.getWarnings();
-							while (warningToLog != null) {
-								logger.debug("SQLWarning ignored: SQL state '" + warningToLog.getSQLState() +
-										"', error code '" + warningToLog.getErrorCode() +
-										"', message [" + warningToLog.getMessage() + "]");
-								warningToLog = warningToLog.getNextWarning();
-							}
+				stmt.close();
+			}
+			catch (Throwable ex) {
+				logger.debug("Could not close JDBC Statement", ex);
+			}
+		}
+	}
+
+	private static ScriptReader openScript(EncodedResource resource, String commentPrefix, String separator) {
+		try {
+			return new ScriptReader(new LineNumberReader(resource.getReader()), commentPrefix, separator);
+		}
+		catch (IOException ex) {
+			throw new CannotReadScriptException(resource, ex);
+		}
+	}
+
+	private static void executeStatement(Statement stmt, String statement, int stmtNumber, EncodedResource resource,
+			boolean continueOnError, boolean ignoreFailedDrops) throws SQLException {
+
+		try {
+			stmt.execute(statement);
+			int rowsAffected = stmt.getUpdateCount();
+			if (logger.isDebugEnabled()) {
+				logger.debug(rowsAffected + " returned as update count for SQL: " + statement);
+				SQLWarning warningToLog = stmt.getWarnings();
+				while (warningToLog != null) {
+					logger.debug("SQLWarning ignored: SQL state '" + warningToLog.getSQLState() +
+							"', error code '" + warningToLog.getErrorCode() +
+							"', message [" + warningToLog.getMessage() + "]");
+					warningToLog = warningToLog.getNextWarning();
+				}
+			}
+		}
+		catch (SQLException ex) {
+			boolean dropStatement = StringUtils.startsWithIgnoreCase(statement.trim(), "drop");
+			if (continueOnError || (dropStatement && ignoreFailedDrops)) {
+				if (logger.isDebugEnabled()) {
+					logger.debug(ScriptStatementFailedException.buildErrorMessage(statement, stmtNumber, resource), ex);
+				}
+			}
+			else {
+				throw new ScriptStatementFailedException(statement, stmtNumber, resource, ex);
+			}
+		}
+	}
+
+	private static void executeBatch(Statement stmt, List<String> batch, int firstStmtNumber,
+			EncodedResource resource) throws SQLException {
+
+		try {
+			stmt.executeBatch();
+			if (logger.isDebugEnabled()) {
+				logger.debug("Executed batch of " + batch.size() + " statements, starting with SQL: " + batch.get(0));
+			}
+		}
+		catch (SQLException ex) {
+			int failedIndex = 0;
+			if (ex instanceof BatchUpdateException) {
+				int[] updateCounts = ((BatchUpdateException) ex).getUpdateCounts();
+				if (updateCounts != null) {
+					failedIndex = updateCounts.length;
+					for (int i = 0; i < updateCounts.length; i++) {
+						if (updateCounts[i] == Statement.EXECUTE_FAILED) {
+							failedIndex = i;
+							break;
 						}
 					}
-					catch (SQLException ex) {
-						boolean dropStatement = StringUtils.startsWithIgnoreCase(statement.trim(), "drop");
-						if (continueOnError || (dropStatement && ignoreFailedDrops)) {
-							if (logger.isDebugEnabled()) {
-								logger.debug(ScriptStatementFailedException.buildErrorMessage(statement, stmtNumber, resource), ex);
-							}
-						}
-						else {
-							throw new ScriptStatementFailedException(statement, stmtNumber, resource, ex);
-						}
+				}
+			}
+			failedIndex = Math.min(failedIndex, batch.size() - 1);
+			throw new ScriptStatementFailedException(batch.get(failedIndex), firstStmtNumber + failedIndex, resource, ex);
+		}
+		finally {
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Streaming variant of {@link #containsSqlScriptDelimiters(String, String)},
+	 * looking ahead without consuming any content: the script gets buffered
+	 * up to the first delimiter found, for subsequent parsing.
+	 */
+	private static boolean containsSqlScriptDelimiters(ScriptReader script, String delim) throws IOException {
+		boolean inLiteral = false;
+		for (int i = 0; script.hasMore(i); i++) {
+			if (script.charAt(i) == '\'') {
+				inLiteral = !inLiteral;
+			}
+			if (!inLiteral && script.startsWith(delim, i)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Parse the next statement from the given script, as used by
+	 * {@link #splitSqlScript(EncodedResource, String, String, String, String, String, List)}
+	 * as well as for executing a script while reading it.
+	 * @return the next statement, or {@code null} if the end of the script has been reached
+	 */
+	private static String nextStatement(ScriptReader script, EncodedResource resource, String separator,
+			String commentPrefix, String blockCommentStartDelimiter, String blockCommentEndDelimiter)
+			throws IOException {
+
+		StringBuilder sb = new StringBuilder();
+		boolean inSingleQuote = false;
+		boolean inDoubleQuote = false;
+		boolean inEscape = false;
+		while (script.hasMore()) {
+			char c = script.charAt(0);
+			if (inEscape) {
+				inEscape = false;
+				sb.append(c);
+				script.advance(1);
+				continue;
+			}
+			// MySQL style escapes
+			if (c == '\\') {
+				inEscape = true;
+				sb.append(c);
+				script.advance(1);
+				continue;
+			}
+			if (!inDoubleQuote && (c == '\'')) {
+				inSingleQuote = !inSingleQuote;
+			}
+			else if (!inSingleQuote && (c == '"')) {
+				inDoubleQuote = !inDoubleQuote;
+			}
+			if (!inSingleQuote && !inDoubleQuote) {
+				if (script.startsWith(separator)) {
+					// we've reached the end of the current statement
+					script.advance(separator.length());
+					if (sb.length() > 0) {
+						return sb.toString();
+					}
+					continue;
+				}
+				else if (script.startsWith(commentPrefix)) {
+					// skip over any content from the start of the comment to the EOL
+					int indexOfNextNewline = script.indexOf("\n");
+					if (indexOfNextNewline > 0) {
+						script.advance(indexOfNextNewline + 1);
+						continue;
+					}
+					else {
+						// if there's no EOL, we must be at the end
+						// of the script, so stop here.
+						script.advanceToEnd();
+						break;
+					}
+				}
+				else if (script.startsWith(blockCommentStartDelimiter)) {
+					// skip over any block comments
+					int indexOfCommentEnd = script.indexOf(blockCommentEndDelimiter);
+					if (indexOfCommentEnd > 0) {
+						script.advance(indexOfCommentEnd + blockCommentEndDelimiter.length());
+						continue;
+					}
+					else {
+						throw new ScriptParseException(String.format("Missing block comment end delimiter [%s].",
+							blockCommentEndDelimiter), resource);
+					}
+				}
+				else if (c == ' ' || c == '\n' || c == '\t') {
+					// avoid multiple adjacent whitespace characters
+					if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') {
+						c = ' ';
+					}
+					else {
+						script.advance(1);
+						continue;
 					}
 				}
 			}
-			finally {
-				try {
-					stmt.close();
+			sb.append(c);
+			script.advance(1);
+		}
+		return (StringUtils.hasText(sb) ? sb.toString() : null);
+	}
+
+
+	/**
+	 * Sliding window over the content of a script as returned from
+	 * {@link #readScript(LineNumberReader, String, String)}, reading lines
+	 * on demand and keeping only unprocessed content in memory.
+	 * Alternatively, a script which has been read already can be
+	 * processed as-is, without any line-based preprocessing.
+	 */
+	private static class ScriptReader {
+
+		private static final int COMPACTION_THRESHOLD = 8192;
+
+		private final LineNumberReader lineNumberReader;
+
+		private final String commentPrefix;
+
+		private final String separator;
+
+		private final String trimmedSeparator;
+
+		private final StringBuilder buffer = new StringBuilder();
+
+		private final StringBuilder tail = new StringBuilder();
+
+		private int position = 0;
+
+		private long contentLength = 0;
+
+		private boolean hasText = false;
+
+		private boolean endOfScript = false;
+
+		public ScriptReader(LineNumberReader lineNumberReader, String commentPrefix, String separator) {
+			this.lineNumberReader = lineNumberReader;
+			this.commentPrefix = commentPrefix;
+			this.separator = separator;
+			String trimmed = (separator != null ? separator.trim() : null);
+			this.trimmedSeparator = (trimmed != null && trimmed.length() < separator.length() ? trimmed : null);
+		}
+
+		public ScriptReader(String script) {
+			this.lineNumberReader = null;
+			this.commentPrefix = null;
+			this.separator = null;
+			this.trimmedSeparator = null;
+			this.buffer.append(script);
+			this.contentLength = script.length();
+			this.hasText = StringUtils.hasText(script);
+			this.endOfScript = true;
+		}
+
+		/**
+		 * Ensure that the given number of characters beyond the current position
+		 * are available in the buffer, unless the end of the script is reached.
+		 */
+		private boolean fill(int count) throws IOException {
+			while (this.buffer.length() - this.position < count) {
+				if (this.endOfScript) {
+					return false;
 				}
-				catch (Throwable ex) {
-					logger.debug("Could not close JDBC Statement", ex);
+				readLine();
+			}
+			return true;
+		}
+
+		private void readLine() throws IOException {
+			String line = this.lineNumberReader.readLine();
+			while (line != null && line.startsWith(this.commentPrefix)) {
+				line = this.lineNumberReader.readLine();
+			}
+			if (line == null) {
+				this.endOfScript = true;
+				if (this.trimmedSeparator != null && endsWithTrimmedSeparator()) {
+					// separator ends in whitespace and the script ends with the trimmed separator
+					append(this.separator.substring(this.trimmedSeparator.length()));
 				}
+				return;
+			}
+			if (this.contentLength > 0) {
+				append("\n");
+			}
+			append(line);
+			if (!this.hasText && StringUtils.hasText(line)) {
+				this.hasText = true;
 			}
+		}
 
-			long elapsedTime = System.currentTimeMillis() - startTime;
-			if (logger.isInfoEnabled()) {
-				logger.info("Executed SQL script from " + resource + " in " + elapsedTime + " ms.");
+		private void append(String content) {
+			this.buffer.append(content);
+			this.contentLength += content.length();
+			if (this.trimmedSeparator != null) {
+				this.tail.append(content);
+				int excess = this.tail.length() - this.trimmedSeparator.length();
+				if (excess > 0) {
+					this.tail.delete(0, excess);
+				}
 			}
 		}
-		catch (Exception ex) {
-			if (ex instanceof ScriptException) {
-				throw (ScriptException) ex;
+
+		private boolean endsWithTrimmedSeparator() {
+			// Same as scriptBuilder.lastIndexOf(trimmed) == scriptBuilder.length() - trimmed.length()
+			if (this.contentLength >= this.trimmedSeparator.length()) {
+				return this.tail.toString().equals(this.trimmedSeparator);
+			}
+			return (this.contentLength == this.trimmedSeparator.length() - 1);
+		}
+
+		/**
+		 * Return whether the script contained any text at all.
+		 */
+		public boolean hasText() {
+			return this.hasText;
+		}
+
+		public boolean hasMore() throws IOException {
+			return fill(1);
+		}
+
+		/**
+		 * Check whether there is content at the given offset from the current position.
+		 */
+		public boolean hasMore(int offset) throws IOException {
+			return fill(offset + 1);
+		}
+
+		public char charAt(int offset) {
+			return this.buffer.charAt(this.position + offset);
+		}
+
+		/**
+		 * Check whether the content at the current position starts with the given String.
+		 */
+		public boolean startsWith(String str) throws IOException {
+			return startsWith(str, 0);
+		}
+
+		/**
+		 * Check whether the content at the given offset from the current position
+		 * starts with the given String.
+		 */
+		public boolean startsWith(String str, int offset) throws IOException {
+			if (!fill(offset + str.length())) {
+				return false;
+			}
+			for (int i = 0; i < str.length(); i++) {
+				if (this.buffer.charAt(this.position + offset + i) != str.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Find the given String, starting at the current position.
+		 * @return the index of the String relative to the current position,
+		 * or -1 if not found before the end of the script
+		 */
+		public int indexOf(String str) throws IOException {
+			int searchFrom = this.position;
+			while (true) {
+				int index = this.buffer.indexOf(str, searchFrom);
+				if (index >= 0) {
+					return index - this.position;
+				}
+				if (this.endOfScript) {
+					return -1;
+				}
+				searchFrom = Math.max(this.position, this.buffer.length() - str.length() + 1);
+				readLine();
+			}
+		}
+
+		public void advance(int count) {
+			this.position += count;
+			if (this.position >= COMPACTION_THRESHOLD && this.position >= this.buffer.length() / 2 &&
+					this.lineNumberReader != null) {
+				// only worth it when reading on demand, never for a script held in memory;
+				// at most as many chars are moved as have been consumed since the last time
+				this.buffer.delete(0, this.position);
+				this.position = 0;
+			}
+		}
+
+		public void advanceToEnd() throws IOException {
+			while (!this.endOfScript) {
+				readLine();
+			}
+			advance(this.buffer.length() - this.position);
+		}
+
+		public void close() {
+			if (this.lineNumberReader == null) {
+				return;
+			}
+			try {
+				this.lineNumberReader.close();
+			}
+			catch (IOException ex) {
+				logger.debug("Could not close script reader", ex);
 			}
-			throw new UncategorizedScriptException(
-				"Failed to execute database script from resource [" + resource + "]", ex);
 		}
 	}
 
@@ -0,0 +1,483 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource.lookup;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+import org.springframework.util.LatencyHistogram;
+
+/**
+ * DataSource that routes {@link #getConnection()} calls for read-only transactions
+ * to one of several replica DataSources and all other calls to a primary DataSource.
+ * A transaction is considered read-only according to
+ * {@link TransactionSynchronizationManager#isCurrentTransactionReadOnly()}.
+ *
+ * <p>Replicas are selected according to the configured {@link BalancingStrategy}:
+ * by default, the replica with the fewest outstanding connections relative to its
+ * weight. For each target, the connection acquisition latency and the number of
+ * outstanding connections are tracked. A replica which failed to provide a
+ * connection {@link #setFailureThreshold "failureThreshold"} times in a row gets
+ * ejected for the {@link #setRetryInterval "retryInterval"}, with read-only
+ * transactions falling back to other replicas or eventually to the primary.
+ *
+ * <p>Note that a transaction manager such as
+ * {@link org.springframework.jdbc.datasource.DataSourceTransactionManager}
+ * obtains its Connection before exposing the read-only flag of the transaction.
+ * Wrap this router with a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * which defers the routing decision until the first statement gets created:
+ *
+ * <pre class="code">
+ * &lt;bean id="dataSource" class="org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy"&gt;
+ *   &lt;property name="targetDataSource"&gt;
+ *     &lt;bean class="org.springframework.jdbc.datasource.lookup.ReadWriteRoutingDataSource"&gt;
+ *       &lt;property name="writeDataSource" ref="primaryDataSource"/&gt;
+ *       &lt;property name="readDataSources"&gt;
+ *         &lt;list&gt;
+ *           &lt;ref bean="replicaDataSource1"/&gt;
+ *           &lt;ref bean="replicaDataSource2"/&gt;
+ *         &lt;/list&gt;
+ *       &lt;/property&gt;
+ *     &lt;/bean&gt;
+ *   &lt;/property&gt;
+ * &lt;/bean&gt;</pre>
+ *
+ * @author agent
+ * @since 4.2.10
+ * @see #setWriteDataSource
+ * @see #setReadDataSources
+ * @see org.springframework.transaction.annotation.Transactional#readOnly()
+ * @see org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements InitializingBean {
+
+	/**
+	 * Strategy for selecting one of the read DataSources.
+	 */
+	public enum BalancingStrategy {
+
+		/**
+		 * Select the replica with the fewest outstanding connections
+		 * relative to its weight, rotating among equally loaded replicas.
+		 */
+		LEAST_OUTSTANDING,
+
+		/**
+		 * Select the replicas in turn, each according to its weight.
+		 */
+		WEIGHTED_ROUND_ROBIN
+	}
+
+
+	private static final Log logger = LogFactory.getLog(ReadWriteRoutingDataSource.class);
+
+	private DataSource writeDataSource;
+
+	private List<DataSource> readDataSources;
+
+	private int[] readDataSourceWeights;
+
+	private BalancingStrategy balancingStrategy = BalancingStrategy.LEAST_OUTSTANDING;
+
+	private int failureThreshold = 3;
+
+	private long retryInterval = 30000;
+
+	private Target writeTarget;
+
+	private Target[] readTargets;
+
+	private int[] roundRobinSchedule;
+
+	private final AtomicLong selectionCounter = new AtomicLong();
+
+
+	/**
+	 * Set the primary DataSource, to be used for all connections
+	 * outside of read-only transactions.
+	 */
+	public void setWriteDataSource(DataSource writeDataSource) {
+		this.writeDataSource = writeDataSource;
+	}
+
+	/**
+	 * Return the primary DataSource.
+	 */
+	public DataSource getWriteDataSource() {
+		return this.writeDataSource;
+	}
+
+	/**
+	 * Set the replica DataSources to choose from within read-only transactions.
+	 * <p>If none are specified, all connections are obtained from the primary.
+	 */
+	public void setReadDataSources(List<DataSource> readDataSources) {
+		this.readDataSources = readDataSources;
+	}
+
+	/**
+	 * Return the replica DataSources.
+	 */
+	public List<DataSource> getReadDataSources() {
+		return this.readDataSources;
+	}
+
+	/**
+	 * Specify the relative weights of the {@link #setReadDataSources read DataSources},
+	 * in the same order. Default is a weight of 1 for every replica.
+	 */
+	public void setReadDataSourceWeights(int... readDataSourceWeights) {
+		this.readDataSourceWeights = readDataSourceWeights;
+	}
+
+	/**
+	 * Set the strategy for selecting one of the read DataSources.
+	 * Default is {@link BalancingStrategy#LEAST_OUTSTANDING}.
+	 */
+	public void setBalancingStrategy(BalancingStrategy balancingStrategy) {
+		Assert.notNull(balancingStrategy, "BalancingStrategy must not be null");
+		this.balancingStrategy = balancingStrategy;
+	}
+
+	/**
+	 * Set the number of consecutive failures to obtain a Connection after which
+	 * a read DataSource gets ejected for the retry interval. Default is 3.
+	 * @see #setRetryInterval
+	 */
+	public void setFailureThreshold(int failureThreshold) {
+		Assert.isTrue(failureThreshold > 0, "'failureThreshold' must be larger than 0");
+		this.failureThreshold = failureThreshold;
+	}
+
+	/**
+	 * Set the time in milliseconds after which an ejected read DataSource
+	 * gets tried again. Default is 30000 (30 seconds).
+	 * @see #setFailureThreshold
+	 */
+	public void setRetryInterval(long retryInterval) {
+		this.retryInterval = retryInterval;
+	}
+
+
+	@Override
+	public void afterPropertiesSet() {
+		if (this.writeDataSource == null) {
+			throw new IllegalArgumentException("Property 'writeDataSource' is required");
+		}
+		this.writeTarget = new Target(this.writeDataSource, -1, 1);
+		int readCount = (this.readDataSources != null ? this.readDataSources.size() : 0);
+		if (this.readDataSourceWeights != null && this.readDataSourceWeights.length != readCount) {
+			throw new IllegalArgumentException("Number of 'readDataSourceWeights' [" +
+					this.readDataSourceWeights.length + "] does not match number of 'readDataSources' [" + readCount + "]");
+		}
+		this.readTargets = new Target[readCount];
+		List<Integer> schedule = new ArrayList<Integer>();
+		for (int i = 0; i < readCount; i++) {
+			int weight = (this.readDataSourceWeights != null ? this.readDataSourceWeights[i] : 1);
+			if (weight <= 0) {
+				throw new IllegalArgumentException("Weight for read DataSource " + i + " must be larger than 0");
+			}
+			this.readTargets[i] = new Target(this.readDataSources.get(i), i, weight);
+		}
+		// Interleave the replicas according to their weights, e.g. 0,1,0,1,0 for weights 3 and 2
+		for (int round = 0; schedule.size() < totalWeight(); round++) {
+			for (int i = 0; i < readCount; i++) {
+				if (round < this.readTargets[i].weight) {
+					schedule.add(i);
+				}
+			}
+		}
+		this.roundRobinSchedule = new int[schedule.size()];
+		for (int i = 0; i < schedule.size(); i++) {
+			this.roundRobinSchedule[i] = schedule.get(i);
+		}
+	}
+
+	private int totalWeight() {
+		int total = 0;
+		for (Target target : this.readTargets) {
+			total += target.weight;
+		}
+		return total;
+	}
+
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return getConnection(null, null, false);
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return getConnection(username, password, true);
+	}
+
+	private Connection getConnection(String username, String password, boolean withCredentials)
+			throws SQLException {
+
+		Assert.state(this.writeTarget != null, "ReadWriteRoutingDataSource not initialized");
+		if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			long now = System.currentTimeMillis();
+			boolean[] excluded = new boolean[this.readTargets.length];
+			for (int attempt = 0; attempt < this.readTargets.length; attempt++) {
+				Target target = selectReadTarget(now, excluded);
+				if (target == null) {
+					break;
+				}
+				try {
+					return target.getConnection(username, password, withCredentials);
+				}
+				catch (SQLException ex) {
+					excluded[target.index] = true;
+					target.recordFailure(now);
+					logger.debug("Could not obtain Connection from read DataSource [" + target.dataSource + "]", ex);
+				}
+			}
+			if (this.readTargets.length > 0 && logger.isDebugEnabled()) {
+				logger.debug("No read DataSource available - obtaining Connection from write DataSource");
+			}
+		}
+		return this.writeTarget.getConnection(username, password, withCredentials);
+	}
+
+	/**
+	 * Select an available read target according to the balancing strategy.
+	 * @param now the current time in milliseconds
+	 * @param excluded flags for read targets which already failed for the current request
+	 * @return the selected target, or {@code null} if none is available
+	 */
+	private Target selectReadTarget(long now, boolean[] excluded) {
+		int readCount = this.readTargets.length;
+		if (readCount == 0) {
+			return null;
+		}
+		long counter = this.selectionCounter.getAndIncrement() & Long.MAX_VALUE;
+		if (this.balancingStrategy == BalancingStrategy.WEIGHTED_ROUND_ROBIN) {
+			int scheduleLength = this.roundRobinSchedule.length;
+			int start = (int) (counter % scheduleLength);
+			for (int i = 0; i < scheduleLength; i++) {
+				Target target = this.readTargets[this.roundRobinSchedule[(start + i) % scheduleLength]];
+				if (!excluded[target.index] && target.isAvailable(now)) {
+					return target;
+				}
+			}
+			return null;
+		}
+		int start = (int) (counter % readCount);
+		Target selected = null;
+		double selectedLoad = 0;
+		for (int i = 0; i < readCount; i++) {
+			Target target = this.readTargets[(start + i) % readCount];
+			if (!excluded[target.index] && target.isAvailable(now)) {
+				double load = (double) target.outstanding.get() / target.weight;
+				if (selected == null || load < selectedLoad) {
+					selected = target;
+					selectedLoad = load;
+				}
+			}
+		}
+		return selected;
+	}
+
+
+	/**
+	 * Return the number of Connections currently obtained from the given
+	 * target DataSource and not closed yet.
+	 * @param dataSource the write DataSource or one of the read DataSources
+	 */
+	public int getOutstandingConnections(DataSource dataSource) {
+		return getTarget(dataSource).outstanding.get();
+	}
+
+	/**
+	 * Return the histogram of Connection acquisition latencies (in nanoseconds)
+	 * for the given target DataSource.
+	 * @param dataSource the write DataSource or one of the read DataSources
+	 */
+	public LatencyHistogram getAcquisitionLatency(DataSource dataSource) {
+		return getTarget(dataSource).acquisitionLatency;
+	}
+
+	/**
+	 * Return the total number of failures to obtain a Connection
+	 * from the given target DataSource.
+	 * @param dataSource the write DataSource or one of the read DataSources
+	 */
+	public long getFailureCount(DataSource dataSource) {
+		return getTarget(dataSource).failureCount.get();
+	}
+
+	/**
+	 * Return whether the given target DataSource is currently considered
+	 * available, i.e. has not been ejected after consecutive failures.
+	 * @param dataSource the write DataSource or one of the read DataSources
+	 */
+	public boolean isAvailable(DataSource dataSource) {
+		return getTarget(dataSource).isAvailable(System.currentTimeMillis());
+	}
+
+	private Target getTarget(DataSource dataSource) {
+		Assert.state(this.writeTarget != null, "ReadWriteRoutingDataSource not initialized");
+		if (this.writeTarget.dataSource == dataSource) {
+			return this.writeTarget;
+		}
+		for (Target target : this.readTargets) {
+			if (target.dataSource == dataSource) {
+				return target;
+			}
+		}
+		throw new IllegalArgumentException("Not a target of this ReadWriteRoutingDataSource: " + dataSource);
+	}
+
+
+	/**
+	 * A target DataSource with its weight, statistics and health state.
+	 */
+	private class Target {
+
+		final DataSource dataSource;
+
+		final int index;
+
+		final int weight;
+
+		final AtomicInteger outstanding = new AtomicInteger();
+
+		final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+		final AtomicLong failureCount = new AtomicLong();
+
+		final LatencyHistogram acquisitionLatency = new LatencyHistogram();
+
+		volatile long ejectedUntil;
+
+		public Target(DataSource dataSource, int index, int weight) {
+			this.dataSource = dataSource;
+			this.index = index;
+			this.weight = weight;
+		}
+
+		public boolean isAvailable(long now) {
+			return (this.consecutiveFailures.get() < failureThreshold || now >= this.ejectedUntil);
+		}
+
+		public void recordFailure(long now) {
+			this.failureCount.incrementAndGet();
+			if (this.consecutiveFailures.incrementAndGet() >= failureThreshold) {
+				this.ejectedUntil = now + retryInterval;
+				if (logger.isInfoEnabled()) {
+					logger.info("Ejecting DataSource [" + this.dataSource + "] for " + retryInterval +
+							" ms after " + this.consecutiveFailures.get() + " consecutive failures");
+				}
+			}
+		}
+
+		public Connection getConnection(String username, String password, boolean withCredentials)
+				throws SQLException {
+
+			long startTime = System.nanoTime();
+			Connection con = (withCredentials ? this.dataSource.getConnection(username, password) :
+					this.dataSource.getConnection());
+			this.acquisitionLatency.recordSince(startTime);
+			this.consecutiveFailures.set(0);
+			this.outstanding.incrementAndGet();
+			return (Connection) Proxy.newProxyInstance(
+					ConnectionProxy.class.getClassLoader(),
+					new Class<?>[] {ConnectionProxy.class},
+					new TrackingInvocationHandler(con, this));
+		}
+	}
+
+
+	/**
+	 * Invocation handler that decrements the outstanding count
+	 * of its target once the Connection gets closed.
+	 */
+	private static class TrackingInvocationHandler implements InvocationHandler {
+
+		private final Connection target;
+
+		private final Target owner;
+
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		public TrackingInvocationHandler(Connection target, Target owner) {
+			this.target = target;
+			this.owner = owner;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			// Invocation on ConnectionProxy interface coming in...
+
+			if (method.getName().equals("equals")) {
+				// Only consider equal when proxies are identical.
+				return (proxy == args[0]);
+			}
+			else if (method.getName().equals("hashCode")) {
+				// Use hashCode of Connection proxy.
+				return System.identityHashCode(proxy);
+			}
+			else if (method.getName().equals("unwrap")) {
+				if (((Class<?>) args[0]).isInstance(proxy)) {
+					return proxy;
+				}
+			}
+			else if (method.getName().equals("isWrapperFor")) {
+				if (((Class<?>) args[0]).isInstance(proxy)) {
+					return true;
+				}
+			}
+			else if (method.getName().equals("getTargetConnection")) {
+				// Handle getTargetConnection method: return underlying Connection.
+				return this.target;
+			}
+			else if (method.getName().equals("close")) {
+				if (this.closed.compareAndSet(false, true)) {
+					this.owner.outstanding.decrementAndGet();
+				}
+			}
+
+			// Invoke method on target Connection.
+			try {
+				return method.invoke(this.target, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2012 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -42,7 +42,7 @@ public abstract class JdbcAccessor implements InitializingBean {
 
 	private DataSource dataSource;
 
-	private SQLExceptionTranslator exceptionTranslator;
+	private volatile SQLExceptionTranslator exceptionTranslator;
 
 	private boolean lazyInit = true;
 
@@ -92,17 +92,25 @@ public abstract class JdbcAccessor implements InitializingBean {
 	 * {@link SQLStateSQLExceptionTranslator} in case of no DataSource.
 	 * @see #getDataSource()
 	 */
-	public synchronized SQLExceptionTranslator getExceptionTranslator() {
-		if (this.exceptionTranslator == null) {
-			DataSource dataSource = getDataSource();
-			if (dataSource != null) {
-				this.exceptionTranslator = new SQLErrorCodeSQLExceptionTranslator(dataSource);
-			}
-			else {
-				this.exceptionTranslator = new SQLStateSQLExceptionTranslator();
+	public SQLExceptionTranslator getExceptionTranslator() {
+		SQLExceptionTranslator exceptionTranslator = this.exceptionTranslator;
+		if (exceptionTranslator != null) {
+			return exceptionTranslator;
+		}
+		synchronized (this) {
+			exceptionTranslator = this.exceptionTranslator;
+			if (exceptionTranslator == null) {
+				DataSource dataSource = getDataSource();
+				if (dataSource != null) {
+					exceptionTranslator = new SQLErrorCodeSQLExceptionTranslator(dataSource);
+				}
+				else {
+					exceptionTranslator = new SQLStateSQLExceptionTranslator();
+				}
+				this.exceptionTranslator = exceptionTranslator;
 			}
+			return exceptionTranslator;
 		}
-		return this.exceptionTranslator;
 	}
 
 	/**
@@ -110,6 +118,11 @@ public abstract class JdbcAccessor implements InitializingBean {
 	 * on first encounter of a SQLException. Default is "true"; can be switched to
 	 * "false" for initialization on startup.
 	 * <p>Early initialization just applies if {@code afterPropertiesSet()} is called.
+	 * <p>Note that with lazy initialization, the database metadata lookup for a
+	 * default {@link SQLErrorCodeSQLExceptionTranslator} happens on the thread
+	 * that translates the first SQLException, obtaining an extra Connection from
+	 * the DataSource at that point. Switch this flag to "false" (or specify the
+	 * {@link #setDatabaseProductName database product name}) to avoid this.
 	 * @see #getExceptionTranslator()
 	 * @see #afterPropertiesSet()
 	 */
@@ -128,6 +141,9 @@ public abstract class JdbcAccessor implements InitializingBean {
 	/**
 	 * Eagerly initialize the exception translator, if demanded,
 	 * creating a default one for the specified DataSource if none set.
+	 * <p>As of 4.2.10, this also determines the error codes of a
+	 * {@link SQLErrorCodeSQLExceptionTranslator} on startup, so that
+	 * no database metadata lookup happens on first translation.
 	 */
 	@Override
 	public void afterPropertiesSet() {
@@ -135,7 +151,10 @@ public abstract class JdbcAccessor implements InitializingBean {
 			throw new IllegalArgumentException("Property 'dataSource' is required");
 		}
 		if (!isLazyInit()) {
-			getExceptionTranslator();
+			SQLExceptionTranslator translator = getExceptionTranslator();
+			if (translator instanceof SQLErrorCodeSQLExceptionTranslator) {
+				((SQLErrorCodeSQLExceptionTranslator) translator).getSqlErrorCodes();
+			}
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,7 +19,6 @@ package org.springframework.jdbc.support;
 import java.lang.reflect.Constructor;
 import java.sql.BatchUpdateException;
 import java.sql.SQLException;
-import java.util.Arrays;
 import javax.sql.DataSource;
 
 import org.springframework.dao.CannotAcquireLockException;
@@ -45,6 +44,8 @@ import org.springframework.jdbc.InvalidResultSetAccessException;
  * <li>Apply error code matching. Error codes are obtained from the SQLErrorCodesFactory
  * by default. This factory loads a "sql-error-codes.xml" file from the class path,
  * defining error code mappings for database names from database metadata.
+ * The codes of each {@link SQLErrorCodes} instance are indexed once, so each
+ * translation is a single table lookup regardless of the number of codes.
  * <li>Fallback to a fallback translator. {@link SQLStateSQLExceptionTranslator} is the
  * default fallback translator, analyzing the exception's SQL state only. On Java 6
  * which introduces its own {@code SQLException} subclass hierarchy, we will
@@ -72,8 +73,11 @@ public class SQLErrorCodeSQLExceptionTranslator extends AbstractFallbackSQLExcep
 	private static final int MESSAGE_SQL_SQLEX_CONSTRUCTOR = 5;
 
 
+	/** DataSource to determine the error codes for, if not resolved yet */
+	private volatile DataSource dataSource;
+
 	/** Error codes used by this translator */
-	private SQLErrorCodes sqlErrorCodes;
+	private volatile SQLErrorCodes sqlErrorCodes;
 
 
 	/**
@@ -86,8 +90,8 @@ public class SQLErrorCodeSQLExceptionTranslator extends AbstractFallbackSQLExcep
 
 	/**
 	 * Create a SQL error code translator for the given DataSource.
-	 * Invoking this constructor will cause a Connection to be obtained
-	 * from the DataSource to get the metadata.
+	 * A Connection will be obtained from the DataSource to get the metadata
+	 * on first translation (or on first access to the error codes).
 	 * @param dataSource DataSource to use to find metadata and establish
 	 * which error codes are usable
 	 * @see SQLErrorCodesFactory
@@ -117,21 +121,25 @@ public class SQLErrorCodeSQLExceptionTranslator extends AbstractFallbackSQLExcep
 	 */
 	public SQLErrorCodeSQLExceptionTranslator(SQLErrorCodes sec) {
 		this();
-		this.sqlErrorCodes = sec;
+		setSqlErrorCodes(sec);
 	}
 
 
 	/**
 	 * Set the DataSource for this translator.
 	 * <p>Setting this property will cause a Connection to be obtained from
-	 * the DataSource to get the metadata.
+	 * the DataSource to get the metadata. As of 4.2.10, this happens lazily on
+	 * first translation (or first {@link #getSqlErrorCodes()} call), unless
+	 * the error codes for the DataSource have been determined before.
 	 * @param dataSource DataSource to use to find metadata and establish
 	 * which error codes are usable
 	 * @see SQLErrorCodesFactory#getErrorCodes(javax.sql.DataSource)
 	 * @see java.sql.DatabaseMetaData#getDatabaseProductName()
 	 */
 	public void setDataSource(DataSource dataSource) {
-		this.sqlErrorCodes = SQLErrorCodesFactory.getInstance().getErrorCodes(dataSource);
+		SQLErrorCodes sec = SQLErrorCodesFactory.getInstance().getCachedErrorCodes(dataSource);
+		this.dataSource = (sec == null ? dataSource : null);
+		this.sqlErrorCodes = sec;
 	}
 
 	/**
@@ -143,7 +151,7 @@ public class SQLErrorCodeSQLExceptionTranslator extends AbstractFallbackSQLExcep
 	 * @see java.sql.DatabaseMetaData#getDatabaseProductName()
 	 */
 	public void setDatabaseProductName(String dbName) {
-		this.sqlErrorCodes = SQLErrorCodesFactory.getInstance().getErrorCodes(dbName);
+		setSqlErrorCodes(SQLErrorCodesFactory.getInstance().getErrorCodes(dbName));
 	}
 
 	/**
@@ -151,16 +159,26 @@ public class SQLErrorCodeSQLExceptionTranslator extends AbstractFallbackSQLExcep
 	 * @param sec custom error codes to use
 	 */
 	public void setSqlErrorCodes(SQLErrorCodes sec) {
+		this.dataSource = null;
 		this.sqlErrorCodes = sec;
 	}
 
 	/**
 	 * Return the error codes used by this translator.
-	 * Usually determined via a DataSource.
+	 * Usually determined via a DataSource, in which case the database
+	 * metadata will be looked up on first access.
 	 * @see #setDataSource
 	 */
 	public SQLErrorCodes getSqlErrorCodes() {
-		return this.sqlErrorCodes;
+		SQLErrorCodes sec = this.sqlErrorCodes;
+		if (sec == null) {
+			DataSource dataSource = this.dataSource;
+			if (dataSource != null) {
+				sec = SQLErrorCodesFactory.getInstance().getErrorCodes(dataSource);
+				this.sqlErrorCodes = sec;
+			}
+		}
+		return sec;
 	}
 
 
@@ -182,8 +200,9 @@ public class SQLErrorCodeSQLExceptionTranslator extends AbstractFallbackSQLExcep
 		}
 
 		// Next, try the custom SQLException translator, if available.
-		if (this.sqlErrorCodes != null) {
-			SQLExceptionTranslator customTranslator = this.sqlErrorCodes.getCustomSqlExceptionTranslator();
+		SQLErrorCodes sqlErrorCodes = getSqlErrorCodes();
+		if (sqlErrorCodes != null) {
+			SQLExceptionTranslator customTranslator = sqlErrorCodes.getCustomSqlExceptionTranslator();
 			if (customTranslator != null) {
 				DataAccessException customDex = customTranslator.translate(task, sql, sqlEx);
 				if (customDex != null) {
@@ -193,9 +212,9 @@ public class SQLErrorCodeSQLExceptionTranslator extends AbstractFallbackSQLExcep
 		}
 
 		// Check SQLErrorCodes with corresponding error code, if available.
-		if (this.sqlErrorCodes != null) {
+		if (sqlErrorCodes != null) {
 			String errorCode;
-			if (this.sqlErrorCodes.isUseSqlStateForTranslation()) {
+			if (sqlErrorCodes.isUseSqlStateForTranslation()) {
 				errorCode = sqlEx.getSQLState();
 			}
 			else {
@@ -209,70 +228,20 @@ public class SQLErrorCodeSQLExceptionTranslator extends AbstractFallbackSQLExcep
 			}
 
 			if (errorCode != null) {
-				// Look for defined custom translations first.
-				CustomSQLErrorCodesTranslation[] customTranslations = this.sqlErrorCodes.getCustomTranslations();
-				if (customTranslations != null) {
-					for (CustomSQLErrorCodesTranslation customTranslation : customTranslations) {
-						if (Arrays.binarySearch(customTranslation.getErrorCodes(), errorCode) >= 0) {
-							if (customTranslation.getExceptionClass() != null) {
-								DataAccessException customException = createCustomException(
-										task, sql, sqlEx, customTranslation.getExceptionClass());
-								if (customException != null) {
-									logTranslation(task, sql, sqlEx, true);
-									return customException;
-								}
-							}
-						}
+				SQLErrorCodes.ErrorCodeMapping mapping = sqlErrorCodes.getErrorCodeMapping(errorCode);
+				if (mapping != null) {
+					DataAccessException mappedException = translateMappedErrorCode(task, sql, sqlEx, mapping);
+					if (mappedException != null) {
+						return mappedException;
 					}
 				}
-				// Next, look for grouped error codes.
-				if (Arrays.binarySearch(this.sqlErrorCodes.getBadSqlGrammarCodes(), errorCode) >= 0) {
-					logTranslation(task, sql, sqlEx, false);
-					return new BadSqlGrammarException(task, sql, sqlEx);
-				}
-				else if (Arrays.binarySearch(this.sqlErrorCodes.getInvalidResultSetAccessCodes(), errorCode) >= 0) {
-					logTranslation(task, sql, sqlEx, false);
-					return new InvalidResultSetAccessException(task, sql, sqlEx);
-				}
-				else if (Arrays.binarySearch(this.sqlErrorCodes.getDuplicateKeyCodes(), errorCode) >= 0) {
-					logTranslation(task, sql, sqlEx, false);
-					return new DuplicateKeyException(buildMessage(task, sql, sqlEx), sqlEx);
-				}
-				else if (Arrays.binarySearch(this.sqlErrorCodes.getDataIntegrityViolationCodes(), errorCode) >= 0) {
-					logTranslation(task, sql, sqlEx, false);
-					return new DataIntegrityViolationException(buildMessage(task, sql, sqlEx), sqlEx);
-				}
-				else if (Arrays.binarySearch(this.sqlErrorCodes.getPermissionDeniedCodes(), errorCode) >= 0) {
-					logTranslation(task, sql, sqlEx, false);
-					return new PermissionDeniedDataAccessException(buildMessage(task, sql, sqlEx), sqlEx);
-				}
-				else if (Arrays.binarySearch(this.sqlErrorCodes.getDataAccessResourceFailureCodes(), errorCode) >= 0) {
-					logTranslation(task, sql, sqlEx, false);
-					return new DataAccessResourceFailureException(buildMessage(task, sql, sqlEx), sqlEx);
-				}
-				else if (Arrays.binarySearch(this.sqlErrorCodes.getTransientDataAccessResourceCodes(), errorCode) >= 0) {
-					logTranslation(task, sql, sqlEx, false);
-					return new TransientDataAccessResourceException(buildMessage(task, sql, sqlEx), sqlEx);
-				}
-				else if (Arrays.binarySearch(this.sqlErrorCodes.getCannotAcquireLockCodes(), errorCode) >= 0) {
-					logTranslation(task, sql, sqlEx, false);
-					return new CannotAcquireLockException(buildMessage(task, sql, sqlEx), sqlEx);
-				}
-				else if (Arrays.binarySearch(this.sqlErrorCodes.getDeadlockLoserCodes(), errorCode) >= 0) {
-					logTranslation(task, sql, sqlEx, false);
-					return new DeadlockLoserDataAccessException(buildMessage(task, sql, sqlEx), sqlEx);
-				}
-				else if (Arrays.binarySearch(this.sqlErrorCodes.getCannotSerializeTransactionCodes(), errorCode) >= 0) {
-					logTranslation(task, sql, sqlEx, false);
-					return new CannotSerializeTransactionException(buildMessage(task, sql, sqlEx), sqlEx);
-				}
 			}
 		}
 
 		// We couldn't identify it more precisely - let's hand it over to the SQLState fallback translator.
 		if (logger.isDebugEnabled()) {
 			String codes;
-			if (this.sqlErrorCodes != null && this.sqlErrorCodes.isUseSqlStateForTranslation()) {
+			if (sqlErrorCodes != null && sqlErrorCodes.isUseSqlStateForTranslation()) {
 				codes = "SQL state '" + sqlEx.getSQLState() + "', error code '" + sqlEx.getErrorCode();
 			}
 			else {
@@ -284,6 +253,61 @@ public class SQLErrorCodeSQLExceptionTranslator extends AbstractFallbackSQLExcep
 		return null;
 	}
 
+	/**
+	 * Translate the given exception according to the precomputed mapping
+	 * for its error code: custom translations first, then the code category.
+	 */
+	private DataAccessException translateMappedErrorCode(
+			String task, String sql, SQLException sqlEx, SQLErrorCodes.ErrorCodeMapping mapping) {
+
+		CustomSQLErrorCodesTranslation[] customTranslations = mapping.getCustomTranslations();
+		if (customTranslations != null) {
+			for (CustomSQLErrorCodesTranslation customTranslation : customTranslations) {
+				DataAccessException customException = createCustomException(
+						task, sql, sqlEx, customTranslation.getExceptionClass());
+				if (customException != null) {
+					logTranslation(task, sql, sqlEx, true);
+					return customException;
+				}
+			}
+		}
+
+		switch (mapping.getCategory()) {
+			case SQLErrorCodes.BAD_SQL_GRAMMAR:
+				logTranslation(task, sql, sqlEx, false);
+				return new BadSqlGrammarException(task, sql, sqlEx);
+			case SQLErrorCodes.INVALID_RESULT_SET_ACCESS:
+				logTranslation(task, sql, sqlEx, false);
+				return new InvalidResultSetAccessException(task, sql, sqlEx);
+			case SQLErrorCodes.DUPLICATE_KEY:
+				logTranslation(task, sql, sqlEx, false);
+				return new DuplicateKeyException(buildMessage(task, sql, sqlEx), sqlEx);
+			case SQLErrorCodes.DATA_INTEGRITY_VIOLATION:
+				logTranslation(task, sql, sqlEx, false);
+				return new DataIntegrityViolationException(buildMessage(task, sql, sqlEx), sqlEx);
+			case SQLErrorCodes.PERMISSION_DENIED:
+				logTranslation(task, sql, sqlEx, false);
+				return new PermissionDeniedDataAccessException(buildMessage(task, sql, sqlEx), sqlEx);
+			case SQLErrorCodes.DATA_ACCESS_RESOURCE_FAILURE:
+				logTranslation(task, sql, sqlEx, false);
+				return new DataAccessResourceFailureException(buildMessage(task, sql, sqlEx), sqlEx);
+			case SQLErrorCodes.TRANSIENT_DATA_ACCESS_RESOURCE:
+				logTranslation(task, sql, sqlEx, false);
+				return new TransientDataAccessResourceException(buildMessage(task, sql, sqlEx), sqlEx);
+			case SQLErrorCodes.CANNOT_ACQUIRE_LOCK:
+				logTranslation(task, sql, sqlEx, false);
+				return new CannotAcquireLockException(buildMessage(task, sql, sqlEx), sqlEx);
+			case SQLErrorCodes.DEADLOCK_LOSER:
+				logTranslation(task, sql, sqlEx, false);
+				return new DeadlockLoserDataAccessException(buildMessage(task, sql, sqlEx), sqlEx);
+			case SQLErrorCodes.CANNOT_SERIALIZE_TRANSACTION:
+				logTranslation(task, sql, sqlEx, false);
+				return new CannotSerializeTransactionException(buildMessage(task, sql, sqlEx), sqlEx);
+			default:
+				return null;
+		}
+	}
+
 	/**
 	 * Subclasses can override this method to attempt a custom mapping from SQLException
 	 * to DataAccessException.
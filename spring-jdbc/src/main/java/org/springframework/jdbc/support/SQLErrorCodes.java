@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,11 @@
 
 package org.springframework.jdbc.support;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.springframework.util.StringUtils;
 
 /**
@@ -33,6 +38,27 @@ import org.springframework.util.StringUtils;
  */
 public class SQLErrorCodes {
 
+	static final int BAD_SQL_GRAMMAR = 1;
+
+	static final int INVALID_RESULT_SET_ACCESS = 2;
+
+	static final int DUPLICATE_KEY = 3;
+
+	static final int DATA_INTEGRITY_VIOLATION = 4;
+
+	static final int PERMISSION_DENIED = 5;
+
+	static final int DATA_ACCESS_RESOURCE_FAILURE = 6;
+
+	static final int TRANSIENT_DATA_ACCESS_RESOURCE = 7;
+
+	static final int CANNOT_ACQUIRE_LOCK = 8;
+
+	static final int DEADLOCK_LOSER = 9;
+
+	static final int CANNOT_SERIALIZE_TRANSACTION = 10;
+
+
 	private String[] databaseProductNames;
 
 	private boolean useSqlStateForTranslation = false;
@@ -61,6 +87,8 @@ public class SQLErrorCodes {
 
 	private SQLExceptionTranslator customSqlExceptionTranslator;
 
+	private volatile Map<String, ErrorCodeMapping> errorCodeTable;
+
 
 	/**
 	 * Set this property if the database name contains spaces,
@@ -101,6 +129,7 @@ public class SQLErrorCodes {
 
 	public void setBadSqlGrammarCodes(String... badSqlGrammarCodes) {
 		this.badSqlGrammarCodes = StringUtils.sortStringArray(badSqlGrammarCodes);
+		this.errorCodeTable = null;
 	}
 
 	public String[] getBadSqlGrammarCodes() {
@@ -109,6 +138,7 @@ public class SQLErrorCodes {
 
 	public void setInvalidResultSetAccessCodes(String... invalidResultSetAccessCodes) {
 		this.invalidResultSetAccessCodes = StringUtils.sortStringArray(invalidResultSetAccessCodes);
+		this.errorCodeTable = null;
 	}
 
 	public String[] getInvalidResultSetAccessCodes() {
@@ -121,10 +151,12 @@ public class SQLErrorCodes {
 
 	public void setDuplicateKeyCodes(String... duplicateKeyCodes) {
 		this.duplicateKeyCodes = duplicateKeyCodes;
+		this.errorCodeTable = null;
 	}
 
 	public void setDataIntegrityViolationCodes(String... dataIntegrityViolationCodes) {
 		this.dataIntegrityViolationCodes = StringUtils.sortStringArray(dataIntegrityViolationCodes);
+		this.errorCodeTable = null;
 	}
 
 	public String[] getDataIntegrityViolationCodes() {
@@ -133,6 +165,7 @@ public class SQLErrorCodes {
 
 	public void setPermissionDeniedCodes(String... permissionDeniedCodes) {
 		this.permissionDeniedCodes = StringUtils.sortStringArray(permissionDeniedCodes);
+		this.errorCodeTable = null;
 	}
 
 	public String[] getPermissionDeniedCodes() {
@@ -141,6 +174,7 @@ public class SQLErrorCodes {
 
 	public void setDataAccessResourceFailureCodes(String... dataAccessResourceFailureCodes) {
 		this.dataAccessResourceFailureCodes = StringUtils.sortStringArray(dataAccessResourceFailureCodes);
+		this.errorCodeTable = null;
 	}
 
 	public String[] getDataAccessResourceFailureCodes() {
@@ -149,6 +183,7 @@ public class SQLErrorCodes {
 
 	public void setTransientDataAccessResourceCodes(String... transientDataAccessResourceCodes) {
 		this.transientDataAccessResourceCodes = StringUtils.sortStringArray(transientDataAccessResourceCodes);
+		this.errorCodeTable = null;
 	}
 
 	public String[] getTransientDataAccessResourceCodes() {
@@ -157,6 +192,7 @@ public class SQLErrorCodes {
 
 	public void setCannotAcquireLockCodes(String... cannotAcquireLockCodes) {
 		this.cannotAcquireLockCodes = StringUtils.sortStringArray(cannotAcquireLockCodes);
+		this.errorCodeTable = null;
 	}
 
 	public String[] getCannotAcquireLockCodes() {
@@ -165,6 +201,7 @@ public class SQLErrorCodes {
 
 	public void setDeadlockLoserCodes(String... deadlockLoserCodes) {
 		this.deadlockLoserCodes = StringUtils.sortStringArray(deadlockLoserCodes);
+		this.errorCodeTable = null;
 	}
 
 	public String[] getDeadlockLoserCodes() {
@@ -173,6 +210,7 @@ public class SQLErrorCodes {
 
 	public void setCannotSerializeTransactionCodes(String... cannotSerializeTransactionCodes) {
 		this.cannotSerializeTransactionCodes = StringUtils.sortStringArray(cannotSerializeTransactionCodes);
+		this.errorCodeTable = null;
 	}
 
 	public String[] getCannotSerializeTransactionCodes() {
@@ -181,6 +219,7 @@ public class SQLErrorCodes {
 
 	public void setCustomTranslations(CustomSQLErrorCodesTranslation... customTranslations) {
 		this.customTranslations = customTranslations;
+		this.errorCodeTable = null;
 	}
 
 	public CustomSQLErrorCodesTranslation[] getCustomTranslations() {
@@ -209,4 +248,109 @@ public class SQLErrorCodes {
 		return this.customSqlExceptionTranslator;
 	}
 
+
+	/**
+	 * Return the mapping for the given error code (or SQL state, if
+	 * {@link #isUseSqlStateForTranslation() using SQL states}).
+	 * <p>The mappings for all codes are precomputed on first access,
+	 * preserving the order of precedence of the custom translations and
+	 * the code categories, and recomputed after any code property changed.
+	 * @param errorCode the error code to look up
+	 * @return the corresponding mapping, or {@code null} if none
+	 * @since 4.2.10
+	 */
+	ErrorCodeMapping getErrorCodeMapping(String errorCode) {
+		Map<String, ErrorCodeMapping> table = this.errorCodeTable;
+		if (table == null) {
+			table = buildErrorCodeTable();
+			this.errorCodeTable = table;
+		}
+		return table.get(errorCode);
+	}
+
+	private Map<String, ErrorCodeMapping> buildErrorCodeTable() {
+		Map<String, List<CustomSQLErrorCodesTranslation>> customTranslationsByCode =
+				new HashMap<String, List<CustomSQLErrorCodesTranslation>>();
+		if (this.customTranslations != null) {
+			for (CustomSQLErrorCodesTranslation customTranslation : this.customTranslations) {
+				if (customTranslation.getExceptionClass() != null) {
+					for (String code : customTranslation.getErrorCodes()) {
+						List<CustomSQLErrorCodesTranslation> translations = customTranslationsByCode.get(code);
+						if (translations == null) {
+							translations = new ArrayList<CustomSQLErrorCodesTranslation>(1);
+							customTranslationsByCode.put(code, translations);
+						}
+						if (!translations.contains(customTranslation)) {
+							translations.add(customTranslation);
+						}
+					}
+				}
+			}
+		}
+
+		// Categories in order of precedence: first registration for a code wins.
+		Map<String, Integer> categoriesByCode = new HashMap<String, Integer>();
+		addCategory(categoriesByCode, this.badSqlGrammarCodes, BAD_SQL_GRAMMAR);
+		addCategory(categoriesByCode, this.invalidResultSetAccessCodes, INVALID_RESULT_SET_ACCESS);
+		addCategory(categoriesByCode, this.duplicateKeyCodes, DUPLICATE_KEY);
+		addCategory(categoriesByCode, this.dataIntegrityViolationCodes, DATA_INTEGRITY_VIOLATION);
+		addCategory(categoriesByCode, this.permissionDeniedCodes, PERMISSION_DENIED);
+		addCategory(categoriesByCode, this.dataAccessResourceFailureCodes, DATA_ACCESS_RESOURCE_FAILURE);
+		addCategory(categoriesByCode, this.transientDataAccessResourceCodes, TRANSIENT_DATA_ACCESS_RESOURCE);
+		addCategory(categoriesByCode, this.cannotAcquireLockCodes, CANNOT_ACQUIRE_LOCK);
+		addCategory(categoriesByCode, this.deadlockLoserCodes, DEADLOCK_LOSER);
+		addCategory(categoriesByCode, this.cannotSerializeTransactionCodes, CANNOT_SERIALIZE_TRANSACTION);
+
+		Map<String, ErrorCodeMapping> table = new HashMap<String, ErrorCodeMapping>(
+				(customTranslationsByCode.size() + categoriesByCode.size()) * 2);
+		for (Map.Entry<String, List<CustomSQLErrorCodesTranslation>> entry : customTranslationsByCode.entrySet()) {
+			Integer category = categoriesByCode.get(entry.getKey());
+			List<CustomSQLErrorCodesTranslation> translations = entry.getValue();
+			table.put(entry.getKey(), new ErrorCodeMapping(
+					translations.toArray(new CustomSQLErrorCodesTranslation[translations.size()]),
+					(category != null ? category : 0)));
+		}
+		for (Map.Entry<String, Integer> entry : categoriesByCode.entrySet()) {
+			if (!table.containsKey(entry.getKey())) {
+				table.put(entry.getKey(), new ErrorCodeMapping(null, entry.getValue()));
+			}
+		}
+		return table;
+	}
+
+	private static void addCategory(Map<String, Integer> categoriesByCode, String[] codes, int category) {
+		if (codes != null) {
+			for (String code : codes) {
+				if (!categoriesByCode.containsKey(code)) {
+					categoriesByCode.put(code, category);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Precomputed translation target for a specific error code: the custom
+	 * translations to try in order, followed by the code category, if any.
+	 */
+	static final class ErrorCodeMapping {
+
+		private final CustomSQLErrorCodesTranslation[] customTranslations;
+
+		private final int category;
+
+		ErrorCodeMapping(CustomSQLErrorCodesTranslation[] customTranslations, int category) {
+			this.customTranslations = customTranslations;
+			this.category = category;
+		}
+
+		public CustomSQLErrorCodesTranslation[] getCustomTranslations() {
+			return this.customTranslations;
+		}
+
+		public int getCategory() {
+			return this.category;
+		}
+	}
+
 }
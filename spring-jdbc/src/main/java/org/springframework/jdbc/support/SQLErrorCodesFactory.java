@@ -18,7 +18,6 @@ package org.springframework.jdbc.support;
 
 import java.util.Collections;
 import java.util.Map;
-import java.util.WeakHashMap;
 import javax.sql.DataSource;
 
 import org.apache.commons.logging.Log;
@@ -30,6 +29,7 @@ import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.PatternMatchUtils;
 
 /**
@@ -85,7 +85,15 @@ public class SQLErrorCodesFactory {
 	/**
 	 * Map to cache the SQLErrorCodes instance per DataSource.
 	 */
-	private final Map<DataSource, SQLErrorCodes> dataSourceCache = new WeakHashMap<DataSource, SQLErrorCodes>(16);
+	private final Map<DataSource, SQLErrorCodes> dataSourceCache =
+			new ConcurrentReferenceHashMap<DataSource, SQLErrorCodes>(16, ConcurrentReferenceHashMap.ReferenceType.WEAK);
+
+	/**
+	 * Map to hold a lookup monitor per DataSource, so that a metadata lookup
+	 * for one DataSource does not block lookups for any other DataSource.
+	 */
+	private final ConcurrentReferenceHashMap<DataSource, Object> lookupMonitors =
+			new ConcurrentReferenceHashMap<DataSource, Object>(16, ConcurrentReferenceHashMap.ReferenceType.WEAK);
 
 
 	/**
@@ -199,14 +207,20 @@ public class SQLErrorCodesFactory {
 			logger.debug("Looking up default SQLErrorCodes for DataSource [" + dataSource + "]");
 		}
 
-		synchronized (this.dataSourceCache) {
-			// Let's avoid looking up database product info if we can.
-			SQLErrorCodes sec = this.dataSourceCache.get(dataSource);
+		// Let's avoid looking up database product info if we can.
+		SQLErrorCodes sec = this.dataSourceCache.get(dataSource);
+		if (sec != null) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("SQLErrorCodes found in cache for DataSource [" +
+						dataSource.getClass().getName() + '@' + Integer.toHexString(dataSource.hashCode()) + "]");
+			}
+			return sec;
+		}
+
+		synchronized (getLookupMonitor(dataSource)) {
+			// Another thread might have completed the lookup in the meantime.
+			sec = this.dataSourceCache.get(dataSource);
 			if (sec != null) {
-				if (logger.isDebugEnabled()) {
-					logger.debug("SQLErrorCodes found in cache for DataSource [" +
-							dataSource.getClass().getName() + '@' + Integer.toHexString(dataSource.hashCode()) + "]");
-				}
 				return sec;
 			}
 			// We could not find it - got to look it up.
@@ -240,11 +254,37 @@ public class SQLErrorCodesFactory {
 	 * @return the corresponding {@code SQLErrorCodes} object
 	 */
 	public SQLErrorCodes registerDatabase(DataSource dataSource, String dbName) {
-		synchronized (this.dataSourceCache) {
-			SQLErrorCodes sec = getErrorCodes(dbName);
-			this.dataSourceCache.put(dataSource, sec);
-			return sec;
+		SQLErrorCodes sec = getErrorCodes(dbName);
+		this.dataSourceCache.put(dataSource, sec);
+		return sec;
+	}
+
+	/**
+	 * Return the {@link SQLErrorCodes} for the given {@link DataSource} if they
+	 * have been determined already, without obtaining a Connection for a
+	 * database metadata lookup.
+	 * @param dataSource the {@code DataSource} identifying the database
+	 * @return the corresponding {@code SQLErrorCodes} object,
+	 * or {@code null} if not determined yet
+	 * @since 4.2.10
+	 * @see #getErrorCodes(DataSource)
+	 * @see #registerDatabase
+	 */
+	public SQLErrorCodes getCachedErrorCodes(DataSource dataSource) {
+		Assert.notNull(dataSource, "DataSource must not be null");
+		return this.dataSourceCache.get(dataSource);
+	}
+
+	private Object getLookupMonitor(DataSource dataSource) {
+		Object monitor = this.lookupMonitors.get(dataSource);
+		if (monitor == null) {
+			Object newMonitor = new Object();
+			monitor = this.lookupMonitors.putIfAbsent(dataSource, newMonitor);
+			if (monitor == null) {
+				monitor = newMonitor;
+			}
 		}
+		return monitor;
 	}
 
 	/**
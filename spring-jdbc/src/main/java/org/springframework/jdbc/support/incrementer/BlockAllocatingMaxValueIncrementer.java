@@ -0,0 +1,365 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.support.incrementer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.util.Assert;
+
+/**
+ * Decorator for any {@link DataFieldMaxValueIncrementer}, allocating blocks of
+ * values from the target incrementer and handing out the values within a block
+ * without any database access or locking.
+ *
+ * <p>Two allocation strategies are supported, see {@link Strategy}:
+ * {@link Strategy#HI_LO} for a target sequence incremented by 1, using each of
+ * its values as the "hi" part of a block of keys, and {@link Strategy#POOLED}
+ * for a target sequence incremented by the block size (e.g. through
+ * {@code INCREMENT BY 50}), using each of its values as the first key of a block.
+ * Only the latter keeps the generated keys aligned with the sequence, allowing
+ * other applications to use the same sequence directly.
+ *
+ * <p>If a {@link #setPrefetchExecutor "prefetchExecutor"} has been specified, the
+ * next block is fetched asynchronously as soon as the current block starts to be
+ * used, so that callers do not have to wait for a database round trip when the
+ * current block is exhausted.
+ *
+ * <p>Note that values of an allocated block which have not been handed out are
+ * lost on shutdown, leaving gaps in the generated keys.
+ *
+ * @author agent
+ * @since 4.2.10
+ */
+public class BlockAllocatingMaxValueIncrementer implements DataFieldMaxValueIncrementer, InitializingBean {
+
+	/**
+	 * Strategy for deriving a block of keys from a value of the target incrementer.
+	 */
+	public enum Strategy {
+
+		/**
+		 * Each target value {@code hi} represents the block of keys from
+		 * {@code hi * blockSize} to {@code hi * blockSize + blockSize - 1}.
+		 */
+		HI_LO,
+
+		/**
+		 * Each target value {@code v} represents the block of keys from
+		 * {@code v} to {@code v + blockSize - 1}, expecting the target
+		 * sequence to be incremented by the block size.
+		 */
+		POOLED
+	}
+
+
+	private static final Log logger = LogFactory.getLog(BlockAllocatingMaxValueIncrementer.class);
+
+	private DataFieldMaxValueIncrementer targetIncrementer;
+
+	private int blockSize = 50;
+
+	private Strategy strategy = Strategy.HI_LO;
+
+	private TaskExecutor prefetchExecutor;
+
+	private int paddingLength = 0;
+
+	private final AtomicReference<Block> currentBlock = new AtomicReference<Block>();
+
+	private final Object allocationMonitor = new Object();
+
+	private FutureTask<Block> prefetchedBlock;
+
+
+	/**
+	 * Create a new BlockAllocatingMaxValueIncrementer for bean-style configuration.
+	 * @see #setTargetIncrementer
+	 * @see #setBlockSize
+	 */
+	public BlockAllocatingMaxValueIncrementer() {
+	}
+
+	/**
+	 * Create a new BlockAllocatingMaxValueIncrementer for the given target.
+	 * @param targetIncrementer the incrementer to allocate blocks from
+	 * @param blockSize the number of keys per block
+	 * @param strategy the strategy for deriving a block from a target value
+	 */
+	public BlockAllocatingMaxValueIncrementer(DataFieldMaxValueIncrementer targetIncrementer,
+			int blockSize, Strategy strategy) {
+
+		setTargetIncrementer(targetIncrementer);
+		setBlockSize(blockSize);
+		setStrategy(strategy);
+	}
+
+
+	/**
+	 * Set the incrementer to allocate blocks of keys from.
+	 */
+	public void setTargetIncrementer(DataFieldMaxValueIncrementer targetIncrementer) {
+		this.targetIncrementer = targetIncrementer;
+	}
+
+	/**
+	 * Return the incrementer to allocate blocks of keys from.
+	 */
+	public DataFieldMaxValueIncrementer getTargetIncrementer() {
+		return this.targetIncrementer;
+	}
+
+	/**
+	 * Set the number of keys per block. Default is 50.
+	 * <p>For the {@link Strategy#POOLED} strategy, this needs to match
+	 * the increment of the target sequence.
+	 */
+	public void setBlockSize(int blockSize) {
+		Assert.isTrue(blockSize > 0, "'blockSize' must be larger than 0");
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * Return the number of keys per block.
+	 */
+	public int getBlockSize() {
+		return this.blockSize;
+	}
+
+	/**
+	 * Set the strategy for deriving a block of keys from a value of the
+	 * target incrementer. Default is {@link Strategy#HI_LO}.
+	 */
+	public void setStrategy(Strategy strategy) {
+		Assert.notNull(strategy, "Strategy must not be null");
+		this.strategy = strategy;
+	}
+
+	/**
+	 * Return the strategy for deriving a block of keys from a target value.
+	 */
+	public Strategy getStrategy() {
+		return this.strategy;
+	}
+
+	/**
+	 * Set a TaskExecutor for fetching the next block asynchronously
+	 * once the current block starts to be used.
+	 * <p>Default is none, fetching the next block synchronously
+	 * once the current block is exhausted.
+	 */
+	public void setPrefetchExecutor(TaskExecutor prefetchExecutor) {
+		this.prefetchExecutor = prefetchExecutor;
+	}
+
+	/**
+	 * Return the TaskExecutor for fetching the next block asynchronously, if any.
+	 */
+	public TaskExecutor getPrefetchExecutor() {
+		return this.prefetchExecutor;
+	}
+
+	/**
+	 * Set the padding length, i.e. the length to which a string result
+	 * should be pre-pended with zeroes.
+	 */
+	public void setPaddingLength(int paddingLength) {
+		this.paddingLength = paddingLength;
+	}
+
+	/**
+	 * Return the padding length for String values.
+	 */
+	public int getPaddingLength() {
+		return this.paddingLength;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (this.targetIncrementer == null) {
+			throw new IllegalArgumentException("Property 'targetIncrementer' is required");
+		}
+	}
+
+
+	/**
+	 * This implementation throws an {@link InvalidDataAccessApiUsageException}
+	 * for keys beyond the {@code int} range instead of truncating them.
+	 */
+	@Override
+	public int nextIntValue() throws DataAccessException {
+		long value = nextLongValue();
+		if (value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) {
+			throw new InvalidDataAccessApiUsageException(
+					"Key value " + value + " exceeds int range - use nextLongValue() instead");
+		}
+		return (int) value;
+	}
+
+	@Override
+	public long nextLongValue() throws DataAccessException {
+		while (true) {
+			Block block = this.currentBlock.get();
+			if (block != null) {
+				long value = block.next.getAndIncrement();
+				if (value <= block.max) {
+					if (value == block.min) {
+						prefetchNextBlock();
+					}
+					return value;
+				}
+			}
+			FutureTask<Block> prefetched;
+			synchronized (this.allocationMonitor) {
+				if (this.currentBlock.get() != block) {
+					continue;
+				}
+				prefetched = this.prefetchedBlock;
+				if (prefetched == null) {
+					this.currentBlock.set(allocateBlock());
+					continue;
+				}
+			}
+			// Wait for the prefetched block outside of the lock: concurrent callers
+			// either wait for the same block or pick up the block installed meanwhile.
+			Block nextBlock = awaitPrefetchedBlock(prefetched);
+			synchronized (this.allocationMonitor) {
+				if (this.prefetchedBlock == prefetched) {
+					this.prefetchedBlock = null;
+				}
+				if (this.currentBlock.get() == block) {
+					this.currentBlock.set(nextBlock != null ? nextBlock : allocateBlock());
+				}
+			}
+		}
+	}
+
+	@Override
+	public String nextStringValue() throws DataAccessException {
+		String s = Long.toString(nextLongValue());
+		int len = s.length();
+		if (len < this.paddingLength) {
+			StringBuilder sb = new StringBuilder(this.paddingLength);
+			for (int i = 0; i < this.paddingLength - len; i++) {
+				sb.append('0');
+			}
+			sb.append(s);
+			s = sb.toString();
+		}
+		return s;
+	}
+
+
+	/**
+	 * Trigger the asynchronous allocation of the next block, if a
+	 * prefetch executor has been specified and no prefetch is pending.
+	 */
+	private void prefetchNextBlock() {
+		if (this.prefetchExecutor == null) {
+			return;
+		}
+		FutureTask<Block> future;
+		synchronized (this.allocationMonitor) {
+			if (this.prefetchedBlock != null) {
+				return;
+			}
+			future = new FutureTask<Block>(new Callable<Block>() {
+				@Override
+				public Block call() {
+					return allocateBlock();
+				}
+			});
+			this.prefetchedBlock = future;
+		}
+		try {
+			this.prefetchExecutor.execute(future);
+		}
+		catch (RuntimeException ex) {
+			logger.debug("Could not prefetch next block of keys - will allocate it on demand", ex);
+			synchronized (this.allocationMonitor) {
+				if (this.prefetchedBlock == future) {
+					this.prefetchedBlock = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Wait for the given prefetched block. To be called outside of the allocation lock.
+	 * @return the prefetched block, or {@code null} if prefetching failed
+	 * (indicating that the next block needs to be allocated on demand)
+	 */
+	private Block awaitPrefetchedBlock(FutureTask<Block> prefetched) {
+		try {
+			return prefetched.get();
+		}
+		catch (ExecutionException ex) {
+			logger.debug("Prefetching of next block of keys failed - allocating it on demand", ex.getCause());
+		}
+		catch (CancellationException ex) {
+			logger.debug("Prefetching of next block of keys cancelled - allocating it on demand");
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			prefetched.cancel(false);
+		}
+		return null;
+	}
+
+	/**
+	 * Allocate a new block of keys from the target incrementer.
+	 */
+	private Block allocateBlock() {
+		long value = this.targetIncrementer.nextLongValue();
+		long min = (this.strategy == Strategy.HI_LO ? value * this.blockSize : value);
+		if (logger.isTraceEnabled()) {
+			logger.trace("Allocated block of keys from " + min + " to " + (min + this.blockSize - 1));
+		}
+		return new Block(min, min + this.blockSize - 1);
+	}
+
+
+	/**
+	 * A block of keys, handing out its values through an atomic counter.
+	 */
+	private static class Block {
+
+		final long min;
+
+		final long max;
+
+		final AtomicLong next;
+
+		Block(long min, long max) {
+			this.min = min;
+			this.max = max;
+			this.next = new AtomicLong(min);
+		}
+	}
+
+}
@@ -16,12 +16,16 @@
 
 package org.springframework.jdbc.core;
 
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.util.List;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import org.springframework.beans.DirectFieldAccessor;
 import org.springframework.beans.TypeMismatchException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.jdbc.core.test.ConcretePerson;
@@ -30,6 +34,7 @@ import org.springframework.jdbc.core.test.Person;
 import org.springframework.jdbc.core.test.SpacePerson;
 
 import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
 
 /**
  * @author Thomas Risberg
@@ -127,4 +132,91 @@ public class BeanPropertyRowMapperTests extends AbstractRowMapperTests {
 		verifySpacePerson(result.get(0));
 		mock.verifyClosed();
 	}
+
+	@Test
+	public void testStaticQueryWithDirectSetterInvocation() throws Exception {
+		Mock mock = new Mock();
+		BeanPropertyRowMapper<Person> mapper = new BeanPropertyRowMapper<Person>(Person.class);
+		mapper.setDirectSetterInvocation(true);
+		List<Person> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people", mapper);
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testQueryWithSpaceInColumnNameAndDirectSetterInvocation() throws Exception {
+		Mock mock = new Mock(MockType.THREE);
+		BeanPropertyRowMapper<SpacePerson> mapper = new BeanPropertyRowMapper<SpacePerson>(SpacePerson.class, true);
+		mapper.setDirectSetterInvocation(true);
+		List<SpacePerson> result = mock.getJdbcTemplate().query(
+				"select last_name as \"Last Name\", age, birth_date, balance from people", mapper);
+		assertEquals(1, result.size());
+		verifySpacePerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingNullValueWithDirectSetterInvocation() throws Exception {
+		BeanPropertyRowMapper<Person> mapper = new BeanPropertyRowMapper<Person>(Person.class);
+		mapper.setDirectSetterInvocation(true);
+		Mock mock = new Mock(MockType.TWO);
+		thrown.expect(TypeMismatchException.class);
+		mock.getJdbcTemplate().query(
+				"select name, null as age, birth_date, balance from people", mapper);
+	}
+
+	@Test
+	public void testMappingNullValueWithPrimitivesDefaultedAndDirectSetterInvocation() throws Exception {
+		BeanPropertyRowMapper<Person> mapper = new BeanPropertyRowMapper<Person>(Person.class);
+		mapper.setDirectSetterInvocation(true);
+		mapper.setPrimitivesDefaultedForNullValue(true);
+		Mock mock = new Mock(MockType.TWO);
+		List<Person> result = mock.getJdbcTemplate().query(
+				"select name, null as age, birth_date, balance from people", mapper);
+		assertEquals(1, result.size());
+		assertEquals("Bubba", result.get(0).getName());
+		assertEquals(0, result.get(0).getAge());
+	}
+
+	@Test
+	public void testColumnPlanReusedAcrossQueries() throws Exception {
+		BeanPropertyRowMapper<Person> mapper = new BeanPropertyRowMapper<Person>(Person.class);
+		verifyPerson(new Mock().getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people", mapper).get(0));
+		verifyPerson(new Mock().getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people", mapper).get(0));
+		Person person = new Mock(MockType.THREE).getJdbcTemplate().query(
+				"select last_name as \"Last Name\", age, birth_date, balance from people", mapper).get(0);
+		assertNull(person.getName());
+		assertEquals(22L, person.getAge());
+	}
+
+	@Test
+	public void testColumnPlanDoesNotRetainMetaData() throws Exception {
+		BeanPropertyRowMapper<Person> mapper = new BeanPropertyRowMapper<Person>(Person.class);
+		new Mock().getJdbcTemplate().query("select name, age, birth_date, balance from people", mapper);
+		Object plan = new DirectFieldAccessor(mapper).getPropertyValue("columnPlan");
+		new Mock().getJdbcTemplate().query("select name, age, birth_date, balance from people", mapper);
+		assertSame(plan, new DirectFieldAccessor(mapper).getPropertyValue("columnPlan"));
+		for (Field field : plan.getClass().getDeclaredFields()) {
+			assertFalse(ResultSetMetaData.class.isAssignableFrom(field.getType()));
+		}
+	}
+
+	@Test
+	public void testColumnLabelsLookedUpOncePerResultSet() throws Exception {
+		ResultSetMetaData rsmd = mock(ResultSetMetaData.class);
+		given(rsmd.getColumnCount()).willReturn(1);
+		given(rsmd.getColumnLabel(1)).willReturn("name");
+		ResultSet rs = mock(ResultSet.class);
+		given(rs.getMetaData()).willReturn(rsmd);
+		given(rs.getString(1)).willReturn("Bubba", "Tommy");
+		BeanPropertyRowMapper<Person> mapper = new BeanPropertyRowMapper<Person>(Person.class);
+		assertEquals("Bubba", mapper.mapRow(rs, 0).getName());
+		assertEquals("Tommy", mapper.mapRow(rs, 1).getName());
+		verify(rsmd, times(1)).getColumnLabel(1);
+	}
+
 }
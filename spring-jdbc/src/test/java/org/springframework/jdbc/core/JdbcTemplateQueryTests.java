@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -33,7 +33,9 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.support.SQLStateSQLExceptionTranslator;
 
 import static org.junit.Assert.*;
 import static org.mockito.BDDMockito.*;
@@ -391,4 +393,84 @@ public class JdbcTemplateQueryTests {
 		verify(this.preparedStatement).close();
 	}
 
+	@Test
+	public void testQueryForIterator() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID < ?";
+		given(this.resultSet.next()).willReturn(true, true, false);
+		given(this.resultSet.getInt(1)).willReturn(11, 12);
+		this.template.setFetchSize(100);
+		RowIterator<Integer> it = this.template.queryForIterator(sql, new SingleColumnRowMapper<Integer>(Integer.class), 3);
+		verify(this.preparedStatement).setFetchSize(100);
+		verify(this.preparedStatement).setObject(1, 3);
+		verify(this.preparedStatement, never()).close();
+		assertTrue(it.hasNext());
+		assertEquals(11, it.next().intValue());
+		assertTrue(it.hasNext());
+		assertEquals(12, it.next().intValue());
+		verify(this.connection, never()).close();
+		assertFalse(it.hasNext());
+		verify(this.resultSet).close();
+		verify(this.preparedStatement).close();
+		verify(this.connection).close();
+		it.close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void testQueryForIteratorClosedEarly() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR";
+		given(this.resultSet.next()).willReturn(true, true, false);
+		given(this.resultSet.getInt(1)).willReturn(11, 12);
+		RowIterator<Integer> it = this.template.queryForIterator(sql, new SingleColumnRowMapper<Integer>(Integer.class));
+		assertEquals(11, it.next().intValue());
+		it.close();
+		assertFalse(it.hasNext());
+		verify(this.resultSet).close();
+		verify(this.preparedStatement).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void testQueryForIteratorWithSQLException() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR";
+		given(this.resultSet.next()).willReturn(true).willThrow(new SQLException("broken"));
+		given(this.resultSet.getInt(1)).willReturn(11);
+		this.template.setExceptionTranslator(new SQLStateSQLExceptionTranslator());
+		RowIterator<Integer> it = this.template.queryForIterator(sql, new SingleColumnRowMapper<Integer>(Integer.class));
+		assertEquals(11, it.next().intValue());
+		try {
+			it.hasNext();
+			fail("Should have thrown DataAccessException");
+		}
+		catch (DataAccessException ex) {
+			// expected
+		}
+		verify(this.resultSet).close();
+		verify(this.preparedStatement).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void testQueryForIteratorWithRuntimeExceptionNotifiesExecutionListener() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID < ?";
+		JdbcExecutionListener listener = mock(JdbcExecutionListener.class);
+		this.template.setExecutionListener(listener);
+		PreparedStatementSetter pss = new PreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement ps) {
+				throw new IllegalStateException("broken");
+			}
+		};
+		try {
+			this.template.queryForIterator(sql, pss, new SingleColumnRowMapper<Integer>(Integer.class));
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+		verify(listener).statementExecuted(eq(sql), anyLong(), eq(-1L), eq(1), eq(false));
+		verify(this.preparedStatement).close();
+		verify(this.connection).close();
+	}
+
 }
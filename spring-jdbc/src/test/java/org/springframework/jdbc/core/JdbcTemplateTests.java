@@ -20,6 +20,7 @@ import java.sql.BatchUpdateException;
 import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.ParameterMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -765,6 +766,80 @@ public class JdbcTemplateTests {
 		verify(this.connection, atLeastOnce()).close();
 	}
 
+	@Test
+	public void testBatchUpdateWithNullValuesResolvesParameterTypesOnce() throws Exception {
+		final String sql = "UPDATE NOSUCHTABLE SET DATE_DISPATCHED = ? WHERE ID = ?";
+		final List<Object[]> args = new ArrayList<Object[]>();
+		args.add(new Object[] {null, 100});
+		args.add(new Object[] {null, 200});
+		args.add(new Object[] {null, 300});
+		ParameterMetaData pmd = mock(ParameterMetaData.class);
+		given(pmd.getParameterType(1)).willReturn(Types.TIMESTAMP);
+		given(this.preparedStatement.getParameterMetaData()).willReturn(pmd);
+		given(this.preparedStatement.executeBatch()).willReturn(new int[] {1, 1, 1});
+		mockDatabaseMetaData(true);
+
+		JdbcTemplate template = new JdbcTemplate(this.dataSource, false);
+		template.setCacheNullParameterTypes(true);
+		template.batchUpdate(sql, args);
+
+		verify(pmd).getParameterType(1);
+		verify(this.preparedStatement, times(3)).setNull(1, Types.TIMESTAMP);
+		verify(this.preparedStatement).setObject(2, 300);
+	}
+
+	@Test
+	public void testBatchUpdateWithNullValuesResolvesParameterTypesPerRowByDefault() throws Exception {
+		final String sql = "UPDATE NOSUCHTABLE SET DATE_DISPATCHED = ? WHERE ID = ?";
+		final List<Object[]> args = new ArrayList<Object[]>();
+		args.add(new Object[] {null, 100});
+		args.add(new Object[] {null, 200});
+		ParameterMetaData pmd = mock(ParameterMetaData.class);
+		given(pmd.getParameterType(1)).willReturn(Types.TIMESTAMP);
+		given(this.preparedStatement.getParameterMetaData()).willReturn(pmd);
+		given(this.preparedStatement.executeBatch()).willReturn(new int[] {1, 1});
+		mockDatabaseMetaData(true);
+
+		JdbcTemplate template = new JdbcTemplate(this.dataSource, false);
+		template.batchUpdate(sql, args);
+		template.batchUpdate(sql, args);
+
+		verify(pmd, times(4)).getParameterType(1);
+		verify(this.preparedStatement, times(4)).setNull(1, Types.TIMESTAMP);
+	}
+
+	@Test
+	public void testNestedUpdateDoesNotUseNullTypesOfOuterStatement() throws Exception {
+		PreparedStatement nestedStatement = mock(PreparedStatement.class);
+		ParameterMetaData pmd = mock(ParameterMetaData.class);
+		ParameterMetaData nestedPmd = mock(ParameterMetaData.class);
+		given(pmd.getParameterType(1)).willReturn(Types.TIMESTAMP);
+		given(nestedPmd.getParameterType(1)).willReturn(Types.VARCHAR);
+		given(this.preparedStatement.getParameterMetaData()).willReturn(pmd);
+		given(nestedStatement.getParameterMetaData()).willReturn(nestedPmd);
+		given(nestedStatement.getConnection()).willReturn(this.connection);
+		given(this.connection.prepareStatement("UPDATE OTHERTABLE SET NAME = ?")).willReturn(nestedStatement);
+		this.template.setCacheNullParameterTypes(true);
+
+		this.template.update("UPDATE NOSUCHTABLE SET DATE_DISPATCHED = ?", new PreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement ps) throws SQLException {
+				StatementCreatorUtils.setParameterValue(ps, 1, SqlTypeValue.TYPE_UNKNOWN, null);
+				template.update(new PreparedStatementCreator() {
+					@Override
+					public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+						PreparedStatement nested = con.prepareStatement("UPDATE OTHERTABLE SET NAME = ?");
+						StatementCreatorUtils.setParameterValue(nested, 1, SqlTypeValue.TYPE_UNKNOWN, null);
+						return nested;
+					}
+				});
+			}
+		});
+
+		verify(this.preparedStatement).setNull(1, Types.TIMESTAMP);
+		verify(nestedStatement).setNull(1, Types.VARCHAR);
+	}
+
 	@Test
 	public void testBatchUpdateWithListOfObjectArraysPlusTypeInfo() throws Exception {
 		final String sql = "UPDATE NOSUCHTABLE SET DATE_DISPATCHED = SYSDATE WHERE ID = ?";
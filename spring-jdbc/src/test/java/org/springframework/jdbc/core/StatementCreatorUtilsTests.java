@@ -23,6 +23,9 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.GregorianCalendar;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -36,6 +39,8 @@ import static org.mockito.BDDMockito.*;
  */
 public class StatementCreatorUtilsTests {
 
+	private static final String SQL = "UPDATE NOSUCHTABLE SET DATE_DISPATCHED = ?";
+
 	private PreparedStatement preparedStatement;
 
 
@@ -280,4 +285,116 @@ public class StatementCreatorUtilsTests {
 		verify(preparedStatement).setNull(1, Types.NULL);
 	}
 
+	@Test
+	public void testSetParameterValueWithNullAndCachedParameterType() throws SQLException {
+		StatementCreatorUtils.driversWithNoSupportForGetParameterType.clear();
+		ConcurrentMap<String, Map<Integer, Integer>> nullTypeCache = new ConcurrentHashMap<String, Map<Integer, Integer>>();
+		ParameterMetaData pmd = mock(ParameterMetaData.class);
+		given(preparedStatement.getParameterMetaData()).willReturn(pmd);
+		given(pmd.getParameterType(1)).willReturn(Types.SMALLINT);
+		given(pmd.getParameterType(2)).willReturn(Types.VARCHAR);
+		Object previous = StatementCreatorUtils.bindNullTypes(nullTypeCache, SQL);
+		try {
+			for (int i = 0; i < 3; i++) {
+				StatementCreatorUtils.setParameterValue(preparedStatement, 1, SqlTypeValue.TYPE_UNKNOWN, null, null);
+				StatementCreatorUtils.setParameterValue(preparedStatement, 2, SqlTypeValue.TYPE_UNKNOWN, null, null);
+			}
+		}
+		finally {
+			StatementCreatorUtils.resetNullTypes(previous);
+		}
+		verify(pmd).getParameterType(1);
+		verify(pmd).getParameterType(2);
+		verify(preparedStatement, times(3)).setNull(1, Types.SMALLINT);
+		verify(preparedStatement, times(3)).setNull(2, Types.VARCHAR);
+
+		previous = StatementCreatorUtils.bindNullTypes(nullTypeCache, SQL);
+		try {
+			StatementCreatorUtils.setParameterValue(preparedStatement, 1, SqlTypeValue.TYPE_UNKNOWN, null, null);
+		}
+		finally {
+			StatementCreatorUtils.resetNullTypes(previous);
+		}
+		verify(pmd).getParameterType(1);
+		verify(preparedStatement, times(4)).setNull(1, Types.SMALLINT);
+	}
+
+	@Test
+	public void testSetParameterValueWithNullAndUnresolvableParameterType() throws SQLException {
+		StatementCreatorUtils.driversWithNoSupportForGetParameterType.clear();
+		ConcurrentMap<String, Map<Integer, Integer>> nullTypeCache = new ConcurrentHashMap<String, Map<Integer, Integer>>();
+		ParameterMetaData pmd = mock(ParameterMetaData.class);
+		given(preparedStatement.getParameterMetaData()).willThrow(new SQLException("unavailable")).willReturn(pmd);
+		given(pmd.getParameterType(1)).willReturn(Types.SMALLINT);
+		Object previous = StatementCreatorUtils.bindNullTypes(nullTypeCache, SQL);
+		try {
+			StatementCreatorUtils.setParameterValue(preparedStatement, 2, Types.INTEGER, 1);
+			assertTrue(nullTypeCache.isEmpty());
+			StatementCreatorUtils.setParameterValue(preparedStatement, 1, SqlTypeValue.TYPE_UNKNOWN, null, null);
+			assertTrue(nullTypeCache.isEmpty());
+			StatementCreatorUtils.setParameterValue(preparedStatement, 1, SqlTypeValue.TYPE_UNKNOWN, null, null);
+			StatementCreatorUtils.setParameterValue(preparedStatement, 1, SqlTypeValue.TYPE_UNKNOWN, null, null);
+		}
+		finally {
+			StatementCreatorUtils.resetNullTypes(previous);
+		}
+		verify(preparedStatement, times(2)).getParameterMetaData();
+		verify(preparedStatement).setNull(1, Types.NULL);
+		verify(preparedStatement, times(2)).setNull(1, Types.SMALLINT);
+		assertEquals(Types.SMALLINT, nullTypeCache.get(SQL).get(1).intValue());
+	}
+
+	@Test
+	public void testSetParameterValueWithNullAndCachedParameterTypePerStatement() throws SQLException {
+		StatementCreatorUtils.driversWithNoSupportForGetParameterType.clear();
+		ParameterMetaData pmd = mock(ParameterMetaData.class);
+		given(preparedStatement.getParameterMetaData()).willReturn(pmd);
+		given(pmd.getParameterType(1)).willReturn(Types.SMALLINT);
+		Object previous = StatementCreatorUtils.bindNullTypes(new ConcurrentHashMap<String, Map<Integer, Integer>>(), SQL);
+		try {
+			StatementCreatorUtils.setParameterValue(preparedStatement, 1, SqlTypeValue.TYPE_UNKNOWN, null, null);
+			Object nested = StatementCreatorUtils.bindNullTypes(null, SQL);
+			try {
+				StatementCreatorUtils.setParameterValue(preparedStatement, 1, SqlTypeValue.TYPE_UNKNOWN, null, null);
+			}
+			finally {
+				StatementCreatorUtils.resetNullTypes(nested);
+			}
+			StatementCreatorUtils.setParameterValue(preparedStatement, 1, SqlTypeValue.TYPE_UNKNOWN, null, null);
+		}
+		finally {
+			StatementCreatorUtils.resetNullTypes(previous);
+		}
+		verify(pmd, times(2)).getParameterType(1);
+
+		StatementCreatorUtils.setParameterValue(preparedStatement, 1, SqlTypeValue.TYPE_UNKNOWN, null, null);
+		verify(pmd, times(3)).getParameterType(1);
+		verify(preparedStatement, times(4)).setNull(1, Types.SMALLINT);
+	}
+
+	@Test
+	public void testSetParameterValueWithNullAndCachedParameterTypeForOtherStatement() throws SQLException {
+		StatementCreatorUtils.driversWithNoSupportForGetParameterType.clear();
+		PreparedStatement otherStatement = mock(PreparedStatement.class);
+		ParameterMetaData pmd = mock(ParameterMetaData.class);
+		ParameterMetaData otherPmd = mock(ParameterMetaData.class);
+		given(preparedStatement.getParameterMetaData()).willReturn(pmd);
+		given(otherStatement.getParameterMetaData()).willReturn(otherPmd);
+		given(pmd.getParameterType(1)).willReturn(Types.SMALLINT);
+		given(otherPmd.getParameterType(1)).willReturn(Types.VARCHAR);
+		Object previous = StatementCreatorUtils.bindNullTypes(new ConcurrentHashMap<String, Map<Integer, Integer>>(), SQL);
+		try {
+			StatementCreatorUtils.restrictNullTypes(preparedStatement, preparedStatement);
+			StatementCreatorUtils.setParameterValue(preparedStatement, 1, SqlTypeValue.TYPE_UNKNOWN, null, null);
+			StatementCreatorUtils.setParameterValue(otherStatement, 1, SqlTypeValue.TYPE_UNKNOWN, null, null);
+			StatementCreatorUtils.setParameterValue(preparedStatement, 1, SqlTypeValue.TYPE_UNKNOWN, null, null);
+		}
+		finally {
+			StatementCreatorUtils.resetNullTypes(previous);
+		}
+		verify(pmd).getParameterType(1);
+		verify(preparedStatement, times(2)).setNull(1, Types.SMALLINT);
+		verify(otherStatement).setNull(1, Types.VARCHAR);
+	}
+
 }
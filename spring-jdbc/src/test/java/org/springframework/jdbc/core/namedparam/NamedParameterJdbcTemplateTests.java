@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -34,6 +34,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import org.springframework.beans.DirectFieldAccessor;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.Customer;
 import org.springframework.jdbc.core.JdbcOperations;
@@ -41,6 +42,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCallback;
 import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowIterator;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.SqlParameterValue;
 
@@ -107,6 +109,43 @@ public class NamedParameterJdbcTemplateTests {
 		new NamedParameterJdbcTemplate((JdbcOperations) null);
 	}
 
+	@Test
+	public void testParsedSqlCache() {
+		namedParameterTemplate.setCacheLimit(2);
+		ParsedSql parsedSql1 = namedParameterTemplate.getParsedSql(SELECT_NAMED_PARAMETERS);
+		assertSame(parsedSql1, namedParameterTemplate.getParsedSql(SELECT_NAMED_PARAMETERS));
+		ParsedSql parsedSql2 = namedParameterTemplate.getParsedSql(UPDATE_NAMED_PARAMETERS);
+		assertSame(parsedSql2, namedParameterTemplate.getParsedSql(UPDATE_NAMED_PARAMETERS));
+		namedParameterTemplate.getParsedSql(SELECT_NO_PARAMETERS);
+		assertNotSame(parsedSql1, namedParameterTemplate.getParsedSql(SELECT_NAMED_PARAMETERS));
+	}
+
+	@Test
+	public void testParsedSqlCacheEvictsLeastRecentlyUsed() {
+		namedParameterTemplate.setCacheLimit(2);
+		ParsedSql parsedSql1 = namedParameterTemplate.getParsedSql(SELECT_NAMED_PARAMETERS);
+		ParsedSql parsedSql2 = namedParameterTemplate.getParsedSql(UPDATE_NAMED_PARAMETERS);
+		assertSame(parsedSql1, namedParameterTemplate.getParsedSql(SELECT_NAMED_PARAMETERS));
+		namedParameterTemplate.getParsedSql(SELECT_NO_PARAMETERS);
+		assertSame(parsedSql1, namedParameterTemplate.getParsedSql(SELECT_NAMED_PARAMETERS));
+		assertNotSame(parsedSql2, namedParameterTemplate.getParsedSql(UPDATE_NAMED_PARAMETERS));
+	}
+
+	@Test
+	public void testParsedSqlCacheDisabled() {
+		namedParameterTemplate.setCacheLimit(0);
+		assertNotSame(namedParameterTemplate.getParsedSql(SELECT_NAMED_PARAMETERS),
+				namedParameterTemplate.getParsedSql(SELECT_NAMED_PARAMETERS));
+	}
+
+	@Test
+	public void testExpandedSqlCacheForCachedStatementsOnly() {
+		assertNotNull(new DirectFieldAccessor(namedParameterTemplate.getParsedSql(SELECT_NAMED_PARAMETERS))
+				.getPropertyValue("expandedSqlCache"));
+		assertNull(new DirectFieldAccessor(NamedParameterUtils.parseSqlStatement(SELECT_NAMED_PARAMETERS))
+				.getPropertyValue("expandedSqlCache"));
+	}
+
 	@Test
 	public void testExecute() throws SQLException {
 		given(preparedStatement.executeUpdate()).willReturn(1);
@@ -316,6 +355,42 @@ public class NamedParameterJdbcTemplateTests {
 		verify(connection).close();
 	}
 
+	@Test
+	public void testQueryForIterator() throws SQLException {
+		given(resultSet.next()).willReturn(true, false);
+		given(resultSet.getInt("id")).willReturn(1);
+		given(resultSet.getString("forename")).willReturn("rod");
+
+		params.put("id", new SqlParameterValue(Types.DECIMAL, 1));
+		params.put("country", "UK");
+		RowIterator<Customer> it = namedParameterTemplate.queryForIterator(SELECT_NAMED_PARAMETERS, params,
+				new RowMapper<Customer>() {
+					@Override
+					public Customer mapRow(ResultSet rs, int rownum) throws SQLException {
+						Customer cust = new Customer();
+						cust.setId(rs.getInt(COLUMN_NAMES[0]));
+						cust.setForename(rs.getString(COLUMN_NAMES[1]));
+						return cust;
+					}
+				});
+		try {
+			assertTrue(it.hasNext());
+			Customer customer = it.next();
+			assertTrue("Customer id was assigned correctly", customer.getId() == 1);
+			assertTrue("Customer forename was assigned correctly", customer.getForename().equals("rod"));
+			verify(preparedStatement, never()).close();
+		}
+		finally {
+			it.close();
+		}
+		verify(connection).prepareStatement(SELECT_NAMED_PARAMETERS_PARSED);
+		verify(preparedStatement).setObject(1, 1, Types.DECIMAL);
+		verify(preparedStatement).setString(2, "UK");
+		verify(resultSet).close();
+		verify(preparedStatement).close();
+		verify(connection).close();
+	}
+
 	@Test
 	public void testQueryWithRowMapperNoParameters() throws SQLException {
 		given(resultSet.next()).willReturn(true, false);
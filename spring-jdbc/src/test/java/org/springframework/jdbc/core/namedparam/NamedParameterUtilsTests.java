@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.jdbc.core.namedparam;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -68,6 +69,29 @@ public class NamedParameterUtilsTests {
 				NamedParameterUtils.substituteNamedParameters("xxx :a :b :c xx :a :a", namedParams));
 	}
 
+	@Test
+	public void substituteNamedParametersWithCachedExpansion() {
+		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement("select * from t where id in (:ids) and x = :x");
+		parsedSql.enableExpandedSqlCache();
+		MapSqlParameterSource namedParams = new MapSqlParameterSource();
+		namedParams.addValue("ids", Arrays.asList(1, 2, 3)).addValue("x", "x");
+		String sql = NamedParameterUtils.substituteNamedParameters(parsedSql, namedParams);
+		assertEquals("select * from t where id in (?, ?, ?) and x = ?", sql);
+		namedParams.addValue("ids", Arrays.asList(4, 5, 6));
+		assertSame(sql, NamedParameterUtils.substituteNamedParameters(parsedSql, namedParams));
+		namedParams.addValue("ids", Arrays.asList(7));
+		assertEquals("select * from t where id in (?) and x = ?",
+				NamedParameterUtils.substituteNamedParameters(parsedSql, namedParams));
+		namedParams.addValue("ids", 8);
+		assertEquals("select * from t where id in (?) and x = ?",
+				NamedParameterUtils.substituteNamedParameters(parsedSql, namedParams));
+		namedParams.addValue("ids", Collections.emptyList());
+		assertEquals("select * from t where id in () and x = ?",
+				NamedParameterUtils.substituteNamedParameters(parsedSql, namedParams));
+		assertSame(NamedParameterUtils.substituteNamedParameters(parsedSql, null),
+				NamedParameterUtils.substituteNamedParameters(parsedSql, null));
+	}
+
 	@Test
 	public void convertParamMapToArray() {
 		Map<String, String> paramMap = new HashMap<String, String>();
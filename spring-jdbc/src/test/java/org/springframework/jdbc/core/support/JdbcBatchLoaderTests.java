@@ -0,0 +1,231 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.support;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * @author agent
+ */
+public class JdbcBatchLoaderTests {
+
+	private static final String INSERT_SQL = "INSERT INTO item (id, name) VALUES (?, ?)";
+
+	private static final ParameterizedPreparedStatementSetter<Integer> ITEM_SETTER =
+			new ParameterizedPreparedStatementSetter<Integer>() {
+				@Override
+				public void setValues(PreparedStatement ps, Integer id) throws SQLException {
+					ps.setInt(1, id);
+					ps.setString(2, "item" + id);
+				}
+			};
+
+	private EmbeddedDatabase database;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private JdbcBatchLoader loader;
+
+
+	@Before
+	public void setUp() {
+		this.database = new EmbeddedDatabaseBuilder().generateUniqueName(true).build();
+		this.jdbcTemplate = new JdbcTemplate(this.database);
+		this.jdbcTemplate.execute("CREATE TABLE item (id INTEGER PRIMARY KEY, name VARCHAR(50))");
+		this.loader = new JdbcBatchLoader(this.jdbcTemplate);
+		this.loader.setChunkSize(100);
+	}
+
+	@After
+	public void shutDown() {
+		this.database.shutdown();
+	}
+
+
+	@Test
+	public void loadInChunks() {
+		int[][] counts = this.loader.load(INSERT_SQL, items(250), ITEM_SETTER);
+		assertEquals(3, counts.length);
+		assertEquals(100, counts[0].length);
+		assertEquals(50, counts[2].length);
+		assertLoaded(250);
+	}
+
+	@Test
+	public void loadArgumentArrays() {
+		List<Object[]> batchArgs = new ArrayList<Object[]>();
+		for (int i = 0; i < 150; i++) {
+			batchArgs.add(new Object[] {i, "item" + i});
+		}
+		this.loader.setRowsPerStatement(20);
+		int[][] counts = this.loader.load(INSERT_SQL, batchArgs);
+		assertEquals(2, counts.length);
+		assertLoaded(150);
+	}
+
+	@Test
+	public void loadWithMultiRowInsert() {
+		this.loader.setRowsPerStatement(30);
+		int[][] counts = this.loader.load(INSERT_SQL, items(250), ITEM_SETTER);
+		assertEquals(3, counts.length);
+		// 100 rows per chunk: 3 statements with 30 rows plus 1 statement with 10 rows
+		assertEquals(4, counts[0].length);
+		assertEquals(2, counts[2].length);
+		assertLoaded(250);
+	}
+
+	@Test
+	public void loadWithRowParameterSetter() {
+		this.loader.setRowsPerStatement(30);
+		int[][] counts = this.loader.load(INSERT_SQL, items(250), new JdbcBatchLoader.RowParameterSetter<Integer>() {
+			@Override
+			public void setValues(PreparedStatement ps, int offset, Integer id) throws SQLException {
+				ps.setInt(offset + 1, id);
+				ps.setString(offset + 2, "item" + id);
+			}
+		});
+		assertEquals(3, counts.length);
+		assertEquals(4, counts[0].length);
+		assertLoaded(250);
+	}
+
+	@Test
+	public void multiRowInsertSkipsLiteralsAndComments() {
+		this.loader.setRowsPerStatement(30);
+		this.loader.load("INSERT INTO item /* values (?) */ (id, name) -- values (?)\n" +
+				"VALUES (?, 'item?')", items(250), new JdbcBatchLoader.RowParameterSetter<Integer>() {
+			@Override
+			public void setValues(PreparedStatement ps, int offset, Integer id) throws SQLException {
+				ps.setInt(offset + 1, id);
+			}
+		});
+		assertEquals(250, this.jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM item WHERE name = 'item?'", Integer.class).intValue());
+	}
+
+	@Test
+	public void multiRowInsertWithTrailingClauseFallsBackToBatch() {
+		String sql = "INSERT INTO item (id, name) VALUES (?, ?) ON DUPLICATE KEY UPDATE name = VALUES(name)";
+		JdbcOperations jdbcOperations = mock(JdbcOperations.class);
+		JdbcBatchLoader loader = new JdbcBatchLoader(jdbcOperations);
+		loader.setRowsPerStatement(10);
+		List<Integer> items = items(10);
+		loader.load(sql, items, ITEM_SETTER);
+		verify(jdbcOperations).batchUpdate(eq(sql), eq(items), eq(JdbcBatchLoader.DEFAULT_CHUNK_SIZE),
+				any(ParameterizedPreparedStatementSetter.class));
+		verifyNoMoreInteractions(jdbcOperations);
+	}
+
+	@Test
+	public void loadInParallel() {
+		this.loader.setRowsPerStatement(7);
+		this.loader.setTaskExecutor(new SimpleAsyncTaskExecutor());
+		int[][] counts = this.loader.load(INSERT_SQL, items(1000), ITEM_SETTER);
+		assertEquals(10, counts.length);
+		assertLoaded(1000);
+	}
+
+	@Test(expected = DataIntegrityViolationException.class)
+	public void loadInParallelWithFailure() {
+		List<Integer> items = items(300);
+		items.set(250, 1);
+		this.loader.setTaskExecutor(new SimpleAsyncTaskExecutor());
+		this.loader.load(INSERT_SQL, items, ITEM_SETTER);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void loadInParallelWithRejectedChunkAwaitsSubmittedChunks() {
+		final AtomicBoolean chunkCompleted = new AtomicBoolean();
+		JdbcOperations jdbcOperations = mock(JdbcOperations.class);
+		given(jdbcOperations.batchUpdate(eq(INSERT_SQL), anyCollection(), anyInt(),
+				any(ParameterizedPreparedStatementSetter.class))).willAnswer(new Answer<int[][]>() {
+			@Override
+			public int[][] answer(InvocationOnMock invocation) throws Throwable {
+				Thread.sleep(200);
+				chunkCompleted.set(true);
+				return new int[][] {new int[100]};
+			}
+		});
+		final AtomicInteger submissions = new AtomicInteger();
+		JdbcBatchLoader loader = new JdbcBatchLoader(jdbcOperations);
+		loader.setChunkSize(100);
+		loader.setTaskExecutor(new TaskExecutor() {
+			@Override
+			public void execute(Runnable task) {
+				if (submissions.incrementAndGet() > 1) {
+					throw new TaskRejectedException("Executor busy");
+				}
+				new Thread(task).start();
+			}
+		});
+		try {
+			loader.load(INSERT_SQL, items(200), ITEM_SETTER);
+			fail("Should have thrown TaskRejectedException");
+		}
+		catch (TaskRejectedException ex) {
+			assertTrue("Submitted chunk should have completed", chunkCompleted.get());
+		}
+	}
+
+	@Test(expected = InvalidDataAccessApiUsageException.class)
+	public void multiRowInsertWithoutValuesClause() {
+		this.loader.setRowsPerStatement(10);
+		this.loader.load("INSERT INTO item SELECT * FROM item", items(10), ITEM_SETTER);
+	}
+
+
+	private List<Integer> items(int count) {
+		List<Integer> items = new ArrayList<Integer>(count);
+		for (int i = 0; i < count; i++) {
+			items.add(i);
+		}
+		return items;
+	}
+
+	private void assertLoaded(int count) {
+		assertEquals(count, this.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM item", Integer.class).intValue());
+		assertEquals(count - 1, this.jdbcTemplate.queryForObject("SELECT MAX(id) FROM item", Integer.class).intValue());
+		assertEquals("item42", this.jdbcTemplate.queryForObject("SELECT name FROM item WHERE id = 42", String.class));
+	}
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.support;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ */
+public class JdbcExecutionMetricsTests {
+
+	private EmbeddedDatabase database;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private final JdbcExecutionMetrics metrics = new JdbcExecutionMetrics();
+
+
+	@Before
+	public void setUp() {
+		this.database = new EmbeddedDatabaseBuilder().generateUniqueName(true).build();
+		this.jdbcTemplate = new JdbcTemplate(this.database);
+		this.jdbcTemplate.execute("CREATE TABLE item (id INTEGER PRIMARY KEY, name VARCHAR(50))");
+		this.jdbcTemplate.setExecutionListener(this.metrics);
+	}
+
+	@After
+	public void shutDown() {
+		this.database.shutdown();
+	}
+
+
+	@Test
+	public void fingerprint() {
+		assertEquals("SELECT * FROM item WHERE id = ? AND name = ?",
+				JdbcExecutionMetrics.fingerprint("SELECT *\n  FROM item WHERE id = 42 AND name = 'it''s' "));
+		assertEquals("SELECT * FROM item2 WHERE id IN (?) AND x = -?",
+				JdbcExecutionMetrics.fingerprint("SELECT * FROM item2 WHERE id IN (?, ?,?) AND x = -1.5"));
+		assertEquals("INSERT INTO t (a, b) VALUES (?)",
+				JdbcExecutionMetrics.fingerprint("INSERT INTO t (a, b) VALUES (?, ?)"));
+	}
+
+	@Test
+	public void updatesAndQueries() {
+		this.jdbcTemplate.update("INSERT INTO item (id, name) VALUES (1, 'one')");
+		this.jdbcTemplate.update("INSERT INTO item (id, name) VALUES (?, ?)", 2, "two");
+		this.jdbcTemplate.update("INSERT INTO item (id, name) VALUES (?, ?)", 3, "three");
+		List<String> names = this.jdbcTemplate.queryForList("SELECT name FROM item", String.class);
+		assertEquals(3, names.size());
+
+		assertEquals(4, this.metrics.getExecutionCount());
+		assertEquals(4, this.metrics.getConnectionAcquisitionTimeHistogram().getCount());
+		JdbcExecutionMetrics.StatementStatistics inserts =
+				this.metrics.getStatementStatistics("INSERT INTO item (id, name) VALUES (?, ?)");
+		assertEquals(3, inserts.getExecutionCount());
+		assertEquals(3, inserts.getRowCount());
+		JdbcExecutionMetrics.StatementStatistics query = this.metrics.getStatementStatistics("SELECT name FROM item");
+		assertEquals(1, query.getExecutionCount());
+		assertEquals(3, query.getRowCount());
+		assertEquals(2, this.metrics.getStatementSummaries().size());
+	}
+
+	@Test
+	public void batchUpdate() {
+		List<Object[]> batchArgs = new ArrayList<Object[]>();
+		for (int i = 0; i < 10; i++) {
+			batchArgs.add(new Object[] {i, "item" + i});
+		}
+		this.jdbcTemplate.batchUpdate("INSERT INTO item (id, name) VALUES (?, ?)", batchArgs);
+		JdbcExecutionMetrics.StatementStatistics inserts =
+				this.metrics.getStatementStatistics("INSERT INTO item (id, name) VALUES (?, ?)");
+		assertEquals(1, inserts.getExecutionCount());
+		assertEquals(10, inserts.getBatchedStatementCount());
+		assertEquals(10, inserts.getRowCount());
+	}
+
+	@Test
+	public void rowCountsOnlyFromKnownResults() {
+		this.jdbcTemplate.update("INSERT INTO item (id, name) VALUES (?, ?)", 1, "one");
+		Integer result = this.jdbcTemplate.execute("SELECT COUNT(*) FROM item", new PreparedStatementCallback<Integer>() {
+			@Override
+			public Integer doInPreparedStatement(PreparedStatement ps) throws SQLException {
+				ps.executeQuery().close();
+				return 42;
+			}
+		});
+		assertEquals(42, result.intValue());
+		List<Integer> sizes = this.jdbcTemplate.query("SELECT id FROM item", new ResultSetExtractor<List<Integer>>() {
+			@Override
+			public List<Integer> extractData(ResultSet rs) {
+				return Arrays.asList(1, 2, 3, 4, 5);
+			}
+		});
+		assertEquals(5, sizes.size());
+
+		assertEquals(0, this.metrics.getStatementStatistics("SELECT COUNT(*) FROM item").getRowCount());
+		assertEquals(0, this.metrics.getStatementStatistics("SELECT id FROM item").getRowCount());
+		assertEquals(1, this.metrics.getStatementStatistics("INSERT INTO item (id, name) VALUES (?, ?)").getRowCount());
+	}
+
+	@Test
+	public void fingerprintCacheLimit() {
+		this.metrics.setFingerprintCacheLimit(1);
+		for (int i = 0; i < 3; i++) {
+			this.jdbcTemplate.update("INSERT INTO item (id, name) VALUES (" + i + ", 'item')");
+			this.jdbcTemplate.queryForList("SELECT name FROM item WHERE id = 1", String.class);
+		}
+		assertEquals(3, this.metrics.getStatementStatistics("INSERT INTO item (id, name) VALUES (?, ?)").getExecutionCount());
+		assertEquals(3, this.metrics.getStatementStatistics("SELECT name FROM item WHERE id = ?").getExecutionCount());
+	}
+
+	@Test
+	public void namedParameterQueryWithExpandedList() {
+		NamedParameterJdbcTemplate namedTemplate = new NamedParameterJdbcTemplate(this.jdbcTemplate);
+		namedTemplate.queryForList("SELECT name FROM item WHERE id IN (:ids)",
+				Collections.singletonMap("ids", Arrays.asList(1, 2, 3)), String.class);
+		namedTemplate.queryForList("SELECT name FROM item WHERE id IN (:ids)",
+				Collections.singletonMap("ids", Arrays.asList(1, 2)), String.class);
+		assertEquals(2, this.metrics.getStatementStatistics("SELECT name FROM item WHERE id IN (?)").getExecutionCount());
+	}
+
+	@Test
+	public void failedExecution() {
+		try {
+			this.jdbcTemplate.update("INSERT INTO nosuchtable (id) VALUES (1)");
+			fail("Should have thrown DataAccessException");
+		}
+		catch (DataAccessException ex) {
+			// expected
+		}
+		assertEquals(1, this.metrics.getFailedExecutionCount());
+		assertEquals(1, this.metrics.getStatementStatistics("INSERT INTO nosuchtable (id) VALUES (?)").getFailedExecutionCount());
+	}
+
+	@Test
+	public void slowQueries() {
+		this.metrics.setSlowQueryThreshold(0);
+		this.jdbcTemplate.queryForList("SELECT name FROM item", String.class);
+		assertEquals(1, this.metrics.getSlowQueryCount());
+	}
+
+	@Test
+	public void maxStatements() {
+		this.metrics.setMaxStatements(1);
+		this.metrics.setNormalizeSql(false);
+		this.jdbcTemplate.update("INSERT INTO item (id, name) VALUES (1, 'one')");
+		this.jdbcTemplate.update("INSERT INTO item (id, name) VALUES (2, 'two')");
+		this.jdbcTemplate.update("INSERT INTO item (id, name) VALUES (3, 'three')");
+		assertEquals(1, this.metrics.getStatementStatistics("INSERT INTO item (id, name) VALUES (1, 'one')").getExecutionCount());
+		assertEquals(2, this.metrics.getStatementStatistics(JdbcExecutionMetrics.OTHER_STATEMENTS).getExecutionCount());
+
+		this.metrics.reset();
+		assertEquals(0, this.metrics.getExecutionCount());
+		assertTrue(this.metrics.getStatementSummaries().isEmpty());
+	}
+
+}
@@ -21,6 +21,8 @@ import java.sql.SQLException;
 
 import org.junit.Test;
 
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
@@ -192,6 +194,52 @@ public abstract class AbstractDatabasePopulatorTests extends AbstractDatabaseIni
 		DatabasePopulatorUtils.execute(databasePopulator, db);
 	}
 
+	@Test
+	public void executesHugeScriptWithInsertBatches() throws SQLException {
+		databasePopulator.addScript(defaultSchema());
+		databasePopulator.addScript(resource("db-test-data-huge.sql"));
+		databasePopulator.setInsertBatchSize(100);
+		DatabasePopulatorUtils.execute(databasePopulator, db);
+		assertThat(jdbcTemplate.queryForObject("select COUNT(NAME) from T_TEST", Integer.class), equalTo(2013));
+	}
+
+	@Test
+	public void insertBatchWithFailedStatement() throws SQLException {
+		databasePopulator.addScript(defaultSchema());
+		databasePopulator.addScript(new ByteArrayResource((
+				"insert into T_TEST (NAME) values ('Keith');\n" +
+				"insert into T_TEST (NAME) values ('Dave');\n" +
+				"insert into T_TEST (NAME) values (null);\n" +
+				"insert into T_TEST (NAME) values ('Sam');").getBytes()));
+		databasePopulator.setInsertBatchSize(10);
+		try {
+			DatabasePopulatorUtils.execute(databasePopulator, db);
+			fail("Should have thrown ScriptStatementFailedException");
+		}
+		catch (ScriptStatementFailedException ex) {
+			assertThat(ex.getMessage(), containsString("statement #3"));
+		}
+	}
+
+	@Test
+	public void executesScriptsInParallel() throws SQLException {
+		databasePopulator.addScript(defaultSchema());
+		databasePopulator.addScript(usersSchema());
+		databasePopulator.setTaskExecutor(new SimpleAsyncTaskExecutor());
+		DatabasePopulatorUtils.execute(databasePopulator, db);
+		assertThat(jdbcTemplate.queryForObject("select COUNT(*) from T_TEST", Integer.class), equalTo(0));
+		assertThat(jdbcTemplate.queryForObject("select COUNT(*) from users", Integer.class), equalTo(0));
+	}
+
+	@Test(expected = ScriptStatementFailedException.class)
+	public void executesScriptsInParallelWithFailure() throws SQLException {
+		databasePopulator.addScript(defaultSchema());
+		databasePopulator.addScript(usersSchema());
+		databasePopulator.addScript(new ByteArrayResource("insert into NO_SUCH_TABLE (NAME) values ('Keith');".getBytes()));
+		databasePopulator.setTaskExecutor(new SimpleAsyncTaskExecutor());
+		DatabasePopulatorUtils.execute(databasePopulator, db);
+	}
+
 	private void assertTestDatabaseCreated() {
 		assertTestDatabaseCreated("Keith");
 	}
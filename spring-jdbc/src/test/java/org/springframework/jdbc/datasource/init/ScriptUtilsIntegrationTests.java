@@ -16,11 +16,14 @@
 
 package org.springframework.jdbc.datasource.init;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.sql.SQLException;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
 
 import static org.springframework.jdbc.datasource.init.ScriptUtils.*;
@@ -58,4 +61,19 @@ public class ScriptUtilsIntegrationTests extends AbstractDatabaseInitializationT
 		assertUsersDatabaseCreated("Hoeller", "Brannen");
 	}
 
+	@Test
+	public void executeSqlScriptFromInputStreamResource() throws IOException, SQLException {
+		executeSqlScript(db.getConnection(), new InputStreamResource(
+				resource("test-data-with-multi-line-comments.sql").getInputStream()));
+		assertUsersDatabaseCreated("Hoeller", "Brannen");
+	}
+
+	@Test
+	public void executeSqlScriptWithFallbackSeparatorFromInputStreamResource() throws SQLException {
+		String script = "INSERT INTO users(first_name, last_name) VALUES('Juergen', 'Hoeller')\n" +
+				"INSERT INTO users(first_name, last_name) VALUES('Sam', 'Brannen')";
+		executeSqlScript(db.getConnection(), new InputStreamResource(new ByteArrayInputStream(script.getBytes())));
+		assertUsersDatabaseCreated("Hoeller", "Brannen");
+	}
+
 }
@@ -16,15 +16,22 @@
 
 package org.springframework.jdbc.datasource.init;
 
+import java.sql.Connection;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Test;
 
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.EncodedResource;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
 
 import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
 import static org.springframework.jdbc.datasource.init.ScriptUtils.*;
 
 /**
@@ -172,6 +179,31 @@ public class ScriptUtilsUnitTests {
 		assertTrue(containsSqlScriptDelimiters("select 1\n\n select 2", "\n\n"));
 	}
 
+	@Test
+	public void executeSqlScriptScalesLinearlyWithScriptSize() throws Exception {
+		Assume.group(TestGroup.PERFORMANCE);
+		Connection connection = mock(Connection.class);
+		given(connection.createStatement()).willReturn(mock(Statement.class, withSettings().stubOnly()));
+		executeLargeScript(connection, 50000);
+
+		long small = executeLargeScript(connection, 100000);
+		long large = executeLargeScript(connection, 800000);
+		assertTrue("Script with eight times the size took " + large + " ms vs " + small + " ms",
+				large < Math.max(small, 10) * 16);
+	}
+
+	private long executeLargeScript(Connection connection, int statementCount) {
+		// newline-separated statements, leading to the fallback separator
+		StringBuilder script = new StringBuilder();
+		for (int i = 0; i < statementCount; i++) {
+			script.append("insert into users (id, name) values (").append(i).append(", 'user").append(i).append("')\n");
+		}
+		Resource resource = new ByteArrayResource(script.toString().getBytes());
+		long start = System.currentTimeMillis();
+		ScriptUtils.executeSqlScript(connection, resource);
+		return System.currentTimeMillis() - start;
+	}
+
 	private String readScript(String path) throws Exception {
 		EncodedResource resource = new EncodedResource(new ClassPathResource(path, getClass()));
 		return ScriptUtils.readScript(resource);
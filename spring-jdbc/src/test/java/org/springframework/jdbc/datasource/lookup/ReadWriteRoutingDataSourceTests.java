@@ -0,0 +1,188 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource.lookup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * @author agent
+ */
+public class ReadWriteRoutingDataSourceTests {
+
+	private final DataSource writeDataSource = mockDataSource();
+
+	private final DataSource readDataSource1 = mockDataSource();
+
+	private final DataSource readDataSource2 = mockDataSource();
+
+	private final ReadWriteRoutingDataSource router = new ReadWriteRoutingDataSource();
+
+
+	@Before
+	public void setUp() {
+		this.router.setWriteDataSource(this.writeDataSource);
+		this.router.setReadDataSources(Arrays.asList(this.readDataSource1, this.readDataSource2));
+	}
+
+	@After
+	public void tearDown() {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+	}
+
+
+	@Test
+	public void writeOutsideOfReadOnlyTransaction() throws SQLException {
+		this.router.afterPropertiesSet();
+		Connection con = this.router.getConnection();
+		assertSame(this.writeDataSource.getConnection(), ((ConnectionProxy) con).getTargetConnection());
+		assertEquals(1, this.router.getOutstandingConnections(this.writeDataSource));
+		assertEquals(1, this.router.getAcquisitionLatency(this.writeDataSource).getCount());
+		con.close();
+		con.close();
+		assertEquals(0, this.router.getOutstandingConnections(this.writeDataSource));
+	}
+
+	@Test
+	public void leastOutstanding() throws SQLException {
+		this.router.afterPropertiesSet();
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		Connection con1 = this.router.getConnection();
+		Connection con2 = this.router.getConnection();
+		assertEquals(1, this.router.getOutstandingConnections(this.readDataSource1));
+		assertEquals(1, this.router.getOutstandingConnections(this.readDataSource2));
+		assertEquals(0, this.router.getOutstandingConnections(this.writeDataSource));
+
+		con1.close();
+		DataSource expected = (((ConnectionProxy) con2).getTargetConnection() ==
+				this.readDataSource1.getConnection() ? this.readDataSource2 : this.readDataSource1);
+		this.router.getConnection();
+		assertEquals(1, this.router.getOutstandingConnections(expected));
+		con2.close();
+	}
+
+	@Test
+	public void weightedRoundRobin() throws SQLException {
+		this.router.setBalancingStrategy(ReadWriteRoutingDataSource.BalancingStrategy.WEIGHTED_ROUND_ROBIN);
+		this.router.setReadDataSourceWeights(3, 1);
+		this.router.afterPropertiesSet();
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		List<Connection> cons = new ArrayList<Connection>();
+		for (int i = 0; i < 8; i++) {
+			cons.add(this.router.getConnection());
+		}
+		assertEquals(6, this.router.getOutstandingConnections(this.readDataSource1));
+		assertEquals(2, this.router.getOutstandingConnections(this.readDataSource2));
+		for (Connection con : cons) {
+			con.close();
+		}
+		assertEquals(0, this.router.getOutstandingConnections(this.readDataSource1));
+	}
+
+	@Test
+	public void ejectFailingReadDataSource() throws SQLException {
+		given(this.readDataSource1.getConnection()).willThrow(new SQLException("down"));
+		this.router.setFailureThreshold(2);
+		this.router.afterPropertiesSet();
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		for (int i = 0; i < 4; i++) {
+			Connection con = this.router.getConnection();
+			assertSame(this.readDataSource2.getConnection(), ((ConnectionProxy) con).getTargetConnection());
+			con.close();
+		}
+		assertFalse(this.router.isAvailable(this.readDataSource1));
+		assertTrue(this.router.isAvailable(this.readDataSource2));
+		assertEquals(2, this.router.getFailureCount(this.readDataSource1));
+	}
+
+	@Test
+	public void fallBackToWriteDataSource() throws SQLException {
+		given(this.readDataSource1.getConnection()).willThrow(new SQLException("down"));
+		given(this.readDataSource2.getConnection()).willThrow(new SQLException("down"));
+		this.router.afterPropertiesSet();
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		Connection con = this.router.getConnection();
+		assertSame(this.writeDataSource.getConnection(), ((ConnectionProxy) con).getTargetConnection());
+	}
+
+	@Test
+	public void retryEjectedReadDataSource() throws SQLException {
+		given(this.readDataSource1.getConnection()).willThrow(new SQLException("down"));
+		this.router.setReadDataSources(Arrays.asList(this.readDataSource1));
+		this.router.setFailureThreshold(1);
+		this.router.setRetryInterval(0);
+		this.router.afterPropertiesSet();
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		this.router.getConnection();
+		this.router.getConnection();
+		assertEquals(2, this.router.getFailureCount(this.readDataSource1));
+	}
+
+	@Test
+	public void routingDeferredByLazyConnectionDataSourceProxy() throws SQLException {
+		this.router.afterPropertiesSet();
+		LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy();
+		proxy.setDefaultAutoCommit(true);
+		proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+		proxy.setTargetDataSource(this.router);
+		proxy.afterPropertiesSet();
+
+		Connection con = proxy.getConnection();
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		con.createStatement();
+		assertEquals(0, this.router.getOutstandingConnections(this.writeDataSource));
+		assertEquals(1, this.router.getOutstandingConnections(this.readDataSource1) +
+				this.router.getOutstandingConnections(this.readDataSource2));
+		con.close();
+		assertEquals(0, this.router.getOutstandingConnections(this.readDataSource1) +
+				this.router.getOutstandingConnections(this.readDataSource2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void weightsNotMatchingReadDataSources() {
+		this.router.setReadDataSourceWeights(1);
+		this.router.afterPropertiesSet();
+	}
+
+
+	private static DataSource mockDataSource() {
+		try {
+			DataSource dataSource = mock(DataSource.class);
+			given(dataSource.getConnection()).willReturn(mock(Connection.class));
+			return dataSource;
+		}
+		catch (SQLException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+}
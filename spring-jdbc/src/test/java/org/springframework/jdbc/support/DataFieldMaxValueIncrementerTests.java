@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,10 +20,21 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import javax.sql.DataSource;
 
 import org.junit.Test;
 
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.support.incrementer.BlockAllocatingMaxValueIncrementer;
+import org.springframework.jdbc.support.incrementer.DataFieldMaxValueIncrementer;
 import org.springframework.jdbc.support.incrementer.HsqlMaxValueIncrementer;
 import org.springframework.jdbc.support.incrementer.MySQLMaxValueIncrementer;
 import org.springframework.jdbc.support.incrementer.OracleSequenceMaxValueIncrementer;
@@ -179,4 +190,129 @@ public class DataFieldMaxValueIncrementerTests {
 		verify(connection, times(2)).close();
 	}
 
+	@Test
+	public void testBlockAllocatingMaxValueIncrementerWithHiLo() {
+		DataFieldMaxValueIncrementer target = mock(DataFieldMaxValueIncrementer.class);
+		given(target.nextLongValue()).willReturn(1L, 2L);
+
+		BlockAllocatingMaxValueIncrementer incrementer = new BlockAllocatingMaxValueIncrementer(
+				target, 3, BlockAllocatingMaxValueIncrementer.Strategy.HI_LO);
+		incrementer.setPaddingLength(3);
+		incrementer.afterPropertiesSet();
+
+		assertEquals(3, incrementer.nextIntValue());
+		assertEquals(4, incrementer.nextLongValue());
+		assertEquals("005", incrementer.nextStringValue());
+		verify(target, times(1)).nextLongValue();
+		assertEquals(6, incrementer.nextIntValue());
+		verify(target, times(2)).nextLongValue();
+	}
+
+	@Test
+	public void testBlockAllocatingMaxValueIncrementerWithPooledSequence() {
+		DataFieldMaxValueIncrementer target = mock(DataFieldMaxValueIncrementer.class);
+		given(target.nextLongValue()).willReturn(1L, 51L);
+
+		BlockAllocatingMaxValueIncrementer incrementer = new BlockAllocatingMaxValueIncrementer(
+				target, 50, BlockAllocatingMaxValueIncrementer.Strategy.POOLED);
+		incrementer.afterPropertiesSet();
+
+		for (int i = 1; i <= 60; i++) {
+			assertEquals(i, incrementer.nextLongValue());
+		}
+		verify(target, times(2)).nextLongValue();
+	}
+
+	@Test
+	public void testBlockAllocatingMaxValueIncrementerWithPrefetch() {
+		DataFieldMaxValueIncrementer target = mock(DataFieldMaxValueIncrementer.class);
+		given(target.nextLongValue()).willReturn(0L, 1L, 2L);
+
+		BlockAllocatingMaxValueIncrementer incrementer = new BlockAllocatingMaxValueIncrementer(
+				target, 10, BlockAllocatingMaxValueIncrementer.Strategy.HI_LO);
+		incrementer.setPrefetchExecutor(new SyncTaskExecutor());
+		incrementer.afterPropertiesSet();
+
+		assertEquals(0, incrementer.nextLongValue());
+		// Next block prefetched when starting to use the current one
+		verify(target, times(2)).nextLongValue();
+		for (int i = 1; i < 10; i++) {
+			assertEquals(i, incrementer.nextLongValue());
+		}
+		verify(target, times(2)).nextLongValue();
+		assertEquals(10, incrementer.nextLongValue());
+		verify(target, times(3)).nextLongValue();
+	}
+
+	@Test
+	public void testBlockAllocatingMaxValueIncrementerWithFailedPrefetch() {
+		DataFieldMaxValueIncrementer target = mock(DataFieldMaxValueIncrementer.class);
+		given(target.nextLongValue()).willReturn(0L).willThrow(
+				new DataAccessResourceFailureException("failed")).willReturn(1L);
+
+		BlockAllocatingMaxValueIncrementer incrementer = new BlockAllocatingMaxValueIncrementer(
+				target, 10, BlockAllocatingMaxValueIncrementer.Strategy.HI_LO);
+		incrementer.setPrefetchExecutor(new SyncTaskExecutor());
+		incrementer.afterPropertiesSet();
+
+		for (int i = 0; i < 10; i++) {
+			assertEquals(i, incrementer.nextLongValue());
+		}
+		// Falls back to synchronous allocation, prefetching the block after that
+		assertEquals(10, incrementer.nextLongValue());
+		verify(target, times(4)).nextLongValue();
+	}
+
+	@Test(expected = InvalidDataAccessApiUsageException.class)
+	public void testBlockAllocatingMaxValueIncrementerWithIntOverflow() {
+		DataFieldMaxValueIncrementer target = mock(DataFieldMaxValueIncrementer.class);
+		given(target.nextLongValue()).willReturn((long) Integer.MAX_VALUE);
+
+		BlockAllocatingMaxValueIncrementer incrementer = new BlockAllocatingMaxValueIncrementer(
+				target, 2, BlockAllocatingMaxValueIncrementer.Strategy.POOLED);
+		incrementer.afterPropertiesSet();
+
+		assertEquals(Integer.MAX_VALUE, incrementer.nextIntValue());
+		incrementer.nextIntValue();
+	}
+
+	@Test
+	public void testBlockAllocatingMaxValueIncrementerWithConcurrentAccess() throws Exception {
+		final DataFieldMaxValueIncrementer target = new DataFieldMaxValueIncrementer() {
+			private long value = 0;
+			@Override
+			public synchronized int nextIntValue() {
+				return (int) nextLongValue();
+			}
+			@Override
+			public synchronized long nextLongValue() {
+				return this.value++;
+			}
+			@Override
+			public String nextStringValue() {
+				return Long.toString(nextLongValue());
+			}
+		};
+		final BlockAllocatingMaxValueIncrementer incrementer = new BlockAllocatingMaxValueIncrementer(
+				target, 7, BlockAllocatingMaxValueIncrementer.Strategy.HI_LO);
+		incrementer.setPrefetchExecutor(new SimpleAsyncTaskExecutor());
+		incrementer.afterPropertiesSet();
+
+		final Set<Long> values = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+		final CountDownLatch latch = new CountDownLatch(8);
+		for (int i = 0; i < 8; i++) {
+			new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 1000; j++) {
+						values.add(incrementer.nextLongValue());
+					}
+					latch.countDown();
+				}
+			}.start();
+		}
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		assertEquals(8000, values.size());
+	}
+
 }
@@ -17,8 +17,11 @@
 package org.springframework.jdbc.support;
 
 import java.sql.BatchUpdateException;
+import java.sql.Connection;
 import java.sql.DataTruncation;
+import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import javax.sql.DataSource;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -35,6 +38,7 @@ import org.springframework.jdbc.BadSqlGrammarException;
 import org.springframework.jdbc.InvalidResultSetAccessException;
 
 import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
 
 /**
  * @author Rod Johnson
@@ -179,4 +183,40 @@ public class SQLErrorCodeSQLExceptionTranslatorTests {
 		customTranslation.setExceptionClass(String.class);
 	}
 
+	@Test
+	public void errorCodeInSeveralCategories() {
+		SQLErrorCodes errorCodes = new SQLErrorCodes();
+		errorCodes.setBadSqlGrammarCodes("1", "2");
+		errorCodes.setDeadlockLoserCodes("2", "3");
+		SQLErrorCodeSQLExceptionTranslator sext = new SQLErrorCodeSQLExceptionTranslator(errorCodes);
+
+		checkTranslation(sext, 2, BadSqlGrammarException.class);
+		checkTranslation(sext, 3, DeadlockLoserDataAccessException.class);
+		assertNull(sext.doTranslate("task", "SQL", new SQLException("", "", 4)));
+
+		errorCodes.setDeadlockLoserCodes("2", "3", "4");
+		checkTranslation(sext, 4, DeadlockLoserDataAccessException.class);
+	}
+
+	@Test
+	public void errorCodesDeterminedOnFirstTranslation() throws SQLException {
+		DatabaseMetaData databaseMetaData = mock(DatabaseMetaData.class);
+		given(databaseMetaData.getDatabaseProductName()).willReturn("HSQL Database Engine");
+		Connection connection = mock(Connection.class);
+		given(connection.getMetaData()).willReturn(databaseMetaData);
+		DataSource dataSource = mock(DataSource.class);
+		given(dataSource.getConnection()).willReturn(connection);
+
+		SQLErrorCodeSQLExceptionTranslator sext = new SQLErrorCodeSQLExceptionTranslator(dataSource);
+		verify(dataSource, never()).getConnection();
+
+		checkTranslation(sext, -22, BadSqlGrammarException.class);
+		checkTranslation(sext, -104, DuplicateKeyException.class);
+		verify(dataSource, times(1)).getConnection();
+
+		SQLErrorCodeSQLExceptionTranslator sext2 = new SQLErrorCodeSQLExceptionTranslator(dataSource);
+		assertSame(sext.getSqlErrorCodes(), sext2.getSqlErrorCodes());
+		verify(dataSource, times(1)).getConnection();
+	}
+
 }
@@ -17,6 +17,9 @@
 package org.springframework.transaction.event;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.springframework.context.ApplicationEvent;
 import org.springframework.context.event.ApplicationListenerMethodAdapter;
@@ -37,6 +40,11 @@ import org.springframework.transaction.support.TransactionSynchronizationManager
  * when Spring's transaction management is enabled. For other cases, registering
  * a bean of type {@link TransactionalEventListenerFactory} is required.
  *
+ * <p>By default, a {@link TransactionSynchronization} is registered for each event.
+ * In {@link TransactionalEventListener#batch() batch} mode, a single synchronization
+ * per transaction collects all events for this listener and hands them to the
+ * listener method as a {@code List} in the specified phase.
+ *
  * @author Stephane Nicoll
  * @author Juergen Hoeller
  * @since 4.2
@@ -49,22 +57,38 @@ class ApplicationListenerMethodTransactionalAdapter extends ApplicationListenerM
 
 
 	public ApplicationListenerMethodTransactionalAdapter(String beanName, Class<?> targetClass, Method method) {
-		super(beanName, targetClass, method);
-		this.annotation = findAnnotation(method);
+		this(beanName, targetClass, method, findAnnotation(method));
+	}
+
+	private ApplicationListenerMethodTransactionalAdapter(String beanName, Class<?> targetClass, Method method,
+			TransactionalEventListener annotation) {
+
+		super(beanName, targetClass, method, annotation.batch());
+		this.annotation = annotation;
 	}
 
 
 	@Override
 	public void onApplicationEvent(ApplicationEvent event) {
 		if (TransactionSynchronizationManager.isSynchronizationActive()) {
-			TransactionSynchronization transactionSynchronization = createTransactionSynchronization(event);
-			TransactionSynchronizationManager.registerSynchronization(transactionSynchronization);
+			if (this.annotation.batch()) {
+				getEventBatch().addEvent(event);
+			}
+			else {
+				TransactionSynchronization transactionSynchronization = createTransactionSynchronization(event);
+				TransactionSynchronizationManager.registerSynchronization(transactionSynchronization);
+			}
 		}
 		else if (this.annotation.fallbackExecution()) {
 			if (this.annotation.phase() == TransactionPhase.AFTER_ROLLBACK && logger.isWarnEnabled()) {
 				logger.warn("Processing " + event + " as a fallback execution on AFTER_ROLLBACK phase");
 			}
-			processEvent(event);
+			if (this.annotation.batch()) {
+				processEventBatch(Collections.singletonList(event));
+			}
+			else {
+				processEvent(event);
+			}
 		}
 		else {
 			// No transactional event execution at all
@@ -78,6 +102,22 @@ class ApplicationListenerMethodTransactionalAdapter extends ApplicationListenerM
 		return new TransactionSynchronizationEventAdapter(this, event, this.annotation.phase());
 	}
 
+	/**
+	 * Return the event batch of this listener for the current transaction,
+	 * registering a new one on first access. The batch is bound as a resource
+	 * keyed by this listener, so that subsequent events find it right away.
+	 */
+	private TransactionSynchronizationEventBatch getEventBatch() {
+		TransactionSynchronizationEventBatch batch =
+				(TransactionSynchronizationEventBatch) TransactionSynchronizationManager.getResource(this);
+		if (batch == null) {
+			batch = new TransactionSynchronizationEventBatch(this, this.annotation.phase());
+			TransactionSynchronizationManager.bindResource(this, batch);
+			TransactionSynchronizationManager.registerSynchronization(batch);
+		}
+		return batch;
+	}
+
 	static TransactionalEventListener findAnnotation(Method method) {
 		TransactionalEventListener annotation =
 				AnnotatedElementUtils.findMergedAnnotation(method, TransactionalEventListener.class);
@@ -134,4 +174,84 @@ class ApplicationListenerMethodTransactionalAdapter extends ApplicationListenerM
 		}
 	}
 
+
+	/**
+	 * {@link TransactionSynchronization} collecting all events for a batch listener
+	 * within a transaction. Unbinds itself from the transaction resources when the
+	 * transaction gets suspended, so that events published within an inner
+	 * transaction are collected in a separate batch.
+	 */
+	private static class TransactionSynchronizationEventBatch extends TransactionSynchronizationAdapter {
+
+		private final ApplicationListenerMethodAdapter listener;
+
+		private final TransactionPhase phase;
+
+		private final List<ApplicationEvent> events = new ArrayList<ApplicationEvent>();
+
+		private boolean open = true;
+
+		public TransactionSynchronizationEventBatch(ApplicationListenerMethodAdapter listener, TransactionPhase phase) {
+			this.listener = listener;
+			this.phase = phase;
+		}
+
+		public void addEvent(ApplicationEvent event) {
+			this.events.add(event);
+		}
+
+		@Override
+		public void suspend() {
+			if (this.open) {
+				TransactionSynchronizationManager.unbindResource(this.listener);
+			}
+		}
+
+		@Override
+		public void resume() {
+			if (this.open) {
+				TransactionSynchronizationManager.bindResource(this.listener, this);
+			}
+		}
+
+		@Override
+		public void beforeCommit(boolean readOnly) {
+			if (this.phase == TransactionPhase.BEFORE_COMMIT) {
+				// Events published from here on belong to a new batch
+				close();
+				processEvents();
+			}
+		}
+
+		@Override
+		public void afterCompletion(int status) {
+			close();
+			if (this.phase == TransactionPhase.AFTER_COMPLETION) {
+				processEvents();
+			}
+			else if (this.phase == TransactionPhase.AFTER_COMMIT && status == STATUS_COMMITTED) {
+				processEvents();
+			}
+			else if (this.phase == TransactionPhase.AFTER_ROLLBACK && status == STATUS_ROLLED_BACK) {
+				processEvents();
+			}
+		}
+
+		@Override
+		public int getOrder() {
+			return this.listener.getOrder();
+		}
+
+		private void close() {
+			if (this.open) {
+				TransactionSynchronizationManager.unbindResourceIfPossible(this.listener);
+				this.open = false;
+			}
+		}
+
+		protected void processEvents() {
+			this.listener.processEventBatch(this.events);
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -35,8 +35,14 @@ import org.springframework.core.annotation.AliasFor;
  * <p>Adding {@link org.springframework.core.annotation.Order @Order} on your annotated method
  * allows you to prioritize that listener amongst other listeners running in the same phase.
  *
+ * <p>With {@link #batch} enabled, all events published within a transaction are collected
+ * and handed to the listener method as a single {@code List} in the chosen phase. Combine
+ * this with {@link org.springframework.context.event.EventListenerExecution @EventListenerExecution}
+ * in order to process the batch asynchronously, e.g. after commit.
+ *
  * @author Stephane Nicoll
  * @author Sam Brannen
+ * @author agent
  * @since 4.2
  */
 @EventListener
@@ -57,6 +63,20 @@ public @interface TransactionalEventListener {
 	 */
 	boolean fallbackExecution() default false;
 
+	/**
+	 * Whether to collect all events published within a transaction and to
+	 * deliver them with a single invocation of the listener method, instead
+	 * of invoking the method once per event.
+	 * <p>The annotated method is expected to declare a {@code List} parameter
+	 * (e.g. {@code List<OrderPlacedEvent>}), with its element type defining
+	 * the event type unless {@link #classes} are specified. Events that do not
+	 * match the {@link #condition} are left out of the batch; the method is not
+	 * invoked if none of the events match. A fallback execution receives a
+	 * singleton list with the current event.
+	 * @since 4.2.10
+	 */
+	boolean batch() default false;
+
 	/**
 	 * Alias for {@link #classes}.
 	 */
@@ -35,6 +35,8 @@ import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.TransactionSystemException;
 import org.springframework.transaction.support.CallbackPreferringPlatformTransactionManager;
 import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 
 /**
@@ -135,12 +137,20 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	private final ConcurrentMap<Object, PlatformTransactionManager> transactionManagerCache =
 			new ConcurrentHashMap<Object, PlatformTransactionManager>(4);
 
+	private final ConcurrentMap<Object, TransactionExecutionPlan> executionPlanCache =
+			new ConcurrentHashMap<Object, TransactionExecutionPlan>(64);
+
+	private final boolean executionPlanCachingPossible = !(
+			isOverridden(getClass(), "determineTransactionManager", TransactionAttribute.class) ||
+			isOverridden(getClass(), "methodIdentification", Method.class, Class.class));
+
 
 	/**
 	 * Specify the name of the default transaction manager bean.
 	 */
 	public void setTransactionManagerBeanName(String transactionManagerBeanName) {
 		this.transactionManagerBeanName = transactionManagerBeanName;
+		this.executionPlanCache.clear();
 	}
 
 	/**
@@ -160,6 +170,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	public void setTransactionManager(PlatformTransactionManager transactionManager) {
 		if (transactionManager != null) {
 			this.transactionManagerCache.put(DEFAULT_TRANSACTION_MANAGER_KEY, transactionManager);
+			this.executionPlanCache.clear();
 		}
 	}
 
@@ -185,7 +196,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	public void setTransactionAttributes(Properties transactionAttributes) {
 		NameMatchTransactionAttributeSource tas = new NameMatchTransactionAttributeSource();
 		tas.setProperties(transactionAttributes);
-		this.transactionAttributeSource = tas;
+		setTransactionAttributeSource(tas);
 	}
 
 	/**
@@ -197,7 +208,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 * @see org.springframework.transaction.annotation.AnnotationTransactionAttributeSource
 	 */
 	public void setTransactionAttributeSources(TransactionAttributeSource[] transactionAttributeSources) {
-		this.transactionAttributeSource = new CompositeTransactionAttributeSource(transactionAttributeSources);
+		setTransactionAttributeSource(new CompositeTransactionAttributeSource(transactionAttributeSources));
 	}
 
 	/**
@@ -211,6 +222,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 */
 	public void setTransactionAttributeSource(TransactionAttributeSource transactionAttributeSource) {
 		this.transactionAttributeSource = transactionAttributeSource;
+		this.executionPlanCache.clear();
 	}
 
 	/**
@@ -226,6 +238,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	@Override
 	public void setBeanFactory(BeanFactory beanFactory) {
 		this.beanFactory = beanFactory;
+		this.executionPlanCache.clear();
 	}
 
 	/**
@@ -269,11 +282,24 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 			throws Throwable {
 
 		// If the transaction attribute is null, the method is non-transactional.
-		final TransactionAttribute txAttr = getTransactionAttributeSource().getTransactionAttribute(method, targetClass);
-		final PlatformTransactionManager tm = determineTransactionManager(txAttr);
-		final String joinpointIdentification = methodIdentification(method, targetClass);
+		final TransactionAttribute sourceAttr = getTransactionAttributeSource().getTransactionAttribute(method, targetClass);
+		TransactionExecutionPlan plan = getExecutionPlan(method, targetClass, sourceAttr);
+		final TransactionAttribute txAttr = plan.transactionAttribute;
+		final PlatformTransactionManager tm = plan.transactionManager;
+		final String joinpointIdentification = plan.joinpointIdentification;
+
+		if (txAttr == null) {
+			// Nothing to do apart from maintaining the TransactionInfo stack.
+			TransactionInfo txInfo = prepareTransactionInfo(tm, null, joinpointIdentification, null);
+			try {
+				return invocation.proceedWithInvocation();
+			}
+			finally {
+				cleanupTransactionInfo(txInfo);
+			}
+		}
 
-		if (txAttr == null || !(tm instanceof CallbackPreferringPlatformTransactionManager)) {
+		if (!(tm instanceof CallbackPreferringPlatformTransactionManager)) {
 			// Standard transaction demarcation with getTransaction and commit/rollback calls.
 			TransactionInfo txInfo = createTransactionIfNecessary(tm, txAttr, joinpointIdentification);
 			Object retVal = null;
@@ -297,16 +323,16 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 		else {
 			// It's a CallbackPreferringPlatformTransactionManager: pass a TransactionCallback in.
 			try {
-				Object result = ((CallbackPreferringPlatformTransactionManager) tm).execute(txAttr,
+				Object result = ((CallbackPreferringPlatformTransactionManager) tm).execute(sourceAttr,
 						new TransactionCallback<Object>() {
 							@Override
 							public Object doInTransaction(TransactionStatus status) {
-								TransactionInfo txInfo = prepareTransactionInfo(tm, txAttr, joinpointIdentification, status);
+								TransactionInfo txInfo = prepareTransactionInfo(tm, sourceAttr, joinpointIdentification, status);
 								try {
 									return invocation.proceedWithInvocation();
 								}
 								catch (Throwable ex) {
-									if (txAttr.rollbackOn(ex)) {
+									if (sourceAttr.rollbackOn(ex)) {
 										// A RuntimeException: will lead to a rollback.
 										if (ex instanceof RuntimeException) {
 											throw (RuntimeException) ex;
@@ -345,9 +371,54 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 */
 	protected void clearTransactionManagerCache() {
 		this.transactionManagerCache.clear();
+		this.executionPlanCache.clear();
 		this.beanFactory = null;
 	}
 
+	/**
+	 * Obtain the execution plan for the given method: the transaction attribute
+	 * with its name applied, the transaction manager and the joinpoint identification.
+	 * <p>Plans are cached per method and target class, unless this aspect overrides
+	 * {@link #determineTransactionManager} or {@link #methodIdentification} (which
+	 * will then be called for each invocation), and rebuilt whenever the
+	 * {@link TransactionAttributeSource} returns a different attribute.
+	 */
+	private TransactionExecutionPlan getExecutionPlan(Method method, Class<?> targetClass, TransactionAttribute sourceAttr) {
+		if (!this.executionPlanCachingPossible) {
+			return buildExecutionPlan(method, targetClass, sourceAttr);
+		}
+		Object cacheKey = new ExecutionPlanCacheKey(method, targetClass);
+		TransactionExecutionPlan plan = this.executionPlanCache.get(cacheKey);
+		if (plan == null || plan.sourceAttribute != sourceAttr) {
+			plan = buildExecutionPlan(method, targetClass, sourceAttr);
+			this.executionPlanCache.put(cacheKey, plan);
+		}
+		return plan;
+	}
+
+	@SuppressWarnings("serial")
+	private TransactionExecutionPlan buildExecutionPlan(
+			Method method, Class<?> targetClass, TransactionAttribute sourceAttr) {
+
+		final String joinpointIdentification = methodIdentification(method, targetClass);
+		TransactionAttribute txAttr = sourceAttr;
+		if (txAttr != null && txAttr.getName() == null) {
+			txAttr = new DelegatingTransactionAttribute(txAttr) {
+				@Override
+				public String getName() {
+					return joinpointIdentification;
+				}
+			};
+		}
+		PlatformTransactionManager tm = determineTransactionManager(txAttr);
+		return new TransactionExecutionPlan(sourceAttr, txAttr, tm, joinpointIdentification);
+	}
+
+	private static boolean isOverridden(Class<?> clazz, String methodName, Class<?>... paramTypes) {
+		Method method = ReflectionUtils.findMethod(clazz, methodName, paramTypes);
+		return (method != null && method.getDeclaringClass() != TransactionAspectSupport.class);
+	}
+
 	/**
 	 * Determine the specific transaction manager to use for the given transaction.
 	 */
@@ -631,6 +702,65 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	}
 
 
+	/**
+	 * Precomputed execution plan for a transactional method, derived
+	 * from a specific attribute returned by the TransactionAttributeSource.
+	 */
+	private static final class TransactionExecutionPlan {
+
+		public final TransactionAttribute sourceAttribute;
+
+		public final TransactionAttribute transactionAttribute;
+
+		public final PlatformTransactionManager transactionManager;
+
+		public final String joinpointIdentification;
+
+		public TransactionExecutionPlan(TransactionAttribute sourceAttribute, TransactionAttribute transactionAttribute,
+				PlatformTransactionManager transactionManager, String joinpointIdentification) {
+
+			this.sourceAttribute = sourceAttribute;
+			this.transactionAttribute = transactionAttribute;
+			this.transactionManager = transactionManager;
+			this.joinpointIdentification = joinpointIdentification;
+		}
+	}
+
+
+	/**
+	 * Cache key for execution plans: method and target class.
+	 */
+	private static final class ExecutionPlanCacheKey {
+
+		private final Method method;
+
+		private final Class<?> targetClass;
+
+		public ExecutionPlanCacheKey(Method method, Class<?> targetClass) {
+			this.method = method;
+			this.targetClass = targetClass;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof ExecutionPlanCacheKey)) {
+				return false;
+			}
+			ExecutionPlanCacheKey otherKey = (ExecutionPlanCacheKey) other;
+			return (this.method.equals(otherKey.method) &&
+					ObjectUtils.nullSafeEquals(this.targetClass, otherKey.targetClass));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.method.hashCode() + (this.targetClass != null ? this.targetClass.hashCode() * 29 : 0);
+		}
+	}
+
+
 	/**
 	 * Simple callback interface for proceeding with the target invocation.
 	 * Concrete interceptors/aspects adapt this to their invocation mechanism.
@@ -0,0 +1,374 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.support;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.util.Assert;
+import org.springframework.util.LatencyHistogram;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+import org.springframework.util.backoff.ExponentialBackOff;
+
+/**
+ * {@link TransactionTemplate} variant which re-executes the given callback
+ * in a fresh transaction if an attempt failed with a transient concurrency
+ * failure, such as a deadlock, a lock acquisition timeout or an optimistic
+ * locking failure.
+ *
+ * <p>The pause between attempts is determined by a {@link BackOff} strategy,
+ * an {@link ExponentialBackOff} by default, and randomized by a configurable
+ * {@link #setJitter jitter} so that competing transactions which failed on the
+ * same rows do not collide again in lockstep. The number of attempts is
+ * limited by {@link #setMaxAttempts "maxAttempts"} as well as by the
+ * {@code BackOff} itself.
+ *
+ * <p>An attempt is only retried if it started a new transaction: a callback
+ * participating in an outer transaction cannot be retried in isolation, since
+ * the outer transaction has been marked rollback-only already. The callback
+ * needs to be idempotent with respect to any non-transactional side effects.
+ *
+ * <p>Retry counts and execution latencies (including retries and back-off
+ * periods) are exposed as bean properties, e.g. for registration with an
+ * {@link org.springframework.jmx.export.MBeanExporter}, in order to detect
+ * contention building up before it turns into a latency problem.
+ *
+ * @author agent
+ * @since 4.2.10
+ * @see #setRetryableExceptions
+ * @see #setBackOff
+ * @see org.springframework.dao.ConcurrencyFailureException
+ */
+@SuppressWarnings("serial")
+public class RetryingTransactionTemplate extends TransactionTemplate {
+
+	/** The default maximum number of attempts: 3 */
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+	/** The default jitter: 0.5, i.e. back-off intervals vary by +/- 50% */
+	public static final double DEFAULT_JITTER = 0.5;
+
+
+	private BackOff backOff = createDefaultBackOff();
+
+	private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+	private double jitter = DEFAULT_JITTER;
+
+	private Class<?>[] retryableExceptions = new Class<?>[] {ConcurrencyFailureException.class};
+
+	private final Random random = new Random();
+
+	private final AtomicLong executionCount = new AtomicLong();
+
+	private final AtomicLong retryCount = new AtomicLong();
+
+	private final AtomicLong recoveredCount = new AtomicLong();
+
+	private final AtomicLong exhaustedCount = new AtomicLong();
+
+	private final AtomicLong totalBackOffTime = new AtomicLong();
+
+	private final LatencyHistogram latencyHistogram = new LatencyHistogram();
+
+
+	/**
+	 * Construct a new RetryingTransactionTemplate for bean usage.
+	 * <p>Note: The PlatformTransactionManager needs to be set before
+	 * any {@code execute} calls.
+	 * @see #setTransactionManager
+	 */
+	public RetryingTransactionTemplate() {
+	}
+
+	/**
+	 * Construct a new RetryingTransactionTemplate using the given transaction manager.
+	 * @param transactionManager the transaction management strategy to be used
+	 */
+	public RetryingTransactionTemplate(PlatformTransactionManager transactionManager) {
+		super(transactionManager);
+	}
+
+	/**
+	 * Construct a new RetryingTransactionTemplate using the given transaction manager,
+	 * taking its default settings from the given transaction definition.
+	 * @param transactionManager the transaction management strategy to be used
+	 * @param transactionDefinition the transaction definition to copy the
+	 * default settings from. Local properties can still be set to change values.
+	 */
+	public RetryingTransactionTemplate(PlatformTransactionManager transactionManager,
+			TransactionDefinition transactionDefinition) {
+
+		super(transactionManager, transactionDefinition);
+	}
+
+
+	/**
+	 * Set the {@link BackOff} strategy determining the pause before each retry.
+	 * A {@link BackOffExecution#STOP} result ends the retries right away.
+	 * <p>Default is an {@link ExponentialBackOff} starting at 20 ms, doubling
+	 * on each retry up to a maximum of 1 second.
+	 */
+	public void setBackOff(BackOff backOff) {
+		Assert.notNull(backOff, "BackOff must not be null");
+		this.backOff = backOff;
+	}
+
+	/**
+	 * Return the {@link BackOff} strategy determining the pause before each retry.
+	 */
+	public BackOff getBackOff() {
+		return this.backOff;
+	}
+
+	/**
+	 * Set the maximum number of attempts, including the initial one.
+	 * <p>Default is {@link #DEFAULT_MAX_ATTEMPTS}. A value of 1 turns off retries.
+	 */
+	public void setMaxAttempts(int maxAttempts) {
+		Assert.isTrue(maxAttempts > 0, "'maxAttempts' must be greater than 0");
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * Return the maximum number of attempts, including the initial one.
+	 */
+	public int getMaxAttempts() {
+		return this.maxAttempts;
+	}
+
+	/**
+	 * Set the relative amount of randomization applied to each back-off interval,
+	 * between 0 (exact intervals) and 1 (anywhere between zero and twice the interval).
+	 * <p>Default is {@link #DEFAULT_JITTER}.
+	 */
+	public void setJitter(double jitter) {
+		Assert.isTrue(jitter >= 0 && jitter <= 1, "'jitter' must be between 0 and 1");
+		this.jitter = jitter;
+	}
+
+	/**
+	 * Return the relative amount of randomization applied to each back-off interval.
+	 */
+	public double getJitter() {
+		return this.jitter;
+	}
+
+	/**
+	 * Specify the exception types which indicate a transient failure worth retrying.
+	 * The exception thrown by an attempt as well as its causes are checked.
+	 * <p>Default is {@link ConcurrencyFailureException}, covering deadlocks,
+	 * lock acquisition failures, serialization failures and optimistic locking
+	 * failures as translated by Spring's data access exception translation.
+	 */
+	public void setRetryableExceptions(Class<?>... retryableExceptions) {
+		Assert.notEmpty(retryableExceptions, "At least one retryable exception type required");
+		for (Class<?> exceptionType : retryableExceptions) {
+			Assert.isAssignable(Throwable.class, exceptionType);
+		}
+		this.retryableExceptions = retryableExceptions;
+	}
+
+
+	@Override
+	public <T> T execute(TransactionCallback<T> action) throws TransactionException {
+		long startTime = System.nanoTime();
+		this.executionCount.incrementAndGet();
+		try {
+			BackOffExecution backOffExecution = null;
+			int attempt = 1;
+			while (true) {
+				AttemptCallback<T> attemptCallback = new AttemptCallback<T>(action);
+				try {
+					T result = super.execute(attemptCallback);
+					if (attempt > 1) {
+						this.recoveredCount.incrementAndGet();
+					}
+					return result;
+				}
+				catch (RuntimeException ex) {
+					if (!attemptCallback.newTransaction || !isRetryable(ex)) {
+						throw ex;
+					}
+					if (backOffExecution == null) {
+						backOffExecution = this.backOff.start();
+					}
+					long interval = (attempt < this.maxAttempts ? backOffExecution.nextBackOff() : BackOffExecution.STOP);
+					if (interval == BackOffExecution.STOP) {
+						this.exhaustedCount.incrementAndGet();
+						if (logger.isDebugEnabled()) {
+							logger.debug("Giving up on transaction after " + attempt + " attempts", ex);
+						}
+						throw ex;
+					}
+					interval = applyJitter(interval);
+					if (logger.isDebugEnabled()) {
+						logger.debug("Retrying transaction in " + interval + " ms after attempt " + attempt +
+								" failed: " + ex);
+					}
+					this.retryCount.incrementAndGet();
+					this.totalBackOffTime.addAndGet(interval);
+					try {
+						backOff(interval);
+					}
+					catch (InterruptedException ex2) {
+						Thread.currentThread().interrupt();
+						throw ex;
+					}
+					attempt++;
+				}
+			}
+		}
+		finally {
+			this.latencyHistogram.recordSince(startTime);
+		}
+	}
+
+	/**
+	 * Determine whether the given exception indicates a transient failure
+	 * which may be overcome by retrying the transaction.
+	 * <p>The default implementation checks the exception and its causes
+	 * against the configured {@link #setRetryableExceptions retryable exceptions}.
+	 * @param ex the exception thrown by the failed attempt
+	 * @return whether to start another attempt
+	 */
+	protected boolean isRetryable(Throwable ex) {
+		Throwable current = ex;
+		while (current != null) {
+			for (Class<?> exceptionType : this.retryableExceptions) {
+				if (exceptionType.isInstance(current)) {
+					return true;
+				}
+			}
+			current = (current.getCause() != current ? current.getCause() : null);
+		}
+		return false;
+	}
+
+	/**
+	 * Pause the current thread for the given back-off interval.
+	 * <p>The default implementation calls {@link Thread#sleep}.
+	 * @param interval the interval in milliseconds
+	 * @throws InterruptedException if the current thread has been interrupted,
+	 * in which case the exception of the last attempt is propagated
+	 */
+	protected void backOff(long interval) throws InterruptedException {
+		if (interval > 0) {
+			Thread.sleep(interval);
+		}
+	}
+
+	private long applyJitter(long interval) {
+		if (this.jitter == 0 || interval <= 0) {
+			return interval;
+		}
+		double factor = 1 - this.jitter + this.random.nextDouble() * 2 * this.jitter;
+		return Math.round(interval * factor);
+	}
+
+
+	/**
+	 * Return the number of {@code execute} calls so far.
+	 */
+	public long getExecutionCount() {
+		return this.executionCount.get();
+	}
+
+	/**
+	 * Return the number of retries, i.e. attempts beyond the initial one, so far.
+	 */
+	public long getRetryCount() {
+		return this.retryCount.get();
+	}
+
+	/**
+	 * Return the number of executions which succeeded after one or more retries.
+	 */
+	public long getRecoveredCount() {
+		return this.recoveredCount.get();
+	}
+
+	/**
+	 * Return the number of executions which failed with a retryable exception
+	 * after running out of attempts.
+	 */
+	public long getExhaustedCount() {
+		return this.exhaustedCount.get();
+	}
+
+	/**
+	 * Return the accumulated back-off time of all retries, in milliseconds.
+	 */
+	public long getTotalBackOffTime() {
+		return this.totalBackOffTime.get();
+	}
+
+	/**
+	 * Return the histogram of {@code execute} latencies, including all attempts
+	 * and back-off periods, for both successful and failed executions.
+	 */
+	public LatencyHistogram getLatencyHistogram() {
+		return this.latencyHistogram;
+	}
+
+	/**
+	 * Reset all statistics.
+	 */
+	public void resetStatistics() {
+		this.executionCount.set(0);
+		this.retryCount.set(0);
+		this.recoveredCount.set(0);
+		this.exhaustedCount.set(0);
+		this.totalBackOffTime.set(0);
+		this.latencyHistogram.reset();
+	}
+
+
+	private static BackOff createDefaultBackOff() {
+		ExponentialBackOff backOff = new ExponentialBackOff(20, 2.0);
+		backOff.setMaxInterval(1000);
+		return backOff;
+	}
+
+
+	/**
+	 * Callback decorator tracking whether an attempt runs in a new transaction.
+	 */
+	private static class AttemptCallback<T> implements TransactionCallback<T> {
+
+		private final TransactionCallback<T> action;
+
+		private boolean newTransaction;
+
+		public AttemptCallback(TransactionCallback<T> action) {
+			this.action = action;
+		}
+
+		@Override
+		public T doInTransaction(TransactionStatus status) {
+			this.newTransaction = status.isNewTransaction();
+			return this.action.doInTransaction(status);
+		}
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.support;
+
+import org.springframework.core.NamedThreadLocal;
+
+/**
+ * Default {@link TransactionContextHolderStrategy}, associating the
+ * {@link TransactionContext} with the current thread.
+ *
+ * <p>The context is held in a single {@link ThreadLocal} which is removed
+ * as soon as the context is empty, not retaining any state (or class references)
+ * on pooled threads in between transactions.
+ *
+ * @author agent
+ * @since 4.2.10
+ */
+public class ThreadLocalTransactionContextHolderStrategy implements TransactionContextHolderStrategy {
+
+	private final ThreadLocal<TransactionContext> contextHolder =
+			new NamedThreadLocal<TransactionContext>("Transaction context");
+
+
+	@Override
+	public TransactionContext getContext() {
+		return this.contextHolder.get();
+	}
+
+	@Override
+	public void setContext(TransactionContext context) {
+		this.contextHolder.set(context);
+	}
+
+	@Override
+	public void clearContext() {
+		this.contextHolder.remove();
+	}
+
+}
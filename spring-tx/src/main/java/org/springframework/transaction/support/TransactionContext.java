@@ -0,0 +1,78 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.support;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Holder for the entire transaction state of a unit of execution as managed by
+ * {@link TransactionSynchronizationManager}: bound resources, registered
+ * synchronizations and the characteristics of the current transaction.
+ *
+ * <p>Instances are created and modified by {@code TransactionSynchronizationManager}
+ * only; they are opaque to {@link TransactionContextHolderStrategy} implementations,
+ * which merely associate them with the current thread or execution. A context
+ * is not thread-safe: it may be handed over to another thread but must not be
+ * used by several threads at the same time.
+ *
+ * @author agent
+ * @since 4.2.10
+ * @see TransactionSynchronizationManager#setContextHolderStrategy
+ */
+public final class TransactionContext {
+
+	Map<Object, Object> resources;
+
+	Set<TransactionSynchronization> synchronizations;
+
+	String currentTransactionName;
+
+	boolean currentTransactionReadOnly;
+
+	Integer currentTransactionIsolationLevel;
+
+	boolean actualTransactionActive;
+
+
+	TransactionContext() {
+	}
+
+
+	/**
+	 * Return whether this context does not hold any state anymore,
+	 * i.e. whether it may be released from its thread or execution.
+	 */
+	boolean isEmpty() {
+		return ((this.resources == null || this.resources.isEmpty()) && this.synchronizations == null &&
+				this.currentTransactionName == null && !this.currentTransactionReadOnly &&
+				this.currentTransactionIsolationLevel == null && !this.actualTransactionActive);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("TransactionContext: ");
+		sb.append("resources=").append(this.resources != null ? this.resources.keySet() : "[]");
+		sb.append(", synchronizationActive=").append(this.synchronizations != null);
+		sb.append(", name=").append(this.currentTransactionName);
+		sb.append(", readOnly=").append(this.currentTransactionReadOnly);
+		sb.append(", isolationLevel=").append(this.currentTransactionIsolationLevel);
+		sb.append(", actualTransactionActive=").append(this.actualTransactionActive);
+		return sb.toString();
+	}
+
+}
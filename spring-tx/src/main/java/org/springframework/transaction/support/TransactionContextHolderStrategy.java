@@ -0,0 +1,53 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.support;
+
+/**
+ * Strategy for associating a {@link TransactionContext} with the current
+ * unit of execution, as used by {@link TransactionSynchronizationManager}.
+ *
+ * <p>The default is {@link ThreadLocalTransactionContextHolderStrategy}.
+ * Custom strategies may carry the context along with a task in asynchronous
+ * or event-loop based environments, e.g. capturing it via {@link #getContext()}
+ * when a task gets scheduled and restoring it via {@link #setContext} when
+ * the task executes on another thread.
+ *
+ * @author agent
+ * @since 4.2.10
+ * @see TransactionSynchronizationManager#setContextHolderStrategy
+ */
+public interface TransactionContextHolderStrategy {
+
+	/**
+	 * Return the context associated with the current unit of execution.
+	 * @return the current context, or {@code null} if none
+	 */
+	TransactionContext getContext();
+
+	/**
+	 * Associate the given context with the current unit of execution.
+	 * @param context the context to associate (never {@code null})
+	 */
+	void setContext(TransactionContext context);
+
+	/**
+	 * Remove the context from the current unit of execution.
+	 * <p>Called once the context does not hold any state anymore.
+	 */
+	void clearContext();
+
+}
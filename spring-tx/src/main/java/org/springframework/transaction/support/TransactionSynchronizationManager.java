@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -27,7 +27,6 @@ import java.util.Set;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import org.springframework.core.NamedThreadLocal;
 import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 import org.springframework.util.Assert;
 
@@ -63,6 +62,10 @@ import org.springframework.util.Assert;
  * within a JTA transaction, e.g. a JDBC Connection or a Hibernate Session for
  * any given DataSource or SessionFactory, respectively.
  *
+ * <p>As of 4.2.10, the entire state is kept in a single {@link TransactionContext}
+ * per thread, associated with the current thread through a pluggable
+ * {@link TransactionContextHolderStrategy}.
+ *
  * @author Juergen Hoeller
  * @since 02.06.2003
  * @see #isSynchronizationActive
@@ -77,23 +80,65 @@ public abstract class TransactionSynchronizationManager {
 
 	private static final Log logger = LogFactory.getLog(TransactionSynchronizationManager.class);
 
-	private static final ThreadLocal<Map<Object, Object>> resources =
-			new NamedThreadLocal<Map<Object, Object>>("Transactional resources");
+	private static volatile TransactionContextHolderStrategy contextHolderStrategy =
+			new ThreadLocalTransactionContextHolderStrategy();
 
-	private static final ThreadLocal<Set<TransactionSynchronization>> synchronizations =
-			new NamedThreadLocal<Set<TransactionSynchronization>>("Transaction synchronizations");
 
-	private static final ThreadLocal<String> currentTransactionName =
-			new NamedThreadLocal<String>("Current transaction name");
+	//-------------------------------------------------------------------------
+	// Management of the transaction context
+	//-------------------------------------------------------------------------
 
-	private static final ThreadLocal<Boolean> currentTransactionReadOnly =
-			new NamedThreadLocal<Boolean>("Current transaction read-only status");
+	/**
+	 * Set the strategy for associating the {@link TransactionContext} with
+	 * the current unit of execution, replacing the default thread-bound strategy.
+	 * <p>Needs to be set before any transaction starts; contexts held by the
+	 * previous strategy are not migrated.
+	 * @param strategy the strategy to use, or {@code null} to
+	 * restore the default {@link ThreadLocalTransactionContextHolderStrategy}
+	 * @since 4.2.10
+	 */
+	public static void setContextHolderStrategy(TransactionContextHolderStrategy strategy) {
+		contextHolderStrategy = (strategy != null ? strategy : new ThreadLocalTransactionContextHolderStrategy());
+	}
 
-	private static final ThreadLocal<Integer> currentTransactionIsolationLevel =
-			new NamedThreadLocal<Integer>("Current transaction isolation level");
+	/**
+	 * Return the strategy for associating the {@link TransactionContext}
+	 * with the current unit of execution.
+	 * @since 4.2.10
+	 */
+	public static TransactionContextHolderStrategy getContextHolderStrategy() {
+		return contextHolderStrategy;
+	}
 
-	private static final ThreadLocal<Boolean> actualTransactionActive =
-			new NamedThreadLocal<Boolean>("Actual transaction active");
+	/**
+	 * Return the current context, or {@code null} if none.
+	 */
+	private static TransactionContext getContext() {
+		return contextHolderStrategy.getContext();
+	}
+
+	/**
+	 * Return the current context, creating and associating a new one if none.
+	 */
+	private static TransactionContext obtainContext() {
+		TransactionContextHolderStrategy strategy = contextHolderStrategy;
+		TransactionContext context = strategy.getContext();
+		if (context == null) {
+			context = new TransactionContext();
+			strategy.setContext(context);
+		}
+		return context;
+	}
+
+	/**
+	 * Release the given context from the current unit of execution
+	 * if it does not hold any state anymore.
+	 */
+	private static void releaseContextIfEmpty(TransactionContext context) {
+		if (context.isEmpty()) {
+			contextHolderStrategy.clearContext();
+		}
+	}
 
 
 	//-------------------------------------------------------------------------
@@ -110,7 +155,8 @@ public abstract class TransactionSynchronizationManager {
 	 * @see #hasResource
 	 */
 	public static Map<Object, Object> getResourceMap() {
-		Map<Object, Object> map = resources.get();
+		TransactionContext context = getContext();
+		Map<Object, Object> map = (context != null ? context.resources : null);
 		return (map != null ? Collections.unmodifiableMap(map) : Collections.emptyMap());
 	}
 
@@ -147,18 +193,16 @@ public abstract class TransactionSynchronizationManager {
 	 * Actually check the value of the resource that is bound for the given key.
 	 */
 	private static Object doGetResource(Object actualKey) {
-		Map<Object, Object> map = resources.get();
-		if (map == null) {
+		TransactionContext context = getContext();
+		if (context == null || context.resources == null) {
 			return null;
 		}
-		Object value = map.get(actualKey);
+		Object value = context.resources.get(actualKey);
 		// Transparently remove ResourceHolder that was marked as void...
 		if (value instanceof ResourceHolder && ((ResourceHolder) value).isVoid()) {
-			map.remove(actualKey);
-			// Remove entire ThreadLocal if empty...
-			if (map.isEmpty()) {
-				resources.remove();
-			}
+			context.resources.remove(actualKey);
+			// Remove entire context if empty...
+			releaseContextIfEmpty(context);
 			value = null;
 		}
 		return value;
@@ -174,11 +218,12 @@ public abstract class TransactionSynchronizationManager {
 	public static void bindResource(Object key, Object value) throws IllegalStateException {
 		Object actualKey = TransactionSynchronizationUtils.unwrapResourceIfNecessary(key);
 		Assert.notNull(value, "Value must not be null");
-		Map<Object, Object> map = resources.get();
-		// set ThreadLocal Map if none found
+		TransactionContext context = obtainContext();
+		Map<Object, Object> map = context.resources;
+		// set resource Map if none found
 		if (map == null) {
 			map = new HashMap<Object, Object>();
-			resources.set(map);
+			context.resources = map;
 		}
 		Object oldValue = map.put(actualKey, value);
 		// Transparently suppress a ResourceHolder that was marked as void...
@@ -227,15 +272,13 @@ public abstract class TransactionSynchronizationManager {
 	 * Actually remove the value of the resource that is bound for the given key.
 	 */
 	private static Object doUnbindResource(Object actualKey) {
-		Map<Object, Object> map = resources.get();
-		if (map == null) {
+		TransactionContext context = getContext();
+		if (context == null || context.resources == null) {
 			return null;
 		}
-		Object value = map.remove(actualKey);
-		// Remove entire ThreadLocal if empty...
-		if (map.isEmpty()) {
-			resources.remove();
-		}
+		Object value = context.resources.remove(actualKey);
+		// Remove entire context if empty...
+		releaseContextIfEmpty(context);
 		// Transparently suppress a ResourceHolder that was marked as void...
 		if (value instanceof ResourceHolder && ((ResourceHolder) value).isVoid()) {
 			value = null;
@@ -258,7 +301,8 @@ public abstract class TransactionSynchronizationManager {
 	 * @see #registerSynchronization
 	 */
 	public static boolean isSynchronizationActive() {
-		return (synchronizations.get() != null);
+		TransactionContext context = getContext();
+		return (context != null && context.synchronizations != null);
 	}
 
 	/**
@@ -267,11 +311,12 @@ public abstract class TransactionSynchronizationManager {
 	 * @throws IllegalStateException if synchronization is already active
 	 */
 	public static void initSynchronization() throws IllegalStateException {
-		if (isSynchronizationActive()) {
+		TransactionContext context = obtainContext();
+		if (context.synchronizations != null) {
 			throw new IllegalStateException("Cannot activate transaction synchronization - already active");
 		}
 		logger.trace("Initializing transaction synchronization");
-		synchronizations.set(new LinkedHashSet<TransactionSynchronization>());
+		context.synchronizations = new LinkedHashSet<TransactionSynchronization>();
 	}
 
 	/**
@@ -288,10 +333,11 @@ public abstract class TransactionSynchronizationManager {
 			throws IllegalStateException {
 
 		Assert.notNull(synchronization, "TransactionSynchronization must not be null");
-		if (!isSynchronizationActive()) {
+		TransactionContext context = getContext();
+		if (context == null || context.synchronizations == null) {
 			throw new IllegalStateException("Transaction synchronization is not active");
 		}
-		synchronizations.get().add(synchronization);
+		context.synchronizations.add(synchronization);
 	}
 
 	/**
@@ -303,7 +349,8 @@ public abstract class TransactionSynchronizationManager {
 	 */
 	// 获取当前线程的事务同步列表
 	public static List<TransactionSynchronization> getSynchronizations() throws IllegalStateException {
-		Set<TransactionSynchronization> synchs = synchronizations.get();
+		TransactionContext context = getContext();
+		Set<TransactionSynchronization> synchs = (context != null ? context.synchronizations : null);
 		// 如果还未设置
 		if (synchs == null) {
 			throw new IllegalStateException("Transaction synchronization is not active");
@@ -329,11 +376,13 @@ public abstract class TransactionSynchronizationManager {
 	 * @throws IllegalStateException if synchronization is not active
 	 */
 	public static void clearSynchronization() throws IllegalStateException {
-		if (!isSynchronizationActive()) {
+		TransactionContext context = getContext();
+		if (context == null || context.synchronizations == null) {
 			throw new IllegalStateException("Cannot deactivate transaction synchronization - not active");
 		}
 		logger.trace("Clearing transaction synchronization");
-		synchronizations.remove();
+		context.synchronizations = null;
+		releaseContextIfEmpty(context);
 	}
 
 
@@ -348,7 +397,16 @@ public abstract class TransactionSynchronizationManager {
 	 * @see org.springframework.transaction.TransactionDefinition#getName()
 	 */
 	public static void setCurrentTransactionName(String name) {
-		currentTransactionName.set(name);
+		if (name != null) {
+			obtainContext().currentTransactionName = name;
+		}
+		else {
+			TransactionContext context = getContext();
+			if (context != null && context.currentTransactionName != null) {
+				context.currentTransactionName = null;
+				releaseContextIfEmpty(context);
+			}
+		}
 	}
 
 	/**
@@ -358,7 +416,8 @@ public abstract class TransactionSynchronizationManager {
 	 * @see org.springframework.transaction.TransactionDefinition#getName()
 	 */
 	public static String getCurrentTransactionName() {
-		return currentTransactionName.get();
+		TransactionContext context = getContext();
+		return (context != null ? context.currentTransactionName : null);
 	}
 
 	/**
@@ -369,7 +428,16 @@ public abstract class TransactionSynchronizationManager {
 	 * @see org.springframework.transaction.TransactionDefinition#isReadOnly()
 	 */
 	public static void setCurrentTransactionReadOnly(boolean readOnly) {
-		currentTransactionReadOnly.set(readOnly ? Boolean.TRUE : null);
+		if (readOnly) {
+			obtainContext().currentTransactionReadOnly = true;
+		}
+		else {
+			TransactionContext context = getContext();
+			if (context != null && context.currentTransactionReadOnly) {
+				context.currentTransactionReadOnly = false;
+				releaseContextIfEmpty(context);
+			}
+		}
 	}
 
 	/**
@@ -385,7 +453,8 @@ public abstract class TransactionSynchronizationManager {
 	 * @see TransactionSynchronization#beforeCommit(boolean)
 	 */
 	public static boolean isCurrentTransactionReadOnly() {
-		return (currentTransactionReadOnly.get() != null);
+		TransactionContext context = getContext();
+		return (context != null && context.currentTransactionReadOnly);
 	}
 
 	/**
@@ -405,7 +474,16 @@ public abstract class TransactionSynchronizationManager {
 	 * @see org.springframework.transaction.TransactionDefinition#getIsolationLevel()
 	 */
 	public static void setCurrentTransactionIsolationLevel(Integer isolationLevel) {
-		currentTransactionIsolationLevel.set(isolationLevel);
+		if (isolationLevel != null) {
+			obtainContext().currentTransactionIsolationLevel = isolationLevel;
+		}
+		else {
+			TransactionContext context = getContext();
+			if (context != null && context.currentTransactionIsolationLevel != null) {
+				context.currentTransactionIsolationLevel = null;
+				releaseContextIfEmpty(context);
+			}
+		}
 	}
 
 	/**
@@ -426,7 +504,8 @@ public abstract class TransactionSynchronizationManager {
 	 * @see org.springframework.transaction.TransactionDefinition#getIsolationLevel()
 	 */
 	public static Integer getCurrentTransactionIsolationLevel() {
-		return currentTransactionIsolationLevel.get();
+		TransactionContext context = getContext();
+		return (context != null ? context.currentTransactionIsolationLevel : null);
 	}
 
 	/**
@@ -436,7 +515,16 @@ public abstract class TransactionSynchronizationManager {
 	 * with an actual transaction; {@code false} to reset that marker
 	 */
 	public static void setActualTransactionActive(boolean active) {
-		actualTransactionActive.set(active ? Boolean.TRUE : null);
+		if (active) {
+			obtainContext().actualTransactionActive = true;
+		}
+		else {
+			TransactionContext context = getContext();
+			if (context != null && context.actualTransactionActive) {
+				context.actualTransactionActive = false;
+				releaseContextIfEmpty(context);
+			}
+		}
 	}
 
 	/**
@@ -451,7 +539,8 @@ public abstract class TransactionSynchronizationManager {
 	 * @see #isSynchronizationActive()
 	 */
 	public static boolean isActualTransactionActive() {
-		return (actualTransactionActive.get() != null);
+		TransactionContext context = getContext();
+		return (context != null && context.actualTransactionActive);
 	}
 
 
@@ -465,11 +554,17 @@ public abstract class TransactionSynchronizationManager {
 	 * @see #setActualTransactionActive
 	 */
 	public static void clear() {
-		clearSynchronization();
-		setCurrentTransactionName(null);
-		setCurrentTransactionReadOnly(false);
-		setCurrentTransactionIsolationLevel(null);
-		setActualTransactionActive(false);
+		TransactionContext context = getContext();
+		if (context == null || context.synchronizations == null) {
+			throw new IllegalStateException("Cannot deactivate transaction synchronization - not active");
+		}
+		logger.trace("Clearing transaction synchronization");
+		context.synchronizations = null;
+		context.currentTransactionName = null;
+		context.currentTransactionReadOnly = false;
+		context.currentTransactionIsolationLevel = null;
+		context.actualTransactionActive = false;
+		releaseContextIfEmpty(context);
 	}
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2016 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -37,16 +37,22 @@ import org.springframework.context.annotation.AnnotationConfigApplicationContext
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.event.EventListener;
+import org.springframework.context.event.EventListenerExecution;
+import org.springframework.context.event.EventListenerExecutionQueue;
+import org.springframework.context.event.EventListenerMethodProcessor;
 import org.springframework.core.annotation.Order;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.stereotype.Component;
 import org.springframework.tests.transaction.CallCountingTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.ReflectionUtils;
 
 import static org.junit.Assert.*;
 import static org.springframework.transaction.event.TransactionPhase.*;
@@ -56,6 +62,7 @@ import static org.springframework.transaction.event.TransactionPhase.*;
  *
  * @author Stephane Nicoll
  * @author Sam Brannen
+ * @author agent
  * @since 4.2
  */
 public class TransactionalEventListenerTests {
@@ -306,6 +313,108 @@ public class TransactionalEventListenerTests {
 		getEventCollector().assertNoEventReceived();
 	}
 
+	@Test
+	public void batchAfterCommit() {
+		load(BatchTestListener.class);
+		this.transactionTemplate.execute(status -> {
+			getContext().publishEvent("one");
+			getContext().publishEvent("SKIP");
+			getContext().publishEvent("two");
+			getEventCollector().assertNoEventReceived();
+			assertEquals(2, TransactionSynchronizationManager.getResourceMap().size());
+			assertEquals(2, TransactionSynchronizationManager.getSynchronizations().size());
+			return null;
+		});
+		getEventCollector().assertEvents(EventCollector.AFTER_COMMIT, Arrays.asList("one", "two"));
+		getEventCollector().assertTotalEventsCount(1);
+		assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+	}
+
+	@Test
+	public void batchAfterRollback() {
+		load(BatchTestListener.class);
+		this.transactionTemplate.execute(status -> {
+			getContext().publishEvent("one");
+			getContext().publishEvent("two");
+			status.setRollbackOnly();
+			return null;
+		});
+		getEventCollector().assertEvents(EventCollector.AFTER_ROLLBACK, Arrays.asList("one", "two"));
+		getEventCollector().assertTotalEventsCount(1);
+		assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+	}
+
+	@Test
+	public void batchWithoutMatchingEvents() {
+		load(BatchTestListener.class);
+		this.transactionTemplate.execute(status -> {
+			getContext().publishEvent("SKIP");
+			return null;
+		});
+		getEventCollector().assertNoEventReceived();
+	}
+
+	@Test
+	public void batchPerTransaction() {
+		load(BatchTestListener.class);
+		TransactionTemplate innerTemplate = new TransactionTemplate(new CallCountingTransactionManager());
+		innerTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.transactionTemplate.execute(status -> {
+			getContext().publishEvent("outer1");
+			innerTemplate.execute(innerStatus -> {
+				getContext().publishEvent("inner");
+				return null;
+			});
+			getEventCollector().assertEvents(EventCollector.AFTER_COMMIT, Collections.singletonList("inner"));
+			getContext().publishEvent("outer2");
+			return null;
+		});
+		getEventCollector().assertEvents(EventCollector.AFTER_COMMIT,
+				Collections.singletonList("inner"), Arrays.asList("outer1", "outer2"));
+		assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+	}
+
+	@Test
+	public void batchBeforeCommit() {
+		load(BatchBeforeCommitTestListener.class);
+		this.transactionTemplate.execute(status -> {
+			getContext().publishEvent("one");
+			getContext().publishEvent("two");
+			return null;
+		});
+		getEventCollector().assertEvents(EventCollector.BEFORE_COMMIT, Arrays.asList("one", "two"));
+		assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+	}
+
+	@Test
+	public void batchWithFallbackExecution() {
+		load(BatchTestListener.class);
+		getContext().publishEvent("test");
+		getEventCollector().assertEvents(EventCollector.AFTER_COMMIT, Collections.singletonList("test"));
+	}
+
+	@Test
+	public void batchWithExecutionQueue() {
+		load(BatchExecutionTestListener.class);
+		this.transactionTemplate.execute(status -> {
+			getContext().publishEvent("one");
+			getContext().publishEvent("two");
+			return null;
+		});
+		getEventCollector().assertEvents(EventCollector.AFTER_COMMIT, Arrays.asList("one", "two"));
+		Map<String, EventListenerExecutionQueue> queues =
+				getContext().getBean(EventListenerMethodProcessor.class).getExecutionQueues();
+		assertEquals(1, queues.size());
+		assertEquals(1, queues.values().iterator().next().getProcessedCount());
+	}
+
+	@Test
+	public void batchWithoutListParameter() {
+		this.thrown.expect(IllegalStateException.class);
+		new ApplicationListenerMethodTransactionalAdapter("invalid", InvalidBatchTestListener.class,
+				ReflectionUtils.findMethod(InvalidBatchTestListener.class, "handle", String.class));
+	}
+
 
 	protected EventCollector getEventCollector() {
 		return eventCollector;
@@ -532,6 +641,64 @@ public class TransactionalEventListenerTests {
 	}
 
 
+	@Component
+	static class BatchTestListener {
+
+		@Autowired
+		private EventCollector eventCollector;
+
+		@TransactionalEventListener(batch = true, fallbackExecution = true, condition = "!'SKIP'.equals(#p0)")
+		public void handleAfterCommit(List<String> data) {
+			this.eventCollector.addEvent(EventCollector.AFTER_COMMIT, data);
+		}
+
+		@TransactionalEventListener(phase = AFTER_ROLLBACK, batch = true)
+		public void handleAfterRollback(List<String> data) {
+			this.eventCollector.addEvent(EventCollector.AFTER_ROLLBACK, data);
+		}
+	}
+
+
+	@Component
+	static class BatchBeforeCommitTestListener {
+
+		@Autowired
+		private EventCollector eventCollector;
+
+		@TransactionalEventListener(phase = BEFORE_COMMIT, batch = true)
+		public void handleBeforeCommit(List<String> data) {
+			this.eventCollector.addEvent(EventCollector.BEFORE_COMMIT, data);
+		}
+	}
+
+
+	@Component
+	static class BatchExecutionTestListener {
+
+		@Autowired
+		private EventCollector eventCollector;
+
+		@Bean
+		public SyncTaskExecutor batchExecutor() {
+			return new SyncTaskExecutor();
+		}
+
+		@TransactionalEventListener(batch = true)
+		@EventListenerExecution(executor = "batchExecutor")
+		public void handleAfterCommit(List<String> data) {
+			this.eventCollector.addEvent(EventCollector.AFTER_COMMIT, data);
+		}
+	}
+
+
+	static class InvalidBatchTestListener {
+
+		@TransactionalEventListener(batch = true)
+		public void handle(String data) {
+		}
+	}
+
+
 	static class EventTransactionSynchronization extends TransactionSynchronizationAdapter {
 
 		private final int order;
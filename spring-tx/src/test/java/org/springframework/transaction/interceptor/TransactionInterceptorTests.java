@@ -17,6 +17,7 @@
 package org.springframework.transaction.interceptor;
 
 import java.io.Serializable;
+import java.lang.reflect.Method;
 import java.util.Properties;
 
 import org.junit.Rule;
@@ -26,11 +27,18 @@ import org.junit.rules.ExpectedException;
 import org.springframework.aop.framework.ProxyFactory;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.tests.sample.beans.ITestBean;
+import org.springframework.tests.sample.beans.TestBean;
+import org.springframework.tests.transaction.CallCountingTransactionManager;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.SerializationTestUtils;
+import org.springframework.util.StopWatch;
 
 import static org.junit.Assert.*;
 import static org.mockito.BDDMockito.*;
@@ -254,6 +262,87 @@ public class TransactionInterceptorTests extends AbstractTransactionAspectTests
 		verify(beanFactory, times(1)).getBean(PlatformTransactionManager.class);
 	}
 
+	@Test
+	public void executionPlanAppliesTransactionName() {
+		CallCountingTransactionManager ptm = new CallCountingTransactionManager();
+		Properties attributes = new Properties();
+		attributes.setProperty("getName", "PROPAGATION_REQUIRED");
+		ITestBean itb = (ITestBean) proxy(new TestBean(), new TransactionInterceptor(ptm, attributes));
+
+		itb.getName();
+		itb.getName();
+		assertEquals(2, ptm.commits);
+		assertEquals(TestBean.class.getName() + ".getName", ptm.lastDefinition.getName());
+	}
+
+	@Test
+	public void executionPlanRebuiltForChangedTransactionAttribute() {
+		CallCountingTransactionManager ptm = new CallCountingTransactionManager();
+		final TransactionAttribute[] currentAttribute = new TransactionAttribute[1];
+		TransactionInterceptor ti = new TransactionInterceptor(ptm, new TransactionAttributeSource() {
+			@Override
+			public TransactionAttribute getTransactionAttribute(Method method, Class<?> targetClass) {
+				return currentAttribute[0];
+			}
+		});
+		ITestBean itb = (ITestBean) proxy(new TestBean(), ti);
+
+		itb.getName();
+		assertEquals(0, ptm.begun);
+		currentAttribute[0] = new DefaultTransactionAttribute();
+		itb.getName();
+		assertEquals(1, ptm.begun);
+		currentAttribute[0] = null;
+		itb.getName();
+		assertEquals(1, ptm.begun);
+	}
+
+	@Test
+	public void overriddenMethodIdentificationCalledForEachInvocation() {
+		final int[] counter = new int[1];
+		Properties attributes = new Properties();
+		attributes.setProperty("getName", "PROPAGATION_REQUIRED");
+		TransactionInterceptor ti = new TransactionInterceptor(new CallCountingTransactionManager(), attributes) {
+			@Override
+			protected String methodIdentification(Method method, Class<?> targetClass) {
+				counter[0]++;
+				return super.methodIdentification(method, targetClass);
+			}
+		};
+		ITestBean itb = (ITestBean) proxy(new TestBean(), ti);
+
+		itb.getName();
+		itb.getName();
+		assertEquals(2, counter[0]);
+	}
+
+	@Test
+	public void nestedTransactionalCallChainIsFastEnough() {
+		Assume.group(TestGroup.PERFORMANCE);
+		CallCountingTransactionManager ptm = new CallCountingTransactionManager();
+		ptm.setTransactionSynchronization(CallCountingTransactionManager.SYNCHRONIZATION_ON_ACTUAL_TRANSACTION);
+		String[] propagations = {"PROPAGATION_REQUIRED", "PROPAGATION_SUPPORTS", "PROPAGATION_SUPPORTS,readOnly", null};
+		CallChain chain = new CallChainLink(null);
+		for (int i = propagations.length - 1; i >= 0; i--) {
+			Properties attributes = new Properties();
+			if (propagations[i] != null) {
+				attributes.setProperty("call", propagations[i]);
+			}
+			chain = (CallChain) proxy(new CallChainLink(chain), new TransactionInterceptor(ptm, attributes));
+		}
+
+		StopWatch sw = new StopWatch();
+		sw.start("nested calls");
+		for (int i = 0; i < 100000; i++) {
+			assertEquals(4, chain.call(0));
+		}
+		sw.stop();
+		assertEquals(100000, ptm.begun);
+		assertEquals(100000, ptm.commits);
+		assertTrue("Nested transactional calls took too long: " + sw.getTotalTimeMillis(),
+				sw.getTotalTimeMillis() < 3000);
+	}
+
 	private TransactionInterceptor createTransactionInterceptor(BeanFactory beanFactory,
 			String transactionManagerName, PlatformTransactionManager transactionManager) {
 		TransactionInterceptor ti = new TransactionInterceptor();
@@ -288,6 +377,12 @@ public class TransactionInterceptorTests extends AbstractTransactionAspectTests
 		return createTransactionInterceptor(beanFactory, null, null);
 	}
 
+	private static Object proxy(Object target, TransactionInterceptor ti) {
+		ProxyFactory pf = new ProxyFactory(target);
+		pf.addAdvice(ti);
+		return pf.getProxy();
+	}
+
 	private PlatformTransactionManager associateTransactionManager(BeanFactory beanFactory, String name) {
 		PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
 		given(beanFactory.containsBean(name)).willReturn(true);
@@ -296,6 +391,30 @@ public class TransactionInterceptorTests extends AbstractTransactionAspectTests
 	}
 
 
+	public interface CallChain {
+
+		int call(int depth);
+	}
+
+
+	public static class CallChainLink implements CallChain {
+
+		private final CallChain next;
+
+		public CallChainLink(CallChain next) {
+			this.next = next;
+		}
+
+		@Override
+		public int call(int depth) {
+			if (depth > 0 && depth < 4) {
+				assertTrue(TransactionSynchronizationManager.isActualTransactionActive());
+			}
+			return (this.next != null ? this.next.call(depth + 1) : depth);
+		}
+	}
+
+
 	/**
 	 * We won't use this: we just want to know it's serializable.
 	 */
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.tests.transaction.CallCountingTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.util.backoff.FixedBackOff;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ */
+public class RetryingTransactionTemplateTests {
+
+	private final CallCountingTransactionManager tm = new CallCountingTransactionManager();
+
+	private final List<Long> backOffs = new ArrayList<Long>();
+
+	private final RetryingTransactionTemplate template = new RetryingTransactionTemplate(this.tm) {
+		@Override
+		protected void backOff(long interval) {
+			backOffs.add(interval);
+		}
+	};
+
+
+	@Test
+	public void recoversFromDeadlock() {
+		final AtomicInteger attempts = new AtomicInteger();
+		String result = this.template.execute(new TransactionCallback<String>() {
+			@Override
+			public String doInTransaction(TransactionStatus status) {
+				if (attempts.incrementAndGet() < 3) {
+					throw new DeadlockLoserDataAccessException("deadlock", null);
+				}
+				return "done";
+			}
+		});
+		assertEquals("done", result);
+		assertEquals(3, this.tm.begun);
+		assertEquals(2, this.tm.rollbacks);
+		assertEquals(1, this.tm.commits);
+		assertEquals(2, this.backOffs.size());
+		assertEquals(1, this.template.getExecutionCount());
+		assertEquals(2, this.template.getRetryCount());
+		assertEquals(1, this.template.getRecoveredCount());
+		assertEquals(0, this.template.getExhaustedCount());
+		assertEquals(1, this.template.getLatencyHistogram().getCount());
+	}
+
+	@Test
+	public void givesUpAfterMaxAttempts() {
+		this.template.setMaxAttempts(2);
+		try {
+			this.template.execute(new TransactionCallback<Object>() {
+				@Override
+				public Object doInTransaction(TransactionStatus status) {
+					throw new OptimisticLockingFailureException("stale");
+				}
+			});
+			fail("Should have thrown OptimisticLockingFailureException");
+		}
+		catch (OptimisticLockingFailureException ex) {
+			// expected
+		}
+		assertEquals(2, this.tm.begun);
+		assertEquals(2, this.tm.rollbacks);
+		assertEquals(1, this.template.getRetryCount());
+		assertEquals(1, this.template.getExhaustedCount());
+	}
+
+	@Test
+	public void givesUpWhenBackOffStops() {
+		this.template.setMaxAttempts(10);
+		this.template.setBackOff(new FixedBackOff(10, 1));
+		try {
+			this.template.execute(new TransactionCallback<Object>() {
+				@Override
+				public Object doInTransaction(TransactionStatus status) {
+					throw new CannotAcquireLockException("locked");
+				}
+			});
+			fail("Should have thrown CannotAcquireLockException");
+		}
+		catch (CannotAcquireLockException ex) {
+			// expected
+		}
+		assertEquals(2, this.tm.begun);
+		assertEquals(1, this.template.getExhaustedCount());
+	}
+
+	@Test
+	public void noRetryForNonTransientFailure() {
+		try {
+			this.template.execute(new TransactionCallback<Object>() {
+				@Override
+				public Object doInTransaction(TransactionStatus status) {
+					throw new DataIntegrityViolationException("duplicate");
+				}
+			});
+			fail("Should have thrown DataIntegrityViolationException");
+		}
+		catch (DataIntegrityViolationException ex) {
+			// expected
+		}
+		assertEquals(1, this.tm.begun);
+		assertEquals(0, this.template.getRetryCount());
+		assertEquals(0, this.template.getExhaustedCount());
+	}
+
+	@Test
+	public void retryableCauseDetected() {
+		final AtomicInteger attempts = new AtomicInteger();
+		this.template.execute(new TransactionCallback<Object>() {
+			@Override
+			public Object doInTransaction(TransactionStatus status) {
+				if (attempts.incrementAndGet() == 1) {
+					throw new IllegalStateException("wrapped", new DeadlockLoserDataAccessException("deadlock", null));
+				}
+				return null;
+			}
+		});
+		assertEquals(2, this.tm.begun);
+		assertEquals(1, this.template.getRecoveredCount());
+	}
+
+	@Test
+	public void noRetryWithinParticipatingTransaction() {
+		ExistingTransactionAwareTransactionManager tm = new ExistingTransactionAwareTransactionManager();
+		final RetryingTransactionTemplate inner = new RetryingTransactionTemplate(tm);
+		final AtomicInteger attempts = new AtomicInteger();
+		try {
+			new TransactionTemplate(tm).execute(new TransactionCallback<Object>() {
+				@Override
+				public Object doInTransaction(TransactionStatus status) {
+					return inner.execute(new TransactionCallback<Object>() {
+						@Override
+						public Object doInTransaction(TransactionStatus status) {
+							attempts.incrementAndGet();
+							throw new DeadlockLoserDataAccessException("deadlock", null);
+						}
+					});
+				}
+			});
+			fail("Should have thrown DeadlockLoserDataAccessException");
+		}
+		catch (DeadlockLoserDataAccessException ex) {
+			// expected
+		}
+		assertEquals(1, attempts.get());
+		assertEquals(1, tm.begun);
+		assertEquals(0, inner.getRetryCount());
+	}
+
+	@Test
+	public void jitterVariesBackOff() {
+		this.template.setBackOff(new FixedBackOff(1000, 100));
+		this.template.setMaxAttempts(21);
+		this.template.setJitter(0.5);
+		final AtomicInteger attempts = new AtomicInteger();
+		this.template.execute(new TransactionCallback<Object>() {
+			@Override
+			public Object doInTransaction(TransactionStatus status) {
+				if (attempts.incrementAndGet() <= 20) {
+					throw new CannotAcquireLockException("locked");
+				}
+				return null;
+			}
+		});
+		assertEquals(20, this.backOffs.size());
+		long total = 0;
+		for (Long interval : this.backOffs) {
+			assertTrue(interval >= 500 && interval <= 1500);
+			total += interval;
+		}
+		assertTrue(this.backOffs.toString(), total != 20000);
+		assertEquals(total, this.template.getTotalBackOffTime());
+	}
+
+
+	/**
+	 * Transaction manager which reports an existing transaction for
+	 * any nested call, as with an actual resource-bound transaction.
+	 */
+	@SuppressWarnings("serial")
+	private static class ExistingTransactionAwareTransactionManager extends CallCountingTransactionManager {
+
+		@Override
+		protected Object doGetTransaction() {
+			return TransactionSynchronizationManager.isActualTransactionActive();
+		}
+
+		@Override
+		protected boolean isExistingTransaction(Object transaction) {
+			return (Boolean) transaction;
+		}
+
+		@Override
+		protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+		}
+	}
+
+}
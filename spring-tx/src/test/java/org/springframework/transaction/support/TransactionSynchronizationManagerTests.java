@@ -0,0 +1,137 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.support;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.transaction.TransactionDefinition;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent
+ */
+public class TransactionSynchronizationManagerTests {
+
+	@After
+	public void resetStrategy() {
+		TransactionSynchronizationManager.setContextHolderStrategy(null);
+	}
+
+
+	@Test
+	public void contextReleasedWhenEmpty() {
+		TransactionContextHolderStrategy strategy = TransactionSynchronizationManager.getContextHolderStrategy();
+		assertNull(strategy.getContext());
+
+		TransactionSynchronizationManager.bindResource("key", "value");
+		TransactionSynchronizationManager.initSynchronization();
+		TransactionSynchronizationManager.setCurrentTransactionName("tx");
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		TransactionSynchronizationManager.setCurrentTransactionIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE);
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+		TransactionContext context = strategy.getContext();
+		assertNotNull(context);
+		assertEquals("value", TransactionSynchronizationManager.getResource("key"));
+		assertEquals("tx", TransactionSynchronizationManager.getCurrentTransactionName());
+		assertTrue(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+		assertEquals(Integer.valueOf(TransactionDefinition.ISOLATION_SERIALIZABLE),
+				TransactionSynchronizationManager.getCurrentTransactionIsolationLevel());
+		assertTrue(TransactionSynchronizationManager.isActualTransactionActive());
+
+		TransactionSynchronizationManager.clear();
+		assertSame(context, strategy.getContext());
+		assertFalse(TransactionSynchronizationManager.isSynchronizationActive());
+		assertNull(TransactionSynchronizationManager.getCurrentTransactionName());
+		assertFalse(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+		assertNull(TransactionSynchronizationManager.getCurrentTransactionIsolationLevel());
+		assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+
+		TransactionSynchronizationManager.unbindResource("key");
+		assertNull(strategy.getContext());
+		assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+	}
+
+	@Test
+	public void resetCharacteristicsWithoutContext() {
+		TransactionSynchronizationManager.setCurrentTransactionName(null);
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+		TransactionSynchronizationManager.setActualTransactionActive(false);
+		assertNull(TransactionSynchronizationManager.getContextHolderStrategy().getContext());
+	}
+
+	@Test
+	public void contextCarriedToOtherThread() throws Exception {
+		TransactionSynchronizationManager.bindResource("key", "value");
+		TransactionSynchronizationManager.setCurrentTransactionName("tx");
+		final TransactionContext context = TransactionSynchronizationManager.getContextHolderStrategy().getContext();
+		final AtomicReference<Object> resource = new AtomicReference<Object>();
+		final AtomicReference<String> name = new AtomicReference<String>();
+
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				TransactionContextHolderStrategy strategy = TransactionSynchronizationManager.getContextHolderStrategy();
+				strategy.setContext(context);
+				try {
+					resource.set(TransactionSynchronizationManager.getResource("key"));
+					name.set(TransactionSynchronizationManager.getCurrentTransactionName());
+				}
+				finally {
+					strategy.clearContext();
+				}
+			}
+		};
+		thread.start();
+		thread.join();
+		assertEquals("value", resource.get());
+		assertEquals("tx", name.get());
+
+		TransactionSynchronizationManager.setCurrentTransactionName(null);
+		TransactionSynchronizationManager.unbindResource("key");
+		assertNull(TransactionSynchronizationManager.getContextHolderStrategy().getContext());
+	}
+
+	@Test
+	public void customStrategy() {
+		final AtomicReference<TransactionContext> holder = new AtomicReference<TransactionContext>();
+		TransactionSynchronizationManager.setContextHolderStrategy(new TransactionContextHolderStrategy() {
+			@Override
+			public TransactionContext getContext() {
+				return holder.get();
+			}
+			@Override
+			public void setContext(TransactionContext context) {
+				holder.set(context);
+			}
+			@Override
+			public void clearContext() {
+				holder.set(null);
+			}
+		});
+
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+		assertNotNull(holder.get());
+		assertTrue(TransactionSynchronizationManager.isActualTransactionActive());
+		TransactionSynchronizationManager.setActualTransactionActive(false);
+		assertNull(holder.get());
+	}
+
+}